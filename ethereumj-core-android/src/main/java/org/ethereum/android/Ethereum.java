@@ -133,6 +133,7 @@ public class Ethereum implements org.ethereum.facade.Ethereum {
         Block bestBlock = blockStore.getBestBlock();
         if (bestBlock == null) {
             logger.info("DB is empty - adding Genesis");
+            blockchain.reset();
 
             Genesis genesis = (Genesis)Genesis.getInstance();
             for (ByteArrayWrapper key : genesis.getPremine().keySet()) {
@@ -2,11 +2,16 @@ package org.ethereum.android.datasource;
 
 import org.ethereum.config.SystemProperties;
 
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
+import org.ethereum.util.FastByteComparisons;
 import org.iq80.leveldb.CompressionType;
 import org.iq80.leveldb.DB;
 import org.iq80.leveldb.DBIterator;
 import org.iq80.leveldb.Options;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
 import org.iq80.leveldb.WriteBatch;
 
 import org.slf4j.Logger;
@@ -15,8 +20,14 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
@@ -107,6 +118,40 @@ public class LevelDbDataSource implements KeyValueDataSource {
         return db.get(key);
     }
 
+    @Override
+    public List<byte[]> getAll(Collection<byte[]> keys) {
+        final List<byte[]> keyList = new ArrayList<>(keys);
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        // sequential reads through the tables
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                byte[] key1 = keyList.get(i1);
+                byte[] key2 = keyList.get(i2);
+                return FastByteComparisons.compareTo(key1, 0, key1.length, key2, 0, key2.length);
+            }
+        });
+
+        byte[][] values = new byte[order.length][];
+        Snapshot snapshot = db.getSnapshot();
+        try {
+            ReadOptions options = new ReadOptions().snapshot(snapshot);
+            for (int i : order) {
+                values[i] = db.get(keyList.get(i), options);
+            }
+        } finally {
+            try {
+                snapshot.close();
+            } catch (IOException e) {
+                logger.error("Failed to release the snapshot of the db: {}", name);
+            }
+        }
+        return Arrays.asList(values);
+    }
+
     @Override
     public byte[] put(byte[] key, byte[] value) {
         db.put(key, value);
@@ -142,6 +187,28 @@ public class LevelDbDataSource implements KeyValueDataSource {
         db.write(batch);
     }
 
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+
+        WriteBatch batch = db.createWriteBatch();
+
+        for (byte[] key : keys)
+            batch.delete(key);
+
+        db.write(batch);
+    }
+
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        DBIterator iterator = db.iterator();
+        if (range.getFrom() != null) {
+            iterator.seek(range.getFrom());
+        } else {
+            iterator.seekToFirst();
+        }
+        return new LevelDbCursor(iterator, range);
+    }
+
     @Override
     public void close() {
         if (!isAlive()) return;
@@ -155,4 +222,57 @@ public class LevelDbDataSource implements KeyValueDataSource {
             logger.error("Failed to find the db file on the close: {} ", name);
         }
     }
+
+    /**
+     * Iterates over the snapshot of the db taken when the cursor is opened
+     */
+    private static class LevelDbCursor implements KeyValueCursor {
+
+        private final DBIterator iterator;
+        private final KeyRange range;
+
+        private Map.Entry<byte[], byte[]> current;
+
+        LevelDbCursor(DBIterator iterator, KeyRange range) {
+            this.iterator = iterator;
+            this.range = range;
+        }
+
+        @Override
+        public boolean next() {
+            current = null;
+            if (!iterator.hasNext()) return false;
+
+            Map.Entry<byte[], byte[]> entry = iterator.next();
+            // keys are ordered, so there is nothing in the range after the end
+            if (range.isBefore(entry.getKey())) return false;
+
+            current = entry;
+            return true;
+        }
+
+        @Override
+        public byte[] getKey() {
+            return current().getKey();
+        }
+
+        @Override
+        public byte[] getValue() {
+            return current().getValue();
+        }
+
+        @Override
+        public void close() {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private Map.Entry<byte[], byte[]> current() {
+            if (current == null) throw new NoSuchElementException("Cursor is not positioned on a row");
+            return current;
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package org.ethereum.android.datasource;
 
 import org.ethereum.config.SystemProperties;
+import org.ethereum.datasource.EntryCursor;
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.db.ByteArrayWrapper;
 import org.mapdb.DB;
@@ -9,7 +12,10 @@ import org.mapdb.HTreeMap;
 import org.mapdb.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -63,6 +69,15 @@ public class MapDBDataSource implements KeyValueDataSource {
         return map.get(key);
     }
 
+    @Override
+    public List<byte[]> getAll(Collection<byte[]> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            result.add(map.get(key));
+        }
+        return result;
+    }
+
     @Override
     public byte[] put(byte[] key, byte[] value) {
         try {
@@ -105,6 +120,22 @@ public class MapDBDataSource implements KeyValueDataSource {
         }
     }
 
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        try {
+            for (byte[] key : keys) {
+                map.remove(key);
+            }
+        } finally {
+            db.commit();
+        }
+    }
+
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        return new EntryCursor(map.entrySet().iterator(), range);
+    }
+
     @Override
     public void close() {
         db.close();
@@ -4,6 +4,7 @@ import org.ethereum.core.Block;
 import org.ethereum.core.TransactionReceipt;
 
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 
 public interface BlockStoreDatabase {
@@ -32,7 +33,7 @@ public interface BlockStoreDatabase {
 
     public TransactionReceipt getTransactionReceiptByHash(byte[] hash);
 
-    public boolean flush(List<Block> blocks);
+    public boolean flush(List<Block> blocks, Collection<TransactionReceiptVO> receipts);
 
     public void save(BlockTransactionVO blockTransactionVO);
 
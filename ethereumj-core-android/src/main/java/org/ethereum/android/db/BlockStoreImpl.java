@@ -3,6 +3,7 @@ package org.ethereum.android.db;
 import org.ethereum.core.Block;
 import org.ethereum.core.TransactionReceipt;
 import org.ethereum.db.BlockStore;
+import org.ethereum.db.TransactionInfo;
 import org.ethereum.util.ByteUtil;
 import org.hibernate.SessionFactory;
 
@@ -74,7 +75,7 @@ public class BlockStoreImpl implements BlockStore {
         for (TransactionReceipt receipt : receipts) {
 
             byte[] transactionHash = receipt.getTransaction().getHash();
-            byte[] rlp = receipt.getEncoded();
+            byte[] rlp = new TransactionInfo(receipt, blockHash, index).getEncoded();
 
             TransactionReceiptVO transactionReceiptVO = new TransactionReceiptVO(transactionHash, rlp);
             database.save(transactionReceiptVO);
@@ -112,6 +113,7 @@ public class BlockStoreImpl implements BlockStore {
         database.reset();
     }
 
+    @Override
     public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
 
         return database.getTransactionReceiptByHash(hash);
@@ -127,6 +129,15 @@ public class BlockStoreImpl implements BlockStore {
 
     }
 
+    @Override
+    public Runnable prepareFlush() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
     @Override
     public void setSessionFactory(SessionFactory sessionFactory) {
 
@@ -5,15 +5,20 @@ import org.ethereum.core.Block;
 import org.ethereum.core.TransactionReceipt;
 import org.ethereum.db.BlockStore;
 import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.db.TransactionCache;
+import org.ethereum.db.TransactionInfo;
 import org.hibernate.SessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.math.BigInteger.ZERO;
 import static org.ethereum.util.ByteUtil.wrap;
@@ -26,6 +31,8 @@ public class InMemoryBlockStore implements BlockStore {
     Map<ByteArrayWrapper, Block> hashIndex = new HashMap<>();
     Map<Long, Block> numberIndex = new HashMap<>();
     List<Block> blocks = new ArrayList<>();
+    Map<ByteArrayWrapper, TransactionInfo> transactionIndex = new HashMap<>();
+    TransactionCache recentTransactions = new TransactionCache();
 
     private BlockStoreDatabase database;
     protected boolean storeAllBlocks = false;
@@ -47,7 +54,7 @@ public class InMemoryBlockStore implements BlockStore {
     @Override
     public byte[] getBlockHashByNumber(long blockNumber) {
 
-        Block block = numberIndex.get(blockNumber);
+        Block block = getCachedByNumber(blockNumber);
 
         if (block == null)
             return dbGetBlockHashByNumber(blockNumber);
@@ -58,7 +65,7 @@ public class InMemoryBlockStore implements BlockStore {
     @Override
     public Block getBlockByNumber(long blockNumber) {
 
-        Block block = numberIndex.get(blockNumber);
+        Block block = getCachedByNumber(blockNumber);
 
         if (block == null)
             return dbGetBlockByNumber(blockNumber);
@@ -69,7 +76,7 @@ public class InMemoryBlockStore implements BlockStore {
     @Override
     public Block getBlockByHash(byte[] hash) {
 
-        Block block = hashIndex.get(wrap(hash));
+        Block block = getCachedByHash(hash);
 
         if (block == null)
             return dbGetBlockByHash(hash);
@@ -80,7 +87,7 @@ public class InMemoryBlockStore implements BlockStore {
     @Override
     public List<byte[]> getListHashesEndWith(byte[] hash, long qty) {
 
-        Block startBlock = hashIndex.get(wrap(hash));
+        Block startBlock = getCachedByHash(hash);
 
         long endIndex = startBlock.getNumber() + qty;
         endIndex = getBestBlock().getNumber() < endIndex ? getBestBlock().getNumber() : endIndex;
@@ -96,25 +103,55 @@ public class InMemoryBlockStore implements BlockStore {
     }
 
     @Override
-    public void saveBlock(Block block, List<TransactionReceipt> receipts) {
+    public synchronized void saveBlock(Block block, List<TransactionReceipt> receipts) {
         ByteArrayWrapper wHash = wrap(block.getHash());
         blocks.add(block);
         hashIndex.put(wHash, block);
         numberIndex.put(block.getNumber(), block);
         totalDifficulty = totalDifficulty.add(block.getCumulativeDifficulty());
+
+        if (receipts != null)
+            for (int i = 0; i < receipts.size(); ++i) {
+                TransactionInfo info = new TransactionInfo(receipts.get(i), block.getHash(), i);
+                transactionIndex.put(wrap(info.getTransactionHash()), info);
+            }
+    }
+
+    @Override
+    public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
+
+        TransactionInfo info;
+        synchronized (this) {
+            info = transactionIndex.get(wrap(hash));
+        }
+        if (info == null)
+            info = recentTransactions.get(hash);
+
+        if (info == null)
+            return database.getTransactionReceiptByHash(hash);
+        else
+            return info.getReceipt();
     }
 
     @Override
-    public BigInteger getTotalDifficulty() {
+    public synchronized BigInteger getTotalDifficulty() {
         return totalDifficulty;
     }
 
     @Override
-    public Block getBestBlock() {
+    public synchronized Block getBestBlock() {
         if (blocks.size() == 0) return null;
         return blocks.get(blocks.size() - 1);
     }
 
+    private synchronized Block getCachedByNumber(long blockNumber) {
+        return numberIndex.get(blockNumber);
+    }
+
+    private synchronized Block getCachedByHash(byte[] hash) {
+        return hashIndex.get(wrap(hash));
+    }
+
     // FIXME: wrap from here in to db class
 
     public byte[] dbGetBlockHashByNumber(long blockNumber) {
@@ -145,25 +182,77 @@ public class InMemoryBlockStore implements BlockStore {
 
     @Override
     public void flush(){
+        prepareFlush().run();
+    }
 
-        long t_ = System.nanoTime();
+    /**
+     * Detaches the blocks and the receipts saved since the last flush,
+     * they are served from memory until written, the best block stays in memory
+     */
+    @Override
+    public synchronized Runnable prepareFlush() {
+        final List<Block> flushed = new ArrayList<>(blocks);
+        final List<TransactionInfo> flushedInfos = new ArrayList<>(transactionIndex.values());
+        final BigInteger flushedDifficulty = totalDifficulty;
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                write(flushed, flushedInfos, flushedDifficulty);
+            }
+        };
+    }
+
+    private void write(List<Block> flushed, List<TransactionInfo> flushedInfos, BigInteger flushedDifficulty) {
 
-        database.flush(blocks);
-        Block block = getBestBlock();
+        long t_ = System.nanoTime();
 
-        blocks.clear();
-        hashIndex.clear();
-        numberIndex.clear();
+        List<TransactionReceiptVO> receipts = new ArrayList<>();
+        for (TransactionInfo info : flushedInfos) {
+            receipts.add(new TransactionReceiptVO(info.getTransactionHash(), info.getEncoded()));
+            recentTransactions.put(info);
+        }
+        database.flush(flushed, receipts);
 
-        saveBlock(block, null);
+        release(flushed, flushedInfos, database.getTotalDifficulty(), flushedDifficulty);
 
         long t__ = System.nanoTime();
         logger.info("Flush block store in: {} ms", ((float) (t__ - t_) / 1_000_000));
+    }
+
+    /**
+     * Drops the written blocks and receipts from memory, except the best block
+     */
+    private synchronized void release(List<Block> flushed, List<TransactionInfo> flushedInfos,
+                                      BigInteger storedDifficulty, BigInteger flushedDifficulty) {
+
+        Set<Block> written = Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+        written.addAll(flushed);
+        Block best = getBestBlock();
+
+        List<Block> kept = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block == best || !written.contains(block)) {
+                kept.add(block);
+                continue;
+            }
+            ByteArrayWrapper wHash = wrap(block.getHash());
+            if (hashIndex.get(wHash) == block) hashIndex.remove(wHash);
+            if (numberIndex.get(block.getNumber()) == block) numberIndex.remove(block.getNumber());
+        }
+        blocks = kept;
+
+        for (TransactionInfo info : flushedInfos) {
+            ByteArrayWrapper wHash = wrap(info.getTransactionHash());
+            if (transactionIndex.get(wHash) == info) transactionIndex.remove(wHash);
+        }
 
-        totalDifficulty = (BigInteger) database.getTotalDifficulty();
+        // the difficulty of the blocks saved while the flush was written is kept on top of the stored one
+        if (storedDifficulty != null)
+            totalDifficulty = storedDifficulty.add(totalDifficulty.subtract(flushedDifficulty));
     }
 
-    public void load(){
+    public synchronized void load(){
 
         logger.info("loading db");
 
@@ -17,11 +17,13 @@ import org.ethereum.config.SystemProperties;
 import org.ethereum.core.Block;
 import org.ethereum.core.Transaction;
 import org.ethereum.core.TransactionReceipt;
+import org.ethereum.db.TransactionInfo;
 
 import java.io.File;
 import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -291,7 +293,7 @@ public class OrmLiteBlockStoreDatabase extends OrmLiteSqliteOpenHelper implement
         if (list.size() == 0) return null;
         TransactionReceiptVO vo = list.get(0);
 
-        return new TransactionReceipt(vo.rlp);
+        return new TransactionInfo(vo.rlp).getReceipt();
 
     }
 
@@ -310,7 +312,7 @@ public class OrmLiteBlockStoreDatabase extends OrmLiteSqliteOpenHelper implement
         return blockTransactionVO;
     }
 
-    public boolean flush(final List<Block> blocks) {
+    public boolean flush(final List<Block> blocks, final Collection<TransactionReceiptVO> receipts) {
 
         if (!storeAllBLocks) {
             reset();
@@ -346,6 +348,10 @@ public class OrmLiteBlockStoreDatabase extends OrmLiteSqliteOpenHelper implement
                                     save(blockVO);
                                 }
                             }
+                            // the receipts are kept for all the blocks
+                            for (TransactionReceiptVO receipt : receipts) {
+                                save(receipt);
+                            }
                             // you could pass back an object here
                             return null;
                         }
@@ -9,6 +9,7 @@ import org.ethereum.config.SystemProperties;
 import org.ethereum.core.BlockchainImpl;
 import org.ethereum.core.Wallet;
 import org.ethereum.db.BlockStore;
+import org.ethereum.db.LogIndex;
 import org.ethereum.db.RepositoryImpl;
 import org.ethereum.facade.Blockchain;
 import org.ethereum.facade.Ethereum;
@@ -69,7 +70,9 @@ public class EthereumModule {
     Blockchain provideBlockchain(BlockStore blockStore, Repository repository,
                                  Wallet wallet, AdminInfo adminInfo,
                                  EthereumListener listener, ChannelManager channelManager) {
-        return new BlockchainImpl(blockStore, repository, wallet, adminInfo, listener, channelManager);
+        BlockchainImpl blockchain = new BlockchainImpl(blockStore, repository, wallet, adminInfo, listener, channelManager);
+        blockchain.setLogIndex(new LogIndex(new LevelDbDataSource()));
+        return blockchain;
     }
 
     @Provides
@@ -4,6 +4,8 @@ import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 
 import org.ethereum.core.Block;
+import org.ethereum.core.LogFilter;
+import org.ethereum.core.LogSearch;
 import org.ethereum.core.Transaction;
 import org.ethereum.core.TransactionReceipt;
 import org.ethereum.facade.Ethereum;
@@ -20,7 +22,7 @@ public class FilterLog extends FilterBase {
     long blockFrom;
     long blockTo;
     ArrayList<byte[]> addresses = new ArrayList<>();
-    ArrayList<byte[]> topics = new ArrayList<>();
+    LogFilter logFilter = new LogFilter();
 
     private Ethereum ethereum;
 
@@ -60,13 +62,26 @@ public class FilterLog extends FilterBase {
             }
         }
 
+        logFilter.withContractAddress(addresses.toArray(new byte[addresses.size()][]));
+
+        // the topics are positional: null matches anything, an array matches any of its values
         if (data.containsKey("topics")) {
             if (data.get("topics") instanceof String) {
-                topics.add(Hex.decode(((String) data.get("topics")).substring(2)));
+                logFilter.withTopic(Hex.decode(((String) data.get("topics")).substring(2)));
             } else if (data.get("topics") instanceof JSONArray){
                 for (Object item : (JSONArray)data.get("topics")) {
                     if (item instanceof String) {
-                        topics.add(Hex.decode(((String) item).substring(2)));
+                        logFilter.withTopic(Hex.decode(((String) item).substring(2)));
+                    } else if (item instanceof JSONArray) {
+                        ArrayList<byte[]> values = new ArrayList<>();
+                        for (Object value : (JSONArray)item) {
+                            if (value instanceof String) {
+                                values.add(Hex.decode(((String) value).substring(2)));
+                            }
+                        }
+                        logFilter.withTopic(values.toArray(new byte[values.size()][]));
+                    } else {
+                        logFilter.withTopic();
                     }
                 }
             }
@@ -80,10 +95,7 @@ public class FilterLog extends FilterBase {
                 if ((blockFrom >= 0 && li.block.getNumber() < blockFrom) || (blockTo >= 0 && li.block.getNumber() > blockTo))
                     return;
 
-/*
-TODO: Roman must implement Bloom contain. When it will be done - we can use just Bloom.
-*/
-                if (checkLogInfo(li.li))
+                if (logFilter.matchesExactly(li.li))
                     logs.add(li);
             }
         }
@@ -105,21 +117,9 @@ TODO: Roman must implement Bloom contain. When it will be done - we can use just
         JSONArray res = new JSONArray();
 
         if (blockFrom >= 0) {
-            long i = blockFrom;
-            while (true) {
-                Block block = ethereum.getBlockchain().getBlockByNumber(i);
-                if (block == null)
-                    break;
-                for (Transaction tx : block.getTransactionsList()) {
-                    TransactionReceipt txr = ethereum.getBlockchain().getTransactionReceiptByHash(tx.getHash());
-                    if (txr != null) {
-                        for (LogInfo li : txr.getLogInfoList()) {
-                            if (checkLogInfo(li))
-                                res.add(logInfoToJS(new FilterLogData(block, txr, li)));
-                        }
-                    }
-                }
-                i++;
+            long to = blockTo >= 0 ? blockTo : ethereum.getBlockchain().getBestBlock().getNumber();
+            for (LogSearch.Match match : ethereum.getBlockchain().getLogs(logFilter, blockFrom, to)) {
+                res.add(logInfoToJS(new FilterLogData(match.getBlock(), match.getReceipt(), match.getLogInfo())));
             }
         }
 
@@ -128,7 +128,7 @@ TODO: Roman must implement Bloom contain. When it will be done - we can use just
                 TransactionReceipt txr = ethereum.getBlockchain().getTransactionReceiptByHash(tx.getHash());
                 if (txr != null) {
                     for (LogInfo li :  txr.getLogInfoList()) {
-                        if (checkLogInfo(li))
+                        if (logFilter.matchesExactly(li))
                             res.add(logInfoToJS(new FilterLogData(null, txr, li)));
                     }
                 }
@@ -139,34 +139,6 @@ TODO: Roman must implement Bloom contain. When it will be done - we can use just
     }
 
 
-    private boolean checkLogInfo(LogInfo li) {
-        boolean found = false;
-        for (byte[] address : addresses) {
-            if (Arrays.equals(address, li.getAddress())) {
-                found = true;
-                break;
-            }
-        }
-        if (!found)
-            return false;
-
-        found = false;
-        for (byte[] topic : topics) {
-            for (DataWord litopic : li.getTopics()) {
-                if (Arrays.equals(topic, litopic.getData())) {
-                    found = true;
-                    break;
-                }
-            }
-            if (found)
-                break;
-        }
-        if (!found)
-            return false;
-
-        return true;
-    }
-
     private JSONObject logInfoToJS(FilterLogData data) {
         JSONObject res = new JSONObject();
 
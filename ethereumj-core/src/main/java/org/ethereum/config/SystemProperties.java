@@ -34,6 +34,7 @@ public class SystemProperties {
     private final static Boolean DEFAULT_DUMP_CLEAN_ON_RESTART = true;
     private final static Boolean DEFAULT_PLAY_VM = true;
     private final static Boolean DEFAULT_BLOCKCHAIN_ONLY = false;
+    private static final boolean DEFAULT_BLOCK_EXECUTION_SPECULATIVE = false;
     private final static int DEFAULT_TRACE_STARTBLOCK = -1;
     private final static int DEFAULT_MAX_HASHES_ASK = -1; // unlimited
     private final static int DEFAULT_MAX_BLOCKS_ASK = 10;
@@ -43,6 +44,9 @@ public class SystemProperties {
     private final static Boolean DEFAULT_VM_TRACE = false;
     private final static String DEFAULT_VM_TRACE_DIR = "dmp";
     private final static Boolean DEFAULT_VM_TRACE_COMPRESSED = false;
+    private static final int DEFAULT_VM_CODE_CACHE_SIZE = 16_000_000;
+    private static final String DEFAULT_VM_ENGINE = "reference";
+    private static final int DEFAULT_VM_JIT_THRESHOLD = 1_000;
     private final static int DEFAULT_PEER_LISTEN_PORT = 30303;
     private final static String DEFAULT_KEY_VALUE_DATA_SOURCE = "leveldb";
     private final static boolean DEFAULT_REDIS_ENABLED = true;
@@ -51,6 +55,20 @@ public class SystemProperties {
     private static final boolean DEFAULT_FLUSH_IGNORE_CONSENSUS = false;
     private static final int DEFAULT_DETAILS_INMEMORY_STORAGE_LIMIT = 1_000;
     private static final int DEFAULT_FLUSH_REPO_SIZE = 128_000_000;
+    private static final int DEFAULT_FLUSH_CHUNK_SIZE = 16_000_000;
+    private static final boolean DEFAULT_FLUSH_ASYNC = true;
+    private static final int DEFAULT_FLUSH_ASYNC_QUEUE_SIZE = 2;
+    private static final int DEFAULT_TRIE_CACHE_SIZE = 64_000_000;
+    private static final int DEFAULT_TRIE_STORAGE_CACHE_SIZE = 1_000_000;
+    private static final boolean DEFAULT_TRIE_TYPED = false;
+    private static final int DEFAULT_TRANSACTION_CACHE_SIZE = 10_000;
+    private static final boolean DEFAULT_PRUNE_ENABLED = false;
+    private static final int DEFAULT_PRUNE_BLOCKS_WINDOW = 128;
+    private static final int DEFAULT_LEVELDB_CACHE_SIZE = 8_000_000;
+    private static final int DEFAULT_LEVELDB_BLOCK_SIZE = 4_096;
+    private static final int DEFAULT_LEVELDB_WRITE_BUFFER_SIZE = 10_485_760;
+    private static final String DEFAULT_LEVELDB_COMPRESSION = "snappy";
+    private static final String DEFAULT_LEVELDB_CHECKSUM = "reads";
 
 
     /* Testing */
@@ -214,6 +232,14 @@ public class SystemProperties {
         return Boolean.parseBoolean(prop.getProperty("blockchain.only", String.valueOf(DEFAULT_BLOCKCHAIN_ONLY)));
     }
 
+    public boolean blockExecutionSpeculative() {
+        return boolProperty("block.execution.speculative", DEFAULT_BLOCK_EXECUTION_SPECULATIVE);
+    }
+
+    public void setBlockExecutionSpeculative(boolean speculative) {
+        prop.setProperty("block.execution.speculative", String.valueOf(speculative));
+    }
+
     public Integer maxHashesAsk() {
         return Integer.parseInt(prop.getProperty("max.hashes.ask", String.valueOf(DEFAULT_MAX_HASHES_ASK)));
     }
@@ -255,6 +281,26 @@ public class SystemProperties {
         return boolProperty("vm.structured.compressed", DEFAULT_VM_TRACE_COMPRESSED);
     }
 
+    public String vmEngine() {
+        return prop.getProperty("vm.engine", DEFAULT_VM_ENGINE);
+    }
+
+    public void setVmEngine(String engine) {
+        prop.setProperty("vm.engine", engine);
+    }
+
+    public int vmJitThreshold() {
+        return intProperty("vm.jit.threshold", DEFAULT_VM_JIT_THRESHOLD);
+    }
+
+    public void setVmJitThreshold(int threshold) {
+        prop.setProperty("vm.jit.threshold", String.valueOf(threshold));
+    }
+
+    public int vmCodeCacheSize() {
+        return intProperty("vm.code.cache.size", DEFAULT_VM_CODE_CACHE_SIZE);
+    }
+
     private boolean boolProperty(String key, Boolean defaultValue) {
         return Boolean.parseBoolean(prop.getProperty(key, String.valueOf(defaultValue)));
     }
@@ -279,6 +325,72 @@ public class SystemProperties {
         return boolProperty("flush.blocks.ignore.consensus", DEFAULT_FLUSH_IGNORE_CONSENSUS);
     }
 
+    public int flushChunkSize() {
+        return intProperty("flush.chunk.size", DEFAULT_FLUSH_CHUNK_SIZE);
+    }
+
+    public boolean flushAsync() {
+        return boolProperty("flush.async", DEFAULT_FLUSH_ASYNC);
+    }
+
+    public int flushAsyncQueueSize() {
+        return intProperty("flush.async.queue.size", DEFAULT_FLUSH_ASYNC_QUEUE_SIZE);
+    }
+
+    public int trieCacheSize() {
+        return intProperty("trie.cache.size", DEFAULT_TRIE_CACHE_SIZE);
+    }
+
+    public int trieStorageCacheSize() {
+        return intProperty("trie.storage.cache.size", DEFAULT_TRIE_STORAGE_CACHE_SIZE);
+    }
+
+    public boolean trieTyped() {
+        return boolProperty("trie.typed", DEFAULT_TRIE_TYPED);
+    }
+
+    public int transactionCacheSize() {
+        return intProperty("transaction.cache.size", DEFAULT_TRANSACTION_CACHE_SIZE);
+    }
+
+    public boolean pruneEnabled() {
+        return boolProperty("prune.enabled", DEFAULT_PRUNE_ENABLED);
+    }
+
+    public int pruneBlocksWindow() {
+        return intProperty("prune.blocks.window", DEFAULT_PRUNE_BLOCKS_WINDOW);
+    }
+
+    /*
+     * LevelDB options are set per profile of the database (state, details, blocks),
+     * the options missing in the profile are taken from the default profile
+     */
+
+    public int levelDbCacheSize(String profile) {
+        return intProperty(levelDbKey(profile, "cache.size"), DEFAULT_LEVELDB_CACHE_SIZE);
+    }
+
+    public int levelDbBlockSize(String profile) {
+        return intProperty(levelDbKey(profile, "block.size"), DEFAULT_LEVELDB_BLOCK_SIZE);
+    }
+
+    public int levelDbWriteBufferSize(String profile) {
+        return intProperty(levelDbKey(profile, "write.buffer.size"), DEFAULT_LEVELDB_WRITE_BUFFER_SIZE);
+    }
+
+    public String levelDbCompression(String profile) {
+        return prop.getProperty(levelDbKey(profile, "compression"), DEFAULT_LEVELDB_COMPRESSION);
+    }
+
+    public String levelDbChecksum(String profile) {
+        return prop.getProperty(levelDbKey(profile, "checksum"), DEFAULT_LEVELDB_CHECKSUM);
+    }
+
+    private String levelDbKey(String profile, String option) {
+        String key = "leveldb." + profile + "." + option;
+        return prop.containsKey(key) ? key : "leveldb.default." + option;
+    }
+
     public String vmTraceDir() {
         return prop.getProperty("vm.structured.dir", DEFAULT_VM_TRACE_DIR);
     }
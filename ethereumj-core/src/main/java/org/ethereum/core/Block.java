@@ -1,7 +1,6 @@
 package org.ethereum.core;
 
 import org.ethereum.crypto.HashUtil;
-import org.ethereum.crypto.SHA3Helper;
 import org.ethereum.trie.Trie;
 import org.ethereum.trie.TrieImpl;
 import org.ethereum.util.*;
@@ -54,7 +53,7 @@ public class Block {
     /* Constructors */
 
     public Block(byte[] rawData) {
-        if (rawData != null) {
+        if (rawData != null && logger.isDebugEnabled()) {
             logger.debug("new from [" + Hex.toHexString(rawData) + "]");
         }
         this.rlpEncoded = rawData;
@@ -123,48 +122,55 @@ public class Block {
         this.parsed = true;
     }
 
+    /**
+     * Decodes the header only, the transactions and the uncles stay encoded until asked for
+     */
+    private void parseHeader() {
+
+        RLPView block = RLPView.decode(rlpEncoded);
+        this.header = new BlockHeader(block.get(0));
+    }
+
     private void parseRLP() {
 
-        RLPList params = RLP.decode2(rlpEncoded);
-        RLPList block = (RLPList) params.get(0);
+        RLPView block = RLPView.decode(rlpEncoded);
 
         // Parse Header
-        RLPList header = (RLPList) block.get(0);
-        this.header = new BlockHeader(header);
+        if (this.header == null)
+            this.header = new BlockHeader(block.get(0));
 
         // Parse Transactions
-        RLPList txTransactions = (RLPList) block.get(1);
+        RLPView txTransactions = block.get(1);
         this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
 
         // Parse Uncles
-        RLPList uncleBlocks = (RLPList) block.get(2);
-        for (RLPElement rawUncle : uncleBlocks) {
+        RLPView uncleBlocks = block.get(2);
+        for (int i = 0; i < uncleBlocks.size(); ++i) {
 
-            RLPList uncleHeader = (RLPList) rawUncle;
-            BlockHeader blockData = new BlockHeader(uncleHeader);
+            BlockHeader blockData = new BlockHeader(uncleBlocks.get(i));
             this.uncleList.add(blockData);
         }
         this.parsed = true;
     }
 
     public BlockHeader getHeader() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header;
     }
 
     public byte[] getHash() {
-        if (!parsed) parseRLP();
-        return HashUtil.sha3(this.header.getEncoded());
+        if (header == null) parseHeader();
+        return this.header.getHash();
     }
 
 
     public byte[] calcDifficulty() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.calcDifficulty();
     }
 
     public boolean validateNonce() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         BigInteger max = BigInteger.valueOf(2).pow(256);
         byte[] target = BigIntegers.asUnsignedByteArray(32, max.divide(new BigInteger(1, this.getDifficulty())));
         byte[] hash = HashUtil.sha3(this.getEncodedWithoutNonce());
@@ -175,53 +181,53 @@ public class Block {
 
 
     public byte[] getParentHash() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getParentHash();
     }
 
     public byte[] getUnclesHash() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getUnclesHash();
     }
 
     public byte[] getCoinbase() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getCoinbase();
     }
 
     public byte[] getStateRoot() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getStateRoot();
     }
 
     public void setStateRoot(byte[] stateRoot) {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         this.header.setStateRoot(stateRoot);
     }
 
     public byte[] getTxTrieRoot() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getTxTrieRoot();
     }
 
     public byte[] getReceiptsRoot() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getReceiptsRoot();
     }
 
 
     public byte[] getLogBloom() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getLogsBloom();
     }
 
     public byte[] getDifficulty() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getDifficulty();
     }
 
     public BigInteger getDifficultyBI() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getDifficultyBI();
     }
 
@@ -236,39 +242,39 @@ public class Block {
     }
 
     public long getTimestamp() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getTimestamp();
     }
 
     public long getNumber() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getNumber();
     }
 
     public long getGasLimit() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getGasLimit();
     }
 
     public long getGasUsed() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getGasUsed();
     }
 
 
     public byte[] getExtraData() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getExtraData();
     }
 
     public byte[] getMixHash() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getMixHash();
     }
 
 
     public byte[] getNonce() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getNonce();
     }
 
@@ -345,18 +351,18 @@ public class Block {
         return txsState.getRootHash();
     }
 
-    private void parseTxs(RLPList txTransactions) {
+    private void parseTxs(RLPView txTransactions) {
 
         this.txsState = new TrieImpl(null);
         for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(new Transaction(transactionRaw.getRLPData()));
-            this.txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+            byte[] transactionRaw = txTransactions.get(i).getEncoded();
+            this.transactionsList.add(new Transaction(transactionRaw));
+            this.txsState.update(RLP.encodeInt(i), transactionRaw);
         }
     }
 
 
-    private void parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private void parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txsState.getRootHash());
@@ -375,6 +381,7 @@ public class Block {
     }
 
     public boolean isGenesis() {
+        if (header == null) parseHeader();
         return this.header.isGenesis();
     }
 
@@ -383,39 +390,51 @@ public class Block {
     }
 
     private byte[] getUnclesEncoded() {
-
-        byte[][] unclesEncoded = new byte[uncleList.size()][];
-        int i = 0;
-        for (BlockHeader uncle : uncleList) {
-            unclesEncoded[i] = uncle.getEncoded();
-            ++i;
-        }
-        return RLP.encodeList(unclesEncoded);
+        return this.header.getUnclesEncoded(uncleList);
     }
 
     public void addUncle(BlockHeader uncle) {
         uncleList.add(uncle);
-        this.getHeader().setUnclesHash(SHA3Helper.sha3(getUnclesEncoded()));
+        this.getHeader().setUnclesHash(HashUtil.sha3(getUnclesEncoded()));
         rlpEncoded = null;
     }
 
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
-            byte[] header = this.header.getEncoded();
-            byte[] transactions = RLP.encodeList();
-            byte[] uncles = getUnclesEncoded();
-            this.rlpEncoded = RLP.encodeList(header, transactions, uncles);
+            RLPWriter writer = new RLPWriter();
+            encode(writer);
+            this.rlpEncoded = writer.toByteArray();
         }
         return rlpEncoded;
     }
 
+    /**
+     * Writes the same encoding as {@link #getEncoded()}
+     */
+    public void encode(RLPWriter writer) {
+        if (rlpEncoded != null) {
+            writer.writeEncoded(rlpEncoded);
+            return;
+        }
+
+        writer.startList();
+        this.header.encode(writer, true);
+        writer.startList().endList(); // transactions
+        writer.startList();
+        for (BlockHeader uncle : uncleList) {
+            uncle.encode(writer, true);
+        }
+        writer.endList();
+        writer.endList();
+    }
+
     public byte[] getEncodedWithoutNonce() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return this.header.getEncodedWithoutNonce();
     }
 
     public String getShortHash() {
-        if (!parsed) parseRLP();
+        if (header == null) parseHeader();
         return Hex.toHexString(getHash()).substring(0, 6);
     }
 }
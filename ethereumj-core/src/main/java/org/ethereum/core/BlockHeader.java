@@ -1,8 +1,8 @@
 package org.ethereum.core;
 
 import org.ethereum.crypto.HashUtil;
-import org.ethereum.util.RLP;
-import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
 import org.ethereum.util.Utils;
 
 import java.math.BigInteger;
@@ -66,38 +66,39 @@ public class BlockHeader {
      * of computation has been carried out on this block */
     private byte[] nonce;
 
-    public BlockHeader(RLPList rlpHeader) {
+    /* The encoding the header was decoded from, hashed in place
+     * as long as no field is changed */
+    private RLPView rlpEncoded;
 
-        this.parentHash = rlpHeader.get(0).getRLPData();
-        this.unclesHash = rlpHeader.get(1).getRLPData();
-        this.coinbase = rlpHeader.get(2).getRLPData();
-        this.stateRoot = rlpHeader.get(3).getRLPData();
+    public BlockHeader(RLPView rlpHeader) {
+
+        this.parentHash = rlpHeader.get(0).getData();
+        this.unclesHash = rlpHeader.get(1).getData();
+        this.coinbase = rlpHeader.get(2).getData();
+        this.stateRoot = rlpHeader.get(3).getData();
+
+        this.txTrieRoot = rlpHeader.get(4).getData();
+        this.receiptTrieRoot = rlpHeader.get(5).getData();
+        if (this.txTrieRoot != null && this.receiptTrieRoot != null)
+            this.rlpEncoded = rlpHeader;
 
-        this.txTrieRoot = rlpHeader.get(4).getRLPData();
         if (this.txTrieRoot == null)
             this.txTrieRoot = EMPTY_TRIE_HASH;
 
-        this.receiptTrieRoot = rlpHeader.get(5).getRLPData();
         if (this.receiptTrieRoot == null)
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
 
-        this.logsBloom = rlpHeader.get(6).getRLPData();
-        this.difficulty = rlpHeader.get(7).getRLPData();
-
-        byte[] nrBytes = rlpHeader.get(8).getRLPData();
-        byte[] glBytes = rlpHeader.get(9).getRLPData();
-        byte[] guBytes = rlpHeader.get(10).getRLPData();
-        byte[] tsBytes = rlpHeader.get(11).getRLPData();
-
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
+        this.logsBloom = rlpHeader.get(6).getData();
+        this.difficulty = rlpHeader.get(7).getData();
 
-        this.gasLimit = glBytes == null ? 0 : (new BigInteger(1, glBytes)).longValue();
-        this.gasUsed = guBytes == null ? 0 : (new BigInteger(1, guBytes)).longValue();
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.number = rlpHeader.get(8).getLong();
+        this.gasLimit = rlpHeader.get(9).getLong();
+        this.gasUsed = rlpHeader.get(10).getLong();
+        this.timestamp = rlpHeader.get(11).getLong();
 
-        this.extraData = rlpHeader.get(12).getRLPData();
-        this.mixHash = rlpHeader.get(13).getRLPData();
-        this.nonce = rlpHeader.get(14).getRLPData();
+        this.extraData = rlpHeader.get(12).getData();
+        this.mixHash = rlpHeader.get(13).getData();
+        this.nonce = rlpHeader.get(14).getData();
     }
 
     public BlockHeader(byte[] parentHash, byte[] unclesHash, byte[] coinbase,
@@ -153,6 +154,7 @@ public class BlockHeader {
 
     public void setUnclesHash(byte[] unclesHash) {
         this.unclesHash = unclesHash;
+        this.rlpEncoded = null;
     }
 
     public byte[] getCoinbase() {
@@ -161,6 +163,7 @@ public class BlockHeader {
 
     public void setCoinbase(byte[] coinbase) {
         this.coinbase = coinbase;
+        this.rlpEncoded = null;
     }
 
     public byte[] getStateRoot() {
@@ -169,6 +172,7 @@ public class BlockHeader {
 
     public void setStateRoot(byte[] stateRoot) {
         this.stateRoot = stateRoot;
+        this.rlpEncoded = null;
     }
 
     public byte[] getTxTrieRoot() {
@@ -177,6 +181,7 @@ public class BlockHeader {
 
     public void setReceiptsRoot(byte[] receiptTrieRoot) {
         this.receiptTrieRoot = receiptTrieRoot;
+        this.rlpEncoded = null;
     }
 
     public byte[] getReceiptsRoot() {
@@ -185,6 +190,7 @@ public class BlockHeader {
 
     public void setTransactionsRoot(byte[] stateRoot) {
         this.txTrieRoot = stateRoot;
+        this.rlpEncoded = null;
     }
 
 
@@ -203,6 +209,7 @@ public class BlockHeader {
 
     public void setDifficulty(byte[] difficulty) {
         this.difficulty = difficulty;
+        this.rlpEncoded = null;
     }
 
     public long getTimestamp() {
@@ -211,6 +218,7 @@ public class BlockHeader {
 
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
+        this.rlpEncoded = null;
     }
 
     public long getNumber() {
@@ -219,6 +227,7 @@ public class BlockHeader {
 
     public void setNumber(long number) {
         this.number = number;
+        this.rlpEncoded = null;
     }
 
     public long getGasLimit() {
@@ -227,6 +236,7 @@ public class BlockHeader {
 
     public void setGasLimit(long gasLimit) {
         this.gasLimit = gasLimit;
+        this.rlpEncoded = null;
     }
 
     public long getGasUsed() {
@@ -235,6 +245,7 @@ public class BlockHeader {
 
     public void setGasUsed(long gasUsed) {
         this.gasUsed = gasUsed;
+        this.rlpEncoded = null;
     }
 
     public byte[] getMixHash() {
@@ -251,9 +262,17 @@ public class BlockHeader {
 
     public void setNonce(byte[] nonce) {
         this.nonce = nonce;
+        this.rlpEncoded = null;
+    }
+
+    public byte[] getHash() {
+        if (rlpEncoded != null)
+            return HashUtil.sha3(rlpEncoded.getBytes(), rlpEncoded.getOffset(), rlpEncoded.getLength());
+        return HashUtil.sha3(getEncoded());
     }
 
     public byte[] getEncoded() {
+        if (rlpEncoded != null) return rlpEncoded.getEncoded();
         return this.getEncoded(true); // with nonce
     }
 
@@ -262,49 +281,52 @@ public class BlockHeader {
     }
 
     public byte[] getEncoded(boolean withNonce) {
-        byte[] parentHash = RLP.encodeElement(this.parentHash);
+        RLPWriter writer = new RLPWriter();
+        encode(writer, withNonce);
+        return writer.toByteArray();
+    }
 
-        byte[] unclesHash = RLP.encodeElement(this.unclesHash);
-        byte[] coinbase = RLP.encodeElement(this.coinbase);
+    /**
+     * Writes the same encoding as {@link #getEncoded(boolean)}
+     */
+    public void encode(RLPWriter writer, boolean withNonce) {
 
-        byte[] stateRoot = RLP.encodeElement(this.stateRoot);
+        if (withNonce && rlpEncoded != null) {
+            writer.writeEncoded(rlpEncoded.getBytes(), rlpEncoded.getOffset(), rlpEncoded.getLength());
+            return;
+        }
 
         if (txTrieRoot == null) this.txTrieRoot = EMPTY_TRIE_HASH;
-        byte[] txTrieRoot = RLP.encodeElement(this.txTrieRoot);
-
         if (receiptTrieRoot == null) this.receiptTrieRoot = EMPTY_TRIE_HASH;
-        byte[] receiptTrieRoot = RLP.encodeElement(this.receiptTrieRoot);
-
-        byte[] logsBloom = RLP.encodeElement(this.logsBloom);
-        byte[] difficulty = RLP.encodeElement(this.difficulty);
-        byte[] number = RLP.encodeBigInteger(BigInteger.valueOf(this.number));
-        byte[] gasLimit = RLP.encodeBigInteger(BigInteger.valueOf(this.gasLimit));
-        byte[] gasUsed = RLP.encodeBigInteger(BigInteger.valueOf(this.gasUsed));
-        byte[] timestamp = RLP.encodeBigInteger(BigInteger.valueOf(this.timestamp));
-
-        byte[] extraData = RLP.encodeElement(this.extraData);
-        byte[] mixHash = RLP.encodeElement(this.mixHash);
-        if (withNonce) {
-            byte[] nonce = RLP.encodeElement(this.nonce);
-            return RLP.encodeList(parentHash, unclesHash, coinbase,
-                    stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty, number,
-                    gasLimit, gasUsed, timestamp, extraData, mixHash, nonce);
-        } else {
-            return RLP.encodeList(parentHash, unclesHash, coinbase,
-                    stateRoot, txTrieRoot, receiptTrieRoot, logsBloom, difficulty, number,
-                    gasLimit, gasUsed, timestamp, extraData, mixHash);
-        }
+
+        writer.startList()
+                .writeElement(this.parentHash)
+                .writeElement(this.unclesHash)
+                .writeElement(this.coinbase)
+                .writeElement(this.stateRoot)
+                .writeElement(this.txTrieRoot)
+                .writeElement(this.receiptTrieRoot)
+                .writeElement(this.logsBloom)
+                .writeElement(this.difficulty)
+                .writeLong(this.number)
+                .writeLong(this.gasLimit)
+                .writeLong(this.gasUsed)
+                .writeLong(this.timestamp)
+                .writeElement(this.extraData)
+                .writeElement(this.mixHash);
+        if (withNonce)
+            writer.writeElement(this.nonce);
+        writer.endList();
     }
 
     public byte[] getUnclesEncoded(List<BlockHeader> uncleList) {
 
-        byte[][] unclesEncoded = new byte[uncleList.size()][];
-        int i = 0;
+        RLPWriter writer = new RLPWriter();
+        writer.startList();
         for (BlockHeader uncle : uncleList) {
-            unclesEncoded[i] = uncle.getEncoded();
-            ++i;
+            uncle.encode(writer, true);
         }
-        return RLP.encodeList(unclesEncoded);
+        return writer.endList().toByteArray();
     }
 
     public String toString() {
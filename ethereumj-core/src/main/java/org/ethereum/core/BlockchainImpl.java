@@ -4,6 +4,7 @@ import org.ethereum.config.Constants;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.crypto.HashUtil;
 import org.ethereum.db.BlockStore;
+import org.ethereum.db.LogIndex;
 import org.ethereum.db.RepositoryImpl;
 import org.ethereum.facade.Blockchain;
 import org.ethereum.facade.Repository;
@@ -85,6 +86,8 @@ public class BlockchainImpl implements Blockchain {
 
     private BlockStore blockStore;
 
+    private LogIndex logIndex;
+
     private Block bestBlock;
     private BigInteger totalDifficulty = BigInteger.ZERO;
 
@@ -144,7 +147,12 @@ public class BlockchainImpl implements Blockchain {
 
     @Override
     public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
-        throw new UnsupportedOperationException("TODO: will be implemented soon "); // FIXME: go and fix me
+        return blockStore.getTransactionReceiptByHash(hash);
+    }
+
+    @Override
+    public List<LogSearch.Match> getLogs(LogFilter filter, long from, long to) {
+        return new LogSearch(blockStore, logIndex).search(filter, from, to);
     }
 
     @Override
@@ -255,6 +263,9 @@ public class BlockchainImpl implements Blockchain {
         //System.out.println(" Receipts listroot is: " + receiptListHash + " logbloomlisthash is " + logBloomListHash);
 
         track.commit();
+        if (repository.getClass().isAssignableFrom(RepositoryImpl.class)) {
+            ((RepositoryImpl) repository).commitBlock(block.getNumber());
+        }
         storeBlock(block, receipts);
 
 //        if (block.getNumber() == 708_461){
@@ -263,8 +274,13 @@ public class BlockchainImpl implements Blockchain {
 
         if (needFlush(block)) {
             repository.flush();
-            blockStore.flush();
-            System.gc();
+            // the blocks must not reach the disk ahead of the state they were applied to,
+            // so they are written by the same flusher, after the state
+            if (CONFIG.flushAsync() && repository.getClass().isAssignableFrom(RepositoryImpl.class)) {
+                ((RepositoryImpl) repository).getFlusher().submit(blockStore.prepareFlush());
+            } else {
+                blockStore.flush();
+            }
         }
 
         // Remove all wallet transactions as they already approved by the net
@@ -447,6 +463,7 @@ public class BlockchainImpl implements Blockchain {
         List<TransactionReceipt> receipts = new ArrayList<>();
         if (!block.isGenesis()) {
             if (!CONFIG.blockChainOnly()) {
+                SenderRecovery.recover(block.getTransactionsList());
                 wallet.addTransactions(block.getTransactionsList());
                 receipts = applyBlock(block);
                 wallet.processBlock(block);
@@ -464,17 +481,28 @@ public class BlockchainImpl implements Blockchain {
         long totalGasUsed = 0;
         List<TransactionReceipt> receipts = new ArrayList<>();
 
+        // the traces are written as the transactions run, so they are only kept in order by the serial execution
+        SpeculativeExecution speculativeExecution = null;
+        if (CONFIG.blockExecutionSpeculative() && !CONFIG.vmTrace() && block.getTransactionsList().size() > 1)
+            speculativeExecution = new SpeculativeExecution(block, repository, track, blockStore,
+                    programInvokeFactory, listener);
+
         for (Transaction tx : block.getTransactionsList()) {
             stateLogger.info("apply block: [{}] tx: [{}] ", block.getNumber(), i);
 
-            TransactionExecutor executor = new TransactionExecutor(tx, block.getCoinbase(),
-                    track, blockStore,
-                    programInvokeFactory, block, listener, totalGasUsed);
-
-            executor.init();
-            executor.execute();
-            executor.go();
-            executor.finalization();
+            TransactionExecutor executor;
+            if (speculativeExecution != null) {
+                executor = speculativeExecution.commitNext(totalGasUsed);
+            } else {
+                executor = new TransactionExecutor(tx, block.getCoinbase(),
+                        track, blockStore,
+                        programInvokeFactory, block, listener, totalGasUsed);
+
+                executor.init();
+                executor.execute();
+                executor.go();
+                executor.finalization();
+            }
 
             totalGasUsed += executor.getGasUsed();
 
@@ -566,6 +594,8 @@ public class BlockchainImpl implements Blockchain {
             }
 
         blockStore.saveBlock(block, receipts);
+        if (logIndex != null)
+            logIndex.add(block.getNumber(), block.getLogBloom());
         setBestBlock(block);
 
         if (logger.isDebugEnabled())
@@ -608,6 +638,14 @@ public class BlockchainImpl implements Blockchain {
     @Override
     public void close() {
         blockQueue.close();
+        if (logIndex != null)
+            logIndex.close();
+    }
+
+    @Override
+    public void reset() {
+        if (logIndex != null)
+            logIndex.reset();
     }
 
     @Override
@@ -712,4 +750,8 @@ public class BlockchainImpl implements Blockchain {
     public void setExitOn(long exitOn) {
         this.exitOn = exitOn;
     }
+
+    public void setLogIndex(LogIndex logIndex) {
+        this.logIndex = logIndex;
+    }
 }
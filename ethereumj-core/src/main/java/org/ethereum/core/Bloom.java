@@ -50,6 +50,17 @@ public class Bloom {
         }
     }
 
+    /**
+     * @return true if all the bits of the given bloom are set in this one,
+     * so what the given bloom was created of may be in this one
+     */
+    public boolean matches(Bloom bloom) {
+        for (int i = 0; i < data.length; ++i) {
+            if ((data[i] & bloom.data[i]) != bloom.data[i]) return false;
+        }
+        return true;
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -0,0 +1,102 @@
+package org.ethereum.core;
+
+import org.ethereum.crypto.HashUtil;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Selects the logs by the contract address and the topics, the same way as the eth_getLogs filter:
+ * the address of the log is one of the given addresses, and the topic at each position
+ * is one of the values given for that position. No addresses, or no values for a position, match anything.
+ *
+ * The blooms of the addresses and the values are computed once,
+ * so checking a block or a receipt bloom takes a few bitwise operations
+ */
+public class LogFilter {
+
+    private List<byte[]> addresses = new ArrayList<>();
+    private List<byte[][]> topics = new ArrayList<>();
+
+    /* the conditions of the filter, one of the blooms in each of them must match */
+    private List<Bloom[]> bloomConditions;
+
+    public LogFilter withContractAddress(byte[]... addresses) {
+        this.addresses.addAll(Arrays.asList(addresses));
+        bloomConditions = null;
+        return this;
+    }
+
+    /**
+     * Adds the values of the next topic position, no values match any topic
+     */
+    public LogFilter withTopic(byte[]... values) {
+        topics.add(values);
+        bloomConditions = null;
+        return this;
+    }
+
+    /**
+     * @return false if no log in the bloom can match, true if some may
+     */
+    public boolean matchBloom(Bloom bloom) {
+        for (Bloom[] condition : getBloomConditions()) {
+            boolean found = false;
+            for (Bloom alternative : condition) {
+                if (bloom.matches(alternative)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    public boolean matchesExactly(LogInfo logInfo) {
+        if (!addresses.isEmpty() && !contains(addresses, logInfo.getAddress()))
+            return false;
+
+        List<DataWord> logTopics = logInfo.getTopics();
+        for (int i = 0; i < topics.size(); ++i) {
+            byte[][] values = topics.get(i);
+            if (values.length == 0) continue;
+
+            if (i >= logTopics.size() || !contains(Arrays.asList(values), logTopics.get(i).getData()))
+                return false;
+        }
+        return true;
+    }
+
+    private synchronized List<Bloom[]> getBloomConditions() {
+        if (bloomConditions == null) {
+            List<Bloom[]> conditions = new ArrayList<>();
+            if (!addresses.isEmpty())
+                conditions.add(blooms(addresses));
+            for (byte[][] values : topics) {
+                if (values.length > 0)
+                    conditions.add(blooms(Arrays.asList(values)));
+            }
+            bloomConditions = conditions;
+        }
+        return bloomConditions;
+    }
+
+    private static Bloom[] blooms(List<byte[]> values) {
+        Bloom[] blooms = new Bloom[values.size()];
+        for (int i = 0; i < blooms.length; ++i) {
+            blooms[i] = Bloom.create(HashUtil.sha3(values.get(i)));
+        }
+        return blooms;
+    }
+
+    private static boolean contains(List<byte[]> values, byte[] value) {
+        for (byte[] v : values) {
+            if (Arrays.equals(v, value)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package org.ethereum.core;
+
+import org.ethereum.db.BlockStore;
+import org.ethereum.db.LogIndex;
+import org.ethereum.vm.LogInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finds the logs of the main chain blocks matching a {@link LogFilter}.
+ *
+ * The candidate blocks come from the {@link LogIndex}, the blocks it doesn't cover are all candidates.
+ * The candidates are read and matched in parallel, the bloom of a block and then the ones of its receipts
+ * are checked before their logs are
+ */
+public class LogSearch {
+
+    /* candidate blocks matched by the calling thread */
+    private static final int SERIAL_BATCH_SIZE = 4;
+
+    private static final ForkJoinPool SEARCH_POOL = new ForkJoinPool();
+
+    private final BlockStore blockStore;
+    private final LogIndex logIndex;
+
+    /**
+     * @param logIndex - null to check the bloom of every block in the range
+     */
+    public LogSearch(BlockStore blockStore, LogIndex logIndex) {
+        this.blockStore = blockStore;
+        this.logIndex = logIndex;
+    }
+
+    /**
+     * @return the matching logs of the blocks from, to (inclusive) in the chain order
+     */
+    public List<Match> search(LogFilter filter, long from, long to) {
+
+        List<Long> candidates = new ArrayList<>();
+        long firstIndexed = logIndex == null || logIndex.getFirstIndexed() < 0 ? to + 1 : logIndex.getFirstIndexed();
+
+        for (long number = Math.max(from, 0); number <= Math.min(to, firstIndexed - 1); ++number) {
+            candidates.add(number);
+        }
+        if (logIndex != null)
+            candidates.addAll(logIndex.findCandidates(filter, from, to));
+
+        if (candidates.size() <= SERIAL_BATCH_SIZE)
+            return new SearchTask(filter, candidates, 0, candidates.size()).compute();
+        return SEARCH_POOL.invoke(new SearchTask(filter, candidates, 0, candidates.size()));
+    }
+
+    private void searchBlock(LogFilter filter, long number, List<Match> matches) {
+
+        Block block = blockStore.getBlockByNumber(number);
+        if (block == null || !filter.matchBloom(new Bloom(block.getLogBloom())))
+            return;
+
+        int logIndex = 0;
+        List<Transaction> transactions = block.getTransactionsList();
+        for (int i = 0; i < transactions.size(); ++i) {
+            TransactionReceipt receipt = blockStore.getTransactionReceiptByHash(transactions.get(i).getHash());
+            if (receipt == null) continue;
+
+            List<LogInfo> logs = receipt.getLogInfoList();
+            if (filter.matchBloom(receipt.getBloomFilter())) {
+                for (int j = 0; j < logs.size(); ++j) {
+                    if (filter.matchesExactly(logs.get(j)))
+                        matches.add(new Match(block, receipt, logs.get(j), i, logIndex + j));
+                }
+            }
+            logIndex += logs.size();
+        }
+    }
+
+    public static class Match {
+
+        private final Block block;
+        private final TransactionReceipt receipt;
+        private final LogInfo logInfo;
+        private final int transactionIndex;
+        private final int logIndex;
+
+        public Match(Block block, TransactionReceipt receipt, LogInfo logInfo, int transactionIndex, int logIndex) {
+            this.block = block;
+            this.receipt = receipt;
+            this.logInfo = logInfo;
+            this.transactionIndex = transactionIndex;
+            this.logIndex = logIndex;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        /**
+         * With its transaction set
+         */
+        public TransactionReceipt getReceipt() {
+            return receipt;
+        }
+
+        public LogInfo getLogInfo() {
+            return logInfo;
+        }
+
+        public int getTransactionIndex() {
+            return transactionIndex;
+        }
+
+        /**
+         * Position of the log among all the logs of the block
+         */
+        public int getLogIndex() {
+            return logIndex;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class SearchTask extends RecursiveTask<List<Match>> {
+
+        private final LogFilter filter;
+        private final List<Long> candidates;
+        private final int from;
+        private final int to;
+
+        SearchTask(LogFilter filter, List<Long> candidates, int from, int to) {
+            this.filter = filter;
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Match> compute() {
+            if (to - from <= SERIAL_BATCH_SIZE) {
+                List<Match> matches = new ArrayList<>();
+                for (int i = from; i < to; ++i) {
+                    searchBlock(filter, candidates.get(i), matches);
+                }
+                return matches;
+            }
+
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(filter, candidates, from, middle);
+            SearchTask right = new SearchTask(filter, candidates, middle, to);
+            right.fork();
+
+            List<Match> matches = left.compute();
+            matches.addAll(right.join());
+            return matches;
+        }
+    }
+}
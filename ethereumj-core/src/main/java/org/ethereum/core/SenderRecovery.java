@@ -0,0 +1,60 @@
+package org.ethereum.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Recovers the senders of a batch of transactions in parallel ahead of their execution.
+ *
+ * The public key recovery behind {@link Transaction#getSender()} is by far the most expensive
+ * part of a plain transfer, here it is done across the cores and the result stays cached
+ * in the transactions, so the executor and the pending transactions find it ready.
+ * A transaction with an invalid signature is left as it is.
+ */
+public class SenderRecovery {
+
+    /* batches up to this size are recovered by the calling thread */
+    private static final int SERIAL_BATCH_SIZE = 4;
+
+    private static final ForkJoinPool RECOVERY_POOL = new ForkJoinPool();
+
+    public static void recover(Collection<Transaction> transactions) {
+        if (transactions.size() <= SERIAL_BATCH_SIZE) {
+            for (Transaction tx : transactions) {
+                tx.getSender();
+            }
+            return;
+        }
+
+        List<Transaction> list = new ArrayList<>(transactions);
+        RECOVERY_POOL.invoke(new RecoveryTask(list, 0, list.size()));
+    }
+
+    @SuppressWarnings("serial")
+    private static class RecoveryTask extends RecursiveAction {
+
+        private final List<Transaction> transactions;
+        private final int from;
+        private final int to;
+
+        RecoveryTask(List<Transaction> transactions, int from, int to) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) transactions.get(from).getSender();
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RecoveryTask(transactions, from, middle), new RecoveryTask(transactions, middle, to));
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.ethereum.core;
+
+import org.ethereum.db.BlockStore;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.db.SpeculativeTrack;
+import org.ethereum.facade.Repository;
+import org.ethereum.listener.EthereumListener;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.ProgramInvokeFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.ethereum.util.BIUtil.toBI;
+
+/**
+ * Executes the transactions of a block speculatively, in parallel, then commits them in the block order.
+ *
+ * Every transaction runs against the state at the start of the block on its own {@link SpeculativeTrack},
+ * which records the accounts and the storage rows the transaction reads and writes.
+ * {@link #commitNext(long)} keeps the speculative result of the next transaction only if it read nothing
+ * the transactions committed before it in this block wrote, otherwise the transaction is executed again
+ * over the current state, the same way the serial execution does. Either way the state and the receipts
+ * end up the same as the serial ones.
+ *
+ * The repository is not safe for concurrent reads, so the tracks read it under a shared lock,
+ * the transactions are committed by the calling thread only after all of them have run
+ */
+public class SpeculativeExecution {
+
+    private static final Logger logger = LoggerFactory.getLogger("execute");
+
+    private static final ForkJoinPool EXECUTION_POOL = new ForkJoinPool();
+
+    private final Block block;
+    private final Repository repository;
+    private final Repository track;
+    private final BlockStore blockStore;
+    private final ProgramInvokeFactory programInvokeFactory;
+    private final EthereumListener listener;
+    private final Object lock = new Object();
+
+    private final List<Run> runs = new ArrayList<>();
+    private int next;
+    private int reexecuted;
+
+    /* written by the transactions committed so far */
+    private final Set<ByteArrayWrapper> writtenAccounts = new HashSet<>();
+    private final Map<ByteArrayWrapper, Set<DataWord>> writtenStorage = new HashMap<>();
+
+    /**
+     * Runs all the transactions of the block, returns once every run is over
+     *
+     * @param repository - the state to execute the block on
+     * @param track - the track the transactions are committed into, it's expected to be committed
+     *                into the repository after each transaction
+     */
+    public SpeculativeExecution(Block block, Repository repository, Repository track, BlockStore blockStore,
+                                ProgramInvokeFactory programInvokeFactory, EthereumListener listener) {
+        this.block = block;
+        this.repository = repository;
+        this.track = track;
+        this.blockStore = new LockedBlockStore(blockStore, lock);
+        this.programInvokeFactory = programInvokeFactory;
+        this.listener = listener;
+
+        for (Transaction tx : block.getTransactionsList()) {
+            runs.add(new Run(tx));
+        }
+        EXECUTION_POOL.invokeAll(runs);
+    }
+
+    /**
+     * Commits the next transaction of the block into the track
+     *
+     * @param gasUsedInTheBlock - the gas used by the transactions committed before
+     * @return the executor of the transaction, finalized
+     */
+    public TransactionExecutor commitNext(long gasUsedInTheBlock) {
+        Run run = runs.get(next++);
+
+        SpeculativeTrack txTrack = run.txTrack;
+        TransactionExecutor executor = run.executor;
+        if (!isValid(run, gasUsedInTheBlock)) {
+            ++reexecuted;
+            txTrack = new SpeculativeTrack(repository, track, block.getCoinbase(), lock);
+            executor = execute(run.tx, txTrack, gasUsedInTheBlock);
+        }
+
+        writtenAccounts.addAll(txTrack.getWrittenAccounts());
+        for (Map.Entry<ByteArrayWrapper, Set<DataWord>> entry : txTrack.getWrittenStorage().entrySet()) {
+            Set<DataWord> rows = writtenStorage.get(entry.getKey());
+            if (rows == null) {
+                rows = new HashSet<>();
+                writtenStorage.put(entry.getKey(), rows);
+            }
+            rows.addAll(entry.getValue());
+        }
+        txTrack.commit();
+
+        if (next == runs.size()) {
+            logger.info("block: [{}] txs executed speculatively: [{}], executed again: [{}]",
+                    block.getNumber(), runs.size() - reexecuted, reexecuted);
+        }
+        return executor;
+    }
+
+    private boolean isValid(Run run, long gasUsedInTheBlock) {
+        // the speculative run has ignored the gas used by the earlier transactions
+        if (run.executor == null ||
+                gasUsedInTheBlock + toBI(run.tx.getGasLimit()).longValue() > block.getGasLimit()) {
+            return false;
+        }
+
+        if (!Collections.disjoint(writtenAccounts, run.txTrack.getReadAccounts())) return false;
+
+        for (Map.Entry<ByteArrayWrapper, Set<DataWord>> entry : run.txTrack.getReadStorage().entrySet()) {
+            Set<DataWord> rows = writtenStorage.get(entry.getKey());
+            if (rows != null && !Collections.disjoint(rows, entry.getValue())) return false;
+        }
+        return true;
+    }
+
+    private TransactionExecutor execute(Transaction tx, Repository txTrack, long gasUsedInTheBlock) {
+        TransactionExecutor executor = new TransactionExecutor(tx, block.getCoinbase(), txTrack, blockStore,
+                programInvokeFactory, block, listener, gasUsedInTheBlock);
+
+        executor.init();
+        executor.execute();
+        executor.go();
+        executor.finalization();
+        return executor;
+    }
+
+    private class Run implements Callable<Void> {
+
+        final Transaction tx;
+        SpeculativeTrack txTrack;
+        TransactionExecutor executor;
+
+        Run(Transaction tx) {
+            this.tx = tx;
+        }
+
+        @Override
+        public Void call() {
+            txTrack = new SpeculativeTrack(repository, track, block.getCoinbase(), lock);
+            try {
+                executor = execute(tx, txTrack, 0);
+            } catch (RuntimeException e) {
+                logger.debug("Speculative run of tx [{}] failed: [{}]", Hex.toHexString(tx.getHash()), e.toString());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Serializes the access to the block store, the VM reads the block hashes from it
+     */
+    private static class LockedBlockStore implements BlockStore {
+
+        private final BlockStore blockStore;
+        private final Object lock;
+
+        LockedBlockStore(BlockStore blockStore, Object lock) {
+            this.blockStore = blockStore;
+            this.lock = lock;
+        }
+
+        @Override
+        public byte[] getBlockHashByNumber(long blockNumber) {
+            synchronized (lock) {
+                return blockStore.getBlockHashByNumber(blockNumber);
+            }
+        }
+
+        @Override
+        public Block getBlockByNumber(long blockNumber) {
+            synchronized (lock) {
+                return blockStore.getBlockByNumber(blockNumber);
+            }
+        }
+
+        @Override
+        public Block getBlockByHash(byte[] hash) {
+            synchronized (lock) {
+                return blockStore.getBlockByHash(hash);
+            }
+        }
+
+        @Override
+        public List<byte[]> getListHashesEndWith(byte[] hash, long qty) {
+            synchronized (lock) {
+                return blockStore.getListHashesEndWith(hash, qty);
+            }
+        }
+
+        @Override
+        public void saveBlock(Block block, List<TransactionReceipt> receipts) {
+            synchronized (lock) {
+                blockStore.saveBlock(block, receipts);
+            }
+        }
+
+        @Override
+        public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
+            synchronized (lock) {
+                return blockStore.getTransactionReceiptByHash(hash);
+            }
+        }
+
+        @Override
+        public BigInteger getTotalDifficulty() {
+            synchronized (lock) {
+                return blockStore.getTotalDifficulty();
+            }
+        }
+
+        @Override
+        public Block getBestBlock() {
+            synchronized (lock) {
+                return blockStore.getBestBlock();
+            }
+        }
+
+        @Override
+        public void flush() {
+            synchronized (lock) {
+                blockStore.flush();
+            }
+        }
+
+        @Override
+        public Runnable prepareFlush() {
+            synchronized (lock) {
+                return blockStore.prepareFlush();
+            }
+        }
+
+        @Override
+        public void load() {
+            synchronized (lock) {
+                blockStore.load();
+            }
+        }
+
+        @Override
+        public void setSessionFactory(SessionFactory sessionFactory) {
+            synchronized (lock) {
+                blockStore.setSessionFactory(sessionFactory);
+            }
+        }
+    }
+}
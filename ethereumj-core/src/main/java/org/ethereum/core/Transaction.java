@@ -5,8 +5,8 @@ import org.ethereum.crypto.ECKey.ECDSASignature;
 import org.ethereum.crypto.ECKey.MissingPrivateKeyException;
 import org.ethereum.crypto.HashUtil;
 import org.ethereum.util.ByteUtil;
-import org.ethereum.util.RLP;
-import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
 
 import org.ethereum.vm.GasCost;
 import org.slf4j.Logger;
@@ -128,20 +128,20 @@ public class Transaction {
 
     public void rlpParse() {
 
-        RLPList decodedTxList = RLP.decode2(rlpEncoded);
-        RLPList transaction = (RLPList) decodedTxList.get(0);
+        RLPView transaction = RLPView.decode(rlpEncoded);
 
-        this.nonce = transaction.get(0).getRLPData();
-        this.gasPrice = transaction.get(1).getRLPData();
-        this.gasLimit = transaction.get(2).getRLPData();
-        this.receiveAddress = transaction.get(3).getRLPData();
-        this.value = transaction.get(4).getRLPData();
-        this.data = transaction.get(5).getRLPData();
+        this.nonce = transaction.get(0).getData();
+        this.gasPrice = transaction.get(1).getData();
+        this.gasLimit = transaction.get(2).getData();
+        this.receiveAddress = transaction.get(3).getData();
+        this.value = transaction.get(4).getData();
+        this.data = transaction.get(5).getData();
         // only parse signature in case tx is signed
-        if (transaction.get(6).getRLPData() != null) {
-            byte v = transaction.get(6).getRLPData()[0];
-            byte[] r = transaction.get(7).getRLPData();
-            byte[] s = transaction.get(8).getRLPData();
+        byte[] vData = transaction.get(6).getData();
+        if (vData != null) {
+            byte v = vData[0];
+            byte[] r = transaction.get(7).getData();
+            byte[] s = transaction.get(8).getData();
             this.signature = ECDSASignature.fromComponents(r, s, v);
         } else {
             logger.debug("RLP encoded tx is not signed!");
@@ -155,7 +155,7 @@ public class Transaction {
     }
 
     public byte[] getHash() {
-        if (!parsed) rlpParse();
+        // the encoded form is enough, a received tx is hashed without decoding it
         byte[] plainMsg = this.getEncoded();
         return HashUtil.sha3(plainMsg);
     }
@@ -291,21 +291,10 @@ public class Transaction {
         if (!parsed) rlpParse();
         if (rlpRaw != null) return rlpRaw;
 
-        // parse null as 0 for nonce
-        byte[] nonce = null;
-        if (this.nonce == null || this.nonce.length == 1 && this.nonce[0] == 0) {
-            nonce = RLP.encodeElement(null);
-        } else {
-            nonce = RLP.encodeElement(this.nonce);
-        }
-        byte[] gasPrice = RLP.encodeElement(this.gasPrice);
-        byte[] gasLimit = RLP.encodeElement(this.gasLimit);
-        byte[] receiveAddress = RLP.encodeElement(this.receiveAddress);
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-
-        rlpRaw = RLP.encodeList(nonce, gasPrice, gasLimit, receiveAddress,
-                value, data);
+        RLPWriter writer = new RLPWriter();
+        writer.startList();
+        writeFields(writer);
+        rlpRaw = writer.endList().toByteArray();
         return rlpRaw;
     }
 
@@ -313,39 +302,42 @@ public class Transaction {
 
         if (rlpEncoded != null) return rlpEncoded;
 
-        // parse null as 0 for nonce
-        byte[] nonce = null;
-        if (this.nonce == null || this.nonce.length == 1 && this.nonce[0] == 0) {
-            nonce = RLP.encodeElement(null);
-        } else {
-            nonce = RLP.encodeElement(this.nonce);
-        }
-        byte[] gasPrice = RLP.encodeElement(this.gasPrice);
-        byte[] gasLimit = RLP.encodeElement(this.gasLimit);
-        byte[] receiveAddress = RLP.encodeElement(this.receiveAddress);
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-
-        byte[] v, r, s;
+        RLPWriter writer = new RLPWriter();
+        writer.startList();
+        writeFields(writer);
 
         if (signature != null) {
-            v = RLP.encodeByte(signature.v);
-            r = RLP.encodeElement(BigIntegers.asUnsignedByteArray(signature.r));
-            s = RLP.encodeElement(BigIntegers.asUnsignedByteArray(signature.s));
+            writer.writeByte(signature.v)
+                    .writeElement(BigIntegers.asUnsignedByteArray(signature.r))
+                    .writeElement(BigIntegers.asUnsignedByteArray(signature.s));
         } else {
-            v = RLP.encodeElement(EMPTY_BYTE_ARRAY);
-            r = RLP.encodeElement(EMPTY_BYTE_ARRAY);
-            s = RLP.encodeElement(EMPTY_BYTE_ARRAY);
+            writer.writeElement(EMPTY_BYTE_ARRAY)
+                    .writeElement(EMPTY_BYTE_ARRAY)
+                    .writeElement(EMPTY_BYTE_ARRAY);
         }
 
-        this.rlpEncoded = RLP.encodeList(nonce, gasPrice, gasLimit,
-                receiveAddress, value, data, v, r, s);
+        this.rlpEncoded = writer.endList().toByteArray();
 
         this.hash = this.getHash();
 
         return rlpEncoded;
     }
 
+    private void writeFields(RLPWriter writer) {
+
+        // parse null as 0 for nonce
+        if (this.nonce == null || this.nonce.length == 1 && this.nonce[0] == 0) {
+            writer.writeElement(null);
+        } else {
+            writer.writeElement(this.nonce);
+        }
+        writer.writeElement(this.gasPrice)
+                .writeElement(this.gasLimit)
+                .writeElement(this.receiveAddress)
+                .writeElement(this.value)
+                .writeElement(this.data);
+    }
+
     @Override
     public int hashCode() {
 
@@ -194,7 +194,7 @@ public class TransactionExecutor {
                 ProgramInvoke programInvoke =
                         programInvokeFactory.createProgramInvoke(tx, currentBlock, cacheTrack, blockStore);
 
-                this.vm = new VM();
+                this.vm = VM.create();
                 this.program = new Program(code, programInvoke);
 
             } else {
@@ -215,7 +215,7 @@ public class TransactionExecutor {
             ProgramInvoke programInvoke =
                     programInvokeFactory.createProgramInvoke(tx, currentBlock, cacheTrack, blockStore);
 
-            this.vm = new VM();
+            this.vm = VM.create();
             this.program = new Program(tx.getData(), programInvoke);
         } else {
 
@@ -473,7 +473,7 @@ public class TransactionExecutor {
                 ProgramInvoke programInvoke =
                         programInvokeFactory.createProgramInvoke(tx, currentBlock, trackTx, blockStore);
 
-                VM vm = new VM();
+                VM vm = VM.create();
                 program = new Program(code, programInvoke);
 
                 if (CONFIG.playVM())
@@ -1,9 +1,7 @@
 package org.ethereum.core;
 
-import org.ethereum.util.RLP;
-import org.ethereum.util.RLPElement;
-import org.ethereum.util.RLPItem;
-import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
 import org.ethereum.vm.LogInfo;
 
 import org.spongycastle.util.BigIntegers;
@@ -44,20 +42,19 @@ public class TransactionReceipt {
 
     protected void parseRlp(byte[] rlp) {
 
-        RLPList params = RLP.decode2(rlp);
-        RLPList receipt = (RLPList) params.get(0);
+        RLPView receipt = RLPView.decode(rlp);
 
-        RLPItem postTxStateRLP = (RLPItem) receipt.get(0);
-        RLPItem cumulativeGasRLP = (RLPItem) receipt.get(1);
-        RLPItem bloomRLP = (RLPItem) receipt.get(2);
-        RLPList logs = (RLPList) receipt.get(3);
+        RLPView postTxStateRLP = receipt.get(0);
+        RLPView cumulativeGasRLP = receipt.get(1);
+        RLPView bloomRLP = receipt.get(2);
+        RLPView logs = receipt.get(3);
 
-        postTxState = postTxStateRLP.getRLPData();
-        cumulativeGas = cumulativeGasRLP.getRLPData();
-        bloomFilter = new Bloom(bloomRLP.getRLPData());
+        postTxState = postTxStateRLP.getData();
+        cumulativeGas = cumulativeGasRLP.getData();
+        bloomFilter = new Bloom(bloomRLP.getData());
 
-        for (RLPElement log : logs) {
-            LogInfo logInfo = new LogInfo(log.getRLPData());
+        for (int i = 0; i < logs.size(); ++i) {
+            LogInfo logInfo = new LogInfo(logs.get(i).getEncoded());
             logInfoList.add(logInfo);
         }
         rlpEncoded = rlp;
@@ -99,25 +96,18 @@ public class TransactionReceipt {
 
         if (rlpEncoded != null) return rlpEncoded;
 
-        byte[] postTxStateRLP = RLP.encodeElement(this.postTxState);
-        byte[] cumulativeGasRLP = RLP.encodeElement(this.cumulativeGas);
-        byte[] bloomRLP = RLP.encodeElement(this.bloomFilter.data);
-
-        final byte[] logInfoListRLP;
+        RLPWriter writer = new RLPWriter();
+        writer.startList()
+                .writeElement(this.postTxState)
+                .writeElement(this.cumulativeGas)
+                .writeElement(this.bloomFilter.data)
+                .startList();
         if (logInfoList != null) {
-            byte[][] logInfoListE = new byte[logInfoList.size()][];
-
-            int i = 0;
             for (LogInfo logInfo : logInfoList) {
-                logInfoListE[i] = logInfo.getEncoded();
-                ++i;
+                logInfo.encode(writer);
             }
-            logInfoListRLP = RLP.encodeList(logInfoListE);
-        } else {
-            logInfoListRLP = RLP.encodeList();
         }
-
-        rlpEncoded = RLP.encodeList(postTxStateRLP, cumulativeGasRLP, bloomRLP, logInfoListRLP);
+        rlpEncoded = writer.endList().endList().toByteArray();
 
         return rlpEncoded;
     }
@@ -8,6 +8,7 @@ import org.spongycastle.crypto.digests.RIPEMD160Digest;
 import org.spongycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -16,38 +17,102 @@ import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 
 public class HashUtil {
 
+    public static final int HASH_LENGTH = 32;
+
+    /*
+     * The digests are kept per thread, so the hashing is safe for concurrent use without locking.
+     * They are reused across the calls: every complete hash leaves its digest reset
+     */
+    private static final ThreadLocal<Keccak256> keccak = new ThreadLocal<Keccak256>() {
+        @Override
+        protected Keccak256 initialValue() {
+            return new Keccak256();
+        }
+    };
+
+    private static final ThreadLocal<MessageDigest> sha256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);  // Can't happen.
+            }
+        }
+    };
+
+    private static final ThreadLocal<RIPEMD160Digest> ripemd160 = new ThreadLocal<RIPEMD160Digest>() {
+        @Override
+        protected RIPEMD160Digest initialValue() {
+            return new RIPEMD160Digest();
+        }
+    };
+
     private static final int MAX_ENTRIES = 100; // Should contain most commonly hashed values
     public static final byte[] EMPTY_DATA_HASH = sha3(EMPTY_BYTE_ARRAY);
     public static final byte[] EMPTY_LIST_HASH = sha3(RLP.encodeList());
     public static final byte[] EMPTY_TRIE_HASH = sha3(RLP.encodeElement(EMPTY_BYTE_ARRAY));
 
-    private static final MessageDigest sha256digest;
-
-    static {
-        try {
-            sha256digest = MessageDigest.getInstance("SHA-256");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);  // Can't happen.
-        }
-    }
-
     public static byte[] sha256(byte[] input) {
-        return sha256digest.digest(input);
+        return sha256.get().digest(input);
     }
 
     public static byte[] sha3(byte[] input) {
-        Keccak256 digest =  new Keccak256();
-        digest.update(input);
-        return digest.digest();
+        return sha3(input, 0, input.length);
     }
 
     public static byte[] sha3(byte[] input, int start, int length) {
-        return SHA3Helper.sha3(input, start, length);
+        byte[] hash = new byte[HASH_LENGTH];
+        sha3(input, start, length, hash, 0);
+        return hash;
+    }
+
+    /**
+     * Hashes the range of the input straight into the output, without intermediate copies
+     *
+     * @param out - receives {@link #HASH_LENGTH} bytes from the offset
+     */
+    public static void sha3(byte[] input, int start, int length, byte[] out, int outOffset) {
+        Keccak256 digest = keccak.get();
+        try {
+            digest.update(input, start, length);
+            digest.digest(out, outOffset, HASH_LENGTH);
+        } catch (RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer straight into the output, the buffer is consumed
+     *
+     * @param out - receives {@link #HASH_LENGTH} bytes from the offset
+     */
+    public static void sha3(ByteBuffer input, byte[] out, int outOffset) {
+        if (input.hasArray()) {
+            sha3(input.array(), input.arrayOffset() + input.position(), input.remaining(), out, outOffset);
+            input.position(input.limit());
+            return;
+        }
+
+        Keccak256 digest = keccak.get();
+        try {
+            byte[] chunk = new byte[Math.min(input.remaining(), digest.getBlockLength())];
+            while (input.hasRemaining()) {
+                int length = Math.min(input.remaining(), chunk.length);
+                input.get(chunk, 0, length);
+                digest.update(chunk, 0, length);
+            }
+            digest.digest(out, outOffset, HASH_LENGTH);
+        } catch (RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
     }
 
 
     public static byte[] ripemd160(byte[] message) {
-        Digest digest = new RIPEMD160Digest();
+        Digest digest = ripemd160.get();
         if (message != null) {
             byte[] resBuf = new byte[digest.getDigestSize()];
             digest.update(message, 0, message.length);
@@ -93,12 +158,11 @@ public class HashUtil {
      * standard procedure in Bitcoin. The resulting hash is in big endian form.
      */
     public static byte[] doubleDigest(byte[] input, int offset, int length) {
-        synchronized (sha256digest) {
-            sha256digest.reset();
-            sha256digest.update(input, offset, length);
-            byte[] first = sha256digest.digest();
-            return sha256digest.digest(first);
-        }
+        MessageDigest digest = sha256.get();
+        digest.reset();
+        digest.update(input, offset, length);
+        byte[] first = digest.digest();
+        return digest.digest(first);
     }
 
     /**
@@ -0,0 +1,665 @@
+package org.ethereum.crypto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Arithmetic of the secp256k1 curve specialized for the ECDSA signature verification and the public key
+ * recovery, these replace the generic spongycastle point math with BigInteger coordinates in {@link ECKey}.
+ *
+ * A field element is 8 limbs of 32 bits held in longs, least significant first, always reduced below p.
+ * The reduction relies on the shape of p: 2^256 = 2^32 + 977 (mod p). The points are accumulated in Jacobian
+ * coordinates and added to affine points only. Both operations compute u1 * G + u2 * Q in a single pass
+ * of doublings over the width-w NAFs of the two scalars (Shamir's trick), the odd multiples of G come from
+ * a table precomputed once, the ones of Q are computed per operation.
+ *
+ * None of this is constant time, it's only meant for public data: signatures, hashes and public keys
+ */
+final class Secp256k1 {
+
+    static final BigInteger P = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+    static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    static final BigInteger GX = new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16);
+    static final BigInteger GY = new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16);
+
+    private static final int LIMBS = 8;
+    private static final long MASK = 0xFFFFFFFFL;
+
+    /* 2^256 - p */
+    private static final long C0 = 977;
+
+    private static final long[] B = element(BigInteger.valueOf(7));
+
+    /* width of the NAF of the scalar multiplying G, the table holds 2^(W_G - 2) odd multiples */
+    private static final int W_G = 10;
+    private static final int W_Q = 5;
+
+    private static final long[][][] G_TABLE = oddMultiples(element(GX), element(GY), 1 << (W_G - 2));
+
+    private Secp256k1() {
+    }
+
+    /**
+     * Recovers the public key which made the signature, see SEC1v2 section 4.1.6
+     *
+     * @return the affine coordinates of the key, null if there's no such key
+     * @throws IllegalArgumentException if the x coordinate selected by the recId is not on the curve
+     * @throws ArithmeticException if r is zero
+     */
+    static BigInteger[] recover(int recId, BigInteger r, BigInteger s, byte[] messageHash) {
+        BigInteger x = r.add(BigInteger.valueOf(recId / 2).multiply(N));
+        if (x.compareTo(P) >= 0) return null;
+
+        long[] rx = element(x);
+        long[] ry = decompress(rx, (recId & 1) == 1);
+        if (ry == null) throw new IllegalArgumentException("Invalid point compression");
+
+        // the cofactor is 1, so every point of the curve has order n and R needs no check
+        // Q = r^-1 * (s * R - e * G)
+        BigInteger e = new BigInteger(1, messageHash);
+        BigInteger rInv = r.modInverse(N);
+        BigInteger u1 = rInv.multiply(e.negate().mod(N)).mod(N);
+        BigInteger u2 = rInv.multiply(s).mod(N);
+
+        JacobianPoint q = sumOfTwoMultiplies(u1, rx, ry, u2);
+        if (q.infinity) return null;
+
+        long[][] affine = toAffine(q);
+        return new BigInteger[]{toBigInteger(affine[0]), toBigInteger(affine[1])};
+    }
+
+    /**
+     * Verifies the signature the same way spongycastle's ECDSASigner does
+     *
+     * @param pub - the public key, compressed or not
+     * @throws IllegalArgumentException if the key encoding is invalid
+     */
+    static boolean verify(byte[] messageHash, BigInteger r, BigInteger s, byte[] pub) {
+        long[][] q = decode(pub);
+
+        if (r.signum() <= 0 || r.compareTo(N) >= 0) return false;
+        if (s.signum() <= 0 || s.compareTo(N) >= 0) return false;
+
+        BigInteger e = new BigInteger(1, messageHash);
+        int messageBits = messageHash.length * 8;
+        if (messageBits > N.bitLength()) e = e.shiftRight(messageBits - N.bitLength());
+
+        BigInteger c = s.modInverse(N);
+        BigInteger u1 = e.multiply(c).mod(N);
+        BigInteger u2 = r.multiply(c).mod(N);
+
+        JacobianPoint point = sumOfTwoMultiplies(u1, q[0], q[1], u2);
+        if (point.infinity) return false;
+
+        // x / z^2 mod n == r, without the inversion: x is below p, so it's either r or r + n
+        long[] zz = new long[LIMBS];
+        long[] candidate = new long[LIMBS];
+        sqr(zz, point.z);
+        mul(candidate, element(r), zz);
+        if (equal(candidate, point.x)) return true;
+
+        BigInteger rn = r.add(N);
+        if (rn.compareTo(P) >= 0) return false;
+        mul(candidate, element(rn), zz);
+        return equal(candidate, point.x);
+    }
+
+    /**
+     * @return the affine coordinates of the encoded point
+     */
+    static long[][] decode(byte[] encoded) {
+        if (encoded.length == 65 && encoded[0] == 0x04) {
+            BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, 33));
+            BigInteger y = new BigInteger(1, Arrays.copyOfRange(encoded, 33, 65));
+            if (x.compareTo(P) >= 0 || y.compareTo(P) >= 0) throw new IllegalArgumentException("Invalid point coordinates");
+
+            long[][] point = {element(x), element(y)};
+            if (!isOnCurve(point[0], point[1])) throw new IllegalArgumentException("Invalid point coordinates");
+            return point;
+        }
+
+        if (encoded.length == 33 && (encoded[0] == 0x02 || encoded[0] == 0x03)) {
+            BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, 33));
+            if (x.compareTo(P) >= 0) throw new IllegalArgumentException("Invalid point compression");
+
+            long[] px = element(x);
+            long[] py = decompress(px, encoded[0] == 0x03);
+            if (py == null) throw new IllegalArgumentException("Invalid point compression");
+            return new long[][]{px, py};
+        }
+
+        throw new IllegalArgumentException("Invalid point encoding");
+    }
+
+    /**
+     * @return u1 * G + u2 * (qx, qy)
+     */
+    static JacobianPoint sumOfTwoMultiplies(BigInteger u1, long[] qx, long[] qy, BigInteger u2) {
+        int[] nafG = wnaf(element(u1), W_G);
+        int[] nafQ = wnaf(element(u2), W_Q);
+        long[][][] qTable = oddMultiples(qx, qy, 1 << (W_Q - 2));
+
+        JacobianPoint point = new JacobianPoint();
+        long[] negY = new long[LIMBS];
+        for (int i = nafG.length - 1; i >= 0; --i) {
+            dbl(point);
+            addDigit(point, qTable, nafQ[i], negY);
+            addDigit(point, G_TABLE, nafG[i], negY);
+        }
+        return point;
+    }
+
+    private static void addDigit(JacobianPoint point, long[][][] table, int digit, long[] negY) {
+        if (digit > 0) {
+            long[][] multiple = table[(digit - 1) >> 1];
+            madd(point, multiple[0], multiple[1]);
+        } else if (digit < 0) {
+            long[][] multiple = table[(-digit - 1) >> 1];
+            neg(negY, multiple[1]);
+            madd(point, multiple[0], negY);
+        }
+    }
+
+    /**
+     * Width-w non-adjacent form: every non zero digit is odd and below 2^(w-1) by absolute value,
+     * any w consecutive digits hold at most one non zero digit
+     *
+     * @return the digits, least significant first
+     */
+    static int[] wnaf(long[] scalar, int w) {
+        int length = LIMBS * 32 + 1;
+        int[] naf = new int[length];
+
+        int carry = 0;
+        int bit = 0;
+        while (bit < length) {
+            if (bits(scalar, bit, 1) == carry) {
+                ++bit;
+                continue;
+            }
+
+            int now = Math.min(w, length - bit);
+            int word = bits(scalar, bit, now) + carry;
+            carry = (word >> (w - 1)) & 1;
+            word -= carry << w;
+
+            naf[bit] = word;
+            bit += now;
+        }
+        return naf;
+    }
+
+    private static int bits(long[] scalar, int position, int count) {
+        int limb = position >>> 5;
+        int shift = position & 31;
+        if (limb >= LIMBS) return 0;
+
+        long value = scalar[limb] >>> shift;
+        if (shift + count > 32 && limb + 1 < LIMBS) value |= scalar[limb + 1] << (32 - shift);
+        return (int) (value & ((1L << count) - 1));
+    }
+
+    /**
+     * @return the affine points (2i + 1) * (x, y) for i below count
+     */
+    static long[][][] oddMultiples(long[] x, long[] y, int count) {
+        JacobianPoint twice = new JacobianPoint(x, y);
+        dbl(twice);
+        long[][] twiceAffine = toAffine(twice);
+
+        JacobianPoint[] multiples = new JacobianPoint[count];
+        multiples[0] = new JacobianPoint(x, y);
+        for (int i = 1; i < count; ++i) {
+            multiples[i] = multiples[i - 1].copy();
+            madd(multiples[i], twiceAffine[0], twiceAffine[1]);
+        }
+        return toAffine(multiples);
+    }
+
+    /* Points */
+
+    static final class JacobianPoint {
+
+        final long[] x = new long[LIMBS];
+        final long[] y = new long[LIMBS];
+        final long[] z = new long[LIMBS];
+        boolean infinity = true;
+
+        JacobianPoint() {
+        }
+
+        JacobianPoint(long[] x, long[] y) {
+            set(x, y);
+        }
+
+        void set(long[] x, long[] y) {
+            System.arraycopy(x, 0, this.x, 0, LIMBS);
+            System.arraycopy(y, 0, this.y, 0, LIMBS);
+            Arrays.fill(z, 0);
+            z[0] = 1;
+            infinity = false;
+        }
+
+        JacobianPoint copy() {
+            JacobianPoint copy = new JacobianPoint();
+            System.arraycopy(x, 0, copy.x, 0, LIMBS);
+            System.arraycopy(y, 0, copy.y, 0, LIMBS);
+            System.arraycopy(z, 0, copy.z, 0, LIMBS);
+            copy.infinity = infinity;
+            return copy;
+        }
+    }
+
+    /**
+     * p = 2 * p, dbl-2009-l for a = 0
+     */
+    static void dbl(JacobianPoint p) {
+        if (p.infinity) return;
+
+        long[] a = new long[LIMBS];
+        long[] b = new long[LIMBS];
+        long[] c = new long[LIMBS];
+        long[] d = new long[LIMBS];
+        long[] e = new long[LIMBS];
+        long[] t = new long[LIMBS];
+
+        sqr(a, p.x);
+        sqr(b, p.y);
+        sqr(c, b);
+
+        // d = 2 * ((x + b)^2 - a - c)
+        add(d, p.x, b);
+        sqr(d, d);
+        sub(d, d, a);
+        sub(d, d, c);
+        add(d, d, d);
+
+        // e = 3 * a
+        add(e, a, a);
+        add(e, e, a);
+
+        // z3 = 2 * y * z
+        mul(p.z, p.y, p.z);
+        add(p.z, p.z, p.z);
+
+        // x3 = e^2 - 2 * d
+        sqr(t, e);
+        sub(t, t, d);
+        sub(p.x, t, d);
+
+        // y3 = e * (d - x3) - 8 * c
+        sub(d, d, p.x);
+        mul(t, e, d);
+        add(c, c, c);
+        add(c, c, c);
+        add(c, c, c);
+        sub(p.y, t, c);
+    }
+
+    /**
+     * p = p + (x2, y2), madd-2007-bl
+     */
+    static void madd(JacobianPoint p, long[] x2, long[] y2) {
+        if (p.infinity) {
+            p.set(x2, y2);
+            return;
+        }
+
+        long[] z1z1 = new long[LIMBS];
+        long[] u2 = new long[LIMBS];
+        long[] s2 = new long[LIMBS];
+        long[] h = new long[LIMBS];
+        long[] r = new long[LIMBS];
+
+        sqr(z1z1, p.z);
+        mul(u2, x2, z1z1);
+        mul(s2, y2, p.z);
+        mul(s2, s2, z1z1);
+
+        sub(h, u2, p.x);
+        sub(r, s2, p.y);
+        if (isZero(h)) {
+            if (isZero(r)) {
+                dbl(p);
+            } else {
+                p.infinity = true;
+            }
+            return;
+        }
+        add(r, r, r);
+
+        long[] hh = new long[LIMBS];
+        long[] i = new long[LIMBS];
+        long[] j = new long[LIMBS];
+        long[] v = new long[LIMBS];
+
+        sqr(hh, h);
+        add(i, hh, hh);
+        add(i, i, i);
+        mul(j, h, i);
+        mul(v, p.x, i);
+
+        // z3 = (z1 + h)^2 - z1z1 - hh
+        add(p.z, p.z, h);
+        sqr(p.z, p.z);
+        sub(p.z, p.z, z1z1);
+        sub(p.z, p.z, hh);
+
+        // y1 * j is taken before y1 is overwritten
+        mul(s2, p.y, j);
+
+        // x3 = r^2 - j - 2 * v
+        sqr(p.x, r);
+        sub(p.x, p.x, j);
+        sub(p.x, p.x, v);
+        sub(p.x, p.x, v);
+
+        // y3 = r * (v - x3) - 2 * y1 * j
+        sub(v, v, p.x);
+        mul(p.y, r, v);
+        add(s2, s2, s2);
+        sub(p.y, p.y, s2);
+    }
+
+    static long[][] toAffine(JacobianPoint p) {
+        long[] zInv = new long[LIMBS];
+        inv(zInv, p.z);
+        return toAffine(p, zInv);
+    }
+
+    private static long[][] toAffine(JacobianPoint p, long[] zInv) {
+        long[] zInv2 = new long[LIMBS];
+        long[] x = new long[LIMBS];
+        long[] y = new long[LIMBS];
+
+        sqr(zInv2, zInv);
+        mul(x, p.x, zInv2);
+        mul(y, p.y, zInv2);
+        mul(y, y, zInv);
+        return new long[][]{x, y};
+    }
+
+    /**
+     * Converts the points with a single inversion (Montgomery's trick), none of them may be infinity
+     */
+    static long[][][] toAffine(JacobianPoint[] points) {
+        long[][] prefix = new long[points.length][LIMBS];
+        System.arraycopy(points[0].z, 0, prefix[0], 0, LIMBS);
+        for (int i = 1; i < points.length; ++i) {
+            mul(prefix[i], prefix[i - 1], points[i].z);
+        }
+
+        long[] inverse = new long[LIMBS];
+        inv(inverse, prefix[points.length - 1]);
+
+        long[][][] affine = new long[points.length][][];
+        long[] zInv = new long[LIMBS];
+        for (int i = points.length - 1; i > 0; --i) {
+            mul(zInv, inverse, prefix[i - 1]);
+            mul(inverse, inverse, points[i].z);
+            affine[i] = toAffine(points[i], zInv);
+        }
+        affine[0] = toAffine(points[0], inverse);
+        return affine;
+    }
+
+    static boolean isOnCurve(long[] x, long[] y) {
+        long[] lhs = new long[LIMBS];
+        long[] rhs = new long[LIMBS];
+        sqr(lhs, y);
+        sqr(rhs, x);
+        mul(rhs, rhs, x);
+        add(rhs, rhs, B);
+        return equal(lhs, rhs);
+    }
+
+    /**
+     * @return the y coordinate of the given parity, null if x is not on the curve
+     */
+    static long[] decompress(long[] x, boolean odd) {
+        long[] y = new long[LIMBS];
+        sqr(y, x);
+        mul(y, y, x);
+        add(y, y, B);
+        if (!sqrt(y, y)) return null;
+
+        if (((y[0] & 1) == 1) != odd) neg(y, y);
+        return y;
+    }
+
+    /* Field, the results may share the arrays of the arguments */
+
+    static long[] element(BigInteger value) {
+        long[] element = new long[LIMBS];
+        for (int i = 0; i < LIMBS; ++i) {
+            element[i] = value.shiftRight(32 * i).longValue() & MASK;
+        }
+        return element;
+    }
+
+    static BigInteger toBigInteger(long[] a) {
+        byte[] bytes = new byte[LIMBS * 4];
+        for (int i = 0; i < LIMBS; ++i) {
+            long limb = a[i];
+            int offset = (LIMBS - 1 - i) * 4;
+            bytes[offset] = (byte) (limb >>> 24);
+            bytes[offset + 1] = (byte) (limb >>> 16);
+            bytes[offset + 2] = (byte) (limb >>> 8);
+            bytes[offset + 3] = (byte) limb;
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    static boolean isZero(long[] a) {
+        long bits = 0;
+        for (int i = 0; i < LIMBS; ++i) bits |= a[i];
+        return bits == 0;
+    }
+
+    static boolean equal(long[] a, long[] b) {
+        for (int i = 0; i < LIMBS; ++i) {
+            if (a[i] != b[i]) return false;
+        }
+        return true;
+    }
+
+    static void add(long[] r, long[] a, long[] b) {
+        long carry = 0;
+        for (int i = 0; i < LIMBS; ++i) {
+            carry += a[i] + b[i];
+            r[i] = carry & MASK;
+            carry >>>= 32;
+        }
+        // a + b is below 2p, so once reduced by either 2^256 or p it's below p
+        if (carry != 0 || isAtLeastP(r)) addC(r);
+    }
+
+    static void sub(long[] r, long[] a, long[] b) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; ++i) {
+            borrow += a[i] - b[i];
+            r[i] = borrow & MASK;
+            borrow >>= 32;
+        }
+        if (borrow != 0) {
+            // r holds a - b + 2^256, subtracting 2^256 - p leaves a - b + p
+            borrow = r[0] - C0;
+            r[0] = borrow & MASK;
+            borrow >>= 32;
+            borrow += r[1] - 1;
+            r[1] = borrow & MASK;
+            borrow >>= 32;
+            for (int i = 2; i < LIMBS && borrow != 0; ++i) {
+                borrow += r[i];
+                r[i] = borrow & MASK;
+                borrow >>= 32;
+            }
+        }
+    }
+
+    static void neg(long[] r, long[] a) {
+        sub(r, new long[LIMBS], a);
+    }
+
+    static void sqr(long[] r, long[] a) {
+        mul(r, a, a);
+    }
+
+    static void mul(long[] r, long[] a, long[] b) {
+        long[] t = new long[2 * LIMBS];
+        for (int i = 0; i < LIMBS; ++i) {
+            long ai = a[i];
+            long carry = 0;
+            for (int j = 0; j < LIMBS; ++j) {
+                // at most (2^32 - 1)^2 + 2 * (2^32 - 1), which fits 64 bits unsigned
+                long product = t[i + j] + ai * b[j] + carry;
+                t[i + j] = product & MASK;
+                carry = product >>> 32;
+            }
+            t[i + LIMBS] = carry;
+        }
+        reduce(r, t);
+    }
+
+    /**
+     * Reduces the 512 bit product, its high half H is folded as H * 2^256 = H * 2^32 + H * 977
+     */
+    private static void reduce(long[] r, long[] t) {
+        long carry = 0;
+        for (int i = 0; i < LIMBS; ++i) {
+            carry += t[i] + t[i + LIMBS] * C0 + (i > 0 ? t[i + LIMBS - 1] : 0);
+            r[i] = carry & MASK;
+            carry >>>= 32;
+        }
+        carry += t[2 * LIMBS - 1];
+
+        // the remaining carry is below 2^34, folded the same way
+        long fold = r[0] + carry * C0;
+        r[0] = fold & MASK;
+        fold >>>= 32;
+        fold += r[1] + carry;
+        r[1] = fold & MASK;
+        fold >>>= 32;
+        for (int i = 2; i < LIMBS; ++i) {
+            fold += r[i];
+            r[i] = fold & MASK;
+            fold >>>= 32;
+        }
+
+        // wrapped past 2^256, the remainder is tiny
+        if (fold != 0) addC(r);
+        if (isAtLeastP(r)) addC(r);
+    }
+
+    /**
+     * r = r + 2^256 - p, dropping the carry past 2^256
+     */
+    private static void addC(long[] r) {
+        long carry = r[0] + C0;
+        r[0] = carry & MASK;
+        carry >>>= 32;
+        carry += r[1] + 1;
+        r[1] = carry & MASK;
+        carry >>>= 32;
+        for (int i = 2; i < LIMBS && carry != 0; ++i) {
+            carry += r[i];
+            r[i] = carry & MASK;
+            carry >>>= 32;
+        }
+    }
+
+    private static boolean isAtLeastP(long[] r) {
+        for (int i = LIMBS - 1; i >= 2; --i) {
+            if (r[i] != MASK) return false;
+        }
+        return r[1] > 0xFFFFFFFEL || (r[1] == 0xFFFFFFFEL && r[0] >= 0xFFFFFC2FL);
+    }
+
+    private static void sqrN(long[] r, long[] a, int n) {
+        sqr(r, a);
+        for (int i = 1; i < n; ++i) sqr(r, r);
+    }
+
+    /**
+     * r = a^(p - 2), the chain builds the runs of ones of the exponent: 223, 22, 1, 2 and 1
+     */
+    static void inv(long[] r, long[] a) {
+        long[][] x = powerChain(a);
+        long[] x2 = x[0], x22 = x[3], x223 = x[4];
+        long[] t = new long[LIMBS];
+
+        sqrN(t, x223, 23);
+        mul(t, t, x22);
+        sqrN(t, t, 5);
+        mul(t, t, a);
+        sqrN(t, t, 3);
+        mul(t, t, x2);
+        sqrN(t, t, 2);
+        mul(r, t, a);
+    }
+
+    /**
+     * r = a^((p + 1) / 4), the square root as p = 3 (mod 4)
+     *
+     * @return false if a is not a square, r is undefined then
+     */
+    static boolean sqrt(long[] r, long[] a) {
+        long[][] x = powerChain(a);
+        long[] x2 = x[0], x22 = x[3], x223 = x[4];
+        long[] t = new long[LIMBS];
+
+        sqrN(t, x223, 23);
+        mul(t, t, x22);
+        sqrN(t, t, 6);
+        mul(t, t, x2);
+        sqrN(t, t, 2);
+
+        long[] check = new long[LIMBS];
+        sqr(check, t);
+        boolean square = equal(check, a);
+        System.arraycopy(t, 0, r, 0, LIMBS);
+        return square;
+    }
+
+    /**
+     * @return a^(2^k - 1) for k of 2, 3, 11, 22 and 223
+     */
+    private static long[][] powerChain(long[] a) {
+        long[] x2 = new long[LIMBS];
+        long[] x3 = new long[LIMBS];
+        long[] x6 = new long[LIMBS];
+        long[] x9 = new long[LIMBS];
+        long[] x11 = new long[LIMBS];
+        long[] x22 = new long[LIMBS];
+        long[] x44 = new long[LIMBS];
+        long[] x88 = new long[LIMBS];
+        long[] x176 = new long[LIMBS];
+        long[] x220 = new long[LIMBS];
+        long[] x223 = new long[LIMBS];
+
+        sqr(x2, a);
+        mul(x2, x2, a);
+        sqr(x3, x2);
+        mul(x3, x3, a);
+        sqrN(x6, x3, 3);
+        mul(x6, x6, x3);
+        sqrN(x9, x6, 3);
+        mul(x9, x9, x3);
+        sqrN(x11, x9, 2);
+        mul(x11, x11, x2);
+        sqrN(x22, x11, 11);
+        mul(x22, x22, x11);
+        sqrN(x44, x22, 22);
+        mul(x44, x44, x22);
+        sqrN(x88, x44, 44);
+        mul(x88, x88, x44);
+        sqrN(x176, x88, 88);
+        mul(x176, x176, x88);
+        sqrN(x220, x176, 44);
+        mul(x220, x220, x44);
+        sqrN(x223, x220, 3);
+        mul(x223, x223, x3);
+
+        return new long[][]{x2, x3, x11, x22, x223};
+    }
+}
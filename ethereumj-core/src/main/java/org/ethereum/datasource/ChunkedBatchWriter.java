@@ -0,0 +1,70 @@
+package org.ethereum.datasource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams rows to {@link KeyValueDataSource#updateBatch} in chunks of limited size,
+ * so that a big flush doesn't hold all of its rows in a single map
+ */
+public class ChunkedBatchWriter {
+
+    private final KeyValueDataSource dataSource;
+    private final long chunkSize;
+
+    private Map<byte[], byte[]> chunk = new HashMap<>();
+    private long chunkBytes;
+
+    private int count;
+    private long size;
+
+    /**
+     * @param chunkSize - summary size in bytes of the keys and values
+     *                  which triggers writing of the accumulated rows
+     */
+    public ChunkedBatchWriter(KeyValueDataSource dataSource, long chunkSize) {
+        this.dataSource = dataSource;
+        this.chunkSize = chunkSize;
+    }
+
+    public void put(byte[] key, byte[] value) {
+        chunk.put(key, value);
+        chunkBytes += key.length + value.length;
+
+        ++count;
+        size += key.length + value.length;
+
+        if (chunkBytes >= chunkSize) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * Writes the rows which are left
+     */
+    public void flush() {
+        if (!chunk.isEmpty()) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * @return number of rows passed to the writer
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return summary size in bytes of the rows passed to the writer
+     */
+    public long getSize() {
+        return size;
+    }
+
+    private void writeChunk() {
+        dataSource.updateBatch(chunk);
+        chunk = new HashMap<>();
+        chunkBytes = 0;
+    }
+}
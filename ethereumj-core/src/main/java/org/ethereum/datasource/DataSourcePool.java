@@ -17,6 +17,13 @@ public class DataSourcePool {
         return (KeyValueDataSource) getDataSourceFromPool(name, new LevelDbDataSource());
     }
 
+    /**
+     * @return the data source from the pool, null unless it has been opened there
+     */
+    public static DataSource getDataSourceFromPool(String name) {
+        return pool.get(name);
+    }
+
     private static DataSource getDataSourceFromPool(String name, @Nonnull DataSource dataSource) {
         dataSource.setName(name);
         DataSource result = pool.putIfAbsent(name, dataSource);
@@ -0,0 +1,54 @@
+package org.ethereum.datasource;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Cursor over entries which come in no particular order,
+ * the entries with the keys out of the range are skipped
+ */
+public class EntryCursor implements KeyValueCursor {
+
+    private final Iterator<? extends Map.Entry<byte[], byte[]>> entries;
+    private final KeyRange range;
+
+    private Map.Entry<byte[], byte[]> current;
+
+    public EntryCursor(Iterator<? extends Map.Entry<byte[], byte[]>> entries, KeyRange range) {
+        this.entries = entries;
+        this.range = range;
+    }
+
+    @Override
+    public boolean next() {
+        while (entries.hasNext()) {
+            Map.Entry<byte[], byte[]> entry = entries.next();
+            if (range.contains(entry.getKey())) {
+                current = entry;
+                return true;
+            }
+        }
+        current = null;
+        return false;
+    }
+
+    @Override
+    public byte[] getKey() {
+        return current().getKey();
+    }
+
+    @Override
+    public byte[] getValue() {
+        return current().getValue();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Map.Entry<byte[], byte[]> current() {
+        if (current == null) throw new NoSuchElementException("Cursor is not positioned on a row");
+        return current;
+    }
+}
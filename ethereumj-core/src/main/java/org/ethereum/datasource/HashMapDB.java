@@ -3,16 +3,22 @@ package org.ethereum.datasource;
 import org.ethereum.db.ByteArrayWrapper;
 import org.iq80.leveldb.DBException;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.ethereum.util.ByteUtil.wrap;
 
 public class HashMapDB implements KeyValueDataSource {
 
-    Map<ByteArrayWrapper, byte[]> storage = new HashMap<>();
+    /* concurrent, as the db may be written by a background flush while being read */
+    Map<ByteArrayWrapper, byte[]> storage = new ConcurrentHashMap<>();
 
 
     @Override
@@ -27,6 +33,16 @@ public class HashMapDB implements KeyValueDataSource {
     }
 
 
+    @Override
+    public List<byte[]> getAll(Collection<byte[]> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            result.add(storage.get(wrap(key)));
+        }
+        return result;
+    }
+
+
     @Override
     public byte[] put(byte[] key, byte[] value) throws DBException {
         return storage.put(wrap(key), value);
@@ -77,6 +93,35 @@ public class HashMapDB implements KeyValueDataSource {
         }
     }
 
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        for (byte[] key : keys) {
+            storage.remove(wrap(key));
+        }
+    }
+
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        final Iterator<Map.Entry<ByteArrayWrapper, byte[]>> entries = storage.entrySet().iterator();
+        return new EntryCursor(new Iterator<Map.Entry<byte[], byte[]>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<byte[], byte[]> next() {
+                Map.Entry<ByteArrayWrapper, byte[]> entry = entries.next();
+                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey().getData(), entry.getValue());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, range);
+    }
+
     @Override
     public void close() {
         this.storage.clear();
@@ -0,0 +1,79 @@
+package org.ethereum.datasource;
+
+import org.ethereum.util.FastByteComparisons;
+
+import java.util.Arrays;
+
+/**
+ * Range of keys [from, to) in the lexicographical order of unsigned bytes,
+ * a missing bound means the range is not limited from that side
+ */
+public final class KeyRange {
+
+    private static final KeyRange ALL = new KeyRange(null, null);
+
+    private final byte[] from;
+    private final byte[] to;
+
+    private KeyRange(byte[] from, byte[] to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public static KeyRange all() {
+        return ALL;
+    }
+
+    /**
+     * @param from - first key of the range, null if not limited
+     * @param to - key following the range, null if not limited
+     */
+    public static KeyRange of(byte[] from, byte[] to) {
+        return new KeyRange(from, to);
+    }
+
+    /**
+     * @return range of the keys starting with the prefix
+     */
+    public static KeyRange prefix(byte[] prefix) {
+        // the smallest key greater than all the keys with the prefix
+        byte[] to = null;
+        for (int i = prefix.length - 1; i >= 0 && to == null; --i) {
+            if (prefix[i] != (byte) 0xFF) {
+                to = Arrays.copyOf(prefix, i + 1);
+                ++to[i];
+            }
+        }
+        return new KeyRange(prefix, to);
+    }
+
+    /**
+     * @return first key of the range, null if not limited
+     */
+    public byte[] getFrom() {
+        return from;
+    }
+
+    /**
+     * @return key following the range, null if not limited
+     */
+    public byte[] getTo() {
+        return to;
+    }
+
+    public boolean contains(byte[] key) {
+        return (from == null || compare(key, from) >= 0) && !isBefore(key);
+    }
+
+    /**
+     * @return true if the range ends before the key,
+     * so that ordered iteration may stop at the key
+     */
+    public boolean isBefore(byte[] key) {
+        return to != null && compare(key, to) >= 0;
+    }
+
+    private static int compare(byte[] key1, byte[] key2) {
+        return FastByteComparisons.compareTo(key1, 0, key1.length, key2, 0, key2.length);
+    }
+}
@@ -0,0 +1,33 @@
+package org.ethereum.datasource;
+
+import java.io.Closeable;
+
+/**
+ * Forward only cursor over the rows of a {@link KeyValueDataSource},
+ * the rows are read on demand, so the data source is never loaded in memory as a whole.
+ *
+ * The cursor may hold resources of the data source, so it should be closed once it is not needed:
+ * <pre>
+ * try (KeyValueCursor cursor = dataSource.cursor(KeyRange.all())) {
+ *     while (cursor.next()) {
+ *         process(cursor.getKey(), cursor.getValue());
+ *     }
+ * }
+ * </pre>
+ */
+public interface KeyValueCursor extends Closeable {
+
+    /**
+     * Moves to the next row, the cursor is positioned before the first row initially
+     *
+     * @return false if there are no more rows
+     */
+    boolean next();
+
+    byte[] getKey();
+
+    byte[] getValue();
+
+    @Override
+    void close();
+}
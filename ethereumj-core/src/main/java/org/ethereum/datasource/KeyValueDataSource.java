@@ -1,5 +1,7 @@
 package org.ethereum.datasource;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,6 +13,14 @@ public interface KeyValueDataSource extends DataSource {
 
     byte[] get(byte[] key);
 
+    /**
+     * Reads the values of several keys at once, cheaper than a series of {@link #get} calls
+     * for the data sources with a high per-call cost (network round-trip, disk seek)
+     *
+     * @return values in the order of the keys, null for the missing ones
+     */
+    List<byte[]> getAll(Collection<byte[]> keys);
+
     byte[] put(byte[] key, byte[] value);
 
     void delete(byte[] key);
@@ -18,4 +28,13 @@ public interface KeyValueDataSource extends DataSource {
     Set<byte[]> keys();
 
     void updateBatch(Map<byte[], byte[]> rows);
+
+    void deleteBatch(Collection<byte[]> keys);
+
+    /**
+     * Opens a cursor over the rows with the keys in the range.
+     * Ordered data sources (LevelDB) return the rows in the order of the keys,
+     * the others in no particular order.
+     */
+    KeyValueCursor cursor(KeyRange range);
 }
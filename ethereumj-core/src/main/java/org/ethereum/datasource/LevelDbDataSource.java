@@ -1,5 +1,6 @@
 package org.ethereum.datasource;
 
+import org.ethereum.util.FastByteComparisons;
 import org.iq80.leveldb.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,8 +10,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import static java.lang.System.getProperty;
@@ -27,6 +34,7 @@ public class LevelDbDataSource implements KeyValueDataSource {
 
     private String name;
     private DB db;
+    private ReadOptions readOptions;
     private boolean alive;
 
     public LevelDbDataSource() {
@@ -42,17 +50,23 @@ public class LevelDbDataSource implements KeyValueDataSource {
         
         if (name == null) throw new NullPointerException("no name set to the db");
 
+        String profile = getProfile(name);
+        String checksum = CONFIG.levelDbChecksum(profile);
+
         Options options = new Options();
         options.createIfMissing(true);
-        options.compressionType(CompressionType.NONE);
-        options.blockSize(10 * 1024 * 1024);
-        options.writeBufferSize(10 * 1024 * 1024);
-        options.cacheSize(0);
-        options.paranoidChecks(true);
-        options.verifyChecksums(true);
+        options.compressionType(getCompressionType(CONFIG.levelDbCompression(profile)));
+        options.blockSize(CONFIG.levelDbBlockSize(profile));
+        options.writeBufferSize(CONFIG.levelDbWriteBufferSize(profile));
+        options.cacheSize(CONFIG.levelDbCacheSize(profile));
+        options.paranoidChecks(isParanoid(checksum));
+        options.verifyChecksums(isParanoid(checksum) || isVerifyReads(checksum));
+
+        readOptions = new ReadOptions().verifyChecksums(options.verifyChecksums());
 
         try {
-            logger.debug("Opening database");
+            logger.debug("Opening database with profile '{}': cache {} bytes, block {} bytes, compression {}, checksum {}",
+                    profile, options.cacheSize(), options.blockSize(), options.compressionType(), checksum);
             Path dbPath = Paths.get(getProperty("user.dir"), CONFIG.databaseDir(), name);
             Files.createDirectories(dbPath.getParent());
 
@@ -71,6 +85,35 @@ public class LevelDbDataSource implements KeyValueDataSource {
         return alive;
     }
 
+    /**
+     * @return profile of the options used for the database, the storages of the contracts
+     * share the storage profile
+     */
+    static String getProfile(String name) {
+        if (name.startsWith("details-storage/")) return "storage";
+        if (name.startsWith("details")) return "details";
+        if (name.equals("state") || name.equals("blocks")) return name;
+        return "default";
+    }
+
+    private static CompressionType getCompressionType(String compression) {
+        switch (compression.toLowerCase()) {
+            case "none": return CompressionType.NONE;
+            case "snappy": return CompressionType.SNAPPY;
+            default: throw new IllegalArgumentException("Unknown LevelDB compression: " + compression);
+        }
+    }
+
+    private static boolean isParanoid(String checksum) {
+        return "paranoid".equalsIgnoreCase(checksum);
+    }
+
+    private static boolean isVerifyReads(String checksum) {
+        if ("reads".equalsIgnoreCase(checksum)) return true;
+        if ("none".equalsIgnoreCase(checksum) || isParanoid(checksum)) return false;
+        throw new IllegalArgumentException("Unknown LevelDB checksum policy: " + checksum);
+    }
+
     public void destroyDB(File fileLocation) {
         logger.debug("Destroying existing database");
         Options options = new Options();
@@ -93,7 +136,41 @@ public class LevelDbDataSource implements KeyValueDataSource {
 
     @Override
     public byte[] get(byte[] key) {
-        return db.get(key);
+        return db.get(key, readOptions);
+    }
+
+    /**
+     * The keys are read in their order, so the reads go sequentially through the tables,
+     * all of them against the same snapshot of the db
+     */
+    @Override
+    public List<byte[]> getAll(Collection<byte[]> keys) {
+        final List<byte[]> keyList = new ArrayList<>(keys);
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                byte[] key1 = keyList.get(i1);
+                byte[] key2 = keyList.get(i2);
+                return FastByteComparisons.compareTo(key1, 0, key1.length, key2, 0, key2.length);
+            }
+        });
+
+        byte[][] values = new byte[order.length][];
+        try (Snapshot snapshot = db.getSnapshot()) {
+            ReadOptions options = new ReadOptions()
+                    .verifyChecksums(readOptions.verifyChecksums())
+                    .snapshot(snapshot);
+            for (int i : order) {
+                values[i] = db.get(keyList.get(i), options);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return Arrays.asList(values);
     }
 
     @Override
@@ -133,6 +210,30 @@ public class LevelDbDataSource implements KeyValueDataSource {
         }
     }
 
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        try (WriteBatch batch = db.createWriteBatch()) {
+            for (byte[] key : keys) {
+                batch.delete(key);
+            }
+
+            db.write(batch);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        DBIterator iterator = db.iterator(readOptions);
+        if (range.getFrom() != null) {
+            iterator.seek(range.getFrom());
+        } else {
+            iterator.seekToFirst();
+        }
+        return new LevelDbCursor(iterator, range);
+    }
+
     @Override
     public void close() {
         if (!isAlive()) return;
@@ -146,4 +247,57 @@ public class LevelDbDataSource implements KeyValueDataSource {
             logger.error("Failed to find the db file on the close: {} ", name);
         }
     }
+
+    /**
+     * Iterates over the snapshot of the db taken when the cursor is opened
+     */
+    private static class LevelDbCursor implements KeyValueCursor {
+
+        private final DBIterator iterator;
+        private final KeyRange range;
+
+        private Map.Entry<byte[], byte[]> current;
+
+        LevelDbCursor(DBIterator iterator, KeyRange range) {
+            this.iterator = iterator;
+            this.range = range;
+        }
+
+        @Override
+        public boolean next() {
+            current = null;
+            if (!iterator.hasNext()) return false;
+
+            Map.Entry<byte[], byte[]> entry = iterator.next();
+            // keys are ordered, so there is nothing in the range after the end
+            if (range.isBefore(entry.getKey())) return false;
+
+            current = entry;
+            return true;
+        }
+
+        @Override
+        public byte[] getKey() {
+            return current().getKey();
+        }
+
+        @Override
+        public byte[] getValue() {
+            return current().getValue();
+        }
+
+        @Override
+        public void close() {
+            try {
+                iterator.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private Map.Entry<byte[], byte[]> current() {
+            if (current == null) throw new NoSuchElementException("Cursor is not positioned on a row");
+            return current;
+        }
+    }
 }
@@ -1,12 +1,18 @@
 package org.ethereum.datasource.mapdb;
 
 import org.ethereum.config.SystemProperties;
+import org.ethereum.datasource.EntryCursor;
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -60,6 +66,15 @@ public class MapDBDataSource implements KeyValueDataSource {
         return map.get(key);
     }
 
+    @Override
+    public List<byte[]> getAll(Collection<byte[]> keys) {
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            result.add(map.get(key));
+        }
+        return result;
+    }
+
     @Override
     public byte[] put(byte[] key, byte[] value) {
         try {
@@ -102,6 +117,22 @@ public class MapDBDataSource implements KeyValueDataSource {
         }
     }
 
+    @Override
+    public void deleteBatch(Collection<byte[]> keys) {
+        try {
+            for (byte[] key : keys) {
+                map.remove(key);
+            }
+        } finally {
+            db.commit();
+        }
+    }
+
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        return new EntryCursor(map.entrySet().iterator(), range);
+    }
+
     @Override
     public void close() {
         db.close();
@@ -1,17 +1,32 @@
 package org.ethereum.datasource.redis;
 
+import org.ethereum.datasource.EntryCursor;
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
-
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import static org.ethereum.config.SystemProperties.CONFIG;
 import static org.ethereum.util.Functional.Consumer;
+import static org.ethereum.util.Functional.Function;
 
 public class RedisDataSource extends RedisMap<byte[], byte[]> implements KeyValueDataSource {
 
+    /* number of rows fetched by a cursor at once */
+    private static final int SCAN_COUNT = 1000;
+
     RedisDataSource(String namespace, JedisPool pool) {
         super(namespace, pool, null, null);
     }
@@ -68,6 +83,21 @@ public class RedisDataSource extends RedisMap<byte[], byte[]> implements KeyValu
         return super.get(key);
     }
 
+    /**
+     * All the keys are read by a single HMGET, so a batch costs one round-trip
+     */
+    @Override
+    public List<byte[]> getAll(final Collection<byte[]> keys) {
+        if (keys.isEmpty()) return Collections.emptyList();
+
+        return pooledWithResult(new Function<Jedis, List<byte[]>>() {
+            @Override
+            public List<byte[]> apply(Jedis jedis) {
+                return jedis.hmget(getNameBytes(), keys.toArray(new byte[keys.size()][]));
+            }
+        });
+    }
+
     @Override
     public void delete(final byte[] key) {
         remove(key);
@@ -83,8 +113,64 @@ public class RedisDataSource extends RedisMap<byte[], byte[]> implements KeyValu
         putAll(rows);
     }
 
+    @Override
+    public void deleteBatch(final Collection<byte[]> keys) {
+        if (keys.isEmpty()) return;
+
+        pooled(new Consumer<Jedis>() {
+            @Override
+            public void accept(Jedis jedis) {
+                jedis.hdel(getNameBytes(), keys.toArray(new byte[keys.size()][]));
+            }
+        });
+    }
+
+    /**
+     * The rows are fetched in batches with HSCAN, so a row may be returned more than once
+     * if the hash is modified while the cursor is open
+     */
+    @Override
+    public KeyValueCursor cursor(KeyRange range) {
+        return new EntryCursor(new ScanIterator(), range);
+    }
+
     @Override
     public void close() {
 
     }
+
+    private class ScanIterator implements Iterator<Map.Entry<byte[], byte[]>> {
+
+        private byte[] scanPointer = ScanParams.SCAN_POINTER_START_BINARY;
+        private Iterator<Map.Entry<byte[], byte[]>> batch = Collections.emptyIterator();
+        private boolean finished;
+
+        @Override
+        public boolean hasNext() {
+            while (!batch.hasNext() && !finished) {
+                ScanResult<Map.Entry<byte[], byte[]>> result = pooledWithResult(
+                        new Function<Jedis, ScanResult<Map.Entry<byte[], byte[]>>>() {
+                            @Override
+                            public ScanResult<Map.Entry<byte[], byte[]>> apply(Jedis jedis) {
+                                return jedis.hscan(getNameBytes(), scanPointer, new ScanParams().count(SCAN_COUNT));
+                            }
+                        });
+                scanPointer = result.getCursorAsBytes();
+                batch = result.getResult().iterator();
+                finished = Arrays.equals(scanPointer, ScanParams.SCAN_POINTER_START_BINARY);
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return batch.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
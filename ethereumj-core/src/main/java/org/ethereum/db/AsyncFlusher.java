@@ -0,0 +1,204 @@
+package org.ethereum.db;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.lang.String.format;
+
+/**
+ * Runs the writes prepared by a flush on a dedicated writer thread, one by one in the order of submission.
+ *
+ * The number of writes which are queued or in progress is limited,
+ * the thread submitting a write blocks while the limit is reached (back-pressure),
+ * so the memory held by the pending writes stays bounded when the writer falls behind.
+ *
+ * If a write fails the error is rethrown to the thread which submits or awaits the next write,
+ * the subsequent writes are skipped as the data source is not consistent anymore.
+ *
+ * The writer thread is started by the first write and stopped by {@link #shutdown()},
+ * a write submitted after that starts a new one.
+ */
+public class AsyncFlusher {
+
+    private static final Logger logger = LoggerFactory.getLogger("general");
+
+    /* queued by shutdown, ends the write loop once the writes ahead of it are done */
+    private static final Runnable STOP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final String name;
+    private final int maxPending;
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+
+    private Thread writer;
+    /* writes which are queued or in progress */
+    private int pending;
+    private RuntimeException failure;
+
+    private long flushes;
+    private long lastFlushTime;
+    private long totalFlushTime;
+    private long backPressureTime;
+
+    /**
+     * @param maxPending - max number of writes which are queued or in progress
+     */
+    public AsyncFlusher(String name, int maxPending) {
+        this.name = name;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Queues the write, blocks while the max number of writes is pending
+     */
+    public synchronized void submit(Runnable write) {
+        checkFailure();
+
+        if (pending >= maxPending) {
+            long start = System.nanoTime();
+            while (pending >= maxPending && failure == null) {
+                awaitWriter();
+            }
+            long waitTime = (System.nanoTime() - start) / 1_000_000;
+            backPressureTime += waitTime;
+
+            logger.info("Flush '{}' is behind, waited {} ms for the writer", name, waitTime);
+            checkFailure();
+        }
+
+        if (writer == null) {
+            writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeLoop();
+                }
+            }, name);
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        ++pending;
+        queue.add(write);
+    }
+
+    /**
+     * Blocks until all the submitted writes are done
+     */
+    public synchronized void waitForCompletion() {
+        while (pending > 0 && failure == null) {
+            awaitWriter();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops the writer thread once the submitted writes are done and waits for it to exit
+     */
+    public void shutdown() {
+        Thread stopped;
+        synchronized (this) {
+            stopped = writer;
+            writer = null;
+            if (stopped == null) return;
+            queue.add(STOP);
+        }
+
+        try {
+            stopped.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(format("Interrupted while stopping flush '%s'", name), e);
+        }
+    }
+
+    /**
+     * @return number of writes which are queued or in progress
+     */
+    public synchronized int getQueueDepth() {
+        return pending;
+    }
+
+    public synchronized long getFlushCount() {
+        return flushes;
+    }
+
+    /**
+     * @return duration in ms of the last write
+     */
+    public synchronized long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    /**
+     * @return summary duration in ms of the writes
+     */
+    public synchronized long getTotalFlushTime() {
+        return totalFlushTime;
+    }
+
+    /**
+     * @return summary time in ms the submitting thread was blocked by the full queue
+     */
+    public synchronized long getBackPressureTime() {
+        return backPressureTime;
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Runnable write;
+            try {
+                write = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (write == STOP) return;
+
+            long start = System.nanoTime();
+            RuntimeException error = null;
+            try {
+                if (!isFailed()) write.run();
+            } catch (RuntimeException e) {
+                logger.error(format("Flush '%s' failed", name), e);
+                error = e;
+            }
+            long flushTime = (System.nanoTime() - start) / 1_000_000;
+
+            synchronized (this) {
+                if (error != null && failure == null) failure = error;
+
+                --pending;
+                ++flushes;
+                lastFlushTime = flushTime;
+                totalFlushTime += flushTime;
+
+                logger.info("Flush '{}' in background: {} ms, queue depth: {}", name, flushTime, pending);
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized boolean isFailed() {
+        return failure != null;
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException(format("Flush '%s' failed", name), failure);
+        }
+    }
+
+    private void awaitWriter() {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(format("Interrupted while waiting for flush '%s'", name), e);
+        }
+    }
+}
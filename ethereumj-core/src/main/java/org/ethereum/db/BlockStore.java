@@ -25,11 +25,23 @@ public interface BlockStore {
 
     void saveBlock(Block block, List<TransactionReceipt> receipts);
 
+    /**
+     * @return the receipt with its transaction set, null if the transaction isn't known
+     */
+    TransactionReceipt getTransactionReceiptByHash(byte[] hash);
+
     BigInteger getTotalDifficulty();
 
     Block getBestBlock();
 
     void flush();
+
+    /**
+     * Detaches what {@link #flush()} would write, the returned task writes it and may be run on another thread,
+     * the store keeps serving the detached blocks until they are written
+     */
+    Runnable prepareFlush();
+
     void load();
     void setSessionFactory(SessionFactory sessionFactory);
 
@@ -41,6 +41,11 @@ public class BlockStoreDummy implements BlockStore {
     public void saveBlock(Block block, List<TransactionReceipt> receipts) {
     }
 
+    @Override
+    public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
+        return null;
+    }
+
     @Override
     public BigInteger getTotalDifficulty() {
         return null;
@@ -56,6 +61,15 @@ public class BlockStoreDummy implements BlockStore {
     public void flush() {
     }
 
+    @Override
+    public Runnable prepareFlush() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
     @Override
     public void load() {
     }
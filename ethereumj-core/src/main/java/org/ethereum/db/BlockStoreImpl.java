@@ -16,6 +16,7 @@ import java.util.List;
 public class BlockStoreImpl implements BlockStore {
 
     private SessionFactory sessionFactory;
+    private final TransactionCache recentTransactions = new TransactionCache();
 
     public BlockStoreImpl(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
@@ -32,7 +33,7 @@ public class BlockStoreImpl implements BlockStore {
     @Override
     public Block getBlockByNumber(long blockNumber) {
 
-        List result = sessionFactory.getCurrentSession().
+        List<?> result = sessionFactory.getCurrentSession().
                 createQuery("from BlockVO where number = :number").
                 setParameter("number", blockNumber).list();
 
@@ -45,7 +46,7 @@ public class BlockStoreImpl implements BlockStore {
     @Override
     public Block getBlockByHash(byte[] hash) {
 
-        List result = sessionFactory.getCurrentSession().
+        List<?> result = sessionFactory.getCurrentSession().
                 createQuery("from BlockVO where hash = :hash").
                 setParameter("hash", hash).list();
 
@@ -84,19 +85,38 @@ public class BlockStoreImpl implements BlockStore {
         BlockVO blockVO = new BlockVO(block.getNumber(), block.getHash(),
                 block.getEncoded(), block.getCumulativeDifficulty());
 
-        for (TransactionReceipt receipt : receipts) {
+        for (int i = 0; i < receipts.size(); ++i) {
 
-            byte[] hash = receipt.getTransaction().getHash();
-            byte[] rlp = receipt.getEncoded();
+            TransactionInfo info = new TransactionInfo(receipts.get(i), block.getHash(), i);
 
-            TransactionReceiptVO transactionReceiptVO = new TransactionReceiptVO(hash, rlp);
+            TransactionReceiptVO transactionReceiptVO =
+                    new TransactionReceiptVO(info.getTransactionHash(), info.getEncoded());
             sessionFactory.getCurrentSession().persist(transactionReceiptVO);
+            recentTransactions.put(info);
         }
 
         sessionFactory.getCurrentSession().persist(blockVO);
     }
 
 
+    @Override
+    public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
+
+        TransactionInfo info = recentTransactions.get(hash);
+        if (info != null) return info.getReceipt();
+
+        List<?> result = sessionFactory.getCurrentSession().
+                createQuery("from TransactionReceiptVO where hash = :hash").
+                setParameter("hash", hash).list();
+
+        if (result.size() == 0) return null;
+        TransactionReceiptVO vo = (TransactionReceiptVO) result.get(0);
+
+        info = new TransactionInfo(vo.getRlp());
+        recentTransactions.put(info);
+        return info.getReceipt();
+    }
+
     @Override
     public BigInteger getTotalDifficulty() {
 
@@ -110,7 +130,7 @@ public class BlockStoreImpl implements BlockStore {
 
         Long bestNumber = (Long)
                 sessionFactory.getCurrentSession().createQuery("select max(number) from BlockVO").uniqueResult();
-        List result = sessionFactory.getCurrentSession().
+        List<?> result = sessionFactory.getCurrentSession().
                 createQuery("from BlockVO where number = :number").setParameter("number", bestNumber).list();
 
         if (result.isEmpty()) return null;
@@ -123,6 +143,15 @@ public class BlockStoreImpl implements BlockStore {
     public void flush() {
     }
 
+    @Override
+    public Runnable prepareFlush() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+
     @Override
     public void load() {
     }
@@ -3,11 +3,16 @@ package org.ethereum.db;
 import org.ethereum.config.SystemProperties;
 import org.ethereum.datasource.DataSourcePool;
 import org.ethereum.datasource.KeyValueDataSource;
+import org.ethereum.trie.Cache;
+import org.ethereum.trie.CachedTrie;
+import org.ethereum.trie.SecurePatriciaTrie;
 import org.ethereum.trie.SecureTrie;
+import org.ethereum.trie.TriePruner;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPElement;
 import org.ethereum.util.RLPItem;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 import org.ethereum.vm.DataWord;
 import org.spongycastle.util.Arrays;
 import org.spongycastle.util.encoders.Hex;
@@ -28,12 +33,15 @@ public class ContractDetailsImpl implements ContractDetails {
     private byte[] address = EMPTY_BYTE_ARRAY;
     private byte[] code = EMPTY_BYTE_ARRAY;
     private Set<ByteArrayWrapper> keys = new HashSet<>();
-    private SecureTrie storageTrie = new SecureTrie(null);
+    private CachedTrie storageTrie = createStorageTrie();
 
     private boolean dirty = false;
     private boolean deleted = false;
     private boolean externalStorage;
     private KeyValueDataSource externalStorageDataSource;
+    /* journals the external storage, kept by the details store across the loads of the contract,
+       null unless pruning is enabled */
+    private TriePruner storagePruner;
     private int keysSize;
 
     public ContractDetailsImpl() {
@@ -43,12 +51,16 @@ public class ContractDetailsImpl implements ContractDetails {
         decode(rlpCode);
     }
 
-    public ContractDetailsImpl(byte[] address, SecureTrie storageTrie, byte[] code) {
+    public ContractDetailsImpl(byte[] address, CachedTrie storageTrie, byte[] code) {
         this.address = address;
         this.storageTrie = storageTrie;
         this.code = code;
     }
 
+    private static CachedTrie createStorageTrie() {
+        return SystemProperties.CONFIG.trieTyped() ? new SecurePatriciaTrie(null) : new SecureTrie(null);
+    }
+
     private void addKey(byte[] key) {
         keys.add(wrap(key));
         keysSize += key.length;
@@ -127,7 +139,7 @@ public class ContractDetailsImpl implements ContractDetails {
 
         if (externalStorage) {
             storageTrie.setRoot(storageRoot.getRLPData());
-            storageTrie.getCache().setDB(getExternalStorageDataSource());
+            setStorageDataSource(getExternalStorageDataSource());
         }
 
         this.rlpEncoded = rlpCode;
@@ -137,14 +149,21 @@ public class ContractDetailsImpl implements ContractDetails {
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
 
-            byte[] rlpAddress = RLP.encodeElement(address);
-            byte[] rlpIsExternalStorage = RLP.encodeByte((byte) (externalStorage ? 1 : 0));
-            byte[] rlpStorageRoot = RLP.encodeElement(externalStorage ? storageTrie.getRootHash() : EMPTY_BYTE_ARRAY );
-            byte[] rlpStorage = RLP.encodeElement(storageTrie.serialize());
-            byte[] rlpCode = RLP.encodeElement(code);
-            byte[] rlpKeys = RLP.encodeSet(keys);
-
-            this.rlpEncoded = RLP.encodeList(rlpAddress, rlpIsExternalStorage, rlpStorage, rlpCode, rlpKeys, rlpStorageRoot);
+            RLPWriter writer = new RLPWriter(keys.size() + 8);
+            writer.startList()
+                    .writeElement(address)
+                    .writeByte((byte) (externalStorage ? 1 : 0))
+                    .writeElement(storageTrie.serialize())
+                    .writeElement(code)
+                    .startList();
+            for (ByteArrayWrapper key : keys) {
+                writer.writeElement(key.getData());
+            }
+            writer.endList()
+                    .writeElement(externalStorage ? storageTrie.getRootHash() : EMPTY_BYTE_ARRAY)
+                    .endList();
+
+            this.rlpEncoded = writer.toByteArray();
         }
 
         return rlpEncoded;
@@ -213,21 +232,82 @@ public class ContractDetailsImpl implements ContractDetails {
 
     @Override
     public void syncStorage() {
+        syncStorage(0);
+    }
+
+    /**
+     * Syncs the storage, the external one is journaled by the storage pruner as of the block.
+     * The storage nodes which have left the window of the pruner are not deleted right away,
+     * as the details written before still reference them
+     *
+     * @return the task deleting them, to be run once these details are written, null if there are none
+     */
+    Runnable syncStorage(long blockNumber) {
         if (externalStorage) {
-            storageTrie.getCache().setDB(getExternalStorageDataSource());
+            final KeyValueDataSource dataSource = getExternalStorageDataSource();
+            setStorageDataSource(dataSource);
             storageTrie.sync();
 
-            DataSourcePool.closeDataSource("details-storage/" + toHexString(address));
+            List<byte[]> unreachable = Collections.emptyList();
+            if (storagePruner != null) {
+                storagePruner.journal(blockNumber, storageTrie.getRootHash(), storageTrie.getCache());
+                unreachable = storagePruner.takeUnreachable();
+            }
+
+            DataSourcePool.closeDataSource(getExternalStorageName());
+            return unreachable.isEmpty() ? null : new StoragePrune(dataSource, getExternalStorageName(), unreachable);
+        } else if (SystemProperties.CONFIG.pruneEnabled()) {
+            // in memory storage is serialized along with all the nodes held by its cache
+            TriePruner.retainReachable(storageTrie);
         }
+        return null;
+    }
+
+    /**
+     * Journals the changes of the external storage by the pruner from now on,
+     * does nothing unless the storage is external
+     */
+    void setStoragePruner(TriePruner storagePruner) {
+        if (!externalStorage) return;
+
+        storageTrie.getCache().enableJournal();
+        this.storagePruner = storagePruner;
+    }
+
+    /**
+     * @return a pruner journaling the external storage from its current root,
+     * null unless the storage is external
+     */
+    TriePruner startStoragePruning(int window) {
+        if (!externalStorage) return null;
+
+        TriePruner pruner = new TriePruner(window);
+        pruner.reset(storageTrie.getRootHash(), storageTrie.getCache());
+        setStoragePruner(pruner);
+        return pruner;
+    }
+
+    private String getExternalStorageName() {
+        return "details-storage/" + toHexString(address);
     }
 
     private KeyValueDataSource getExternalStorageDataSource() {
         if (externalStorageDataSource == null) {
-            externalStorageDataSource = levelDbByName("details-storage/" + toHexString(address));
+            externalStorageDataSource = levelDbByName(getExternalStorageName());
         }
         return externalStorageDataSource;
     }
 
+    /**
+     * Backs the storage trie by the data source, the clean nodes it keeps get
+     * the budget of the contract storage as every contract has a cache of its own
+     */
+    private void setStorageDataSource(KeyValueDataSource dataSource) {
+        Cache cache = storageTrie.getCache();
+        cache.setCapacity(SystemProperties.CONFIG.trieStorageCacheSize());
+        cache.setDB(dataSource);
+    }
+
     public void setExternalStorageDataSource(KeyValueDataSource dataSource) {
         this.externalStorageDataSource = dataSource;
     }
@@ -240,8 +320,6 @@ public class ContractDetailsImpl implements ContractDetails {
 
         byte[] cloneCode = Arrays.clone(this.getCode());
 
-        storageTrie.getRoot();
-
         return new ContractDetailsImpl(address, null, cloneCode);
     }
 
@@ -264,5 +342,44 @@ public class ContractDetailsImpl implements ContractDetails {
 
         return result;
     }
+
+    /**
+     * Deletes the pruned nodes of an external storage, the storage closed by the sync is opened again,
+     * unless the contract has been loaded again by then and uses it, and is closed once the nodes are deleted
+     */
+    private static class StoragePrune implements Runnable {
+
+        private KeyValueDataSource dataSource;
+        private final String name;
+        private final List<byte[]> keys;
+
+        StoragePrune(KeyValueDataSource dataSource, String name, List<byte[]> keys) {
+            this.dataSource = dataSource;
+            this.name = name;
+            this.keys = keys;
+        }
+
+        @Override
+        public void run() {
+            boolean opened = false;
+            while (true) {
+                // the pool closes a data source holding its lock
+                synchronized (dataSource) {
+                    if (dataSource.isAlive()) {
+                        dataSource.deleteBatch(keys);
+                        break;
+                    }
+                }
+                // the storage of a contract loaded again is left open
+                KeyValueDataSource pooled = (KeyValueDataSource) DataSourcePool.getDataSourceFromPool(name);
+                opened = pooled == null;
+                dataSource = opened ? levelDbByName(name) : pooled;
+            }
+
+            if (opened) {
+                DataSourcePool.closeDataSource(name);
+            }
+        }
+    }
 }
 
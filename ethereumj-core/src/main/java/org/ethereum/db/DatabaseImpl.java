@@ -1,5 +1,7 @@
 package org.ethereum.db;
 
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.util.ByteUtil;
 import org.slf4j.Logger;
@@ -79,8 +81,10 @@ public class DatabaseImpl implements Database {
 
         ArrayList<ByteArrayWrapper> keys = new ArrayList<>();
 
-        for (byte[] key : keyValueDataSource.keys()) {
-            keys.add(ByteUtil.wrap(key));
+        try (KeyValueCursor cursor = keyValueDataSource.cursor(KeyRange.all())) {
+            while (cursor.next()) {
+                keys.add(ByteUtil.wrap(cursor.getKey()));
+            }
         }
         Collections.sort(keys);
         return keys;
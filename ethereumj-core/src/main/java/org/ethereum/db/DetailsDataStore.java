@@ -1,18 +1,27 @@
 package org.ethereum.db;
 
+import org.ethereum.datasource.ChunkedBatchWriter;
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
+import org.ethereum.trie.TriePruner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static java.lang.String.format;
+import static org.ethereum.config.SystemProperties.CONFIG;
 import static org.ethereum.util.ByteUtil.wrap;
 
 public class DetailsDataStore {
@@ -21,7 +30,40 @@ public class DetailsDataStore {
 
     private DatabaseImpl db = null;
     private Map<ByteArrayWrapper, ContractDetails> cache = new ConcurrentHashMap<>();
+    /* keys of the details updated since the last flush, the rest of the cache is just read */
+    private Set<ByteArrayWrapper> updates = Collections.newSetFromMap(new ConcurrentHashMap<ByteArrayWrapper, Boolean>());
     private Set<ByteArrayWrapper> removes = new HashSet<>();
+    /* changes detached by prepareFlush() which are being written to the db, newest first */
+    private final List<FlushBatch> flushing = new CopyOnWriteArrayList<>();
+
+    /* pruners of the external storages by contract, kept across the loads of the details,
+       null unless pruning is enabled */
+    private Map<ByteArrayWrapper, TriePruner> storagePruners;
+    private int storagePruneWindow;
+    /* the storages synced by the next flush are journaled as of this block */
+    private long blockNumber;
+
+    public DetailsDataStore() {
+        if (CONFIG.pruneEnabled()) {
+            enableStoragePruning(CONFIG.pruneBlocksWindow());
+        }
+    }
+
+    /**
+     * Journals the external storages with the same window of blocks as the world state,
+     * their nodes which are not a part of the recent states are deleted on flush
+     */
+    void enableStoragePruning(int window) {
+        this.storagePruners = new HashMap<>();
+        this.storagePruneWindow = window;
+    }
+
+    /**
+     * Sets the number of the last block applied
+     */
+    public void setBlockNumber(long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
 
     public void setDB(DatabaseImpl db) {
         this.db = db;
@@ -35,10 +77,18 @@ public class DetailsDataStore {
         if (details == null) {
 
             if (removes.contains(wrappedKey)) return null;
-            byte[] data = db.get(key);
+            byte[] data = null;
+            for (FlushBatch batch : flushing) {
+                if (batch.removes.contains(wrappedKey)) return null;
+                data = batch.updates.get(wrappedKey);
+                if (data != null) break;
+            }
+            if (data == null) data = db.get(key);
             if (data == null) return null;
 
-            details = new ContractDetailsImpl(data);
+            ContractDetailsImpl loaded = new ContractDetailsImpl(data);
+            if (storagePruners != null) attachStoragePruner(wrappedKey, loaded);
+            details = loaded;
             cache.put(wrappedKey, details);
 
             float out = ((float) data.length) / 1048576;
@@ -56,59 +106,105 @@ public class DetailsDataStore {
 
         ByteArrayWrapper wrappedKey = wrap(key);
         cache.put(wrappedKey, contractDetails);
+        updates.add(wrappedKey);
         removes.remove(wrappedKey);
     }
 
     public void remove(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         cache.remove(wrappedKey);
+        updates.remove(wrappedKey);
         removes.add(wrappedKey);
+        if (storagePruners != null) storagePruners.remove(wrappedKey);
     }
 
     public void flush() {
-        long keys = cache.size();
+        prepareFlush().run();
+    }
 
-        long start = System.nanoTime();
-        long totalSize = flushInternal();
-        long finish = System.nanoTime();
+    /**
+     * Encodes the details updated since the previous flush and detaches them from the store,
+     * the returned task writes them to the db and may be run on another thread,
+     * the detached details are served by the store until they are written
+     */
+    public Runnable prepareFlush() {
+        final FlushBatch batch = new FlushBatch();
+        for (ByteArrayWrapper key : updates) {
+            ContractDetails details = cache.get(key);
+            if (storagePruners != null && details instanceof ContractDetailsImpl) {
+                attachStoragePruner(key, (ContractDetailsImpl) details);
+                Runnable prune = ((ContractDetailsImpl) details).syncStorage(blockNumber);
+                if (prune != null) batch.storagePrunes.add(prune);
+            } else {
+                details.syncStorage();
+            }
 
-        float flushSize = (float) totalSize / 1_048_576;
-        float flushTime = (float) (finish - start) / 1_000_000;
-        gLogger.info(format("Flush details in: %02.2f ms, %d keys, %02.2fMB", flushTime, keys, flushSize));
+            batch.updates.put(key, details.getEncoded());
+        }
+        batch.removes.addAll(removes);
+        flushing.add(0, batch);
+
+        cache.clear();
+        updates.clear();
+        removes.clear();
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                write(batch);
+            }
+        };
     }
 
-    private long flushInternal() {
-        long totalSize = 0;
-
-        Map<byte[], byte[]> batch = new HashMap<>();
-        for (Map.Entry<ByteArrayWrapper, ContractDetails> entry : cache.entrySet()) {
-            ContractDetails details = entry.getValue();
-            details.syncStorage();
-            
-            byte[] key = entry.getKey().getData();
-            byte[] value = details.getEncoded();
-            
-            batch.put(key, value);
-            totalSize += value.length;
-        }
+    private void write(FlushBatch batch) {
+        long start = System.nanoTime();
 
-        db.getDb().updateBatch(batch);
+        ChunkedBatchWriter writer = new ChunkedBatchWriter(db.getDb(), CONFIG.flushChunkSize());
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : batch.updates.entrySet()) {
+            writer.put(entry.getKey().getData(), entry.getValue());
+        }
+        writer.flush();
 
-        for (ByteArrayWrapper key : removes) {
+        for (ByteArrayWrapper key : batch.removes) {
             db.delete(key.getData());
         }
+        // the details referencing the pruned storage nodes are overwritten by now
+        for (Runnable prune : batch.storagePrunes) {
+            prune.run();
+        }
+        flushing.remove(batch);
 
-        cache.clear();
-        removes.clear();
+        long finish = System.nanoTime();
 
-        return totalSize;
+        float flushSize = (float) writer.getSize() / 1_048_576;
+        float flushTime = (float) (finish - start) / 1_000_000;
+        gLogger.info(format("Flush details in: %02.2f ms, %d keys, %02.2fMB", flushTime, writer.getCount(), flushSize));
     }
 
 
+    private void attachStoragePruner(ByteArrayWrapper key, ContractDetailsImpl details) {
+        TriePruner pruner = storagePruners.get(key);
+        if (pruner != null) {
+            details.setStoragePruner(pruner);
+        } else {
+            // the storage has just been loaded or has just become external
+            pruner = details.startStoragePruning(storagePruneWindow);
+            if (pruner != null) storagePruners.put(key, pruner);
+        }
+    }
+
     public Set<ByteArrayWrapper> keys() {
         Set<ByteArrayWrapper> keys = new HashSet<>();
         keys.addAll(cache.keySet());
-        keys.addAll(db.dumpKeys());
+        for (FlushBatch batch : flushing) {
+            keys.addAll(batch.updates.keySet());
+        }
+        // streamed, the details themselves are not read
+        try (KeyValueCursor cursor = db.getDb().cursor(KeyRange.all())) {
+            while (cursor.next()) {
+                keys.add(wrap(cursor.getKey()));
+            }
+        }
 
         return keys;
     }
@@ -131,4 +227,11 @@ public class DetailsDataStore {
         return result;
         
     }
+
+    private static class FlushBatch {
+
+        private final Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+        private final Set<ByteArrayWrapper> removes = new HashSet<>();
+        private final List<Runnable> storagePrunes = new ArrayList<>();
+    }
 }
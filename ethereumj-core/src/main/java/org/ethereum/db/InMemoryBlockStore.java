@@ -9,14 +9,22 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.math.BigInteger.ZERO;
 import static org.ethereum.util.ByteUtil.wrap;
 
 /**
+ * Keeps the blocks and the receipts saved since the last flush in memory.
+ * The flushed blocks and receipts are served from memory until they are written,
+ * so the flush may be written on another thread while the blocks go on being saved,
+ * see {@link #prepareFlush()}
+ *
  * @author: Roman Mandeleil
  * Created on: 29/01/2015 20:43
  */
@@ -28,6 +36,8 @@ public class InMemoryBlockStore implements BlockStore{
     Map<ByteArrayWrapper, Block> hashIndex = new HashMap<>();
     Map<Long, Block> numberIndex = new HashMap<>();
     List<Block> blocks = new ArrayList<>();
+    Map<ByteArrayWrapper, TransactionInfo> transactionIndex = new HashMap<>();
+    TransactionCache recentTransactions = new TransactionCache();
 
     SessionFactory sessionFactory;
 
@@ -39,7 +49,7 @@ public class InMemoryBlockStore implements BlockStore{
     @Override
     public byte[] getBlockHashByNumber(long blockNumber) {
 
-        Block block = numberIndex.get(blockNumber);
+        Block block = getCachedByNumber(blockNumber);
 
         if (block == null)
             return dbGetBlockHashByNumber(blockNumber);
@@ -50,7 +60,7 @@ public class InMemoryBlockStore implements BlockStore{
     @Override
     public Block getBlockByNumber(long blockNumber) {
 
-        Block block = numberIndex.get(blockNumber);
+        Block block = getCachedByNumber(blockNumber);
 
         if (block == null)
             return dbGetBlockByNumber(blockNumber);
@@ -61,7 +71,7 @@ public class InMemoryBlockStore implements BlockStore{
     @Override
     public Block getBlockByHash(byte[] hash) {
 
-        Block block = hashIndex.get(wrap(hash));
+        Block block = getCachedByHash(hash);
 
         if (block == null)
             return dbGetBlockByHash(hash);
@@ -73,7 +83,7 @@ public class InMemoryBlockStore implements BlockStore{
     public List<byte[]> getListHashesEndWith(byte[] hash, long qty){
 
 
-        Block startBlock = hashIndex.get(wrap(hash));
+        Block startBlock = getCachedByHash(hash);
 
         long endIndex = startBlock.getNumber() + qty;
         endIndex = getBestBlock().getNumber() < endIndex ? getBestBlock().getNumber() : endIndex;
@@ -89,33 +99,63 @@ public class InMemoryBlockStore implements BlockStore{
     }
 
     @Override
-    public void saveBlock(Block block, List<TransactionReceipt> receipts) {
+    public synchronized void saveBlock(Block block, List<TransactionReceipt> receipts) {
         ByteArrayWrapper wHash = wrap(block.getHash());
         blocks.add(block);
         hashIndex.put(wHash, block);
         numberIndex.put(block.getNumber(), block);
         totalDifficulty = totalDifficulty.add(block.getCumulativeDifficulty());
+
+        if (receipts != null)
+            for (int i = 0; i < receipts.size(); ++i) {
+                TransactionInfo info = new TransactionInfo(receipts.get(i), block.getHash(), i);
+                transactionIndex.put(wrap(info.getTransactionHash()), info);
+            }
+    }
+
+    @Override
+    public TransactionReceipt getTransactionReceiptByHash(byte[] hash) {
+
+        TransactionInfo info;
+        synchronized (this) {
+            info = transactionIndex.get(wrap(hash));
+        }
+        if (info == null)
+            info = recentTransactions.get(hash);
+
+        if (info == null)
+            return dbGetTransactionReceiptByHash(hash);
+        else
+            return info.getReceipt();
     }
 
 
     @Override
-    public BigInteger getTotalDifficulty() {
+    public synchronized BigInteger getTotalDifficulty() {
         return totalDifficulty;
     }
 
     @Override
-    public Block getBestBlock() {
+    public synchronized Block getBestBlock() {
         if (blocks.size() == 0) return null;
         return blocks.get(blocks.size() - 1);
     }
 
+    private synchronized Block getCachedByNumber(long blockNumber) {
+        return numberIndex.get(blockNumber);
+    }
+
+    private synchronized Block getCachedByHash(byte[] hash) {
+        return hashIndex.get(wrap(hash));
+    }
+
     // FIXME: wrap from here in to db class
 
     public byte[] dbGetBlockHashByNumber(long blockNumber) {
 
         Session s = sessionFactory.openSession();
 
-        List result = s.createQuery("from BlockVO where number = :number").
+        List<?> result = s.createQuery("from BlockVO where number = :number").
                 setParameter("number", blockNumber).list();
 
         if (result.size() == 0) return null;
@@ -128,7 +168,7 @@ public class InMemoryBlockStore implements BlockStore{
 
         Session s = sessionFactory.openSession();
 
-        List result = s.createQuery("from BlockVO where number = :number").
+        List<?> result = s.createQuery("from BlockVO where number = :number").
                 setParameter("number", blockNumber).list();
 
         if (result.size() == 0) return null;
@@ -144,7 +184,7 @@ public class InMemoryBlockStore implements BlockStore{
 
         Session s = sessionFactory.openSession();
 
-        List result = s.createQuery("from BlockVO where hash = :hash").
+        List<?> result = s.createQuery("from BlockVO where hash = :hash").
                 setParameter("hash", hash).list();
 
         if (result.size() == 0) return null;
@@ -154,8 +194,48 @@ public class InMemoryBlockStore implements BlockStore{
         return new Block(vo.rlp);
     }
 
+    public TransactionReceipt dbGetTransactionReceiptByHash(byte[] hash) {
+
+        Session s = sessionFactory.openSession();
+
+        List<?> result = s.createQuery("from TransactionReceiptVO where hash = :hash").
+                setParameter("hash", hash).list();
+
+        s.close();
+
+        if (result.size() == 0) return null;
+        TransactionReceiptVO vo = (TransactionReceiptVO) result.get(0);
+
+        TransactionInfo info = new TransactionInfo(vo.rlp);
+        recentTransactions.put(info);
+        return info.getReceipt();
+    }
+
     @Override
     public void flush(){
+        prepareFlush().run();
+    }
+
+    /**
+     * Detaches the blocks and the receipts saved since the last flush,
+     * the returned task writes them to the db and may be run on another thread.
+     * They are served from memory until written, the best block stays in memory
+     */
+    @Override
+    public synchronized Runnable prepareFlush() {
+        final List<Block> flushed = new ArrayList<>(blocks);
+        final List<TransactionInfo> flushedInfos = new ArrayList<>(transactionIndex.values());
+        final BigInteger flushedDifficulty = totalDifficulty;
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                write(flushed, flushedInfos, flushedDifficulty);
+            }
+        };
+    }
+
+    private void write(List<Block> flushed, List<TransactionInfo> flushedInfos, BigInteger flushedDifficulty) {
 
         long t_ = System.nanoTime();
 
@@ -168,35 +248,66 @@ public class InMemoryBlockStore implements BlockStore{
 
         s.beginTransaction();
 
-        int lastIndex = blocks.size() - 1;
+        int lastIndex = flushed.size() - 1;
         for (int i = 0;
-             i < (blocks.size() > 1000 ? 1000 : blocks.size());
+             i < (flushed.size() > 1000 ? 1000 : flushed.size());
              ++i){
 
-            Block block = blocks.get(lastIndex - i);
+            Block block = flushed.get(lastIndex - i);
             BlockVO blockVO = new BlockVO(block.getNumber(), block.getHash(), block.getEncoded(), block.getCumulativeDifficulty());
             s.save(blockVO);
         }
 
-        s.getTransaction().commit();
+        // the receipts are kept for all the blocks, a transaction seen again replaces its row
+        for (TransactionInfo info : flushedInfos) {
+            s.merge(new TransactionReceiptVO(info.getTransactionHash(), info.getEncoded()));
+            recentTransactions.put(info);
+        }
 
-        Block block = getBestBlock();
+        s.getTransaction().commit();
 
-        blocks.clear();
-        hashIndex.clear();
-        numberIndex.clear();
+        BigInteger storedDifficulty = (BigInteger) s.createQuery("select sum(cumulativeDifficulty) from BlockVO").uniqueResult();
+        s.close();
 
-        saveBlock(block, null);
+        release(flushed, flushedInfos, storedDifficulty, flushedDifficulty);
 
         long t__ = System.nanoTime();
         logger.info("Flush block store in: {} ms", ((float)(t__ - t_) / 1_000_000));
+    }
 
-        totalDifficulty =  (BigInteger) s.createQuery("select sum(cumulativeDifficulty) from BlockVO").uniqueResult();
+    /**
+     * Drops the written blocks and receipts from memory, except the best block
+     */
+    private synchronized void release(List<Block> flushed, List<TransactionInfo> flushedInfos,
+                                      BigInteger storedDifficulty, BigInteger flushedDifficulty) {
+
+        Set<Block> written = Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+        written.addAll(flushed);
+        Block best = getBestBlock();
+
+        List<Block> kept = new ArrayList<>();
+        for (Block block : blocks) {
+            if (block == best || !written.contains(block)) {
+                kept.add(block);
+                continue;
+            }
+            ByteArrayWrapper wHash = wrap(block.getHash());
+            if (hashIndex.get(wHash) == block) hashIndex.remove(wHash);
+            if (numberIndex.get(block.getNumber()) == block) numberIndex.remove(block.getNumber());
+        }
+        blocks = kept;
 
-        s.close();
+        for (TransactionInfo info : flushedInfos) {
+            ByteArrayWrapper wHash = wrap(info.getTransactionHash());
+            if (transactionIndex.get(wHash) == info) transactionIndex.remove(wHash);
+        }
+
+        // the difficulty of the blocks saved while the flush was written is kept on top of the stored one
+        if (storedDifficulty != null)
+            totalDifficulty = storedDifficulty.add(totalDifficulty.subtract(flushedDifficulty));
     }
 
-    public void load(){
+    public synchronized void load(){
 
         logger.info("loading db");
 
@@ -206,7 +317,7 @@ public class InMemoryBlockStore implements BlockStore{
         Long bestNumber = (Long)
                 s.createQuery("select max(number) from BlockVO").uniqueResult();
 
-        List result =
+        List<?> result =
                 s.createQuery("from BlockVO where number = :number").setParameter("number", bestNumber).list();
 
         if (result.isEmpty()) return ;
@@ -1,29 +1,51 @@
 package org.ethereum.db;
 
 import org.ethereum.core.Block;
+import org.ethereum.core.BlockHeader;
+import org.ethereum.core.TransactionReceipt;
 import org.ethereum.datasource.KeyValueDataSource;
+import org.ethereum.util.RLPView;
 import org.mapdb.DataIO;
 import org.mapdb.Serializer;
 
 import java.io.*;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+
+/**
+ * Keeps the full blocks and, separately, their headers by hash,
+ * the index keeps the hash and the parent hash of every block by number,
+ * so the hash lookups and the walks along the chain never decode a block.
+ *
+ * The receipts of the main chain transactions are kept by transaction hash
+ * along with the block hash and the position of the transaction, see {@link TransactionInfo}
+ */
 public class IndexedBlockStore{
 
     IndexedBlockStore cache;
     Map<Long, List<BlockInfo>> index;
     KeyValueDataSource blocks;
+    KeyValueDataSource headers;
+    KeyValueDataSource transactions;
+
+    private final TransactionCache recentTransactions = new TransactionCache();
 
     public IndexedBlockStore(){
     }
 
-    public void init(Map<Long, List<BlockInfo>> index, KeyValueDataSource blocks, IndexedBlockStore cache) {
+    public void init(Map<Long, List<BlockInfo>> index, KeyValueDataSource blocks, KeyValueDataSource headers,
+                     KeyValueDataSource transactions, IndexedBlockStore cache) {
         this.cache = cache;
         this.index = index;
         this.blocks = blocks;
+        this.headers = headers;
+        this.transactions = transactions;
     }
 
     public Block getBestBlock(){
@@ -31,7 +53,12 @@ public class IndexedBlockStore{
     }
 
     public byte[] getBlockHashByNumber(long blockNumber){
-        return getChainBlockByNumber(blockNumber).getHash(); // FIXME: can be improved by accessing the hash directly in the index
+
+        BlockInfo blockInfo = getChainBlockInfo(blockNumber);
+        if (blockInfo == null)
+            return null;
+
+        return blockInfo.getHash();
     }
 
 
@@ -41,21 +68,41 @@ public class IndexedBlockStore{
             blocks.put(hash, cache.blocks.get(hash));
         }
 
+        for (byte[] hash : cache.headers.keys()){
+            headers.put(hash, cache.headers.get(hash));
+        }
+
+        for (byte[] hash : cache.transactions.keys()){
+            transactions.put(hash, cache.transactions.get(hash));
+        }
+
         index.putAll( cache.index );
 
         cache.blocks.close();
+        cache.headers.close();
+        cache.transactions.close();
         cache.index.clear();
     }
 
 
     public void saveBlock(Block block, BigInteger cummDifficulty, boolean mainChain){
+        saveBlock(block, cummDifficulty, mainChain, Collections.<TransactionReceipt>emptyList());
+    }
+
+    /**
+     * @param receipts - of the block transactions in their order, with the transactions set,
+     *                 only the ones of a main chain block are indexed
+     */
+    public void saveBlock(Block block, BigInteger cummDifficulty, boolean mainChain,
+                          List<TransactionReceipt> receipts){
         if (cache == null)
-            addInternalBlock(block, cummDifficulty, mainChain);
+            addInternalBlock(block, cummDifficulty, mainChain, receipts);
         else
-            cache.saveBlock(block, cummDifficulty, mainChain);
+            cache.saveBlock(block, cummDifficulty, mainChain, receipts);
     }
 
-    private void addInternalBlock(Block block, BigInteger cummDifficulty, boolean mainChain){
+    private void addInternalBlock(Block block, BigInteger cummDifficulty, boolean mainChain,
+                                  List<TransactionReceipt> receipts){
 
         List<BlockInfo> blockInfos = index.get(block.getNumber());
         if (blockInfos == null){
@@ -65,12 +112,24 @@ public class IndexedBlockStore{
         BlockInfo blockInfo = new BlockInfo();
         blockInfo.setCummDifficulty(cummDifficulty);
         blockInfo.setHash(block.getHash());
+        blockInfo.setParentHash(block.getParentHash());
         blockInfo.setMainChain(mainChain); // FIXME:maybe here I should force reset main chain for all uncles on that level
 
         blockInfos.add(blockInfo);
         index.put(block.getNumber(), blockInfos);
 
         blocks.put(block.getHash(), block.getEncoded());
+        headers.put(block.getHash(), block.getHeader().getEncoded());
+
+        if (mainChain && receipts != null && !receipts.isEmpty()) {
+            Map<byte[], byte[]> rows = new HashMap<>();
+            for (int i = 0; i < receipts.size(); ++i) {
+                TransactionInfo info = new TransactionInfo(receipts.get(i), block.getHash(), i);
+                rows.put(info.getTransactionHash(), info.getEncoded());
+                recentTransactions.put(info);
+            }
+            transactions.updateBatch(rows);
+        }
     }
 
     public List<Block> getBlocksByNumber(long number){
@@ -84,11 +143,12 @@ public class IndexedBlockStore{
             return result;
         }
 
+        List<byte[]> hashes = new ArrayList<>();
         for (BlockInfo blockInfo : blockInfos){
+            hashes.add(blockInfo.getHash());
+        }
 
-            byte[] hash = blockInfo.getHash();
-            byte[] blockRlp = blocks.get(hash);
-
+        for (byte[] blockRlp : blocks.getAll(hashes)){
             result.add(new Block(blockRlp));
         }
         return result;
@@ -133,6 +193,47 @@ public class IndexedBlockStore{
         return new Block(blockRlp);
     }
 
+    public BlockHeader getBlockHeaderByHash(byte[] hash) {
+
+        if (cache != null) {
+            BlockHeader cachedHeader = cache.getBlockHeaderByHash(hash);
+            if (cachedHeader != null) return cachedHeader;
+        }
+
+        byte[] headerRlp = headers.get(hash);
+        if (headerRlp == null) {
+            // the block was saved before the headers were kept apart
+            byte[] blockRlp = blocks.get(hash);
+            return blockRlp == null ? null : new Block(blockRlp).getHeader();
+        }
+
+        return new BlockHeader(RLPView.decode(headerRlp));
+    }
+
+    /**
+     * Looks the transaction up by its hash, no block is read
+     *
+     * @return null if the transaction isn't in a main chain block
+     */
+    public TransactionInfo getTransactionInfo(byte[] txHash) {
+
+        TransactionInfo info = recentTransactions.get(txHash);
+        if (info != null) return info;
+
+        if (cache != null) {
+            info = cache.getTransactionInfo(txHash);
+            if (info != null) return info;
+        }
+
+        byte[] infoRlp = transactions.get(txHash);
+        if (infoRlp == null)
+            return null;
+
+        info = new TransactionInfo(infoRlp);
+        recentTransactions.put(info);
+        return info;
+    }
+
     public BigInteger getTotalDifficulty(){
 
         BigInteger cacheTotalDifficulty = BigInteger.ZERO;
@@ -173,24 +274,68 @@ public class IndexedBlockStore{
             return bestIndex - 1L;
     }
 
+    /**
+     * Walks the parent hashes down the index, only the header of the first block is read
+     */
     public List<byte[]> getListHashesEndWith(byte[] hash, long number){
 
-        List<byte[]> cachedHashes = new ArrayList<>();
-        if (cache != null)
-           cachedHashes = cache.getListHashesEndWith(hash, number);
+        List<byte[]> hashes = new ArrayList<>();
 
-        byte[] rlp = blocks.get(hash);
-        if (rlp == null) return cachedHashes;
+        BlockHeader header = getBlockHeaderByHash(hash);
+        if (header == null) return hashes;
 
+        long level = header.getNumber();
         for (int i = 0; i < number; ++i){
 
-            Block block = new Block(rlp);
-            cachedHashes.add(block.getHash());
-            rlp = blocks.get(block.getParentHash());
-            if (rlp == null) break;
+            BlockInfo blockInfo = getBlockInfo(level, hash);
+            if (blockInfo == null) break;
+
+            hashes.add(blockInfo.getHash());
+            hash = blockInfo.getParentHash();
+            if (hash == null) // indexed before the parent hashes were kept
+                hash = getBlockHeaderByHash(blockInfo.getHash()).getParentHash();
+            --level;
         }
 
-        return cachedHashes;
+        return hashes;
+    }
+
+    private BlockInfo getBlockInfo(long number, byte[] hash){
+
+        if (cache != null) {
+            BlockInfo blockInfo = cache.getBlockInfo(number, hash);
+            if (blockInfo != null) return blockInfo;
+        }
+
+        List<BlockInfo> blockInfos = index.get(number);
+        if (blockInfos == null){
+            return null;
+        }
+
+        for (BlockInfo blockInfo : blockInfos)
+            if (Arrays.equals(blockInfo.getHash(), hash))
+                return blockInfo;
+
+        return null;
+    }
+
+    private BlockInfo getChainBlockInfo(long number){
+
+        if (cache != null) {
+            BlockInfo blockInfo = cache.getChainBlockInfo(number);
+            if (blockInfo != null) return blockInfo;
+        }
+
+        List<BlockInfo> blockInfos = index.get(number);
+        if (blockInfos == null){
+            return null;
+        }
+
+        for (BlockInfo blockInfo : blockInfos)
+            if (blockInfo.isMainChain())
+                return blockInfo;
+
+        return null;
     }
 
 
@@ -219,8 +364,49 @@ public class IndexedBlockStore{
         return result;
     }
 
+    /**
+     * Reads the main chain blocks of the range in one batch per store
+     */
+    public List<Block> getChainBlocksStartWith(long number, long maxBlocks){
+
+        List<byte[]> hashes = new ArrayList<>();
+
+        int i;
+        for ( i = 0; i < maxBlocks; ++i){
+            List<BlockInfo> blockInfos =  index.get(number);
+            if (blockInfos == null) break;
+
+            for (BlockInfo blockInfo : blockInfos)
+                if (blockInfo.isMainChain()){
+                    hashes.add(blockInfo.getHash());
+                    break;
+                }
+
+            ++number;
+        }
+        maxBlocks -= i;
+
+        List<Block> result = new ArrayList<>();
+        for (byte[] blockRlp : blocks.getAll(hashes)){
+            result.add(new Block(blockRlp));
+        }
+
+        if (cache != null)
+            result.addAll( cache.getChainBlocksStartWith(number, maxBlocks) );
+
+        return result;
+    }
+
+    /**
+     * LRU cache of the recently saved or read transactions, size is in entries
+     */
     public static class BlockInfo implements Serializable {
+
+        // the one computed for the fields before parentHash, keeps the saved indexes readable
+        private static final long serialVersionUID = 5906746360128478753L;
+
         byte[] hash;
+        byte[] parentHash;
         BigInteger cummDifficulty;
         boolean mainChain;
 
@@ -232,6 +418,14 @@ public class IndexedBlockStore{
             this.hash = hash;
         }
 
+        public byte[] getParentHash() {
+            return parentHash;
+        }
+
+        public void setParentHash(byte[] parentHash) {
+            this.parentHash = parentHash;
+        }
+
         public BigInteger getCummDifficulty() {
             return cummDifficulty;
         }
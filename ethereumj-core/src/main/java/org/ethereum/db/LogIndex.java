@@ -0,0 +1,257 @@
+package org.ethereum.db;
+
+import org.ethereum.core.Bloom;
+import org.ethereum.core.LogFilter;
+import org.ethereum.datasource.KeyValueDataSource;
+import org.ethereum.util.ByteUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Keeps the logs bloom of every block by number, along with the blooms of the ranges
+ * of {@link #GROUP_SIZE} and {@link #SECTION_SIZE} blocks, each one the OR of the blooms in the range.
+ *
+ * The blocks which may hold the logs of a filter are found by walking down the ranges
+ * whose bloom matches, the sections are checked in parallel. No block or receipt is read.
+ * A block bloom is stored as the list of its set bits while that's shorter than the bloom,
+ * the blocks without logs aren't stored at all.
+ *
+ * The index covers the blocks from the first one added, see {@link #getFirstIndexed()}.
+ * A block replaced by another one of the same number leaves its bits in the ranges,
+ * which only costs a false candidate
+ */
+public class LogIndex {
+
+    public static final int GROUP_SIZE = 64;
+    public static final int SECTION_SIZE = GROUP_SIZE * 64;
+
+    private static final String LOGS_DB = "logs";
+
+    private static final byte BLOCK = 0;
+    private static final byte GROUP = 1;
+    private static final byte SECTION = 2;
+    private static final byte[] FIRST_INDEXED_KEY = {3};
+
+    private static final int BLOOM_SIZE = 256;
+
+    private static final ForkJoinPool SEARCH_POOL = new ForkJoinPool();
+
+    private final KeyValueDataSource blooms;
+    private long firstIndexed = -1;
+
+    /* the ranges the last blocks were added to, saves reading them back for every block */
+    private final long[] lastRange = {-1, -1, -1};
+    private final byte[][] lastRangeBloom = new byte[3][];
+
+    public LogIndex(KeyValueDataSource blooms) {
+        blooms.setName(LOGS_DB);
+        blooms.init();
+        this.blooms = blooms;
+
+        byte[] first = blooms.get(FIRST_INDEXED_KEY);
+        if (first != null)
+            firstIndexed = ByteUtil.byteArrayToLong(first);
+    }
+
+    /**
+     * @return the number of the first block in the index, -1 if it's empty
+     */
+    public synchronized long getFirstIndexed() {
+        return firstIndexed;
+    }
+
+    /**
+     * Drops every block from the index, the next one added becomes the first indexed
+     */
+    public synchronized void reset() {
+        blooms.deleteBatch(blooms.keys());
+        firstIndexed = -1;
+        Arrays.fill(lastRange, -1);
+        Arrays.fill(lastRangeBloom, null);
+    }
+
+    public synchronized void close() {
+        blooms.close();
+    }
+
+    public synchronized void add(long number, byte[] logsBloom) {
+
+        Map<byte[], byte[]> rows = new HashMap<>();
+        if (firstIndexed < 0) {
+            firstIndexed = number;
+            rows.put(FIRST_INDEXED_KEY, ByteUtil.longToBytes(number));
+        }
+
+        if (!isEmpty(logsBloom)) {
+            rows.put(key(BLOCK, number), encode(logsBloom));
+            rows.put(key(GROUP, number / GROUP_SIZE), orRange(GROUP, number / GROUP_SIZE, logsBloom));
+            rows.put(key(SECTION, number / SECTION_SIZE), orRange(SECTION, number / SECTION_SIZE, logsBloom));
+        }
+
+        if (!rows.isEmpty())
+            blooms.updateBatch(rows);
+    }
+
+    /**
+     * @return the numbers of the indexed blocks in the range whose bloom matches the filter, in order
+     */
+    public List<Long> findCandidates(LogFilter filter, long from, long to) {
+
+        from = Math.max(from, getFirstIndexed());
+        if (getFirstIndexed() < 0 || from > to)
+            return new ArrayList<>();
+
+        return SEARCH_POOL.invoke(new SectionsTask(filter, from, to, from / SECTION_SIZE, to / SECTION_SIZE + 1));
+    }
+
+    private List<Long> findInSection(LogFilter filter, long from, long to, long section) {
+
+        List<Long> candidates = new ArrayList<>();
+        if (!matches(filter, blooms.get(key(SECTION, section))))
+            return candidates;
+
+        long firstGroup = Math.max(from, section * SECTION_SIZE) / GROUP_SIZE;
+        long lastGroup = Math.min(to, (section + 1) * SECTION_SIZE - 1) / GROUP_SIZE;
+
+        List<byte[]> groupKeys = new ArrayList<>();
+        for (long group = firstGroup; group <= lastGroup; ++group) {
+            groupKeys.add(key(GROUP, group));
+        }
+        List<byte[]> groupBlooms = blooms.getAll(groupKeys);
+
+        for (int i = 0; i < groupBlooms.size(); ++i) {
+            if (!matches(filter, groupBlooms.get(i))) continue;
+
+            long group = firstGroup + i;
+            long firstBlock = Math.max(from, group * GROUP_SIZE);
+            long lastBlock = Math.min(to, (group + 1) * GROUP_SIZE - 1);
+
+            List<byte[]> blockKeys = new ArrayList<>();
+            for (long number = firstBlock; number <= lastBlock; ++number) {
+                blockKeys.add(key(BLOCK, number));
+            }
+            List<byte[]> blockBlooms = blooms.getAll(blockKeys);
+
+            for (int j = 0; j < blockBlooms.size(); ++j) {
+                if (matches(filter, blockBlooms.get(j)))
+                    candidates.add(firstBlock + j);
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean matches(LogFilter filter, byte[] encodedBloom) {
+        // nothing is stored for a range without logs
+        return encodedBloom != null && filter.matchBloom(new Bloom(decode(encodedBloom)));
+    }
+
+    private byte[] orRange(byte level, long range, byte[] logsBloom) {
+
+        if (lastRange[level] != range) {
+            byte[] stored = blooms.get(key(level, range));
+            lastRange[level] = range;
+            lastRangeBloom[level] = stored == null ? new byte[BLOOM_SIZE] : decode(stored);
+        }
+
+        byte[] rangeBloom = lastRangeBloom[level];
+        for (int i = 0; i < BLOOM_SIZE; ++i) {
+            rangeBloom[i] |= logsBloom[i];
+        }
+        return encode(rangeBloom);
+    }
+
+    private static byte[] key(byte level, long index) {
+        byte[] key = new byte[9];
+        key[0] = level;
+        System.arraycopy(ByteUtil.longToBytes(index), 0, key, 1, 8);
+        return key;
+    }
+
+    private static boolean isEmpty(byte[] bloom) {
+        if (bloom == null) return true;
+        for (byte b : bloom) {
+            if (b != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The positions of the set bits, 2 bytes each, if that's shorter than the bloom,
+     * otherwise the bloom itself
+     */
+    static byte[] encode(byte[] bloom) {
+
+        int bits = 0;
+        for (byte b : bloom) {
+            bits += Integer.bitCount(b & 0xFF);
+        }
+        if (bits * 2 >= BLOOM_SIZE)
+            return Arrays.copyOf(bloom, BLOOM_SIZE);
+
+        byte[] encoded = new byte[bits * 2];
+        int pos = 0;
+        for (int i = 0; i < BLOOM_SIZE; ++i) {
+            for (int bit = 0; bit < 8; ++bit) {
+                if ((bloom[i] & (1 << bit)) != 0) {
+                    int position = i * 8 + bit;
+                    encoded[pos++] = (byte) (position >>> 8);
+                    encoded[pos++] = (byte) position;
+                }
+            }
+        }
+        return encoded;
+    }
+
+    static byte[] decode(byte[] encoded) {
+
+        if (encoded.length == BLOOM_SIZE)
+            return Arrays.copyOf(encoded, BLOOM_SIZE);
+
+        byte[] bloom = new byte[BLOOM_SIZE];
+        for (int pos = 0; pos < encoded.length; pos += 2) {
+            int position = ((encoded[pos] & 0xFF) << 8) | (encoded[pos + 1] & 0xFF);
+            bloom[position / 8] |= 1 << (position % 8);
+        }
+        return bloom;
+    }
+
+    @SuppressWarnings("serial")
+    private class SectionsTask extends RecursiveTask<List<Long>> {
+
+        private final LogFilter filter;
+        private final long from;
+        private final long to;
+        private final long firstSection;
+        private final long endSection;
+
+        SectionsTask(LogFilter filter, long from, long to, long firstSection, long endSection) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.firstSection = firstSection;
+            this.endSection = endSection;
+        }
+
+        @Override
+        protected List<Long> compute() {
+            if (endSection - firstSection <= 1) {
+                return findInSection(filter, from, to, firstSection);
+            }
+
+            long middle = (firstSection + endSection) >>> 1;
+            SectionsTask left = new SectionsTask(filter, from, to, firstSection, middle);
+            SectionsTask right = new SectionsTask(filter, from, to, middle, endSection);
+            right.fork();
+
+            List<Long> candidates = left.compute();
+            candidates.addAll(right.join());
+            return candidates;
+        }
+    }
+}
@@ -8,9 +8,11 @@ import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.facade.Repository;
 import org.ethereum.json.EtherObjectMapper;
 import org.ethereum.json.JSONHelper;
+import org.ethereum.trie.Cache;
+import org.ethereum.trie.CachedTrie;
+import org.ethereum.trie.SecurePatriciaTrie;
 import org.ethereum.trie.SecureTrie;
-import org.ethereum.trie.Trie;
-import org.ethereum.trie.TrieImpl;
+import org.ethereum.trie.TriePruner;
 import org.ethereum.util.Functional;
 import org.ethereum.vm.DataWord;
 import org.slf4j.Logger;
@@ -24,9 +26,12 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
@@ -34,6 +39,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import static java.lang.Thread.sleep;
 import static org.ethereum.config.SystemProperties.CONFIG;
 import static org.ethereum.crypto.SHA3Helper.sha3;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.ethereum.util.ByteUtil.wrap;
 
 /**
@@ -48,7 +54,7 @@ public class RepositoryImpl implements Repository {
     private static final Logger logger = LoggerFactory.getLogger("repository");
     private static final Logger gLogger = LoggerFactory.getLogger("general");
 
-    private Trie worldState;
+    private CachedTrie worldState;
 
     private DatabaseImpl detailsDB = null;
     private DetailsDataStore dds = new DetailsDataStore();
@@ -61,6 +67,10 @@ public class RepositoryImpl implements Repository {
     private final ReentrantLock lock = new ReentrantLock();
     private final AtomicInteger accessCounter = new AtomicInteger();
 
+    private final AsyncFlusher flusher = new AsyncFlusher("repository-flush", CONFIG.flushAsyncQueueSize());
+    /* null unless pruning is enabled */
+    private final TriePruner pruner = CONFIG.pruneEnabled() ? new TriePruner(CONFIG.pruneBlocksWindow()) : null;
+
 
     public RepositoryImpl() {
         this(DETAILS_DB, STATE_DB);
@@ -83,7 +93,7 @@ public class RepositoryImpl implements Repository {
         dds.setDB(detailsDB);
 
         stateDB = new DatabaseImpl(stateDS);
-        worldState = new SecureTrie(stateDB.getDb());
+        worldState = createWorldState(stateDB.getDb());
     }
 
     public RepositoryImpl(String detailsDbName, String stateDbName) {
@@ -91,7 +101,7 @@ public class RepositoryImpl implements Repository {
         dds.setDB(detailsDB);
 
         stateDB = new DatabaseImpl(stateDbName);
-        worldState = new SecureTrie(stateDB.getDb());
+        worldState = createWorldState(stateDB.getDb());
     }
 
 
@@ -107,7 +117,7 @@ public class RepositoryImpl implements Repository {
 
                 stateDS.init();
                 stateDB = new DatabaseImpl(stateDS);
-                worldState = new SecureTrie(stateDB.getDb());
+                worldState = createWorldState(stateDB.getDb());
             }
         });
     }
@@ -117,6 +127,12 @@ public class RepositoryImpl implements Repository {
         doWithLockedAccess(new Functional.InvokeWrapper() {
             @Override
             public void invoke() {
+                try {
+                    flusher.waitForCompletion();
+                } finally {
+                    flusher.shutdown();
+                }
+
                 if (detailsDB != null) {
                     detailsDB.close();
                     detailsDB = null;
@@ -140,13 +156,16 @@ public class RepositoryImpl implements Repository {
 
         logger.info("updatingBatch: detailsCache.size: {}", detailsCache.size());
 
+        // world state rows are applied at once, so the trie is rehashed only once per batch
+        Map<byte[], byte[]> stateRows = new LinkedHashMap<>();
         for (ByteArrayWrapper hash : stateCache.keySet()) {
 
             AccountState accountState = stateCache.get(hash);
             ContractDetails contractDetails = detailsCache.get(hash);
 
             if (accountState.isDeleted()) {
-                delete(hash.getData());
+                stateRows.put(hash.getData(), EMPTY_BYTE_ARRAY);
+                removeContractDetails(hash.getData());
                 logger.debug("delete: [{}]",
                         Hex.toHexString(hash.getData()));
 
@@ -168,7 +187,7 @@ public class RepositoryImpl implements Repository {
 
                 accountState.setStateRoot(contractDetails.getStorageHash());
                 accountState.setCodeHash(sha3(contractDetails.getCode()));
-                updateAccountState(hash.getData(), accountState);
+                stateRows.put(hash.getData(), accountState.getEncoded());
 
                 if (logger.isDebugEnabled()) {
                     logger.debug("update: [{}],nonce: [{}] balance: [{}] \n [{}]",
@@ -180,6 +199,7 @@ public class RepositoryImpl implements Repository {
             }
         }
 
+        updateAccountStates(stateRows);
 
         logger.info("updated: detailsCache.size: {}", detailsCache.size());
 
@@ -187,6 +207,14 @@ public class RepositoryImpl implements Repository {
         detailsCache.clear();
     }
 
+    private static CachedTrie createWorldState(KeyValueDataSource dataSource) {
+        CachedTrie trie = CONFIG.trieTyped() ? new SecurePatriciaTrie(dataSource) : new SecureTrie(dataSource);
+        if (CONFIG.pruneEnabled()) {
+            trie.getCache().enableJournal();
+        }
+        return trie;
+    }
+
     private void updateContractDetails(final byte[] address, final ContractDetails contractDetails) {
         doWithAccessCounting(new Functional.InvokeWrapper() {
             @Override
@@ -196,6 +224,15 @@ public class RepositoryImpl implements Repository {
         });
     }
 
+    private void removeContractDetails(final byte[] address) {
+        doWithAccessCounting(new Functional.InvokeWrapper() {
+            @Override
+            public void invoke() {
+                dds.remove(address);
+            }
+        });
+    }
+
     @Override
     public void flushNoReconnect() {
         doWithLockedAccess(new Functional.InvokeWrapper() {
@@ -203,8 +240,10 @@ public class RepositoryImpl implements Repository {
             public void invoke() {
                 gLogger.info("flushing to disk");
 
+                flusher.waitForCompletion();
                 dds.flush();
                 worldState.sync();
+                pruneWorldState();
             }
         });
     }
@@ -215,23 +254,96 @@ public class RepositoryImpl implements Repository {
         doWithLockedAccess(new Functional.InvokeWrapper() {
             @Override
             public void invoke() {
+                if (CONFIG.flushAsync()) {
+                    flushAsync();
+                    return;
+                }
+
                 gLogger.info("flushing to disk");
 
                 dds.flush();
                 worldState.sync();
+                pruneWorldState();
 
                 byte[] root = worldState.getRootHash();
+                Cache cache = worldState.getCache();
                 reset();
                 worldState.setRoot(root);
+                // keep the clean nodes warm, the state data source is reopened in place
+                worldState.setCache(cache);
+            }
+        });
+    }
+
+    /**
+     * Detaches the changes from the details store and the world state cache,
+     * they are written by the background flusher while the repository goes on with fresh ones
+     */
+    private void flushAsync() {
+        gLogger.info("flushing to disk in background, pending flushes: {}", flusher.getQueueDepth());
+
+        final Runnable detailsWrite = dds.prepareFlush();
+        // makes the trie put all the changed nodes to the cache
+        worldState.getRootHash();
+        final Runnable stateWrite = worldState.getCache().prepareCommit();
+        // nothing is left to commit, the trie just fixes the current root
+        worldState.sync();
+
+        // nodes dropped by now are deleted once the nodes of this flush are written
+        final Cache stateCache = worldState.getCache();
+        final List<byte[]> unreachable = (pruner == null) ? Collections.<byte[]>emptyList() : pruner.takeUnreachable();
+
+        flusher.submit(new Runnable() {
+            @Override
+            public void run() {
+                detailsWrite.run();
+                stateWrite.run();
+                stateCache.prune(unreachable);
             }
         });
     }
 
+    private void pruneWorldState() {
+        if (pruner != null) {
+            worldState.getCache().prune(pruner.takeUnreachable());
+        }
+    }
+
+    /**
+     * Journals the world state changes made by the block,
+     * the nodes which are not a part of the recent states are deleted on flush
+     */
+    public void commitBlock(final long blockNumber) {
+        if (pruner == null) return;
+
+        doWithAccessCounting(new Functional.InvokeWrapper() {
+            @Override
+            public void invoke() {
+                pruner.journal(blockNumber, worldState.getRootHash(), worldState.getCache());
+                dds.setBlockNumber(blockNumber);
+            }
+        });
+    }
+
+    /**
+     * @return the pruner of the world state, null unless pruning is enabled
+     */
+    public TriePruner getPruner() {
+        return pruner;
+    }
+
+    /**
+     * @return the flusher writing the repository changes in background, exposes flush statistics
+     */
+    public AsyncFlusher getFlusher() {
+        return flusher;
+    }
+
     public int getAllocatedMemorySize() {
         return doWithAccessCounting(new Functional.InvokeWrapperWithResult<Integer>() {
             @Override
             public Integer invoke() {
-                return dds.getAllocatedMemorySize() + ((TrieImpl) worldState).getCache().getAllocatedMemorySize();
+                return dds.getAllocatedMemorySize() + worldState.getCache().getAllocatedMemorySize();
             }
         });
     }
@@ -252,6 +364,9 @@ public class RepositoryImpl implements Repository {
             @Override
             public void invoke() {
                 worldState.setRoot(root);
+                if (pruner != null) {
+                    pruner.reset(root, worldState.getCache());
+                }
             }
         });
     }
@@ -471,6 +586,15 @@ public class RepositoryImpl implements Repository {
         });
     }
 
+    private void updateAccountStates(final Map<byte[], byte[]> stateRows) {
+        doWithAccessCounting(new Functional.InvokeWrapper() {
+            @Override
+            public void invoke() {
+                worldState.updateAll(stateRows);
+            }
+        });
+    }
+
     public BigInteger setNonce(final byte[] addr, final BigInteger nonce) {
         AccountState account = getAccountStateOrCreateNew(addr);
 
@@ -0,0 +1,233 @@
+package org.ethereum.db;
+
+import org.ethereum.core.AccountState;
+import org.ethereum.facade.Repository;
+import org.ethereum.vm.DataWord;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.ethereum.util.ByteUtil.wrap;
+
+/**
+ * Track of a transaction executed speculatively, concurrently with the other transactions of its block.
+ *
+ * The accounts are loaded from the source repository under the lock shared by the concurrent tracks,
+ * the accounts and the storage rows read from the source are recorded, so are the ones written,
+ * see {@link #getWrittenAccounts()} and {@link #getWrittenStorage()}. The changes are committed
+ * into the target track, the same way a track of a serial run would be.
+ *
+ * The fees paid to the coinbase which has not been read otherwise are deferred to
+ * {@link #getCoinbaseFee()}, so the transactions of a block don't all conflict on the coinbase
+ *
+ * @see org.ethereum.core.SpeculativeExecution
+ */
+public class SpeculativeTrack extends RepositoryTrack {
+
+    private final Repository source;
+    private final Object lock;
+    private final ByteArrayWrapper coinbase;
+
+    /* encoded state of each account loaded from the source, null if the account didn't exist */
+    private final Map<ByteArrayWrapper, byte[]> loadedStates = new HashMap<>();
+    private final Map<ByteArrayWrapper, RecordingDetails> loadedDetails = new HashMap<>();
+    private final Set<ByteArrayWrapper> readAccounts = new HashSet<>();
+
+    private BigInteger coinbaseFee;
+
+    public SpeculativeTrack(Repository source, Repository target, byte[] coinbase, Object lock) {
+        super(target);
+        this.source = source;
+        this.lock = lock;
+        this.coinbase = wrap(coinbase);
+    }
+
+    @Override
+    public AccountState getAccountState(byte[] addr) {
+        load(addr);
+        return super.getAccountState(addr);
+    }
+
+    @Override
+    public ContractDetails getContractDetails(byte[] addr) {
+        load(addr);
+        return super.getContractDetails(addr);
+    }
+
+    @Override
+    public boolean isExist(byte[] addr) {
+        ByteArrayWrapper key = wrap(addr);
+        AccountState accountState = cacheAccounts.get(key);
+        if (accountState != null) return !accountState.isDeleted();
+
+        readAccounts.add(key);
+        synchronized (lock) {
+            return source.isExist(addr);
+        }
+    }
+
+    @Override
+    public void loadAccount(byte[] addr, HashMap<ByteArrayWrapper, AccountState> cacheAccounts,
+                            HashMap<ByteArrayWrapper, ContractDetails> cacheDetails) {
+        load(addr);
+        super.loadAccount(addr, cacheAccounts, cacheDetails);
+    }
+
+    @Override
+    public BigInteger addBalance(byte[] addr, BigInteger value) {
+        if (coinbase.equals(wrap(addr)) && !cacheAccounts.containsKey(coinbase)) {
+            coinbaseFee = coinbaseFee == null ? value : coinbaseFee.add(value);
+            return null;
+        }
+        return super.addBalance(addr, value);
+    }
+
+    private void load(byte[] addr) {
+        ByteArrayWrapper key = wrap(addr);
+        if (cacheAccounts.containsKey(key)) return;
+
+        HashMap<ByteArrayWrapper, AccountState> accounts = new HashMap<>();
+        HashMap<ByteArrayWrapper, ContractDetails> details = new HashMap<>();
+        RecordingDetails recordingDetails;
+        boolean exists;
+        synchronized (lock) {
+            exists = source.isExist(addr);
+            source.loadAccount(addr, accounts, details);
+            recordingDetails = new RecordingDetails(((ContractDetailsCacheImpl) details.get(key)).origContract);
+        }
+
+        AccountState accountState = accounts.get(key);
+        cacheAccounts.put(key, accountState);
+        cacheDetails.put(key, recordingDetails);
+
+        readAccounts.add(key);
+        loadedStates.put(key, exists ? accountState.getEncoded().clone() : null);
+        loadedDetails.put(key, recordingDetails);
+
+        // the fee deferred before the coinbase is read is paid in order
+        if (key.equals(coinbase) && coinbaseFee != null) {
+            super.addBalance(addr, coinbaseFee);
+            coinbaseFee = null;
+        }
+    }
+
+    /**
+     * Commits the changes into the target track, then pays the deferred fee to the coinbase
+     */
+    @Override
+    public void commit() {
+        super.commit();
+
+        if (coinbaseFee != null) {
+            repository.addBalance(coinbase.getData(), coinbaseFee);
+            coinbaseFee = null;
+        }
+    }
+
+    /**
+     * @return the accounts read from the source
+     */
+    public Set<ByteArrayWrapper> getReadAccounts() {
+        return readAccounts;
+    }
+
+    /**
+     * @return the storage rows read from the source by account
+     */
+    public Map<ByteArrayWrapper, Set<DataWord>> getReadStorage() {
+        Map<ByteArrayWrapper, Set<DataWord>> rows = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, RecordingDetails> entry : loadedDetails.entrySet()) {
+            if (!entry.getValue().reads.isEmpty()) {
+                rows.put(entry.getKey(), entry.getValue().reads.keySet());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * The accounts created, deleted or changed apart from their storage, including the coinbase
+     * if there is a deferred fee. The changes of the storage are reported separately
+     */
+    public Set<ByteArrayWrapper> getWrittenAccounts() {
+        Set<ByteArrayWrapper> accounts = new HashSet<>();
+        for (Map.Entry<ByteArrayWrapper, AccountState> entry : cacheAccounts.entrySet()) {
+            ByteArrayWrapper key = entry.getKey();
+            AccountState accountState = entry.getValue();
+            ContractDetails details = cacheDetails.get(key);
+
+            boolean written;
+            if (!loadedStates.containsKey(key) || details != loadedDetails.get(key)) {
+                written = true;
+            } else if (accountState.isDeleted() || details.isDeleted()) {
+                written = true;
+            } else {
+                byte[] loadedState = loadedStates.get(key);
+                written = loadedState == null
+                        ? details.isDirty() || !Arrays.equals(new AccountState().getEncoded(), accountState.getEncoded())
+                        : !Arrays.equals(loadedState, accountState.getEncoded());
+            }
+            if (written) accounts.add(key);
+        }
+        if (coinbaseFee != null) accounts.add(coinbase);
+        return accounts;
+    }
+
+    /**
+     * @return the storage rows changed by account
+     */
+    public Map<ByteArrayWrapper, Set<DataWord>> getWrittenStorage() {
+        Map<ByteArrayWrapper, Set<DataWord>> rows = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, RecordingDetails> entry : loadedDetails.entrySet()) {
+            Set<DataWord> keys = entry.getValue().getWrittenKeys();
+            if (!keys.isEmpty()) rows.put(entry.getKey(), keys);
+        }
+        return rows;
+    }
+
+    /**
+     * @return the fee paid to the coinbase which is yet to be added to its balance, null if none
+     */
+    public BigInteger getCoinbaseFee() {
+        return coinbaseFee;
+    }
+
+    /**
+     * Details of an account loaded from the source, records the storage rows read from it
+     */
+    private class RecordingDetails extends ContractDetailsCacheImpl {
+
+        /* the rows as read from the source, zero if missing */
+        final Map<DataWord, DataWord> reads = new HashMap<>();
+
+        RecordingDetails(ContractDetails origContract) {
+            super(origContract);
+        }
+
+        @Override
+        public DataWord get(DataWord key) {
+            if (getStorage().containsKey(key)) return super.get(key);
+
+            DataWord value;
+            synchronized (lock) {
+                value = super.get(key);
+            }
+            DataWord read = getStorage().get(key);
+            reads.put(key.clone(), read == null ? DataWord.ZERO.clone() : read.clone());
+            return value;
+        }
+
+        Set<DataWord> getWrittenKeys() {
+            Set<DataWord> keys = new HashSet<>();
+            for (Map.Entry<DataWord, DataWord> row : getStorage().entrySet()) {
+                DataWord value = row.getValue() == null ? DataWord.ZERO : row.getValue();
+                DataWord read = reads.get(row.getKey());
+                if (read == null || !read.equals(value)) keys.add(row.getKey());
+            }
+            return keys;
+        }
+    }
+}
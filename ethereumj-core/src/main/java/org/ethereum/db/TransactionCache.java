@@ -0,0 +1,51 @@
+package org.ethereum.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+import static org.ethereum.util.ByteUtil.wrap;
+
+/**
+ * The transaction index entries saved or looked up recently, by transaction hash.
+ * The least recently used entries are evicted once the capacity is reached,
+ * the block stores check it before reading the index from the database
+ */
+public class TransactionCache {
+
+    private final LinkedHashMap<ByteArrayWrapper, TransactionInfo> entries;
+
+    public TransactionCache() {
+        this(CONFIG.transactionCacheSize());
+    }
+
+    public TransactionCache(final int capacity) {
+        entries = new LinkedHashMap<ByteArrayWrapper, TransactionInfo>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteArrayWrapper, TransactionInfo> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return null unless the entry is cached
+     */
+    public synchronized TransactionInfo get(byte[] txHash) {
+        return entries.get(wrap(txHash));
+    }
+
+    /**
+     * Entries decoded from a bare receipt are not cached, they have no transaction hash to be found by
+     */
+    public synchronized void put(TransactionInfo info) {
+        byte[] txHash = info.getTransactionHash();
+        if (txHash == null) return;
+
+        entries.put(wrap(txHash), info);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,74 @@
+package org.ethereum.db;
+
+import org.ethereum.core.Transaction;
+import org.ethereum.core.TransactionReceipt;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
+
+/**
+ * Entry of the transaction index: the receipt of a transaction along with
+ * the transaction itself, the hash of the block including it and its position in the block
+ *
+ * [receipt, transaction, blockHash, index]
+ *
+ * The receipt rows of the hibernate and Android block stores used to hold the bare receipt,
+ * such rows are decoded to an entry with neither the transaction nor the block hash set
+ */
+public class TransactionInfo {
+
+    private TransactionReceipt receipt;
+    private byte[] blockHash;
+    private int index;
+
+    /**
+     * @param receipt - with the transaction set
+     */
+    public TransactionInfo(TransactionReceipt receipt, byte[] blockHash, int index) {
+        this.receipt = receipt;
+        this.blockHash = blockHash;
+        this.index = index;
+    }
+
+    public TransactionInfo(byte[] rlp) {
+        RLPView info = RLPView.decode(rlp);
+
+        // the bare receipt starts with the post transaction state rather than a list
+        if (!info.get(0).isList()) {
+            receipt = new TransactionReceipt(rlp);
+            return;
+        }
+
+        receipt = new TransactionReceipt(info.get(0).getEncoded());
+        receipt.setTransaction(new Transaction(info.get(1).getEncoded()));
+        blockHash = info.get(2).getData();
+        index = (int) info.get(3).getLong();
+    }
+
+    public TransactionReceipt getReceipt() {
+        return receipt;
+    }
+
+    /**
+     * @return null if the entry is decoded from a bare receipt
+     */
+    public byte[] getTransactionHash() {
+        return receipt.getTransaction() == null ? null : receipt.getTransaction().getHash();
+    }
+
+    public byte[] getBlockHash() {
+        return blockHash;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public byte[] getEncoded() {
+        return new RLPWriter().startList()
+                .writeEncoded(receipt.getEncoded())
+                .writeEncoded(receipt.getTransaction().getEncoded())
+                .writeElement(blockHash)
+                .writeLong(index)
+                .endList().toByteArray();
+    }
+}
@@ -8,6 +8,7 @@ import org.ethereum.datasource.LevelDbDataSource;
 import org.ethereum.datasource.mapdb.MapDBDataSource;
 import org.ethereum.db.BlockStore;
 import org.ethereum.db.InMemoryBlockStore;
+import org.ethereum.db.LogIndex;
 import org.ethereum.db.RepositoryImpl;
 import org.ethereum.facade.Blockchain;
 import org.ethereum.facade.Ethereum;
@@ -65,7 +66,9 @@ public class EthereumModule {
     Blockchain provideBlockchain(BlockStore blockStore, Repository repository,
                                  Wallet wallet, AdminInfo adminInfo,
                                  EthereumListener listener, ChannelManager channelManager) {
-        return new BlockchainImpl(blockStore, repository, wallet, adminInfo, listener, channelManager);
+        BlockchainImpl blockchain = new BlockchainImpl(blockStore, repository, wallet, adminInfo, listener, channelManager);
+        blockchain.setLogIndex(new LogIndex(new MapDBDataSource()));
+        return blockchain;
     }
 
     @Provides
@@ -31,6 +31,11 @@ public interface Blockchain {
 
     void close();
 
+    /**
+     * Drops what was derived from the stored blocks, when the chain starts over from the genesis
+     */
+    void reset();
+
     public void updateTotalDifficulty(Block block);
 
     public BigInteger getTotalDifficulty();
@@ -43,6 +48,11 @@ public interface Blockchain {
 
     TransactionReceipt getTransactionReceiptByHash(byte[] hash);
 
+    /**
+     * @return the logs of the main chain blocks from, to (inclusive) matching the filter
+     */
+    List<LogSearch.Match> getLogs(LogFilter filter, long from, long to);
+
     public Block getBlockByHash(byte[] hash);
 
     public List<Chain> getAltChains();
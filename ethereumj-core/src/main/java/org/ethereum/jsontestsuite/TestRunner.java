@@ -212,7 +212,7 @@ public class TestRunner {
 
             /* 3. Create Program - exec.code */
             /* 4. run VM */
-            VM vm = new VM();
+            VM vm = VM.create();
             Program program = new Program(exec.getCode(), programInvoke);
             boolean vmDidThrowAnEception = false;
             RuntimeException e = null;
@@ -38,6 +38,7 @@ public class BlockLoader {
 
             System.out.println("Loading blocks: " + fileSrc);
 
+            long blocks = 0, txs = 0, importTime = 0;
             while (scanner.hasNextLine()) {
 
                 byte[] blockRLPBytes = Hex.decode( scanner.nextLine());
@@ -48,6 +49,10 @@ public class BlockLoader {
                     blockchain.tryToConnect(block);
                     long t1_ = System.nanoTime();
 
+                    ++blocks;
+                    txs += block.getTransactionsList().size();
+                    importTime += t1_ - t1;
+
                     float elapsed = ((float)(t1_ - t1) / 1_000_000);
 
                     if (block.getNumber() % 1000 == 0 || elapsed > 10_000) {
@@ -62,6 +67,11 @@ public class BlockLoader {
                         System.out.println("Skipping block #" + block.getNumber());
                 }
             }
+
+            if (importTime > 0) {
+                System.out.println(String.format("Imported %d blocks, %d txs in %.2f sec: [%.1f blocks/sec, %.1f txs/sec]",
+                        blocks, txs, importTime / 1e9, blocks * 1e9 / importTime, txs * 1e9 / importTime));
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
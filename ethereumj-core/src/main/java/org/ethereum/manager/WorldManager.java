@@ -150,6 +150,7 @@ public class WorldManager {
         Block bestBlock = blockStore.getBestBlock();
         if (bestBlock == null) {
             logger.info("DB is empty - adding Genesis");
+            blockchain.reset();
 
             Genesis genesis = (Genesis)Genesis.getInstance();
             for (ByteArrayWrapper key : genesis.getPremine().keySet()) {
@@ -3,6 +3,7 @@ package org.ethereum.net.eth;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPItem;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 import org.ethereum.util.Utils;
 
 import java.util.ArrayList;
@@ -43,12 +44,11 @@ public class BlockHashesMessage extends EthMessage {
     }
 
     private void encode() {
-        List<byte[]> encodedElements = new ArrayList<>();
-        encodedElements.add(RLP.encodeByte(BLOCK_HASHES.asByte()));
+        RLPWriter writer = new RLPWriter(blockHashes.size() + 2);
+        writer.startList().writeByte(BLOCK_HASHES.asByte());
         for (byte[] blockHash : blockHashes)
-            encodedElements.add(RLP.encodeElement(blockHash));
-        byte[][] encodedElementArray = encodedElements.toArray(new byte[encodedElements.size()][]);
-        this.encoded = RLP.encodeList(encodedElementArray);
+            writer.writeElement(blockHash);
+        this.encoded = writer.endList().toByteArray();
     }
 
 
@@ -1,12 +1,11 @@
 package org.ethereum.net.eth;
 
 import org.ethereum.core.Block;
-import org.ethereum.util.RLP;
-import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector;
 
 import static org.ethereum.net.eth.EthMessageCodes.BLOCKS;
 
@@ -29,12 +28,12 @@ public class BlocksMessage extends EthMessage {
     }
 
     private void parse() {
-        RLPList paramsList = (RLPList) RLP.decode2(encoded).get(0);
+        RLPView paramsList = RLPView.decode(encoded);
 
         blocks = new ArrayList<>();
         for (int i = 0; i < paramsList.size(); ++i) {
-            RLPList rlpData = ((RLPList) paramsList.get(i));
-            Block blockData = new Block(rlpData.getRLPData());
+            RLPView rlpData = paramsList.get(i);
+            Block blockData = new Block(rlpData.getEncoded());
             blocks.add(blockData);
         }
         parsed = true;
@@ -42,16 +41,13 @@ public class BlocksMessage extends EthMessage {
 
     private void encode() {
 
-        List<byte[]> encodedElements = new Vector<>();
-        encodedElements.add(RLP.encodeByte(BLOCKS.asByte()));
+        RLPWriter writer = new RLPWriter();
+        writer.startList().writeByte(BLOCKS.asByte());
 
         for (Block block : blocks)
-            encodedElements.add(block.getEncoded());
+            block.encode(writer);
 
-        byte[][] encodedElementArray = encodedElements
-                .toArray(new byte[encodedElements.size()][]);
-
-        this.encoded = RLP.encodeList(encodedElementArray);
+        this.encoded = writer.endList().toByteArray();
     }
 
 
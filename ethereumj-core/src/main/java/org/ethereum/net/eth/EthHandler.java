@@ -2,6 +2,7 @@ package org.ethereum.net.eth;
 
 import org.ethereum.core.Block;
 import org.ethereum.core.Genesis;
+import org.ethereum.core.SenderRecovery;
 import org.ethereum.core.Transaction;
 import org.ethereum.core.Wallet;
 import org.ethereum.db.ByteArrayWrapper;
@@ -156,6 +157,7 @@ public class EthHandler extends SimpleChannelInboundHandler<EthMessage> {
     private void processTransactions(TransactionsMessage msg) {
 
         Set<Transaction> txSet = msg.getTransactions();
+        SenderRecovery.recover(txSet);
         blockchain.addPendingTransactions(txSet);
 
         for (Transaction tx : txSet) {
@@ -3,6 +3,7 @@ package org.ethereum.net.eth;
 import org.ethereum.util.ByteUtil;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 
 import org.spongycastle.util.encoders.Hex;
 
@@ -38,9 +39,10 @@ public class GetBlockHashesMessage extends EthMessage {
     }
 
     private void encode() {
-        byte[] hash = RLP.encodeElement(this.bestHash);
-        byte[] maxBlocks = RLP.encodeInt(this.maxBlocks);
-        this.encoded = RLP.encodeList(hash, maxBlocks);
+        this.encoded = new RLPWriter().startList()
+                .writeElement(this.bestHash)
+                .writeLong(this.maxBlocks)
+                .endList().toByteArray();
     }
 
     private void parse() {
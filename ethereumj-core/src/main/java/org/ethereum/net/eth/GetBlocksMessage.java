@@ -2,6 +2,7 @@ package org.ethereum.net.eth;
 
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 import org.ethereum.util.Utils;
 import org.spongycastle.util.encoders.Hex;
 
@@ -42,12 +43,11 @@ public class GetBlocksMessage extends EthMessage {
     }
 
     private void encode() {
-        List<byte[]> encodedElements = new ArrayList<>();
-        encodedElements.add(RLP.encodeByte(GET_BLOCKS.asByte()));
+        RLPWriter writer = new RLPWriter(blockHashes.size() + 2);
+        writer.startList().writeByte(GET_BLOCKS.asByte());
         for (byte[] hash : blockHashes)
-            encodedElements.add(RLP.encodeElement(hash));
-        byte[][] encodedElementArray = encodedElements.toArray(new byte[encodedElements.size()][]);
-        this.encoded = RLP.encodeList(encodedElementArray);
+            writer.writeElement(hash);
+        this.encoded = writer.endList().toByteArray();
     }
 
     @Override
@@ -1,8 +1,8 @@
 package org.ethereum.net.eth;
 
 import org.ethereum.core.Block;
-import org.ethereum.util.RLP;
-import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPView;
+import org.ethereum.util.RLPWriter;
 
 import org.spongycastle.util.encoders.Hex;
 
@@ -27,19 +27,19 @@ public class NewBlockMessage extends EthMessage {
     }
 
     private void encode() {
-        byte[] block = this.block.getEncoded();
-        byte[] diff = RLP.encodeElement(this.difficulty);
-
-        this.encoded = RLP.encodeList(block, diff);
+        RLPWriter writer = new RLPWriter();
+        writer.startList();
+        this.block.encode(writer);
+        this.encoded = writer.writeElement(this.difficulty).endList().toByteArray();
         parsed = true;
     }
 
     private void parse() {
-        RLPList paramsList = (RLPList) RLP.decode2(encoded).get(0);
+        RLPView paramsList = RLPView.decode(encoded);
 
-        RLPList blockRLP = ((RLPList) paramsList.get(0));
-        block = new Block(blockRLP.getRLPData());
-        difficulty = paramsList.get(1).getRLPData();
+        RLPView blockRLP = paramsList.get(0);
+        block = new Block(blockRLP.getEncoded());
+        difficulty = paramsList.get(1).getData();
 
         parsed = true;
     }
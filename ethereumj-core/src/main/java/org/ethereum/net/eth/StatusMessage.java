@@ -3,6 +3,7 @@ package org.ethereum.net.eth;
 import org.ethereum.util.ByteUtil;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 
 import org.spongycastle.util.encoders.Hex;
 
@@ -60,14 +61,13 @@ public class StatusMessage extends EthMessage {
     }
 
     private void encode() {
-        byte[] protocolVersion = RLP.encodeByte(this.protocolVersion);
-        byte[] networkId = RLP.encodeByte(this.networkId);
-        byte[] totalDifficulty = RLP.encodeElement(this.totalDifficulty);
-        byte[] bestHash = RLP.encodeElement(this.bestHash);
-        byte[] genesisHash = RLP.encodeElement(this.genesisHash);
-
-        this.encoded = RLP.encodeList( protocolVersion, networkId,
-                totalDifficulty, bestHash, genesisHash);
+        this.encoded = new RLPWriter().startList()
+                .writeByte(this.protocolVersion)
+                .writeByte(this.networkId)
+                .writeElement(this.totalDifficulty)
+                .writeElement(this.bestHash)
+                .writeElement(this.genesisHash)
+                .endList().toByteArray();
     }
 
     @Override
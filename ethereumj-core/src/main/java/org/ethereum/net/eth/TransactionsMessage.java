@@ -3,10 +3,9 @@ package org.ethereum.net.eth;
 import org.ethereum.core.Transaction;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 
 import static org.ethereum.net.eth.EthMessageCodes.TRANSACTIONS;
@@ -49,12 +48,11 @@ public class TransactionsMessage extends EthMessage {
     }
 
     private void encode() {
-        List<byte[]> encodedElements = new ArrayList<>();
-        encodedElements.add(RLP.encodeByte(TRANSACTIONS.asByte()));
+        RLPWriter writer = new RLPWriter(transactions.size() + 2);
+        writer.startList().writeByte(TRANSACTIONS.asByte());
         for (Transaction tx : transactions)
-            encodedElements.add(tx.getEncoded());
-        byte[][] encodedElementArray = encodedElements.toArray(new byte[encodedElements.size()][]);
-        this.encoded = RLP.encodeList(encodedElementArray);
+            writer.writeEncoded(tx.getEncoded());
+        this.encoded = writer.endList().toByteArray();
     }
 
     @Override
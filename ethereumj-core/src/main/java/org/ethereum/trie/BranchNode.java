@@ -0,0 +1,71 @@
+package org.ethereum.trie;
+
+import org.spongycastle.util.encoders.Hex;
+
+import static org.ethereum.util.RLP.encodeList;
+
+/**
+ * Node [ v0 ... v15, value ] with a child per nibble and
+ * an optional value of the key which ends at the node
+ */
+final class BranchNode extends TrieNode {
+
+    static final int SIZE = 16;
+
+    /* null stands for an empty slot */
+    final TrieNode[] children;
+    final byte[] value;
+
+    BranchNode(TrieNode[] children, byte[] value) {
+        this.children = children;
+        this.value = value;
+    }
+
+    static BranchNode empty() {
+        return new BranchNode(new TrieNode[SIZE], null);
+    }
+
+    BranchNode withChild(int nibble, TrieNode child) {
+        TrieNode[] copy = children.clone();
+        copy[nibble] = child;
+        return new BranchNode(copy, value);
+    }
+
+    BranchNode withValue(byte[] value) {
+        return new BranchNode(children, value);
+    }
+
+    /**
+     * @return index of the only child if the node has no value and exactly one child,
+     * {@link #SIZE} if the node has the value only, -1 otherwise
+     */
+    int singleSlot() {
+        int slot = value == null ? -1 : SIZE;
+        for (int i = 0; i < SIZE; ++i) {
+            if (children[i] != null) {
+                if (slot != -1) return -1;
+                slot = i;
+            }
+        }
+        return slot;
+    }
+
+    @Override
+    protected byte[] encode() {
+        byte[][] items = new byte[SIZE + 1][];
+        for (int i = 0; i < SIZE; ++i) {
+            items[i] = children[i] == null ? EMPTY_ELEMENT : children[i].getReference();
+        }
+        items[SIZE] = value == null ? EMPTY_ELEMENT : encodeValue(value);
+        return encodeList(items);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < SIZE; ++i) {
+            sb.append(children[i] == null ? "" : children[i]).append(", ");
+        }
+        return sb.append(value == null ? "" : Hex.toHexString(value)).append("]").toString();
+    }
+}
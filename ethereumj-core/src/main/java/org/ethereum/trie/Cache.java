@@ -1,17 +1,28 @@
 package org.ethereum.trie;
 
+import org.ethereum.datasource.ChunkedBatchWriter;
+import org.ethereum.datasource.KeyRange;
+import org.ethereum.datasource.KeyValueCursor;
 import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.db.ByteArrayWrapper;
 import org.ethereum.util.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.String.format;
+import static org.ethereum.config.SystemProperties.CONFIG;
 import static org.ethereum.util.ByteUtil.length;
 import static org.ethereum.util.ByteUtil.wrap;
 import static org.ethereum.util.Value.fromRlpEncoded;
@@ -24,18 +35,36 @@ public class Cache {
 
     private static final Logger logger = LoggerFactory.getLogger("general");
 
+    private static final Runnable NO_COMMIT = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
     private KeyValueDataSource dataSource;
+    /* dirty nodes, pinned in memory until commit */
     private Map<ByteArrayWrapper, Node> nodes = new ConcurrentHashMap<>();
+    /* dirty nodes detached by prepareCommit() which are being written to the data source, newest first */
+    private final List<Map<ByteArrayWrapper, Node>> committingNodes = new CopyOnWriteArrayList<>();
+    /* clean nodes, evicted in LRU order once the budget is exceeded, survive commit,
+       the nodes missing in the data source are kept with no value until they are put */
+    private NodeCache cleanNodes;
+    /* the budget of the clean nodes once the cache is backed by a data source */
+    private long capacity = CONFIG.trieCacheSize();
     private boolean isDirty;
+    /* hashes of the nodes put since the last takeJournal(), null unless the journal is enabled */
+    private volatile Set<ByteArrayWrapper> journal;
     
-    private int allocatedMemorySize;
+    private final AtomicInteger allocatedMemorySize = new AtomicInteger();
 
     public Cache(KeyValueDataSource dataSource) {
         this.dataSource = dataSource;
+        this.cleanNodes = new NodeCache(cleanNodesCapacity());
     }
 
     /**
-     * Put the node in the cache if RLP encoded value is longer than 32 bytes
+     * Put the node in the cache if RLP encoded value is longer than 32 bytes,
+     * safe to be called concurrently
      *
      * @param o the Node which could be a pair-, multi-item Node or single Value
      * @return sha3 hash of RLP encoded node if length &gt; 32 otherwise return node itself
@@ -47,73 +76,188 @@ public class Cache {
             byte[] sha = value.hash();
             this.nodes.put(wrap(sha), new Node(value, true));
             this.isDirty = true;
+            journal(wrap(sha));
+            this.cleanNodes.removeMissing(wrap(sha));
 
-            allocatedMemorySize += length(sha, enc);
+            allocatedMemorySize.addAndGet(length(sha, enc));
             
             return sha;
         }
         return value;
     }
 
+    /**
+     * Put the RLP encoded node under its hash, safe to be called concurrently
+     */
+    public void putEncoded(byte[] hash, byte[] encoded) {
+        this.nodes.put(wrap(hash), new Node(fromRlpEncoded(encoded), true));
+        this.isDirty = true;
+        journal(wrap(hash));
+        this.cleanNodes.removeMissing(wrap(hash));
+
+        allocatedMemorySize.addAndGet(length(hash, encoded));
+    }
+
     public Value get(byte[] key) {
+        return getNode(key).getValue();
+    }
+
+    /**
+     * @return the node holding the value, the value is null if the key is missing
+     */
+    public Node getNode(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         // First check if the key is the cache
         Node node = this.nodes.get(wrappedKey);
+        for (int i = 0; node == null && i < this.committingNodes.size(); ++i) {
+            node = this.committingNodes.get(i).get(wrappedKey);
+        }
+        if (node == null) {
+            node = this.cleanNodes.get(wrappedKey);
+        }
         if (node == null) {
             byte[] data = (this.dataSource == null) ? null : this.dataSource.get(key);
             node = new Node(fromRlpEncoded(data), false);
 
-            this.nodes.put(wrappedKey, node);
-            
-            allocatedMemorySize += length(key, data);
+            this.cleanNodes.put(wrappedKey, node, length(key, data));
+        }
+
+        return node;
+    }
+
+    /**
+     * Loads the nodes missing in the cache from the data source in one batch,
+     * so the following lookups of the nodes are served from memory
+     */
+    public void prefetch(Collection<byte[]> keys) {
+        if (dataSource == null) return;
+
+        List<byte[]> missing = new ArrayList<>();
+        for (byte[] key : keys) {
+            if (!contains(wrap(key))) missing.add(key);
         }
+        if (missing.isEmpty()) return;
 
-        return node.getValue();
+        List<byte[]> values = this.dataSource.getAll(missing);
+        for (int i = 0; i < missing.size(); ++i) {
+            byte[] key = missing.get(i);
+            byte[] data = values.get(i);
+            this.cleanNodes.put(wrap(key), new Node(fromRlpEncoded(data), false), length(key, data));
+        }
     }
 
     public void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
 
-        Node node = this.nodes.get(wrappedKey);
+        Node node = this.nodes.remove(wrappedKey);
         if (node != null) {
-            this.allocatedMemorySize -= length(key, node.getValue().encode());
+            this.allocatedMemorySize.addAndGet(-length(key, node.getValue().encode()));
+        }
+        for (Map<ByteArrayWrapper, Node> committing : this.committingNodes) {
+            committing.remove(wrappedKey);
         }
-        this.nodes.remove(wrappedKey);
+        this.cleanNodes.remove(wrappedKey);
 
         if (dataSource != null) {
             this.dataSource.delete(key);
         }
     }
 
-    public void commit() {
-        // Don't try to commit if it isn't dirty
-        if ((dataSource == null) || !this.isDirty) return;
+    /**
+     * Deletes the nodes which are not referenced anymore from the data source in one batch.
+     *
+     * Dirty nodes are kept as they are put again after being dropped,
+     * such nodes are written back by the next commit.
+     * Safe to be called on a thread other than the one updating the trie.
+     */
+    public void prune(Collection<byte[]> keys) {
+        if ((dataSource == null) || keys.isEmpty()) return;
 
         long start = System.nanoTime();
 
-        Map<byte[], byte[]> batch = new HashMap<>();
-        for (ByteArrayWrapper key : this.nodes.keySet()) {
-            Node node = this.nodes.get(key);
+        for (byte[] key : keys) {
+            this.cleanNodes.remove(wrap(key));
+        }
+        this.dataSource.deleteBatch(keys);
 
-            if (node.isDirty()) {
-                node.setDirty(false);
+        float pruneTime = (float) (System.nanoTime() - start) / 1_000_000;
+        logger.info(format("Prune '%s' in: %02.2f ms, %d nodes", dataSource.getName(), pruneTime, keys.size()));
+    }
 
-                byte[] value = node.getValue().encode();
-                batch.put(key.getData(), value);
-            }
+    /**
+     * Starts recording the hashes of the nodes put to the cache, see {@link TriePruner}
+     */
+    public void enableJournal() {
+        if (journal == null) {
+            journal = Collections.newSetFromMap(new ConcurrentHashMap<ByteArrayWrapper, Boolean>());
         }
+    }
 
-        this.dataSource.updateBatch(batch);
+    /**
+     * @return hashes of the nodes put to the cache since the previous call,
+     * empty if the journal is not enabled
+     */
+    public Set<ByteArrayWrapper> takeJournal() {
+        Set<ByteArrayWrapper> result = journal;
+        if (result == null) return Collections.emptySet();
+
+        journal = Collections.newSetFromMap(new ConcurrentHashMap<ByteArrayWrapper, Boolean>());
+        return result;
+    }
+
+    public void commit() {
+        prepareCommit().run();
+    }
+
+    /**
+     * Detaches the dirty nodes from the cache, so the changes made from now on don't touch them.
+     * The returned task writes the detached nodes to the data source and may be run on another thread,
+     * the nodes are served by the cache until they are written.
+     */
+    public Runnable prepareCommit() {
+        // Don't try to commit if it isn't dirty
+        if ((dataSource == null) || !this.isDirty) return NO_COMMIT;
+
+        final Map<ByteArrayWrapper, Node> batchNodes = this.nodes;
+        final int batchSize = this.allocatedMemorySize.getAndSet(0);
+
+        this.committingNodes.add(0, batchNodes);
+        this.nodes = new ConcurrentHashMap<>();
         this.isDirty = false;
-        this.nodes.clear();
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                write(batchNodes, batchSize);
+            }
+        };
+    }
+
+    private void write(Map<ByteArrayWrapper, Node> batchNodes, int batchSize) {
+        long start = System.nanoTime();
+
+        // only dirty nodes are detached, so no need to look for them
+        ChunkedBatchWriter batch = new ChunkedBatchWriter(dataSource, CONFIG.flushChunkSize());
+        for (Map.Entry<ByteArrayWrapper, Node> entry : batchNodes.entrySet()) {
+            batch.put(entry.getKey().getData(), entry.getValue().getValue().encode());
+        }
+        batch.flush();
+
+        // persisted nodes are moved to the clean tier so they survive the flush
+        for (Map.Entry<ByteArrayWrapper, Node> entry : batchNodes.entrySet()) {
+            Node node = entry.getValue();
+            node.setDirty(false);
+            putClean(entry.getKey(), node);
+        }
+        this.committingNodes.remove(batchNodes);
 
         long finish = System.nanoTime();
 
-        float flushSize = (float) this.allocatedMemorySize / 1048576;
+        float flushSize = (float) batchSize / 1048576;
         float flushTime = (float) (finish - start) / 1_000_000;
-        logger.info(format("Flush '%s' in: %02.2f ms, %d nodes, %02.2fMB", dataSource.getName(), flushTime, batch.size(), flushSize));
-        
-        this.allocatedMemorySize = 0;
+        logger.info(format("Flush '%s' in: %02.2f ms, %d nodes, %02.2fMB", dataSource.getName(), flushTime, batch.getCount(), flushSize));
+        logger.info(format("Node cache '%s': %d nodes, %02.2fMB, hits: %d, misses: %d, evictions: %d", dataSource.getName(),
+                cleanNodes.count(), (float) cleanNodes.getSize() / 1048576, getCacheHits(), getCacheMisses(), getCacheEvictions()));
     }
 
     public void undo() {
@@ -124,6 +268,7 @@ public class Cache {
             }
         }
         this.isDirty = false;
+        this.allocatedMemorySize.set(0);
     }
 
     public boolean isDirty() {
@@ -134,8 +279,44 @@ public class Cache {
         this.isDirty = isDirty;
     }
 
+    /**
+     * @return snapshot of all the nodes held by the cache, both dirty and clean ones,
+     * changes to the returned map are not reflected in the cache, use {@link #putNode} instead
+     */
     public Map<ByteArrayWrapper, Node> getNodes() {
-        return nodes;
+        Map<ByteArrayWrapper, Node> result = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, Node> entry : cleanNodes.entries()) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        for (int i = committingNodes.size() - 1; i >= 0; --i) {
+            result.putAll(committingNodes.get(i));
+        }
+        result.putAll(nodes);
+        return result;
+    }
+
+    /**
+     * @return snapshot of the nodes which are not committed to the data source yet
+     */
+    public Map<ByteArrayWrapper, Node> getDirtyNodes() {
+        return new HashMap<>(nodes);
+    }
+
+    /**
+     * Puts the node to the cache as is, dirty nodes are pinned until commit
+     * while clean ones are subject to eviction
+     */
+    public void putNode(ByteArrayWrapper key, Node node) {
+        if (node.isDirty()) {
+            this.nodes.put(key, node);
+            this.isDirty = true;
+            journal(key);
+            this.cleanNodes.removeMissing(key);
+
+            allocatedMemorySize.addAndGet(length(key.getData(), node.getValue().encode()));
+        } else {
+            putClean(key, node);
+        }
     }
 
     public KeyValueDataSource getDb() {
@@ -144,6 +325,7 @@ public class Cache {
 
     public String cacheDump() {
         StringBuffer cacheDump = new StringBuffer();
+        Map<ByteArrayWrapper, Node> nodes = getNodes();
         for (ByteArrayWrapper key : nodes.keySet()) {
             Node node = nodes.get(key);
             if (node.getValue() != null)
@@ -156,28 +338,85 @@ public class Cache {
     public void setDB(KeyValueDataSource dataSource) {
         if (this.dataSource == dataSource) return;
 
-        Map<byte[], byte[]> rows = new HashMap<>();
+        // the rows are streamed to the new data source in chunks, so it may be of any size
+        ChunkedBatchWriter batch = new ChunkedBatchWriter(dataSource, CONFIG.flushChunkSize());
         if (this.dataSource == null) {
-            for (ByteArrayWrapper key : nodes.keySet()) {
-                Node node = nodes.get(key);
-                if (!node.isDirty()) {
-                    rows.put(key.getData(), node.getValue().encode());
+            for (Map.Entry<ByteArrayWrapper, Node> entry : cleanNodes.entries()) {
+                Node node = entry.getValue();
+                if (node.getValue() != null) {
+                    batch.put(entry.getKey().getData(), node.getValue().encode());
                 }
             }
         } else {
-            for (byte[] key : this.dataSource.keys()) {
-                rows.put(key, this.dataSource.get(key));
+            try (KeyValueCursor cursor = this.dataSource.cursor(KeyRange.all())) {
+                while (cursor.next()) {
+                    batch.put(cursor.getKey(), cursor.getValue());
+                }
             }
             this.dataSource.close();
         }
 
-        dataSource.updateBatch(rows);
+        batch.flush();
         this.dataSource = dataSource;
+
+        // clean nodes are backed by the data source from now on, so they may be evicted
+        this.cleanNodes.setCapacity(cleanNodesCapacity());
+    }
+
+    /**
+     * Sets the max size in bytes of the clean nodes kept once the cache is backed by a data source,
+     * {@code trie.cache.size} by default
+     */
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+        this.cleanNodes.setCapacity(cleanNodesCapacity());
     }
     
     public int getAllocatedMemorySize() {
-        return allocatedMemorySize;
+        return allocatedMemorySize.get();
     }
 
-    
+    public long getCacheHits() {
+        return cleanNodes.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cleanNodes.getMisses();
+    }
+
+    public long getCacheEvictions() {
+        return cleanNodes.getEvictions();
+    }
+
+    public long getCacheSize() {
+        return cleanNodes.getSize();
+    }
+
+    private boolean contains(ByteArrayWrapper key) {
+        if (this.nodes.containsKey(key)) return true;
+        for (Map<ByteArrayWrapper, Node> committing : this.committingNodes) {
+            if (committing.containsKey(key)) return true;
+        }
+        return this.cleanNodes.contains(key);
+    }
+
+    private void journal(ByteArrayWrapper key) {
+        Set<ByteArrayWrapper> journal = this.journal;
+        if (journal != null) {
+            journal.add(key);
+        }
+    }
+
+    private void putClean(ByteArrayWrapper key, Node node) {
+        byte[] enc = (node.getValue() == null) ? null : node.getValue().encode();
+        cleanNodes.put(key, node, length(key.getData(), enc));
+    }
+
+    /**
+     * Without a data source the cache is the only storage of the trie,
+     * so nothing may be evicted from it
+     */
+    private long cleanNodesCapacity() {
+        return (dataSource == null) ? Long.MAX_VALUE : capacity;
+    }
 }
@@ -0,0 +1,22 @@
+package org.ethereum.trie;
+
+/**
+ * Trie which keeps its nodes in a {@link Cache} in front of the data source
+ * and is able to embed the nodes into a single byte array
+ */
+public interface CachedTrie extends Trie {
+
+    public Cache getCache();
+
+    public void setCache(Cache cache);
+
+    /**
+     * @return RLP encoded cached nodes which are not persisted yet along with the root
+     */
+    public byte[] serialize();
+
+    /**
+     * Restores the nodes and the root saved by {@link #serialize()}
+     */
+    public void deserialize(byte[] data);
+}
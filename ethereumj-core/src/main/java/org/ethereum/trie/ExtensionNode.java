@@ -0,0 +1,28 @@
+package org.ethereum.trie;
+
+import static org.ethereum.util.RLP.encodeElement;
+import static org.ethereum.util.RLP.encodeList;
+
+/**
+ * Shortcut node [ compact path, child ], the child is always a {@link BranchNode}
+ */
+final class ExtensionNode extends TrieNode {
+
+    final NibblePath path;
+    final TrieNode child;
+
+    ExtensionNode(NibblePath path, TrieNode child) {
+        this.path = path;
+        this.child = child;
+    }
+
+    @Override
+    protected byte[] encode() {
+        return encodeList(encodeElement(path.toCompact(false)), child.getReference());
+    }
+
+    @Override
+    public String toString() {
+        return "[" + path + ", " + child + "]";
+    }
+}
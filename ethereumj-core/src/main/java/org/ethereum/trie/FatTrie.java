@@ -3,6 +3,8 @@ package org.ethereum.trie;
 import org.ethereum.crypto.SHA3Helper;
 import org.ethereum.datasource.KeyValueDataSource;
 
+import java.util.Map;
+
 import static org.ethereum.crypto.SHA3Helper.sha3;
 
 public class FatTrie implements Trie{
@@ -40,6 +42,12 @@ public class FatTrie implements Trie{
         secureTrie.update(key, value);
     }
 
+    @Override
+    public void updateAll(Map<byte[], byte[]> rows) {
+        origTrie.updateAll(rows);
+        secureTrie.updateAll(rows);
+    }
+
     @Override
     public void delete(byte[] key) {
         origTrie.delete(key);
@@ -0,0 +1,44 @@
+package org.ethereum.trie;
+
+import org.spongycastle.util.encoders.Hex;
+
+import static org.ethereum.util.RLP.encodeElement;
+
+/**
+ * Reference to a node which is not loaded from the {@link Cache},
+ * resolved by {@link PatriciaTrie} on access
+ */
+final class HashNode extends TrieNode {
+
+    private final byte[] hash;
+
+    HashNode(byte[] hash) {
+        this.hash = hash;
+        setStored();
+    }
+
+    @Override
+    byte[] getHash() {
+        return hash;
+    }
+
+    @Override
+    byte[] getReference() {
+        return encodeElement(hash);
+    }
+
+    @Override
+    boolean isEmbedded() {
+        return false;
+    }
+
+    @Override
+    protected byte[] encode() {
+        throw new IllegalStateException("Node is not resolved: " + Hex.toHexString(hash));
+    }
+
+    @Override
+    public String toString() {
+        return Hex.toHexString(hash);
+    }
+}
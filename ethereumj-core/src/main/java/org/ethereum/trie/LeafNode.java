@@ -0,0 +1,30 @@
+package org.ethereum.trie;
+
+import org.spongycastle.util.encoders.Hex;
+
+import static org.ethereum.util.RLP.encodeElement;
+import static org.ethereum.util.RLP.encodeList;
+
+/**
+ * Terminating node [ compact path, value ]
+ */
+final class LeafNode extends TrieNode {
+
+    final NibblePath path;
+    final byte[] value;
+
+    LeafNode(NibblePath path, byte[] value) {
+        this.path = path;
+        this.value = value;
+    }
+
+    @Override
+    protected byte[] encode() {
+        return encodeList(encodeElement(path.toCompact(true)), encodeValue(value));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + path + ", " + Hex.toHexString(value) + "]";
+    }
+}
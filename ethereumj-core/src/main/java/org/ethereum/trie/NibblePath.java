@@ -0,0 +1,137 @@
+package org.ethereum.trie;
+
+import java.util.Arrays;
+
+/**
+ * Read-only view of a nibble sequence backed by a byte array
+ * holding two nibbles per byte, high nibble first.
+ *
+ * The view is addressed by nibble offsets, so walking down the trie
+ * with a key or splitting a node path doesn't copy the underlying bytes.
+ * Compact (hex-prefix) encoded paths are viewed in place as well.
+ */
+final class NibblePath {
+
+    static final NibblePath EMPTY = new NibblePath(new byte[0], 0, 0);
+
+    private static final int ODD_FLAG = 0x10;
+    private static final int TERMINATOR_FLAG = 0x20;
+
+    private final byte[] data;
+    /* nibble offsets, start inclusive, end exclusive */
+    private final int start;
+    private final int end;
+
+    private NibblePath(byte[] data, int start, int end) {
+        this.data = data;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param key - trie key, copied so that the caller may reuse the array
+     */
+    static NibblePath fromKey(byte[] key) {
+        return new NibblePath(Arrays.copyOf(key, key.length), 0, key.length * 2);
+    }
+
+    /**
+     * @param compact - hex-prefix encoded path as found in leaf and extension nodes
+     */
+    static NibblePath fromCompact(byte[] compact) {
+        int start = (compact[0] & ODD_FLAG) != 0 ? 1 : 2;
+        return new NibblePath(compact, start, compact.length * 2);
+    }
+
+    static boolean isLeaf(byte[] compact) {
+        return (compact[0] & TERMINATOR_FLAG) != 0;
+    }
+
+    static NibblePath single(int nibble) {
+        return new NibblePath(new byte[]{(byte) (nibble << 4)}, 0, 1);
+    }
+
+    static NibblePath concat(NibblePath first, NibblePath second) {
+        int length = first.length() + second.length();
+        byte[] data = new byte[(length + 1) / 2];
+        for (int i = 0; i < length; ++i) {
+            int nibble = i < first.length() ? first.get(i) : second.get(i - first.length());
+            data[i >> 1] |= (i & 1) == 0 ? nibble << 4 : nibble;
+        }
+        return new NibblePath(data, 0, length);
+    }
+
+    int length() {
+        return end - start;
+    }
+
+    int get(int index) {
+        int pos = start + index;
+        int b = data[pos >> 1];
+        return (pos & 1) == 0 ? (b >> 4) & 0xF : b & 0xF;
+    }
+
+    /**
+     * @return view of the path without the first {@code count} nibbles
+     */
+    NibblePath skip(int count) {
+        return count == 0 ? this : new NibblePath(data, start + count, end);
+    }
+
+    /**
+     * @return view of the first {@code count} nibbles of the path
+     */
+    NibblePath prefix(int count) {
+        return count == length() ? this : new NibblePath(data, start, start + count);
+    }
+
+    /**
+     * @return length of the common prefix of this path and {@code other} path starting at {@code offset}
+     */
+    int commonPrefixLength(NibblePath other, int offset) {
+        int max = Math.min(length(), other.length() - offset);
+        int i = 0;
+        while (i < max && get(i) == other.get(offset + i)) ++i;
+        return i;
+    }
+
+    /**
+     * @return true if this path is a prefix of {@code other} path starting at {@code offset}
+     */
+    boolean isPrefixOf(NibblePath other, int offset) {
+        return length() <= other.length() - offset && commonPrefixLength(other, offset) == length();
+    }
+
+    /**
+     * @return true if this path equals to the tail of {@code other} path starting at {@code offset}
+     */
+    boolean matchesTail(NibblePath other, int offset) {
+        return length() == other.length() - offset && commonPrefixLength(other, offset) == length();
+    }
+
+    /**
+     * Encodes the path with hex-prefix encoding,
+     * see {@link org.ethereum.util.CompactEncoder#packNibbles}
+     */
+    byte[] toCompact(boolean leaf) {
+        int length = length();
+        boolean odd = (length & 1) != 0;
+        byte[] compact = new byte[length / 2 + 1];
+
+        int flags = (leaf ? TERMINATOR_FLAG : 0) | (odd ? ODD_FLAG : 0);
+        compact[0] = (byte) (odd ? flags | get(0) : flags);
+        for (int i = odd ? 1 : 0, pos = 1; i < length; i += 2, ++pos) {
+            compact[pos] = (byte) ((get(i) << 4) | get(i + 1));
+        }
+        return compact;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length());
+        for (int i = 0; i < length(); ++i) {
+            sb.append(Character.forDigit(get(i), 16));
+        }
+        return sb.toString();
+    }
+}
@@ -47,6 +47,8 @@ public class Node {
     /* RLP encoded value of the Trie-node */
     private final Value value;
     private boolean dirty;
+    /* decoded form of the value, kept by PatriciaTrie while the node is cached */
+    private TrieNode decoded;
 
     public Node(Value val) {
         this(val, false);
@@ -72,4 +74,12 @@ public class Node {
     public Value getValue() {
         return value;
     }
+
+    TrieNode getDecoded() {
+        return decoded;
+    }
+
+    void setDecoded(TrieNode decoded) {
+        this.decoded = decoded;
+    }
 }
@@ -0,0 +1,154 @@
+package org.ethereum.trie;
+
+import org.ethereum.db.ByteArrayWrapper;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte-budgeted LRU cache for clean trie nodes, i.e. nodes which are
+ * already persisted in the backing data source and can be reloaded on demand.
+ *
+ * Unlike the dirty nodes kept by {@link Cache} the content of this cache
+ * survives {@link Cache#commit()}, so hot upper levels of the trie are served
+ * from memory across flushes. The size of an entry is accounted as
+ * key length + RLP encoded node length.
+ *
+ * The cache is not expected to be touched on a hot path by many threads at once,
+ * so all access is simply synchronized on the instance.
+ */
+public class NodeCache {
+
+    private final LinkedHashMap<ByteArrayWrapper, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private long capacity;
+    private long size;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity - max summary size in bytes of the cached nodes,
+     *                 {@link Long#MAX_VALUE} makes the cache unbounded
+     */
+    public NodeCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized Node get(ByteArrayWrapper key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            ++misses;
+            return null;
+        }
+
+        ++hits;
+        return entry.node;
+    }
+
+    /**
+     * Unlike {@link #get} doesn't count as a hit or a miss and doesn't touch the LRU order
+     */
+    public synchronized boolean contains(ByteArrayWrapper key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(ByteArrayWrapper key, Node node, int nodeSize) {
+        Entry prev = entries.put(key, new Entry(node, nodeSize));
+        if (prev != null) size -= prev.size;
+        size += nodeSize;
+
+        evict();
+    }
+
+    public synchronized Node remove(ByteArrayWrapper key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) return null;
+
+        size -= entry.size;
+        return entry.node;
+    }
+
+    /**
+     * Removes the entry only if it marks the node as missing, i.e. holds no value
+     */
+    public synchronized void removeMissing(ByteArrayWrapper key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.node.getValue() != null) return;
+
+        entries.remove(key);
+        size -= entry.size;
+    }
+
+    public synchronized void setCapacity(long capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    public synchronized long getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return snapshot of the cached nodes in LRU order (eldest first)
+     */
+    public synchronized List<Map.Entry<ByteArrayWrapper, Node>> entries() {
+        List<Map.Entry<ByteArrayWrapper, Node>> result = new ArrayList<>(entries.size());
+        for (Map.Entry<ByteArrayWrapper, Entry> entry : entries.entrySet()) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().node));
+        }
+        return result;
+    }
+
+    public synchronized int count() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (size > capacity && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+
+            size -= eldest.size;
+            ++evictions;
+        }
+    }
+
+    private static class Entry {
+
+        private final Node node;
+        private final int size;
+
+        Entry(Node node, int size) {
+            this.node = node;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package org.ethereum.trie;
+
+import org.ethereum.datasource.KeyValueDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
+
+/**
+ * Merkle Patricia tree built of typed nodes, see {@link LeafNode}, {@link ExtensionNode}
+ * and {@link BranchNode}, producing exactly the same root hash and storage layout as {@link TrieImpl}.
+ *
+ * Unlike {@link TrieImpl} which operates on generic {@link org.ethereum.util.Value} trees
+ * and encodes every changed node on each update, this implementation:
+ * <ul>
+ *     <li>walks keys by nibble offsets without copying them</li>
+ *     <li>keeps changed nodes unencoded until the root hash is requested,
+ *     each node caches its own RLP encoding and hash</li>
+ *     <li>keeps decoded nodes along with the clean nodes of the {@link Cache},
+ *     so hot nodes are decoded once</li>
+ * </ul>
+ *
+ * <b>Note:</b> the data isn't persisted unless `sync` is explicitly called.
+ */
+public class PatriciaTrie implements CachedTrie {
+
+    private static final Logger logger = LoggerFactory.getLogger("trie");
+
+    /* branch nodes up to this depth have their children stored in parallel */
+    private static final int PARALLEL_STORE_DEPTH = 2;
+
+    private Cache cache;
+    private TrieNode root;
+    private TrieNode prevRoot;
+
+    public PatriciaTrie(KeyValueDataSource db) {
+        this(db, EMPTY_TRIE_HASH);
+    }
+
+    public PatriciaTrie(KeyValueDataSource db, byte[] root) {
+        this.cache = new Cache(db);
+        setRoot(root);
+        this.prevRoot = this.root;
+    }
+
+    @Override
+    public Cache getCache() {
+        return cache;
+    }
+
+    @Override
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        NibblePath path = NibblePath.fromKey(key);
+        TrieNode node = root;
+        int pos = 0;
+        while (true) {
+            node = resolve(node);
+            if (node == null) {
+                return EMPTY_BYTE_ARRAY;
+            } else if (node instanceof LeafNode) {
+                LeafNode leaf = (LeafNode) node;
+                return leaf.path.matchesTail(path, pos) ? leaf.value : EMPTY_BYTE_ARRAY;
+            } else if (node instanceof ExtensionNode) {
+                ExtensionNode extension = (ExtensionNode) node;
+                if (!extension.path.isPrefixOf(path, pos)) return EMPTY_BYTE_ARRAY;
+                pos += extension.path.length();
+                node = extension.child;
+            } else {
+                BranchNode branch = (BranchNode) node;
+                if (pos == path.length()) {
+                    return branch.value == null ? EMPTY_BYTE_ARRAY : branch.value;
+                }
+                node = branch.children[path.get(pos++)];
+            }
+        }
+    }
+
+    @Override
+    public void update(byte[] key, byte[] value) {
+        if (key == null)
+            throw new NullPointerException("Key should not be blank");
+
+        NibblePath path = NibblePath.fromKey(key);
+        if (value.length != 0) {
+            root = insert(root, path, 0, value);
+        } else {
+            root = delete(root, path, 0);
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Added key {} and value {}", Hex.toHexString(key), Hex.toHexString(value));
+        }
+    }
+
+    /**
+     * Nodes are encoded lazily anyway, so the rows are just applied one by one
+     * after the nodes on their paths are loaded in batches, see {@link TriePrefetcher},
+     * the changed nodes are then hashed in parallel once the root hash is requested
+     */
+    @Override
+    public void updateAll(Map<byte[], byte[]> rows) {
+        prefetch(rows.keySet());
+        for (Map.Entry<byte[], byte[]> row : rows.entrySet()) {
+            update(row.getKey(), row.getValue());
+        }
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        update(key, EMPTY_BYTE_ARRAY);
+    }
+
+    @Override
+    public byte[] getRootHash() {
+        if (root == null) return EMPTY_TRIE_HASH;
+
+        store();
+        return root.getHash();
+    }
+
+    @Override
+    public void setRoot(byte[] root) {
+        if (root == null || root.length == 0 || Arrays.equals(root, EMPTY_TRIE_HASH)) {
+            this.root = null;
+        } else {
+            this.root = new HashNode(root);
+        }
+    }
+
+    @Override
+    public void sync() {
+        store();
+        cache.commit();
+
+        // nodes are reloaded through the cache from now on, the tree itself is released
+        if (root != null) {
+            root = new HashNode(root.getHash());
+        }
+        prevRoot = root;
+    }
+
+    @Override
+    public void undo() {
+        cache.undo();
+        root = prevRoot;
+    }
+
+    @Override
+    public boolean validate() {
+        return root == null || cache.get(getRootHash()) != null;
+    }
+
+    @Override
+    public String getTrieDump() {
+        StringBuilder dump = new StringBuilder("root: ").append(Hex.toHexString(getRootHash())).append("\n");
+        dumpNode(root, dump);
+        return dump.toString();
+    }
+
+    @Override
+    public byte[] serialize() {
+        return TrieImpl.serialize(cache, root == null ? "" : getRootHash());
+    }
+
+    @Override
+    public void deserialize(byte[] data) {
+        Object root = TrieImpl.deserialize(cache, data);
+        setRoot(root instanceof byte[] ? (byte[]) root : null);
+        prevRoot = this.root;
+    }
+
+    // Simple compare function which compares two tries based on their stateRoot
+    @Override
+    public boolean equals(Object trie) {
+        if (this == trie) return true;
+        return trie instanceof Trie && Arrays.equals(this.getRootHash(), ((Trie) trie).getRootHash());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getRootHash());
+    }
+
+    /**
+     * Loads the nodes on the paths of the trie keys in batches
+     */
+    protected void prefetch(Collection<byte[]> keys) {
+        TriePrefetcher.prefetch(cache, root, keys);
+    }
+
+    /**
+     * @return the node loaded from the cache if the node is a reference, the node itself otherwise,
+     * missing nodes are treated as empty ones
+     */
+    private TrieNode resolve(TrieNode node) {
+        if (!(node instanceof HashNode)) return node;
+
+        Node cached = cache.getNode(node.getHash());
+        if (cached.getValue() == null) return null;
+
+        TrieNode decoded = cached.getDecoded();
+        if (decoded == null) {
+            decoded = TrieNode.decode(cached.getValue().encode());
+            cached.setDecoded(decoded);
+        }
+        return decoded;
+    }
+
+    private TrieNode insert(TrieNode node, NibblePath key, int pos, byte[] value) {
+        node = resolve(node);
+
+        if (node == null) {
+            return new LeafNode(key.skip(pos), value);
+        } else if (node instanceof LeafNode) {
+            LeafNode leaf = (LeafNode) node;
+            if (leaf.path.matchesTail(key, pos)) {
+                return new LeafNode(leaf.path, value);
+            }
+
+            int common = leaf.path.commonPrefixLength(key, pos);
+            BranchNode branch = BranchNode.empty();
+            if (common == leaf.path.length()) {
+                branch = branch.withValue(leaf.value);
+            } else {
+                branch = branch.withChild(leaf.path.get(common), new LeafNode(leaf.path.skip(common + 1), leaf.value));
+            }
+            return split(leaf.path, common, branch, key, pos, value);
+        } else if (node instanceof ExtensionNode) {
+            ExtensionNode extension = (ExtensionNode) node;
+            int common = extension.path.commonPrefixLength(key, pos);
+            if (common == extension.path.length()) {
+                return new ExtensionNode(extension.path, insert(extension.child, key, pos + common, value));
+            }
+
+            TrieNode rest = (common + 1 == extension.path.length()) ? extension.child :
+                    new ExtensionNode(extension.path.skip(common + 1), extension.child);
+            BranchNode branch = BranchNode.empty().withChild(extension.path.get(common), rest);
+            return split(extension.path, common, branch, key, pos, value);
+        } else {
+            BranchNode branch = (BranchNode) node;
+            if (pos == key.length()) {
+                return branch.withValue(value);
+            }
+
+            int nibble = key.get(pos);
+            return branch.withChild(nibble, insert(branch.children[nibble], key, pos + 1, value));
+        }
+    }
+
+    /**
+     * Puts the new value to the branch which replaces a node of the {@code path}
+     * diverging from the key after {@code common} nibbles
+     */
+    private TrieNode split(NibblePath path, int common, BranchNode branch, NibblePath key, int pos, byte[] value) {
+        if (pos + common == key.length()) {
+            branch = branch.withValue(value);
+        } else {
+            branch = branch.withChild(key.get(pos + common), new LeafNode(key.skip(pos + common + 1), value));
+        }
+        return common == 0 ? branch : new ExtensionNode(path.prefix(common), branch);
+    }
+
+    /**
+     * @return the node without the key, the node itself if the key is missing,
+     * null if the node becomes empty
+     */
+    private TrieNode delete(TrieNode node, NibblePath key, int pos) {
+        TrieNode resolved = resolve(node);
+
+        if (resolved == null) {
+            return null;
+        } else if (resolved instanceof LeafNode) {
+            return ((LeafNode) resolved).path.matchesTail(key, pos) ? null : node;
+        } else if (resolved instanceof ExtensionNode) {
+            ExtensionNode extension = (ExtensionNode) resolved;
+            if (!extension.path.isPrefixOf(key, pos)) return node;
+
+            TrieNode child = delete(extension.child, key, pos + extension.path.length());
+            if (child == extension.child) return node;
+
+            return prepend(extension.path, child);
+        } else {
+            BranchNode branch = (BranchNode) resolved;
+            if (pos == key.length()) {
+                if (branch.value == null) return node;
+                branch = branch.withValue(null);
+            } else {
+                int nibble = key.get(pos);
+                TrieNode child = branch.children[nibble];
+                if (child == null) return node;
+
+                TrieNode newChild = delete(child, key, pos + 1);
+                if (newChild == child) return node;
+                branch = branch.withChild(nibble, newChild);
+            }
+
+            int slot = branch.singleSlot();
+            if (slot == BranchNode.SIZE) {
+                return new LeafNode(NibblePath.EMPTY, branch.value);
+            } else if (slot >= 0) {
+                return prepend(NibblePath.single(slot), branch.children[slot]);
+            }
+            return branch;
+        }
+    }
+
+    /**
+     * @return node reached by the {@code path} and then by the path of the {@code child} node
+     */
+    private TrieNode prepend(NibblePath path, TrieNode child) {
+        TrieNode resolved = resolve(child);
+        if (resolved instanceof LeafNode) {
+            LeafNode leaf = (LeafNode) resolved;
+            return new LeafNode(NibblePath.concat(path, leaf.path), leaf.value);
+        } else if (resolved instanceof ExtensionNode) {
+            ExtensionNode extension = (ExtensionNode) resolved;
+            return new ExtensionNode(NibblePath.concat(path, extension.path), extension.child);
+        }
+        return new ExtensionNode(path, child);
+    }
+
+    /**
+     * Puts the nodes changed since the last call to the cache,
+     * the root is always put so that the trie may be restored by its hash
+     */
+    private void store() {
+        if (root == null || root.isStored()) return;
+
+        TrieImpl.HASHING_POOL.invoke(new StoreTask(root, 0));
+        if (root.isEmbedded()) {
+            cache.putEncoded(root.getHash(), root.getEncoded());
+        }
+    }
+
+    private void dumpNode(TrieNode node, StringBuilder dump) {
+        TrieNode resolved = resolve(node);
+        if (resolved == null) return;
+
+        if (!resolved.isEmbedded()) {
+            dump.append(Hex.toHexString(resolved.getHash())).append(" => ").append(resolved).append("\n");
+        }
+        if (resolved instanceof ExtensionNode) {
+            dumpNode(((ExtensionNode) resolved).child, dump);
+        } else if (resolved instanceof BranchNode) {
+            for (TrieNode child : ((BranchNode) resolved).children) {
+                dumpNode(child, dump);
+            }
+        }
+    }
+
+    /**
+     * Encodes the new nodes bottom-up and puts those which are referenced by hash to the cache,
+     * independent children of the top level branches are processed in parallel
+     */
+    @SuppressWarnings("serial")
+    private class StoreTask extends RecursiveAction {
+
+        private final TrieNode node;
+        private final int depth;
+
+        StoreTask(TrieNode node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.isStored()) return;
+
+            if (node instanceof BranchNode) {
+                TrieNode[] children = ((BranchNode) node).children;
+                if (depth < PARALLEL_STORE_DEPTH) {
+                    List<StoreTask> tasks = new ArrayList<>();
+                    for (TrieNode child : children) {
+                        if (child != null && !child.isStored()) {
+                            tasks.add(new StoreTask(child, depth + 1));
+                        }
+                    }
+                    invokeAll(tasks);
+                } else {
+                    for (TrieNode child : children) {
+                        if (child != null) new StoreTask(child, depth + 1).compute();
+                    }
+                }
+            } else if (node instanceof ExtensionNode) {
+                new StoreTask(((ExtensionNode) node).child, depth + 1).compute();
+            }
+
+            if (!node.isEmbedded()) {
+                cache.putEncoded(node.getHash(), node.getEncoded());
+            }
+            node.setStored();
+        }
+    }
+}
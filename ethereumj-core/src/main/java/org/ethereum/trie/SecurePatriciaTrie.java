@@ -0,0 +1,48 @@
+package org.ethereum.trie;
+
+import org.ethereum.datasource.KeyValueDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.ethereum.crypto.SHA3Helper.sha3;
+
+/**
+ * {@link PatriciaTrie} keyed by SHA-3 hashes of the keys, the counterpart of {@link SecureTrie}
+ */
+public class SecurePatriciaTrie extends PatriciaTrie {
+
+    public SecurePatriciaTrie(KeyValueDataSource db) {
+        this(db, EMPTY_TRIE_HASH);
+    }
+
+    public SecurePatriciaTrie(KeyValueDataSource db, byte[] root) {
+        super(db, root);
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        return super.get(sha3(key));
+    }
+
+    @Override
+    public void update(byte[] key, byte[] value) {
+        super.update(sha3(key), value);
+    }
+
+    @Override
+    public void updateAll(Map<byte[], byte[]> rows) {
+        List<byte[]> hashes = new ArrayList<>(rows.size());
+        for (byte[] key : rows.keySet()) {
+            hashes.add(sha3(key));
+        }
+        prefetch(hashes);
+
+        int i = 0;
+        for (byte[] value : rows.values()) {
+            super.update(hashes.get(i++), value);
+        }
+    }
+}
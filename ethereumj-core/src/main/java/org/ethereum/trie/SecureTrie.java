@@ -2,6 +2,12 @@ package org.ethereum.trie;
 
 import org.ethereum.datasource.KeyValueDataSource;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
 import static org.ethereum.crypto.SHA3Helper.sha3;
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 
@@ -25,6 +31,19 @@ public class SecureTrie extends TrieImpl implements Trie {
         super.update(sha3(key), value);
     }
 
+    @Override
+    public void updateAll(Map<byte[], byte[]> rows) {
+        List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>(rows.entrySet());
+        byte[][] hashes = new byte[entries.size()][];
+        HASHING_POOL.invoke(new KeysHashingTask(entries, hashes, 0, entries.size()));
+
+        Map<byte[], byte[]> hashedRows = new LinkedHashMap<>();
+        for (int i = 0; i < hashes.length; ++i) {
+            hashedRows.put(hashes[i], entries.get(i).getValue());
+        }
+        super.updateAll(hashedRows);
+    }
+
     @Override
     public void delete(byte[] key) {
         this.update(key, EMPTY_BYTE_ARRAY);
@@ -37,4 +56,35 @@ public class SecureTrie extends TrieImpl implements Trie {
 
         return null;
     }
+
+    @SuppressWarnings("serial")
+    private static class KeysHashingTask extends RecursiveAction {
+
+        private static final int THRESHOLD = 256;
+
+        private final List<Map.Entry<byte[], byte[]>> entries;
+        private final byte[][] hashes;
+        private final int from;
+        private final int to;
+
+        KeysHashingTask(List<Map.Entry<byte[], byte[]>> entries, byte[][] hashes, int from, int to) {
+            this.entries = entries;
+            this.hashes = hashes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; ++i) {
+                    hashes[i] = sha3(entries.get(i).getKey());
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new KeysHashingTask(entries, hashes, from, middle),
+                        new KeysHashingTask(entries, hashes, middle, to));
+            }
+        }
+    }
 }
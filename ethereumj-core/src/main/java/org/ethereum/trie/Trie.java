@@ -1,5 +1,7 @@
 package org.ethereum.trie;
 
+import java.util.Map;
+
 /**
  * Trie interface for the main data structure in Ethereum
  * which is used to store both the account state and storage of each account.
@@ -22,6 +24,14 @@ public interface Trie {
      */
     public void update(byte[] key, byte[] value);
 
+    /**
+     * Insert, update or delete (when the value is empty) a batch of key/value pairs,
+     * the resulting trie is the same as if {@link #update} was called for every pair
+     *
+     * @param rows - key/value pairs, keys are expected to be distinct
+     */
+    public void updateAll(Map<byte[], byte[]> rows);
+
     /**
      * Deletes a key/value from the trie for a given key
      *
@@ -2,6 +2,7 @@ package org.ethereum.trie;
 
 import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.util.FastByteComparisons;
 import org.ethereum.util.RLP;
 import org.ethereum.util.RLPItem;
 import org.ethereum.util.RLPList;
@@ -12,6 +13,8 @@ import org.spongycastle.util.encoders.Hex;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import static java.util.Arrays.copyOfRange;
 import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
@@ -40,17 +43,33 @@ import static org.spongycastle.util.Arrays.concatenate;
  * @author Nick Savers
  * @since 20.05.2014
  */
-public class TrieImpl implements Trie {
+public class TrieImpl implements CachedTrie {
 
     private static final Logger logger = LoggerFactory.getLogger("trie");
 
     private static byte PAIR_SIZE = 2;
     private static byte LIST_SIZE = 17;
 
+    /* branch nodes up to this depth have their children hashed in parallel */
+    private static final int PARALLEL_HASHING_DEPTH = 2;
+
+    protected static final ForkJoinPool HASHING_POOL = new ForkJoinPool();
+
+    private static final Comparator<Map.Entry<byte[], byte[]>> KEY_ORDER = new Comparator<Map.Entry<byte[], byte[]>>() {
+        @Override
+        public int compare(Map.Entry<byte[], byte[]> e1, Map.Entry<byte[], byte[]> e2) {
+            return FastByteComparisons.compareTo(e1.getKey(), 0, e1.getKey().length,
+                    e2.getKey(), 0, e2.getKey().length);
+        }
+    };
+
     private Object prevRoot;
     private Object root;
     private Cache cache;
 
+    /* when set the changed nodes are kept unhashed in memory, see updateAll() */
+    private boolean deferHashing;
+
     public TrieImpl(KeyValueDataSource db) {
         this(db, "");
     }
@@ -65,10 +84,12 @@ public class TrieImpl implements Trie {
         return new TrieIterator(this);
     }
 
+    @Override
     public void setCache(Cache cache) {
         this.cache = cache;
     }
 
+    @Override
     public Cache getCache() {
         return this.cache;
     }
@@ -87,12 +108,17 @@ public class TrieImpl implements Trie {
     }
 
     public void deserializeRoot(byte[] data){
+        root = readRoot(data);
+    }
+
+    private static Object readRoot(byte[] data) {
         try {
             ByteArrayInputStream b = new ByteArrayInputStream(data);
             ObjectInputStream o = new ObjectInputStream(b);
-            root = o.readObject();
+            return o.readObject();
         } catch (IOException | ClassNotFoundException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
@@ -137,6 +163,44 @@ public class TrieImpl implements Trie {
         }
     }
 
+    /**
+     * Loads the nodes on the paths of the keys in batches, see {@link TriePrefetcher},
+     * then applies the rows in key order while hashing of the changed nodes is deferred,
+     * then hashes the changed subtree bottom-up, independent branches
+     * of the top level nodes are processed in parallel.
+     */
+    @Override
+    public void updateAll(Map<byte[], byte[]> rows) {
+        List<Map.Entry<byte[], byte[]>> sorted = new ArrayList<>(rows.entrySet());
+        Collections.sort(sorted, KEY_ORDER);
+
+        if (this.root instanceof byte[] && ((byte[]) this.root).length == 32) {
+            List<byte[]> keys = new ArrayList<>(sorted.size());
+            for (Map.Entry<byte[], byte[]> row : sorted) {
+                keys.add(row.getKey());
+            }
+            TriePrefetcher.prefetch(this.cache, new HashNode((byte[]) this.root), keys);
+        }
+
+        this.deferHashing = true;
+        try {
+            for (Map.Entry<byte[], byte[]> row : sorted) {
+                if (row.getKey() == null)
+                    throw new NullPointerException("Key should not be blank");
+
+                this.root = this.insertOrDelete(this.root, binToNibbles(row.getKey()), row.getValue());
+            }
+        } finally {
+            this.deferHashing = false;
+            this.root = HASHING_POOL.invoke(new HashingTask(this.root, 0));
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Updated {} keys", rows.size());
+            logger.debug("New root-hash: {}", Hex.toHexString(this.getRootHash()));
+        }
+    }
+
     /**
      * Delete a key/value pair from the trie.
      */
@@ -300,7 +364,7 @@ public class TrieImpl implements Trie {
                     byte[] newKey = concatenate(k, unpackToNibbles(child.get(0).asBytes()));
                     newNode = new Object[]{packNibbles(newKey), child.get(1).asObj()};
                 } else {
-                    newNode = new Object[]{currentNode.get(0).asString(), hash};
+                    newNode = new Object[]{currentNode.get(0).asBytes(), hash};
                 }
                 return this.putToCache(newNode);
             } else {
@@ -366,7 +430,7 @@ public class TrieImpl implements Trie {
     }
 
     private Object putToCache(Object node) {
-        return this.cache.put(node);
+        return deferHashing ? node : this.cache.put(node);
     }
 
     private boolean isEmptyNode(Object node) {
@@ -406,9 +470,8 @@ public class TrieImpl implements Trie {
     // Returns a copy of this trie
     public TrieImpl copy() {
         TrieImpl trie = new TrieImpl(this.cache.getDb(), this.root);
-        for (ByteArrayWrapper key : this.cache.getNodes().keySet()) {
-            Node node = this.cache.getNodes().get(key);
-            trie.cache.getNodes().put(key, node.copy());
+        for (Map.Entry<ByteArrayWrapper, Node> entry : this.cache.getNodes().entrySet()) {
+            trie.cache.putNode(entry.getKey(), entry.getValue().copy());
         }
         return trie;
     }
@@ -486,7 +549,17 @@ public class TrieImpl implements Trie {
         }
     }
 
+    @Override
     public void deserialize(byte[] data){
+        this.root = deserialize(this.cache, data);
+    }
+
+    /**
+     * Puts the nodes of the serialized trie to the cache
+     *
+     * @return the root as it was passed to {@link #serialize(Cache, Object)}
+     */
+    static Object deserialize(Cache cache, byte[] data){
         RLPList rlpList = (RLPList) RLP.decode2(data).get(0);
 
         RLPItem keysElement = (RLPItem)rlpList.get(0);
@@ -500,15 +573,24 @@ public class TrieImpl implements Trie {
 
             Value value = Value.fromRlpEncoded(val);
             System.arraycopy(keysElement.getRLPData(), i * 32, key, 0, 32);
-            cache.getNodes().put(wrap(key), new Node(value));
+            cache.putNode(wrap(key), new Node(value));
         }
 
-        this.deserializeRoot(root.getRLPData());
+        return readRoot(root.getRLPData());
     }
 
+    @Override
     public byte[] serialize(){
+        return serialize(this.cache, this.getRoot());
+    }
+
+    /**
+     * Serializes the nodes held by the cache along with the root object
+     */
+    static byte[] serialize(Cache cache, Object trieRoot){
 
-        Map<ByteArrayWrapper, Node> map = getCache().getNodes();
+        // nodes which are already persisted to the data source are not a part of serialized trie
+        Map<ByteArrayWrapper, Node> map = (cache.getDb() == null) ? cache.getNodes() : cache.getDirtyNodes();
 
         int keysTotalSize = 0;
         int valsTotalSize = 0;
@@ -527,7 +609,7 @@ public class TrieImpl implements Trie {
         try {
             ByteArrayOutputStream b = new ByteArrayOutputStream();
             ObjectOutputStream o = new ObjectOutputStream(b);
-            o.writeObject(this.getRoot());
+            o.writeObject(trieRoot);
             root = b.toByteArray();
             root = RLP.encodeElement(root);
         } catch (IOException e) {
@@ -594,6 +676,56 @@ public class TrieImpl implements Trie {
         return root + traceAction.getOutput();
     }
 
+    /**
+     * Puts the nodes left unhashed by {@link #updateAll} to the cache,
+     * children first, and returns the reference to the node
+     * exactly like {@link Cache#put} does
+     */
+    @SuppressWarnings("serial")
+    private class HashingTask extends RecursiveTask<Object> {
+
+        private final Object node;
+        private final int depth;
+
+        HashingTask(Object node, int depth) {
+            this.node = node;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Object compute() {
+            if (!(node instanceof Object[])) return node;
+
+            // the array may be a decoded part of a cached node, so it is not modified in place
+            Object[] items = ((Object[]) node).clone();
+
+            if (items.length == LIST_SIZE && depth < PARALLEL_HASHING_DEPTH) {
+                List<HashingTask> tasks = new ArrayList<>();
+                for (int i = 0; i < LIST_SIZE; ++i) {
+                    if (items[i] instanceof Object[]) {
+                        tasks.add(new HashingTask(items[i], depth + 1));
+                    }
+                }
+                invokeAll(tasks);
+
+                int taskIdx = 0;
+                for (int i = 0; i < LIST_SIZE; ++i) {
+                    if (items[i] instanceof Object[]) {
+                        items[i] = tasks.get(taskIdx++).getRawResult();
+                    }
+                }
+            } else {
+                for (int i = 0; i < items.length; ++i) {
+                    if (items[i] instanceof Object[]) {
+                        items[i] = new HashingTask(items[i], depth + 1).compute();
+                    }
+                }
+            }
+
+            return cache.put(items);
+        }
+    }
+
     public interface ScanAction {
         public void doOnNode(byte[] hash, Value node);
     }
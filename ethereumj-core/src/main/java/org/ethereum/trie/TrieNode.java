@@ -0,0 +1,122 @@
+package org.ethereum.trie;
+
+import org.ethereum.util.RLP;
+import org.ethereum.util.RLPElement;
+import org.ethereum.util.RLPList;
+
+import static org.ethereum.crypto.HashUtil.sha3;
+
+/**
+ * Base class of the typed nodes used by {@link PatriciaTrie}.
+ *
+ * Nodes are immutable, an update creates new nodes along the changed path,
+ * so the RLP encoding and the hash are computed at most once per node and cached.
+ *
+ * @see Node for the description of the node types
+ */
+abstract class TrieNode {
+
+    /* RLP of a node shorter than that is embedded into the parent instead of its hash */
+    static final int HASH_THRESHOLD = 32;
+
+    static final byte[] EMPTY_ELEMENT = RLP.encodeElement(null);
+
+    private byte[] encoded;
+    private byte[] hash;
+    /* true if the node doesn't need to be put to the cache */
+    private volatile boolean stored;
+
+    byte[] getEncoded() {
+        if (encoded == null) {
+            encoded = encode();
+        }
+        return encoded;
+    }
+
+    byte[] getHash() {
+        if (hash == null) {
+            hash = sha3(getEncoded());
+        }
+        return hash;
+    }
+
+    /**
+     * @return RLP element which references the node from its parent,
+     * either the node itself or its hash
+     */
+    byte[] getReference() {
+        return isEmbedded() ? getEncoded() : RLP.encodeElement(getHash());
+    }
+
+    boolean isEmbedded() {
+        return getEncoded().length < HASH_THRESHOLD;
+    }
+
+    boolean isStored() {
+        return stored;
+    }
+
+    void setStored() {
+        this.stored = true;
+    }
+
+    protected abstract byte[] encode();
+
+    /**
+     * Values are encoded exactly like {@link TrieImpl} does (with {@link RLP#encode}),
+     * which keeps a single 0x80 byte as is, so that both tries have the same root
+     */
+    static byte[] encodeValue(byte[] value) {
+        if (value.length == 1 && (value[0] & 0xFF) <= 0x80) {
+            return value;
+        }
+        return RLP.encodeElement(value);
+    }
+
+    /**
+     * Decodes the node read from the storage,
+     * referenced children are represented by {@link HashNode}s
+     */
+    static TrieNode decode(byte[] encoded) {
+        TrieNode node = decode((RLPList) RLP.decode2(encoded).get(0));
+        node.encoded = encoded;
+        return node;
+    }
+
+    private static TrieNode decode(RLPList items) {
+        TrieNode node;
+        if (items.size() == 2) {
+            byte[] compact = items.get(0).getRLPData();
+            NibblePath path = NibblePath.fromCompact(compact);
+            if (NibblePath.isLeaf(compact)) {
+                node = new LeafNode(path, data(items.get(1)));
+            } else {
+                node = new ExtensionNode(path, decodeChild(items.get(1)));
+            }
+        } else {
+            TrieNode[] children = new TrieNode[BranchNode.SIZE];
+            for (int i = 0; i < BranchNode.SIZE; ++i) {
+                children[i] = decodeChild(items.get(i));
+            }
+            byte[] value = items.get(BranchNode.SIZE).getRLPData();
+            node = new BranchNode(children, value == null || value.length == 0 ? null : value);
+        }
+        node.setStored();
+        return node;
+    }
+
+    private static TrieNode decodeChild(RLPElement element) {
+        if (element instanceof RLPList) {
+            TrieNode node = decode((RLPList) element);
+            node.encoded = element.getRLPData();
+            return node;
+        }
+        byte[] hash = element.getRLPData();
+        return hash == null || hash.length == 0 ? null : new HashNode(hash);
+    }
+
+    private static byte[] data(RLPElement element) {
+        byte[] data = element.getRLPData();
+        return data == null ? new byte[0] : data;
+    }
+}
@@ -0,0 +1,103 @@
+package org.ethereum.trie;
+
+import org.ethereum.db.ByteArrayWrapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.ethereum.util.ByteUtil.wrap;
+
+/**
+ * Loads the trie nodes on the paths of a batch of keys level by level,
+ * all the nodes of a level which are referenced by hash are read from the data source at once,
+ * see {@link Cache#prefetch}, so that the following updates of the keys don't hit the data source one by one
+ */
+final class TriePrefetcher {
+
+    /* smaller batches are not worth a separate walk */
+    private static final int MIN_KEYS = 16;
+
+    private TriePrefetcher() {
+    }
+
+    /**
+     * @param root - root of the trie, either a reference or a node in memory
+     * @param keys - trie keys, i.e. hashed ones for the secure tries
+     */
+    static void prefetch(Cache cache, TrieNode root, Collection<byte[]> keys) {
+        if (cache.getDb() == null || root == null || keys.size() < MIN_KEYS) return;
+
+        List<Probe> probes = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            probes.add(new Probe(root, NibblePath.fromKey(key), 0));
+        }
+
+        while (!probes.isEmpty()) {
+            Map<ByteArrayWrapper, byte[]> level = new LinkedHashMap<>();
+            for (Probe probe : probes) {
+                if (probe.node instanceof HashNode) {
+                    byte[] hash = probe.node.getHash();
+                    level.put(wrap(hash), hash);
+                }
+            }
+            cache.prefetch(level.values());
+
+            List<Probe> next = new ArrayList<>();
+            for (Probe probe : probes) {
+                Probe descended = descend(cache, probe);
+                if (descended != null) next.add(descended);
+            }
+            probes = next;
+        }
+    }
+
+    /**
+     * @return the probe moved down to the next node referenced by hash, null if the path ends before it
+     */
+    private static Probe descend(Cache cache, Probe probe) {
+        TrieNode node = resolve(cache, probe.node);
+        int pos = probe.pos;
+        while (node != null) {
+            if (node instanceof HashNode) {
+                return new Probe(node, probe.path, pos);
+            } else if (node instanceof ExtensionNode) {
+                ExtensionNode extension = (ExtensionNode) node;
+                if (!extension.path.isPrefixOf(probe.path, pos)) return null;
+                pos += extension.path.length();
+                node = extension.child;
+            } else if (node instanceof BranchNode) {
+                if (pos == probe.path.length()) return null;
+                node = ((BranchNode) node).children[probe.path.get(pos++)];
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static TrieNode resolve(Cache cache, TrieNode node) {
+        if (!(node instanceof HashNode)) return node;
+
+        Node cached = cache.getNode(node.getHash());
+        if (cached.getValue() == null) return null;
+
+        TrieNode decoded = cached.getDecoded();
+        return decoded != null ? decoded : TrieNode.decode(cached.getValue().encode());
+    }
+
+    private static class Probe {
+
+        private final TrieNode node;
+        private final NibblePath path;
+        private final int pos;
+
+        Probe(TrieNode node, NibblePath path, int pos) {
+            this.node = node;
+            this.path = path;
+            this.pos = pos;
+        }
+    }
+}
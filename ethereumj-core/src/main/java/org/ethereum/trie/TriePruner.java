@@ -0,0 +1,241 @@
+package org.ethereum.trie;
+
+import org.ethereum.db.ByteArrayWrapper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.ethereum.util.ByteUtil.wrap;
+
+/**
+ * Journal based pruning of the trie nodes which don't belong to the recent states of a trie.
+ *
+ * For every block the pruner journals the nodes inserted into the state and the nodes removed from it.
+ * Inserted ones are the nodes put to the {@link Cache} by the block and reachable from the new root,
+ * removed ones are reachable from the previous root only or put by the block and not reachable at all.
+ * Both sets are found by walking the changed paths of the two roots, the unchanged subtrees are skipped.
+ *
+ * Once a block leaves the window its removed nodes become unreachable from the roots kept,
+ * unless some later block has inserted them again, such nodes are handed over for deletion by
+ * {@link #takeUnreachable()}.
+ *
+ * Roots are expected to follow each other, {@link #reset} restarts the journal
+ * when the trie is switched to an unrelated root.
+ * The journal is kept in memory only, the nodes dropped before a restart are never deleted.
+ */
+public class TriePruner {
+
+    private final int window;
+
+    private final Deque<BlockJournal> journal = new ArrayDeque<>();
+    /* number of the journaled blocks which have inserted the node */
+    private final Map<ByteArrayWrapper, Integer> insertions = new HashMap<>();
+    /* nodes not reachable from the roots of the window, waiting to be deleted */
+    private final Set<ByteArrayWrapper> unreachable = new HashSet<>();
+
+    private byte[] lastRoot;
+    private long prunedCount;
+
+    /**
+     * @param window - number of the recent blocks whose roots are kept reachable
+     */
+    public TriePruner(int window) {
+        if (window < 1) throw new IllegalArgumentException("Pruning window should be positive: " + window);
+        this.window = window;
+    }
+
+    /**
+     * Journals the changes made by the block, the cache journal should be enabled,
+     * see {@link Cache#enableJournal()}
+     *
+     * @param root - root hash of the trie after the block
+     * @param cache - cache of the trie, all the nodes of the new root should be put to it
+     */
+    public void journal(long blockNumber, byte[] root, Cache cache) {
+        Set<ByteArrayWrapper> created = cache.takeJournal();
+
+        BlockJournal block = new BlockJournal(blockNumber);
+        Set<ByteArrayWrapper> shared = new HashSet<>();
+        collectInserted(root, created, cache, block.inserted, shared);
+        if (lastRoot != null) {
+            collectRemoved(lastRoot, block.inserted, shared, cache, block.removed);
+        }
+        // intermediate nodes of the updates which didn't get to the state
+        for (ByteArrayWrapper key : created) {
+            if (!block.inserted.contains(key)) block.removed.add(key);
+        }
+
+        for (ByteArrayWrapper key : block.inserted) {
+            Integer count = insertions.get(key);
+            insertions.put(key, count == null ? 1 : count + 1);
+            unreachable.remove(key);
+        }
+        journal.addLast(block);
+        lastRoot = root;
+
+        while (!journal.isEmpty() && journal.getFirst().blockNumber <= blockNumber - window + 1) {
+            release(journal.removeFirst());
+        }
+    }
+
+    /**
+     * @return nodes which are not reachable from the roots of the window anymore,
+     * the pruner forgets them, so the caller is responsible for deleting them
+     */
+    public List<byte[]> takeUnreachable() {
+        List<byte[]> result = new ArrayList<>(unreachable.size());
+        for (ByteArrayWrapper key : unreachable) {
+            result.add(key.getData());
+        }
+        prunedCount += result.size();
+        unreachable.clear();
+        return result;
+    }
+
+    /**
+     * Drops the journal, nothing journaled so far is deleted
+     *
+     * @param root - root hash the trie is switched to
+     */
+    public void reset(byte[] root, Cache cache) {
+        cache.takeJournal();
+        journal.clear();
+        insertions.clear();
+        unreachable.clear();
+        lastRoot = root;
+    }
+
+    /**
+     * @return number of the journaled blocks whose roots are kept
+     */
+    public int getJournalSize() {
+        return journal.size();
+    }
+
+    /**
+     * @return total number of the nodes handed over for deletion
+     */
+    public long getPrunedCount() {
+        return prunedCount;
+    }
+
+    /**
+     * Drops the nodes which are not a part of the trie state from a trie with no data source,
+     * such a trie keeps all the nodes ever put to its cache, so its serialized form keeps growing
+     */
+    public static void retainReachable(CachedTrie trie) {
+        Cache cache = trie.getCache();
+        if (cache.getDb() != null) {
+            throw new IllegalStateException("Trie backed by the data source '" + cache.getDb().getName() + "'");
+        }
+
+        Set<ByteArrayWrapper> reachable = new HashSet<>();
+        collectReachable(trie.getRootHash(), cache, reachable);
+        for (ByteArrayWrapper key : cache.getNodes().keySet()) {
+            if (!reachable.contains(key)) cache.delete(key.getData());
+        }
+    }
+
+    private void release(BlockJournal block) {
+        for (ByteArrayWrapper key : block.inserted) {
+            Integer count = insertions.remove(key);
+            if (count > 1) insertions.put(key, count - 1);
+        }
+        for (ByteArrayWrapper key : block.removed) {
+            if (!insertions.containsKey(key)) unreachable.add(key);
+        }
+    }
+
+    /**
+     * Walks the new trie down through the nodes created by the block,
+     * the nodes which are not created by the block are shared with the previous root
+     */
+    private static void collectInserted(byte[] hash, Set<ByteArrayWrapper> created, Cache cache,
+                                        Set<ByteArrayWrapper> inserted, Set<ByteArrayWrapper> shared) {
+        ByteArrayWrapper key = wrap(hash);
+        if (!created.contains(key)) {
+            shared.add(key);
+            return;
+        }
+        if (!inserted.add(key)) return;
+
+        for (byte[] child : children(hash, cache)) {
+            collectInserted(child, created, cache, inserted, shared);
+        }
+    }
+
+    /**
+     * Walks the previous trie down until the subtrees which are a part of the new trie
+     */
+    private static void collectRemoved(byte[] hash, Set<ByteArrayWrapper> inserted, Set<ByteArrayWrapper> shared,
+                                       Cache cache, Set<ByteArrayWrapper> removed) {
+        ByteArrayWrapper key = wrap(hash);
+        if (inserted.contains(key) || shared.contains(key) || !removed.add(key)) return;
+
+        List<byte[]> children = children(hash, cache);
+        // the children to be walked are loaded in one batch
+        List<byte[]> walked = new ArrayList<>(children.size());
+        for (byte[] child : children) {
+            ByteArrayWrapper childKey = wrap(child);
+            if (!inserted.contains(childKey) && !shared.contains(childKey)) walked.add(child);
+        }
+        cache.prefetch(walked);
+        for (byte[] child : children) {
+            collectRemoved(child, inserted, shared, cache, removed);
+        }
+    }
+
+    private static void collectReachable(byte[] hash, Cache cache, Set<ByteArrayWrapper> reachable) {
+        if (!reachable.add(wrap(hash))) return;
+
+        for (byte[] child : children(hash, cache)) {
+            collectReachable(child, cache, reachable);
+        }
+    }
+
+    /**
+     * @return hashes of the children referenced by the node, embedded children are too short to reference any,
+     * empty if the node is missing
+     */
+    private static List<byte[]> children(byte[] hash, Cache cache) {
+        List<byte[]> result = new ArrayList<>();
+
+        Node cached = cache.getNode(hash);
+        if (cached.getValue() == null) return result;
+
+        TrieNode node = cached.getDecoded();
+        if (node == null) node = TrieNode.decode(cached.getValue().encode());
+
+        if (node instanceof BranchNode) {
+            for (TrieNode child : ((BranchNode) node).children) {
+                addReference(child, result);
+            }
+        } else if (node instanceof ExtensionNode) {
+            addReference(((ExtensionNode) node).child, result);
+        }
+        return result;
+    }
+
+    private static void addReference(TrieNode child, List<byte[]> result) {
+        if (child != null && !child.isEmbedded()) {
+            result.add(child.getHash());
+        }
+    }
+
+    private static class BlockJournal {
+
+        private final long blockNumber;
+        private final Set<ByteArrayWrapper> inserted = new HashSet<>();
+        private final Set<ByteArrayWrapper> removed = new HashSet<>();
+
+        BlockJournal(long blockNumber) {
+            this.blockNumber = blockNumber;
+        }
+    }
+}
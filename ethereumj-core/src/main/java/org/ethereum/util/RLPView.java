@@ -0,0 +1,165 @@
+package org.ethereum.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.ethereum.util.RLP.OFFSET_LONG_ITEM;
+import static org.ethereum.util.RLP.OFFSET_LONG_LIST;
+import static org.ethereum.util.RLP.OFFSET_SHORT_ITEM;
+import static org.ethereum.util.RLP.OFFSET_SHORT_LIST;
+
+/**
+ * View of one RLP element inside the original encoded byte array.
+ *
+ * Unlike {@link RLP#decode2(byte[])} nothing is decoded or copied up front:
+ * the elements of a list are located on the first access to the list,
+ * the bytes of an item are copied only when asked for
+ */
+public class RLPView {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    private final boolean list;
+    private final int payloadOffset;
+    private final int payloadLength;
+
+    private RLPView[] elements;
+
+    private RLPView(byte[] bytes, int offset, int limit) {
+
+        if (offset >= limit)
+            throw new RuntimeException("RLP wrong encoding");
+
+        int prefix = bytes[offset] & 0xFF;
+        int lengthOfLength = 0;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // single byte item
+            list = false;
+            payloadLength = 1;
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            list = false;
+            payloadLength = prefix - OFFSET_SHORT_ITEM;
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            list = false;
+            lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            payloadLength = readLength(bytes, offset + 1, lengthOfLength, limit);
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            list = true;
+            payloadLength = prefix - OFFSET_SHORT_LIST;
+        } else {
+            list = true;
+            lengthOfLength = prefix - OFFSET_LONG_LIST;
+            payloadLength = readLength(bytes, offset + 1, lengthOfLength, limit);
+        }
+
+        this.bytes = bytes;
+        this.offset = offset;
+        this.payloadOffset = prefix < OFFSET_SHORT_ITEM ? offset : offset + 1 + lengthOfLength;
+
+        // the length is compared to the bytes left, a huge one can't overflow the sum
+        if (payloadLength < 0 || payloadLength > limit - payloadOffset)
+            throw new RuntimeException("RLP wrong encoding");
+
+        this.length = payloadOffset + payloadLength - offset;
+    }
+
+    /**
+     * @param rlpEncoded - starts with the element to view, any bytes after it are ignored
+     */
+    public static RLPView decode(byte[] rlpEncoded) {
+        return new RLPView(rlpEncoded, 0, rlpEncoded.length);
+    }
+
+    public boolean isList() {
+        return list;
+    }
+
+    public int size() {
+        return getElements().length;
+    }
+
+    public RLPView get(int index) {
+        return getElements()[index];
+    }
+
+    private RLPView[] getElements() {
+
+        if (elements == null) {
+            if (!list)
+                throw new RuntimeException("RLP item is not a list");
+
+            List<RLPView> located = new ArrayList<>();
+            int end = payloadOffset + payloadLength;
+            for (int pos = payloadOffset; pos < end; ) {
+                RLPView element = new RLPView(bytes, pos, end);
+                located.add(element);
+                pos += element.length;
+            }
+            elements = located.toArray(new RLPView[located.size()]);
+        }
+        return elements;
+    }
+
+    /**
+     * Copies the payload of an item, same as {@link RLPItem#getRLPData()} it's null for an empty item
+     */
+    public byte[] getData() {
+        if (payloadLength == 0)
+            return null;
+
+        byte[] data = new byte[payloadLength];
+        System.arraycopy(bytes, payloadOffset, data, 0, payloadLength);
+        return data;
+    }
+
+    /**
+     * Reads the payload of an item as an unsigned big endian number without copying it,
+     * only the lowest 8 bytes are kept like {@link java.math.BigInteger#longValue()} does
+     */
+    public long getLong() {
+        long value = 0;
+        for (int i = payloadOffset; i < payloadOffset + payloadLength; ++i) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Copies the whole encoding of the element, prefix included
+     */
+    public byte[] getEncoded() {
+        byte[] encoded = new byte[length];
+        System.arraycopy(bytes, offset, encoded, 0, length);
+        return encoded;
+    }
+
+    /**
+     * The array the element is viewed in, to read the encoding in place
+     * from {@link #getOffset()} for {@link #getLength()} bytes
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    private static int readLength(byte[] bytes, int pos, int lengthOfLength, int limit) {
+
+        if (lengthOfLength > 4 || pos + lengthOfLength > limit)
+            throw new RuntimeException("RLP wrong encoding");
+
+        int length = 0;
+        for (int i = 0; i < lengthOfLength; ++i) {
+            length = (length << 8) | (bytes[pos + i] & 0xFF);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,285 @@
+package org.ethereum.util;
+
+import io.netty.buffer.ByteBuf;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.ethereum.util.RLP.OFFSET_LONG_ITEM;
+import static org.ethereum.util.RLP.OFFSET_LONG_LIST;
+import static org.ethereum.util.RLP.OFFSET_SHORT_ITEM;
+import static org.ethereum.util.RLP.OFFSET_SHORT_LIST;
+import static org.ethereum.util.RLP.SIZE_THRESHOLD;
+import static org.spongycastle.util.BigIntegers.asUnsignedByteArray;
+
+/**
+ * Streaming RLP encoder.
+ *
+ * The elements are recorded first, a list gets its payload length when it's ended,
+ * so the size of the whole encoding is known before anything is written. Then the encoding
+ * is written in one pass into a byte[], a {@link ByteBuffer} or a Netty {@link ByteBuf},
+ * instead of an array being allocated and copied at every nesting level.
+ * The recorded arrays are referenced, not copied, they must not change until the encoding is written.
+ *
+ * The output is the same as the one of the {@link RLP} encode methods,
+ * a writer can be {@link #reset()} and used again
+ */
+public class RLPWriter {
+
+    private static final byte ELEMENT = 0;
+    private static final byte ENCODED = 1;
+    private static final byte NUMBER = 2;
+    private static final byte LIST = 3;
+
+    /* one entry per recorded part: its kind, its array, and either the number,
+     * the payload length of the list, or the offset and the length of the encoded range */
+    private byte[] kinds;
+    private byte[][] arrays;
+    private long[] values;
+    private int count;
+
+    private int[] openLists = new int[4];
+    private int[] openSizes = new int[4];
+    private int depth;
+
+    private int size;
+
+    public RLPWriter() {
+        this(16);
+    }
+
+    public RLPWriter(int expectedParts) {
+        kinds = new byte[expectedParts];
+        arrays = new byte[expectedParts][];
+        values = new long[expectedParts];
+    }
+
+    public RLPWriter startList() {
+        if (depth == openLists.length) {
+            openLists = Arrays.copyOf(openLists, depth * 2);
+            openSizes = Arrays.copyOf(openSizes, depth * 2);
+        }
+        openLists[depth] = count;
+        openSizes[depth] = size;
+        ++depth;
+
+        add(LIST, null, 0);
+        return this;
+    }
+
+    public RLPWriter endList() {
+        if (depth == 0)
+            throw new IllegalStateException("No list to end");
+        --depth;
+
+        int payload = size - openSizes[depth];
+        values[openLists[depth]] = payload;
+        size += prefixSize(payload);
+        return this;
+    }
+
+    /**
+     * Same as {@link RLP#encodeElement(byte[])}
+     */
+    public RLPWriter writeElement(byte[] data) {
+        add(ELEMENT, data, 0);
+
+        if (data == null || data.length == 0 || data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM)
+            size += 1;
+        else
+            size += prefixSize(data.length) + data.length;
+        return this;
+    }
+
+    /**
+     * Same as {@link RLP#encodeByte(byte)}
+     */
+    public RLPWriter writeByte(byte value) {
+        return writeLong(value & 0xFF);
+    }
+
+    /**
+     * Same as {@link RLP#encodeBigInteger(BigInteger)} of a non negative value
+     */
+    public RLPWriter writeLong(long value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value: " + value);
+        add(NUMBER, null, value);
+
+        size += value < OFFSET_SHORT_ITEM ? 1 : 1 + byteLength(value);
+        return this;
+    }
+
+    /**
+     * Same as {@link RLP#encodeBigInteger(BigInteger)}
+     */
+    public RLPWriter writeBigInteger(BigInteger value) {
+        if (value.signum() >= 0 && value.bitLength() < 64)
+            return writeLong(value.longValue());
+        return writeElement(asUnsignedByteArray(value));
+    }
+
+    /**
+     * Adds an element which is already RLP encoded
+     */
+    public RLPWriter writeEncoded(byte[] rlp) {
+        return writeEncoded(rlp, 0, rlp.length);
+    }
+
+    public RLPWriter writeEncoded(byte[] rlp, int offset, int length) {
+        add(ENCODED, rlp, (long) offset << 32 | length);
+
+        size += length;
+        return this;
+    }
+
+    /**
+     * The size of the encoding, known once all the lists are ended
+     */
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        Arrays.fill(arrays, 0, count, null);
+        count = 0;
+        depth = 0;
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        byte[] encoded = new byte[checkedSize()];
+        write(encoded, 0);
+        return encoded;
+    }
+
+    /**
+     * @return the offset right after the encoding
+     */
+    public int writeTo(byte[] out, int offset) {
+        if (out.length - offset < checkedSize())
+            throw new ArrayIndexOutOfBoundsException("No room for " + size + " bytes at " + offset);
+        return write(out, offset);
+    }
+
+    /**
+     * Writes at the position of the buffer and moves it, a direct buffer gets the encoding
+     * through one intermediate array
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < checkedSize())
+            throw new BufferOverflowException();
+
+        if (buffer.hasArray()) {
+            int end = write(buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(end - buffer.arrayOffset());
+        } else {
+            buffer.put(toByteArray());
+        }
+    }
+
+    /**
+     * Writes at the writer index of the buffer and moves it, a direct buffer gets the encoding
+     * through one intermediate array
+     */
+    public void writeTo(ByteBuf buffer) {
+        buffer.ensureWritable(checkedSize());
+
+        if (buffer.hasArray()) {
+            int end = write(buffer.array(), buffer.arrayOffset() + buffer.writerIndex());
+            buffer.writerIndex(end - buffer.arrayOffset());
+        } else {
+            buffer.writeBytes(toByteArray());
+        }
+    }
+
+    private int checkedSize() {
+        if (depth != 0)
+            throw new IllegalStateException(depth + " lists not ended");
+        return size;
+    }
+
+    private void add(byte kind, byte[] array, long value) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            arrays = Arrays.copyOf(arrays, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        kinds[count] = kind;
+        arrays[count] = array;
+        values[count] = value;
+        ++count;
+    }
+
+    private int write(byte[] out, int pos) {
+
+        for (int i = 0; i < count; ++i) {
+            switch (kinds[i]) {
+                case ELEMENT:
+                    byte[] data = arrays[i];
+                    if (data == null || data.length == 0) {
+                        out[pos++] = (byte) OFFSET_SHORT_ITEM;
+                    } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+                        out[pos++] = data[0];
+                    } else {
+                        pos = writePrefix(out, pos, data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+                        System.arraycopy(data, 0, out, pos, data.length);
+                        pos += data.length;
+                    }
+                    break;
+
+                case ENCODED:
+                    int offset = (int) (values[i] >>> 32);
+                    int length = (int) values[i];
+                    System.arraycopy(arrays[i], offset, out, pos, length);
+                    pos += length;
+                    break;
+
+                case NUMBER:
+                    long value = values[i];
+                    if (value == 0) {
+                        out[pos++] = (byte) OFFSET_SHORT_ITEM;
+                    } else if (value < OFFSET_SHORT_ITEM) {
+                        out[pos++] = (byte) value;
+                    } else {
+                        int bytes = byteLength(value);
+                        out[pos++] = (byte) (OFFSET_SHORT_ITEM + bytes);
+                        pos = writeBigEndian(out, pos, value, bytes);
+                    }
+                    break;
+
+                default:
+                    pos = writePrefix(out, pos, (int) values[i], OFFSET_SHORT_LIST, OFFSET_LONG_LIST);
+            }
+        }
+        return pos;
+    }
+
+    private static int writePrefix(byte[] out, int pos, int length, int shortOffset, int longOffset) {
+        if (length < SIZE_THRESHOLD) {
+            out[pos++] = (byte) (shortOffset + length);
+            return pos;
+        }
+        int bytes = byteLength(length);
+        out[pos++] = (byte) (longOffset + bytes);
+        return writeBigEndian(out, pos, length, bytes);
+    }
+
+    private static int writeBigEndian(byte[] out, int pos, long value, int bytes) {
+        for (int shift = 8 * (bytes - 1); shift >= 0; shift -= 8) {
+            out[pos++] = (byte) (value >>> shift);
+        }
+        return pos;
+    }
+
+    private static int prefixSize(int length) {
+        return length < SIZE_THRESHOLD ? 1 : 1 + byteLength(length);
+    }
+
+    private static int byteLength(long value) {
+        return (64 - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+}
@@ -0,0 +1,852 @@
+package org.ethereum.vm;
+
+import org.ethereum.vm.MessageCall.MsgType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
+
+/**
+ * Interpreter which runs the code a basic block at a time, see {@link ProgramCode#getBlockIndex(int)}.
+ *
+ * The static gas of the whole block is charged before its first operation, the operations are
+ * dispatched through a table of handlers indexed by the opcode which only charge the gas depending
+ * on the operands and the memory. The memory sizes are calculated on longs instead of BigIntegers.
+ *
+ * The program must end up exactly as in {@link VM}, including the stack and the memory of a program
+ * which runs out of gas. So a block is charged in advance only if the gas left covers its static gas,
+ * otherwise its operations are charged one by one by {@link VM}. When an operation of a charged block
+ * runs out of gas on its operands or the memory, the gas of the operations after it is given back and
+ * the operation is executed again with the gas {@link VM} would have left, the rest of the block is then
+ * charged per operation. The handlers charge the gas before changing the program, so the retry starts
+ * from the same state. The operations which depend on the gas left (GAS, CALL, CALLCODE, CREATE) close
+ * their blocks, thus they observe the same gas as in {@link VM}.
+ *
+ * There is no hint, logging or trace work on this path: when the structured trace, the info log
+ * of the VM, the full program trace or the block dump is on, the steps are delegated to {@link VM}
+ * which remains the reference implementation. Selected by vm.engine = block, see {@link VM#create()}
+ */
+public class BlockVM extends VM {
+
+    private static final Logger logger = LoggerFactory.getLogger("VM");
+
+    private static final BigInteger MAX_GAS = BigInteger.valueOf(Long.MAX_VALUE);
+
+    private static final Handler[] handlers = new Handler[256];
+
+    private final boolean vmTrace = CONFIG.vmTrace();
+    private final int dumpBlock = CONFIG.dumpBlock();
+
+    /**
+     * Executes the basic block which starts at the current position
+     */
+    @Override
+    public void step(Program program) {
+
+        ProgramCode code = program.getProgramCode();
+        int block = code.getBlockIndex(program.getPC());
+        if (block < 0 || isTraced(program) || !isCovered(program, code, block)) {
+            super.step(program);
+            return;
+        }
+
+        try {
+            long precharged = code.getBlockGas(block);
+            program.spendGas(precharged, "block");
+
+            Stack stack = program.getStack();
+            int end = code.getBlockEnd(block);
+            int pc;
+            boolean charged;
+            do {
+                pc = program.getPC();
+                OpCode op = code.getOp(pc);
+                if (op == null) {
+                    throw Program.Exception.invalidOpCode(program.getCurrentOp());
+                }
+
+                program.stackRequire(op.require());
+                program.stackMax(op.require(), op.ret());
+
+                precharged -= ProgramCode.staticGas(op);
+                charged = execute(program, stack, op, precharged);
+                program.setPreviouslyExecutedOp(op.val());
+            } while (charged && pc != end && !program.isStopped());
+
+        } catch (RuntimeException e) {
+            halt(program, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the operation at the current position, its static gas must be already charged
+     */
+    static void execute(Program program, Stack stack, OpCode op) {
+        handlers[op.val() & 0xFF].execute(program, stack, op);
+    }
+
+    /**
+     * Executes the operation of a block charged in advance. If it runs out of gas, the gas
+     * charged for the operations after it and its own partial charge are given back
+     * and it's executed again, the same way as {@link VM} would charge it
+     *
+     * @param precharged - static gas of the operations of the block after this one
+     * @return false if the rest of the block is not charged anymore
+     */
+    static boolean execute(Program program, Stack stack, OpCode op, long precharged) {
+        if (precharged == 0) {
+            execute(program, stack, op);
+            return true;
+        }
+
+        long gasUsed = program.getResult().getGasUsed();
+        try {
+            execute(program, stack, op);
+            return true;
+        } catch (Program.OutOfGasException e) {
+            program.refundGas(program.getResult().getGasUsed() - gasUsed + precharged, "block");
+            execute(program, stack, op);
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the gas left covers the static gas of the block, so it may be charged in advance
+     */
+    static boolean isCovered(Program program, ProgramCode code, int block) {
+        return program.getGasLong() >= code.getBlockGas(block);
+    }
+
+    /**
+     * Same as the exceptional halt in {@link VM#step(Program)}
+     */
+    static void halt(Program program, RuntimeException e) {
+        logger.warn("VM halted: [{}]", e.toString());
+        program.spendAllGas();
+        program.resetFutureRefund();
+        program.stop();
+    }
+
+    boolean isTraced(Program program) {
+        return vmTrace || logger.isInfoEnabled() || program.isFullTraced()
+                || (dumpBlock >= 0 && program.getNumber().intValue() == dumpBlock);
+    }
+
+    /**
+     * Same as the memory part of {@link VM#step(Program)}: charges the expansion
+     * of the memory to the new size if it's bigger than the current one
+     */
+    private static void spendMemory(Program program, OpCode op, long newMemSize) {
+        long oldMemSize = program.getMemSize();
+        long memoryUsage = (newMemSize + 31) / 32 * 32;
+        if (memoryUsage > oldMemSize) {
+            long memWords = (memoryUsage / 32);
+            long memWordsOld = (oldMemSize / 32);
+            long memGas = (GasCost.MEMORY * memWords + memWords * memWords / GasCost.QUAD_COEFF_DIV)
+                    - (GasCost.MEMORY * memWordsOld + memWordsOld * memWordsOld / GasCost.QUAD_COEFF_DIV);
+            program.spendGas(memGas, op.name() + " (memory usage)");
+        }
+    }
+
+    private static void spendCopy(Program program, OpCode op, long copySize) {
+        if (copySize > 0) {
+            program.spendGas(GasCost.COPY_GAS * ((copySize + 31) / 32), op.name() + " (copy usage)");
+        }
+    }
+
+    /**
+     * @return offset + size, 0 if the size is 0
+     * @throws Program.OutOfGasException if the sum doesn't fit in a long
+     */
+    private static long memNeeded(DataWord offset, DataWord size) {
+        if (size.isZero()) return 0;
+        if (fitsLong(offset) && fitsLong(size)) {
+            long newMemSize = offset.longValue() + size.longValue();
+            if (newMemSize >= 0) return newMemSize;
+        }
+        throw Program.Exception.gasOverflow(offset.value().add(size.value()), MAX_GAS);
+    }
+
+    private static long memNeeded(DataWord offset, int size) {
+        if (fitsLong(offset)) {
+            long newMemSize = offset.longValue() + size;
+            if (newMemSize >= 0) return newMemSize;
+        }
+        throw Program.Exception.gasOverflow(offset.value().add(BigInteger.valueOf(size)), MAX_GAS);
+    }
+
+    private static boolean fitsLong(DataWord word) {
+        byte[] data = word.getData();
+        for (int i = 0; i < 24; ++i) {
+            if (data[i] != 0) return false;
+        }
+        return data[24] >= 0;
+    }
+
+    /**
+     * @return true if the word is less than the small non negative number
+     */
+    private static boolean lessThan(DataWord word, int n) {
+        return word.bytesOccupied() <= 1 && (word.getData()[31] & 0xFF) < n;
+    }
+
+    private static void pushBoolean(Stack stack, DataWord word, boolean value) {
+        word.and(DataWord.ZERO);
+        if (value) word.getData()[31] = 1;
+        stack.push(word);
+    }
+
+    /**
+     * Executes an operation whose static gas is already charged,
+     * leaves the program at the next operation to execute
+     */
+    private interface Handler {
+        void execute(Program program, Stack stack, OpCode op);
+    }
+
+    private static void handler(OpCode op, Handler handler) {
+        handlers[op.val() & 0xFF] = handler;
+    }
+
+    private static void handler(OpCode first, OpCode last, Handler handler) {
+        for (int i = first.val() & 0xFF; i <= (last.val() & 0xFF); ++i) {
+            handlers[i] = handler;
+        }
+    }
+
+    static {
+
+        /*
+         * Stop and Arithmetic Operations
+         */
+        handler(OpCode.STOP, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                program.setHReturn(EMPTY_BYTE_ARRAY);
+                program.stop();
+            }
+        });
+        handler(OpCode.ADD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.add(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.MUL, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.mul(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.SUB, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.sub(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.DIV, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.div(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.SDIV, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.sDiv(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.MOD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.mod(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.SMOD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.sMod(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.ADDMOD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                DataWord word2 = stack.pop();
+                DataWord word3 = stack.pop();
+                word1.addmod(word2, word3);
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.MULMOD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                DataWord word2 = stack.pop();
+                DataWord word3 = stack.pop();
+                word1.mulmod(word2, word3);
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.EXP, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                program.spendGas(GasCost.EXP_BYTE_GAS * stack.get(stack.size() - 2).bytesOccupied(), op.name());
+                DataWord word1 = stack.pop();
+                DataWord word2 = stack.pop();
+
+                word1.exp(word2);
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.SIGNEXTEND, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                if (lessThan(word1, 32)) {
+                    DataWord word2 = stack.pop();
+                    word2.signExtend(word1.getData()[31]);
+                    stack.push(word2);
+                }
+                program.step();
+            }
+        });
+
+        /*
+         * Comparison and Bitwise Logic Operations
+         */
+        handler(OpCode.NOT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.bnot();
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.LT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.compareTo(stack.pop()) == -1);
+                program.step();
+            }
+        });
+        handler(OpCode.GT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.compareTo(stack.pop()) == 1);
+                program.step();
+            }
+        });
+        handler(OpCode.SLT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.sCompareTo(stack.pop()) == -1);
+                program.step();
+            }
+        });
+        handler(OpCode.SGT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.sCompareTo(stack.pop()) == 1);
+                program.step();
+            }
+        });
+        handler(OpCode.EQ, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.xor(stack.pop()).isZero());
+                program.step();
+            }
+        });
+        handler(OpCode.ISZERO, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                pushBoolean(stack, word1, word1.isZero());
+                program.step();
+            }
+        });
+        handler(OpCode.AND, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.and(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.OR, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.or(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.XOR, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                word1.xor(stack.pop());
+                stack.push(word1);
+                program.step();
+            }
+        });
+        handler(OpCode.BYTE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord word1 = stack.pop();
+                DataWord word2 = stack.pop();
+                if (lessThan(word1, 32)) {
+                    byte tmp = word2.getData()[word1.getData()[31]];
+                    word2.and(DataWord.ZERO);
+                    word2.getData()[31] = tmp;
+                    stack.push(word2);
+                } else {
+                    stack.push(new DataWord());
+                }
+                program.step();
+            }
+        });
+
+        /*
+         * SHA3
+         */
+        handler(OpCode.SHA3, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord size = stack.get(stack.size() - 2);
+                program.spendGas((size.longValue() + 31) / 32 * GasCost.SHA3_WORD, op.name());
+                spendMemory(program, op, memNeeded(stack.peek(), size));
+
+                DataWord memOffsetData = stack.pop();
+                DataWord lengthData = stack.pop();
+                stack.push(new DataWord(program.memorySha3(memOffsetData.intValue(), lengthData.intValue())));
+                program.step();
+            }
+        });
+
+        /*
+         * Environmental Information
+         */
+        handler(OpCode.ADDRESS, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getOwnerAddress());
+                program.step();
+            }
+        });
+        handler(OpCode.BALANCE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getBalance(stack.pop()));
+                program.step();
+            }
+        });
+        handler(OpCode.ORIGIN, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getOriginAddress());
+                program.step();
+            }
+        });
+        handler(OpCode.CALLER, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getCallerAddress());
+                program.step();
+            }
+        });
+        handler(OpCode.CALLVALUE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getCallValue());
+                program.step();
+            }
+        });
+        handler(OpCode.CALLDATALOAD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getDataValue(stack.pop()));
+                program.step();
+            }
+        });
+        handler(OpCode.CALLDATASIZE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getDataSize());
+                program.step();
+            }
+        });
+        handler(OpCode.CALLDATACOPY, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord size = stack.get(stack.size() - 3);
+                spendMemory(program, op, memNeeded(stack.peek(), size));
+                spendCopy(program, op, size.longValue());
+
+                DataWord memOffsetData = stack.pop();
+                DataWord dataOffsetData = stack.pop();
+                DataWord lengthData = stack.pop();
+
+                program.memorySave(memOffsetData.intValue(), program.getDataCopy(dataOffsetData, lengthData));
+                program.step();
+            }
+        });
+        handler(OpCode.CODESIZE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(new DataWord(program.getCode().length));
+                program.step();
+            }
+        });
+        handler(OpCode.EXTCODESIZE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(new DataWord(program.getCodeAt(stack.pop()).length));
+                program.step();
+            }
+        });
+        Handler codeCopy = new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                byte[] fullCode;
+                if (op == OpCode.CODECOPY) {
+                    DataWord size = stack.get(stack.size() - 3);
+                    spendMemory(program, op, memNeeded(stack.peek(), size));
+                    spendCopy(program, op, size.longValue());
+
+                    fullCode = program.getCode();
+                } else {
+                    DataWord size = stack.get(stack.size() - 4);
+                    spendMemory(program, op, memNeeded(stack.get(stack.size() - 2), size));
+                    spendCopy(program, op, size.longValue());
+
+                    fullCode = program.getCodeAt(stack.pop());
+                }
+
+                int memOffset = stack.pop().intValue();
+                int codeOffset = stack.pop().intValue();
+                int lengthData = stack.pop().intValue();
+
+                int sizeToBeCopied =
+                        codeOffset + lengthData > fullCode.length ?
+                                (fullCode.length < codeOffset ? 0 : fullCode.length - codeOffset)
+                                : lengthData;
+
+                byte[] codeCopy = new byte[lengthData];
+
+                if (codeOffset < fullCode.length)
+                    System.arraycopy(fullCode, codeOffset, codeCopy, 0, sizeToBeCopied);
+
+                program.memorySave(memOffset, codeCopy);
+                program.step();
+            }
+        };
+        handler(OpCode.CODECOPY, codeCopy);
+        handler(OpCode.EXTCODECOPY, codeCopy);
+        handler(OpCode.GASPRICE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getGasPrice());
+                program.step();
+            }
+        });
+
+        /*
+         * Block Information
+         */
+        handler(OpCode.BLOCKHASH, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getBlockHash(stack.pop().intValue()));
+                program.step();
+            }
+        });
+        handler(OpCode.COINBASE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getCoinbase());
+                program.step();
+            }
+        });
+        handler(OpCode.TIMESTAMP, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getTimestamp());
+                program.step();
+            }
+        });
+        handler(OpCode.NUMBER, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getNumber());
+                program.step();
+            }
+        });
+        handler(OpCode.DIFFICULTY, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getDifficulty());
+                program.step();
+            }
+        });
+        handler(OpCode.GASLIMIT, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getGaslimit());
+                program.step();
+            }
+        });
+
+        /*
+         * Memory, Storage and Flow Operations
+         */
+        handler(OpCode.POP, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.pop();
+                program.step();
+            }
+        });
+        handler(OpCode.MLOAD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                spendMemory(program, op, memNeeded(stack.peek(), 32));
+
+                stack.push(program.memoryLoad(stack.pop()));
+                program.step();
+            }
+        });
+        handler(OpCode.MSTORE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                spendMemory(program, op, memNeeded(stack.peek(), 32));
+
+                DataWord addr = stack.pop();
+                DataWord value = stack.pop();
+                program.memorySave(addr, value);
+                program.step();
+            }
+        });
+        handler(OpCode.MSTORE8, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                spendMemory(program, op, memNeeded(stack.peek(), 1));
+
+                DataWord addr = stack.pop();
+                DataWord value = stack.pop();
+                program.memorySave(addr.intValue(), new byte[]{value.getData()[31]});
+                program.step();
+            }
+        });
+        handler(OpCode.SLOAD, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord key = stack.pop();
+                DataWord val = program.storageLoad(key);
+                if (val == null)
+                    val = key.and(DataWord.ZERO);
+
+                stack.push(val);
+                program.step();
+            }
+        });
+        handler(OpCode.SSTORE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord newValue = stack.get(stack.size() - 2);
+                DataWord oldValue = program.storageLoad(stack.peek());
+                if (oldValue == null && !newValue.isZero()) {
+                    program.spendGas(GasCost.SET_SSTORE, op.name());
+                } else if (oldValue != null && newValue.isZero()) {
+                    program.spendGas(GasCost.CLEAR_SSTORE, op.name());
+                    program.futureRefundGas(GasCost.REFUND_SSTORE);
+                } else {
+                    program.spendGas(GasCost.RESET_SSTORE, op.name());
+                }
+
+                DataWord addr = stack.pop();
+                DataWord value = stack.pop();
+                program.storageSave(addr, value);
+                program.step();
+            }
+        });
+        handler(OpCode.JUMP, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                int nextPC = stack.pop().intValue(); // possible overflow
+                program.validateJumpDest(nextPC);
+                program.setPC(nextPC);
+            }
+        });
+        handler(OpCode.JUMPI, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord pos = stack.pop();
+                DataWord cond = stack.pop();
+
+                if (!cond.isZero()) {
+                    int nextPC = pos.intValue(); // possible overflow
+                    program.validateJumpDest(nextPC);
+                    program.setPC(nextPC);
+                } else {
+                    program.step();
+                }
+            }
+        });
+        handler(OpCode.PC, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(new DataWord(program.getPC()));
+                program.step();
+            }
+        });
+        handler(OpCode.MSIZE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(new DataWord(program.getMemSize()));
+                program.step();
+            }
+        });
+        handler(OpCode.GAS, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.getGas());
+                program.step();
+            }
+        });
+        handler(OpCode.JUMPDEST, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                program.step();
+            }
+        });
+
+        /*
+         * Push, Duplication and Exchange Operations
+         */
+        handler(OpCode.PUSH1, OpCode.PUSH32, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.push(program.sweepPush(op.val() - OpCode.PUSH1.val() + 1));
+            }
+        });
+        handler(OpCode.DUP1, OpCode.DUP16, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                stack.dup(op.val() - OpCode.DUP1.val() + 1);
+                program.step();
+            }
+        });
+        handler(OpCode.SWAP1, OpCode.SWAP16, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                int n = op.val() - OpCode.SWAP1.val() + 2;
+                stack.swap(stack.size() - 1, stack.size() - n);
+                program.step();
+            }
+        });
+
+        /*
+         * Logging Operations
+         */
+        handler(OpCode.LOG0, OpCode.LOG4, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord size = stack.get(stack.size() - 2);
+                long newMemSize = memNeeded(stack.peek(), size);
+
+                BigInteger dataCost = size.value().multiply(BigInteger.valueOf(GasCost.LOG_DATA_GAS));
+                if (program.getGas().value().compareTo(dataCost) < 0) {
+                    throw Program.Exception.notEnoughOpGas(op, dataCost, program.getGas().value());
+                }
+                program.spendGas(GasCost.LOG_DATA_GAS * size.longValue(), op.name());
+                spendMemory(program, op, newMemSize);
+
+                DataWord memStart = stack.pop();
+                DataWord memOffset = stack.pop();
+
+                int nTopics = op.val() - OpCode.LOG0.val();
+                List<DataWord> topics = new ArrayList<>(nTopics);
+                for (int i = 0; i < nTopics; ++i) {
+                    topics.add(stack.pop());
+                }
+
+                byte[] data = program.memoryChunk(memStart.intValue(), memOffset.intValue());
+
+                program.getResult().addLogInfo(new LogInfo(program.programAddress.getLast20Bytes(), topics, data));
+                program.step();
+            }
+        });
+
+        /*
+         * System operations
+         */
+        handler(OpCode.CREATE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                spendMemory(program, op, memNeeded(stack.get(stack.size() - 2), stack.get(stack.size() - 3)));
+
+                DataWord value = stack.pop();
+                DataWord inOffset = stack.pop();
+                DataWord inSize = stack.pop();
+
+                program.createContract(value, inOffset, inSize);
+                program.step();
+            }
+        });
+        Handler call = new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                DataWord callGasWord = stack.get(stack.size() - 1);
+                if (callGasWord.compareTo(program.getGas()) == 1) {
+                    throw Program.Exception.notEnoughOpGas(op, callGasWord, program.getGas());
+                }
+
+                long callGas = callGasWord.longValue();
+
+                DataWord callAddressWord = stack.get(stack.size() - 2);
+                if (op != OpCode.CALLCODE && !program.result.getRepository().isExist(callAddressWord.getLast20Bytes()))
+                    callGas += GasCost.NEW_ACCT_CALL;
+
+                if (!stack.get(stack.size() - 3).isZero())
+                    callGas += GasCost.VT_CALL;
+
+                long in = memNeeded(stack.get(stack.size() - 4), stack.get(stack.size() - 5));
+                long out = memNeeded(stack.get(stack.size() - 6), stack.get(stack.size() - 7));
+
+                program.spendGas(callGas, op.name());
+                spendMemory(program, op, Math.max(in, out));
+
+                DataWord gas = stack.pop();
+                DataWord codeAddress = stack.pop();
+                DataWord value = stack.pop();
+
+                if (!value.isZero()) {
+                    gas = new DataWord(gas.intValue() + GasCost.STIPEND_CALL);
+                }
+
+                DataWord inDataOffs = stack.pop();
+                DataWord inDataSize = stack.pop();
+
+                DataWord outDataOffs = stack.pop();
+                DataWord outDataSize = stack.pop();
+
+                program.memoryExpand(outDataOffs, outDataSize);
+
+                MessageCall msg = new MessageCall(
+                        op == OpCode.CALL ? MsgType.CALL : MsgType.STATELESS,
+                        gas, codeAddress, value, inDataOffs, inDataSize,
+                        outDataOffs, outDataSize);
+
+                PrecompiledContracts.PrecompiledContract contract =
+                        PrecompiledContracts.getContractForAddress(codeAddress);
+
+                if (contract != null)
+                    program.callToPrecompiledAddress(msg, contract);
+                else
+                    program.callToAddress(msg);
+
+                program.step();
+            }
+        };
+        handler(OpCode.CALL, call);
+        handler(OpCode.CALLCODE, call);
+        handler(OpCode.RETURN, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                spendMemory(program, op, memNeeded(stack.peek(), stack.get(stack.size() - 2)));
+
+                DataWord offset = stack.pop();
+                DataWord size = stack.pop();
+
+                program.setHReturn(program.memoryChunk(offset.intValue(), size.intValue()));
+                program.step();
+                program.stop();
+            }
+        });
+        handler(OpCode.SUICIDE, new Handler() {
+            public void execute(Program program, Stack stack, OpCode op) {
+                program.suicide(stack.pop());
+                program.stop();
+            }
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package org.ethereum.vm;
+
+/**
+ * Base of the classes generated by {@link JitCompiler} for a contract code.
+ *
+ * The generated {@link #run(Program)} is a loop over a switch by the basic blocks of the code,
+ * each block charges its static gas and calls the helpers below for its operations in order.
+ * The gas is charged the same way as in {@link BlockVM}: the run returns to the interpreter
+ * at a block whose static gas isn't covered by the gas left, and after an operation which had
+ * to be charged on its own, see {@link BlockVM#execute(Program, Stack, OpCode, long)}.
+ * Only the program position is kept out of date between the operations, it's set before any
+ * operation which may read it and at the end of the block.
+ *
+ * The generated class mustn't keep a reference to the code, it's taken from the program on each run,
+ * otherwise the code would never leave {@link JitCompiler}'s weak map
+ */
+public abstract class CompiledCode {
+
+    /**
+     * Runs the program from the basic block at the current position
+     * until it stops or leaves the compiled blocks
+     */
+    public abstract void run(Program program);
+
+    protected static void add(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.add(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void mul(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.mul(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void sub(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.sub(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void div(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.div(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void mod(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.mod(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void and(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.and(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void or(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.or(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void xor(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.xor(stack.pop());
+        stack.push(word1);
+    }
+
+    protected static void not(Stack stack) {
+        DataWord word1 = stack.pop();
+        word1.bnot();
+        stack.push(word1);
+    }
+
+    protected static void pop(Stack stack) {
+        stack.pop();
+    }
+
+    protected static void dup(Stack stack, int n) {
+        stack.dup(n);
+    }
+
+    protected static void swap(Stack stack, int n) {
+        stack.swap(stack.size() - 1, stack.size() - n);
+    }
+
+    protected static void pushWord(Stack stack, ProgramCode code, int pc) {
+        stack.push(new DataWord(code.getPushWord(pc).clone()));
+    }
+
+    protected static void pushPC(Stack stack, int pc) {
+        stack.push(new DataWord(pc));
+    }
+
+    /**
+     * Charges the static gas of the block which starts at the current position
+     *
+     * @return false if the gas left doesn't cover it, nothing is charged then
+     */
+    protected static boolean charge(Program program, long gas) {
+        if (program.getGasLong() < gas) return false;
+        program.spendGas(gas, "block");
+        return true;
+    }
+
+    /**
+     * Executes the operation by the interpreter handler, the handler moves the position past the operation
+     *
+     * @param precharged - static gas of the operations of the block after this one
+     * @return false if the rest of the block is left to the interpreter
+     */
+    protected static boolean interpret(Program program, Stack stack, int pc, int op, long precharged) {
+        program.setPC(pc);
+        return BlockVM.execute(program, stack, OpCode.code((byte) op), precharged);
+    }
+
+    /**
+     * @return the block to continue with
+     */
+    protected static int jump(Program program, Stack stack, ProgramCode code) {
+        int nextPC = stack.pop().intValue(); // possible overflow
+        program.validateJumpDest(nextPC);
+        program.setPC(nextPC);
+        return code.getBlockIndex(nextPC);
+    }
+
+    /**
+     * @return the block to continue with
+     */
+    protected static int jumpi(Program program, Stack stack, ProgramCode code, int pc) {
+        DataWord pos = stack.pop();
+        DataWord cond = stack.pop();
+
+        int nextPC = pc + 1;
+        if (!cond.isZero()) {
+            nextPC = pos.intValue(); // possible overflow
+            program.validateJumpDest(nextPC);
+        }
+        program.setPC(nextPC);
+        return code.getBlockIndex(nextPC);
+    }
+
+    /**
+     * Moves to the position right after the block
+     *
+     * @return the block to continue with
+     */
+    protected static int next(Program program, int pc, int block) {
+        program.setPC(pc);
+        return block;
+    }
+
+    protected static RuntimeException invalidOp(Program program, int pc) {
+        program.setPC(pc);
+        return Program.Exception.invalidOpCode(program.getCurrentOp());
+    }
+}
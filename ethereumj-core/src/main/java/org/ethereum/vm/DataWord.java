@@ -10,11 +10,11 @@ import org.spongycastle.util.encoders.Hex;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 
-import java.nio.ByteBuffer;
-
 /**
  * DataWord is the 32-byte array representation of a 256-bit number
- * Calculations can be done on this word with other DataWords
+ * Calculations can be done on this word with other DataWords,
+ * the arithmetic works in place on the array, reading it as four 64-bit limbs,
+ * so the VM operations don't allocate
  *
  * @author Roman Mandeleil
  * @since 01.06.2014
@@ -33,18 +33,11 @@ public class DataWord implements Comparable<DataWord> {
     }
 
     public DataWord(int num) {
-        this(ByteBuffer.allocate(4).putInt(num));
+        setLimb(this.data, 0, num & 0xFFFFFFFFL);
     }
 
     public DataWord(long num) {
-        this(ByteBuffer.allocate(8).putLong(num));
-    }
-
-    private DataWord(ByteBuffer buffer) {
-        final ByteBuffer data = ByteBuffer.allocate(32);
-        final byte[] array = buffer.array();
-        System.arraycopy(array, 0, data.array(), 32 - array.length, array.length);
-        this.data = data.array();
+        setLimb(this.data, 0, num);
     }
 
     public DataWord(String data) {
@@ -172,31 +165,30 @@ public class DataWord implements Comparable<DataWord> {
 
         if (this.isZero()) return;
 
-        for (int i = 0; i < this.data.length; ++i) {
-            this.data[i] = (byte) ~this.data[i];
-        }
-
-        for (int i = this.data.length - 1; i >= 0; --i) {
-            this.data[i] = (byte) (1 + this.data[i] & 0xFF);
-            if (this.data[i] != 0) break;
+        long carry = 1;
+        for (int i = 0; i < 4; ++i) {
+            long limb = ~getLimb(this.data, i) + carry;
+            carry = (carry != 0 && limb == 0) ? 1 : 0;
+            setLimb(this.data, i, limb);
         }
     }
 
     public void bnot() {
         if (this.isZero()) return;
-        this.data = ByteUtil.copyToArray(MAX_VALUE.subtract(this.value()));
+        for (int i = 0; i < this.data.length; ++i) {
+            this.data[i] = (byte) ~this.data[i];
+        }
     }
 
-    // By   : Holger
-    // From : http://stackoverflow.com/a/24023466/459349
     public void add(DataWord word) {
-        byte[] result = new byte[32];
-        for (int i = 31, overflow = 0; i >= 0; i--) {
-            int v = (this.data[i] & 0xff) + (word.data[i] & 0xff) + overflow;
-            result[i] = (byte) v;
-            overflow = v >>> 8;
+        long carry = 0;
+        for (int i = 0; i < 4; ++i) {
+            long a = getLimb(this.data, i);
+            long b = getLimb(word.data, i);
+            long sum = a + b + carry;
+            carry = (lessThan(sum, a) || (carry != 0 && sum == a)) ? 1 : 0;
+            setLimb(this.data, i, sum);
         }
-        this.data = result;
     }
 
     // old add-method with BigInteger quick hack
@@ -205,15 +197,37 @@ public class DataWord implements Comparable<DataWord> {
         this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
     }
 
-    // TODO: mul can be done in more efficient way
-    // TODO:     with shift left shift right trick
-    // TODO      without BigInteger quick hack
+    /**
+     * Product of the 64-bit limbs, the ones which fall above 256 bits are not computed at all
+     */
     public void mul(DataWord word) {
-        BigInteger result = value().multiply(word.value());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        long a0 = getLimb(this.data, 0), a1 = getLimb(this.data, 1), a2 = getLimb(this.data, 2), a3 = getLimb(this.data, 3);
+        long b0 = getLimb(word.data, 0), b1 = getLimb(word.data, 1), b2 = getLimb(word.data, 2), b3 = getLimb(word.data, 3);
+
+        long r0 = a0 * b0;
+
+        long r1 = multiplyHigh(a0, b0), t;
+        long carry = 0;
+        t = a0 * b1; r1 += t; carry += lessThan(r1, t) ? 1 : 0;
+        t = a1 * b0; r1 += t; carry += lessThan(r1, t) ? 1 : 0;
+
+        long r2 = carry;
+        carry = 0;
+        t = multiplyHigh(a0, b1); r2 += t; carry += lessThan(r2, t) ? 1 : 0;
+        t = multiplyHigh(a1, b0); r2 += t; carry += lessThan(r2, t) ? 1 : 0;
+        t = a0 * b2; r2 += t; carry += lessThan(r2, t) ? 1 : 0;
+        t = a1 * b1; r2 += t; carry += lessThan(r2, t) ? 1 : 0;
+        t = a2 * b0; r2 += t; carry += lessThan(r2, t) ? 1 : 0;
+
+        long r3 = carry + multiplyHigh(a0, b2) + multiplyHigh(a1, b1) + multiplyHigh(a2, b0)
+                + a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0;
+
+        setLimb(this.data, 0, r0);
+        setLimb(this.data, 1, r1);
+        setLimb(this.data, 2, r2);
+        setLimb(this.data, 3, r3);
     }
 
-    // TODO: improve with no BigInteger
     public void div(DataWord word) {
 
         if (word.isZero()) {
@@ -221,11 +235,10 @@ public class DataWord implements Comparable<DataWord> {
             return;
         }
 
-        BigInteger result = value().divide(word.value());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        if (word.data == this.data) word = word.clone();
+        divide(word.data, false);
     }
 
-    // TODO: improve with no BigInteger
     public void sDiv(DataWord word) {
 
         if (word.isZero()) {
@@ -233,24 +246,61 @@ public class DataWord implements Comparable<DataWord> {
             return;
         }
 
-        BigInteger result = sValue().divide(word.sValue());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        if (word.data == this.data) word = word.clone();
+        boolean negative = this.isNegative() != word.isNegative();
+        signedDivide(word, false);
+        if (negative) this.negate();
     }
 
-
-    // TODO: improve with no BigInteger
     public void sub(DataWord word) {
-        BigInteger result = value().subtract(word.value());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        long borrow = 0;
+        for (int i = 0; i < 4; ++i) {
+            long a = getLimb(this.data, i);
+            long b = getLimb(word.data, i);
+            setLimb(this.data, i, a - b - borrow);
+            borrow = (lessThan(a, b) || (borrow != 0 && a == b)) ? 1 : 0;
+        }
     }
 
-    // TODO: improve with no BigInteger
+    /**
+     * Powers of two are raised by a shift, any other base by square-and-multiply
+     * over two scratch words
+     */
     public void exp(DataWord word) {
-        BigInteger result = value().modPow(word.value(), _2_256);
-        this.data = ByteUtil.copyToArray(result);
+
+        int exponentBits = word.bitLength();
+        if (exponentBits == 0) {
+            this.and(ZERO);
+            this.data[31] = 1;
+            return;
+        }
+
+        int baseBits = this.bitLength();
+        if (baseBits <= 1) return;
+
+        if (isPowerOfTwo()) {
+            long shift = (exponentBits > 16) ? 256 : (long) (baseBits - 1) * word.intValue();
+            this.and(ZERO);
+            if (shift < 256) {
+                this.data[31 - (int) (shift >>> 3)] = (byte) (1 << (shift & 7));
+            }
+            return;
+        }
+
+        if (word.data == this.data) word = word.clone();
+        DataWord base = this.clone();
+        DataWord square = new DataWord();
+        this.and(ZERO);
+        this.data[31] = 1;
+        for (int bit = 0; bit < exponentBits; ++bit) {
+            if (word.testBit(bit)) this.mul(base);
+            if (bit + 1 < exponentBits) {
+                System.arraycopy(base.data, 0, square.data, 0, 32);
+                base.mul(square);
+            }
+        }
     }
 
-    // TODO: improve with no BigInteger
     public void mod(DataWord word) {
 
         if (word.isZero()) {
@@ -258,8 +308,8 @@ public class DataWord implements Comparable<DataWord> {
             return;
         }
 
-        BigInteger result = value().mod(word.value());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        if (word.data == this.data) word = word.clone();
+        divide(word.data, true);
     }
 
     public void sMod(DataWord word) {
@@ -269,10 +319,10 @@ public class DataWord implements Comparable<DataWord> {
             return;
         }
 
-        BigInteger result = sValue().abs().mod(word.sValue().abs());
-        result = (sValue().signum() == -1) ? result.negate() : result;
-
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        if (word.data == this.data) word = word.clone();
+        boolean negative = this.isNegative();
+        signedDivide(word, true);
+        if (negative) this.negate();
     }
 
     public void addmod(DataWord word1, DataWord word2) {
@@ -281,6 +331,10 @@ public class DataWord implements Comparable<DataWord> {
         this.mod(word2);
     }
 
+    /**
+     * The 512-bit product is kept as 32-bit digits in a scratch array
+     * and reduced by the same long division as {@link #mod}
+     */
     public void mulmod(DataWord word1, DataWord word2) {
 
         if (word2.isZero()) {
@@ -288,8 +342,309 @@ public class DataWord implements Comparable<DataWord> {
             return;
         }
 
-        BigInteger result = value().multiply(word1.value()).mod(word2.value());
-        this.data = ByteUtil.copyToArray(result.and(MAX_VALUE));
+        // one more digit for the normalization
+        long[] product = new long[17];
+        for (int i = 0; i < 8; ++i) {
+            long a = getInt(this.data, i);
+            if (a == 0) continue;
+
+            long carry = 0;
+            for (int j = 0; j < 8; ++j) {
+                long t = a * getInt(word1.data, j) + product[i + j] + carry;
+                product[i + j] = t & 0xFFFFFFFFL;
+                carry = t >>> 32;
+            }
+            product[i + 8] = carry;
+        }
+
+        reduce(product, word2.data, this.data);
+    }
+
+    /**
+     * Signed counterpart of {@link #compareTo}
+     */
+    public int sCompareTo(DataWord o) {
+        if (this.isNegative() != o.isNegative()) {
+            return this.isNegative() ? -1 : 1;
+        }
+        return compareTo(o);
+    }
+
+    /**
+     * Divides the absolute value of this word by the absolute value of the signed divisor,
+     * the sign of the result is left to the caller, the divisor is negated back afterwards
+     */
+    private void signedDivide(DataWord word, boolean remainder) {
+        boolean negativeDivisor = word.isNegative();
+        if (negativeDivisor) word.negate();
+        if (this.isNegative()) this.negate();
+        try {
+            divide(word.data, remainder);
+        } finally {
+            if (negativeDivisor) word.negate();
+        }
+    }
+
+    /**
+     * Unsigned division of this word by a non-zero divisor over 32-bit limbs (Knuth, TAOCP vol. 2, 4.3.1, algorithm D),
+     * leaves either the quotient or the remainder in this word.
+     * The dividend is normalized in place, its limb above 256 bits is kept in a local,
+     * the quotient digits take the places of the dividend limbs consumed by each step
+     */
+    private void divide(byte[] divisor, boolean remainder) {
+
+        if (FastByteComparisons.compareTo(this.data, 0, 32, divisor, 0, 32) < 0) {
+            if (!remainder) this.and(ZERO);
+            return;
+        }
+
+        int n = 8;
+        while (getInt(divisor, n - 1) == 0) --n;
+
+        if (n == 1) {
+            long d = getInt(divisor, 0);
+            long rem = 0;
+            for (int i = 7; i >= 0; --i) {
+                long current = rem << 32 | getInt(this.data, i);
+                long q = divideUnsigned(current, d);
+                setInt(this.data, i, q);
+                rem = current - q * d;
+            }
+            if (remainder) {
+                this.and(ZERO);
+                setLimb(this.data, 0, rem);
+            }
+            return;
+        }
+
+        // normalize, so the top limb of the divisor has its high bit set
+        int shift = Integer.numberOfLeadingZeros((int) getInt(divisor, n - 1));
+        long top = getInt(this.data, 7) << shift >>> 32;
+        for (int i = 7; i > 0; --i) {
+            setInt(this.data, i, getInt(this.data, i) << shift | getInt(this.data, i - 1) << shift >>> 32);
+        }
+        setInt(this.data, 0, getInt(this.data, 0) << shift);
+        long v1 = normalized(divisor, n - 1, shift);
+        long v2 = normalized(divisor, n - 2, shift);
+
+        for (int j = 8 - n; j >= 0; --j) {
+            long u0 = (j + n == 8) ? top : getInt(this.data, j + n);
+            long u1 = getInt(this.data, j + n - 1);
+            long u2 = getInt(this.data, j + n - 2);
+
+            long numerator = u0 << 32 | u1;
+            long qhat = divideUnsigned(numerator, v1);
+            long rhat = numerator - qhat * v1;
+            while ((qhat >>> 32) != 0 || lessThan(rhat << 32 | u2, qhat * v2)) {
+                --qhat;
+                rhat += v1;
+                if ((rhat >>> 32) != 0) break;
+            }
+
+            if (qhat != 0) {
+                // multiply and subtract
+                long borrow = 0, t;
+                for (int i = 0; i < n; ++i) {
+                    long p = qhat * normalized(divisor, i, shift);
+                    t = getInt(this.data, i + j) - borrow - (p & 0xFFFFFFFFL);
+                    setInt(this.data, i + j, t);
+                    borrow = (p >>> 32) - (t >> 32);
+                }
+                t = u0 - borrow;
+
+                if (t < 0) {
+                    // qhat was one too large, add the divisor back
+                    --qhat;
+                    long carry = 0;
+                    for (int i = 0; i < n; ++i) {
+                        t = getInt(this.data, i + j) + normalized(divisor, i, shift) + carry;
+                        setInt(this.data, i + j, t);
+                        carry = t >>> 32;
+                    }
+                }
+            }
+
+            if (j + n == 8) top = qhat; else setInt(this.data, j + n, qhat);
+        }
+
+        if (remainder) {
+            for (int i = 0; i < n; ++i) {
+                long next = (i + 1 < n) ? getInt(this.data, i + 1) : 0;
+                setInt(this.data, i, getInt(this.data, i) >>> shift | next << 32 >>> shift);
+            }
+            for (int i = n; i < 8; ++i) {
+                setInt(this.data, i, 0);
+            }
+        } else {
+            for (int i = 0; i < 8 - n; ++i) {
+                setInt(this.data, i, getInt(this.data, i + n));
+            }
+            setInt(this.data, 8 - n, top);
+            for (int i = 9 - n; i < 8; ++i) {
+                setInt(this.data, i, 0);
+            }
+        }
+    }
+
+    /**
+     * Remainder of the 512-bit dividend by a non-zero divisor, the algorithm of {@link #divide}
+     * over the 16 digits of the dividend, which is normalized in place into its spare 17th digit
+     */
+    private static void reduce(long[] dividend, byte[] divisor, byte[] result) {
+
+        int n = 8;
+        while (getInt(divisor, n - 1) == 0) --n;
+
+        if (n == 1) {
+            long d = getInt(divisor, 0);
+            long rem = 0;
+            for (int i = 15; i >= 0; --i) {
+                long current = rem << 32 | dividend[i];
+                rem = current - divideUnsigned(current, d) * d;
+            }
+            for (int i = 0; i < 32; ++i) result[i] = 0;
+            setLimb(result, 0, rem);
+            return;
+        }
+
+        int shift = Integer.numberOfLeadingZeros((int) getInt(divisor, n - 1));
+        dividend[16] = dividend[15] << shift >>> 32;
+        for (int i = 15; i > 0; --i) {
+            dividend[i] = (dividend[i] << shift | dividend[i - 1] << shift >>> 32) & 0xFFFFFFFFL;
+        }
+        dividend[0] = (dividend[0] << shift) & 0xFFFFFFFFL;
+        long v1 = normalized(divisor, n - 1, shift);
+        long v2 = normalized(divisor, n - 2, shift);
+
+        for (int j = 16 - n; j >= 0; --j) {
+            long u0 = dividend[j + n];
+            long u1 = dividend[j + n - 1];
+            long u2 = dividend[j + n - 2];
+
+            long numerator = u0 << 32 | u1;
+            long qhat = divideUnsigned(numerator, v1);
+            long rhat = numerator - qhat * v1;
+            while ((qhat >>> 32) != 0 || lessThan(rhat << 32 | u2, qhat * v2)) {
+                --qhat;
+                rhat += v1;
+                if ((rhat >>> 32) != 0) break;
+            }
+
+            if (qhat != 0) {
+                // multiply and subtract
+                long borrow = 0, t;
+                for (int i = 0; i < n; ++i) {
+                    long p = qhat * normalized(divisor, i, shift);
+                    t = dividend[i + j] - borrow - (p & 0xFFFFFFFFL);
+                    dividend[i + j] = t & 0xFFFFFFFFL;
+                    borrow = (p >>> 32) - (t >> 32);
+                }
+                t = u0 - borrow;
+
+                if (t < 0) {
+                    // qhat was one too large, add the divisor back
+                    long carry = 0;
+                    for (int i = 0; i < n; ++i) {
+                        t = dividend[i + j] + normalized(divisor, i, shift) + carry;
+                        dividend[i + j] = t & 0xFFFFFFFFL;
+                        carry = t >>> 32;
+                    }
+                }
+            }
+            // the partial remainder is below the divisor, so it fits the n digits below
+            dividend[j + n] = 0;
+        }
+
+        for (int i = 0; i < 32; ++i) result[i] = 0;
+        for (int i = 0; i < n; ++i) {
+            long next = (i + 1 < n) ? dividend[i + 1] : 0;
+            setInt(result, i, dividend[i] >>> shift | next << 32 >>> shift);
+        }
+    }
+
+    /**
+     * @return 32-bit limb of the divisor shifted left by the normalization shift
+     */
+    private static long normalized(byte[] divisor, int limb, int shift) {
+        long low = (limb > 0) ? getInt(divisor, limb - 1) : 0;
+        return (getInt(divisor, limb) << shift | low << shift >>> 32) & 0xFFFFFFFFL;
+    }
+
+    private int bitLength() {
+        int firstNonZero = ByteUtil.firstNonZeroByte(data);
+        if (firstNonZero == -1) return 0;
+        return (31 - firstNonZero) * 8 + 32 - Integer.numberOfLeadingZeros(data[firstNonZero] & 0xFF);
+    }
+
+    private boolean testBit(int bit) {
+        return (data[31 - (bit >>> 3)] & (1 << (bit & 7))) != 0;
+    }
+
+    private boolean isPowerOfTwo() {
+        int bitCount = 0;
+        for (byte b : data) {
+            bitCount += Integer.bitCount(b & 0xFF);
+        }
+        return bitCount == 1;
+    }
+
+    /**
+     * @return 64-bit limb of the word, limb 0 is the least significant one
+     */
+    private static long getLimb(byte[] data, int limb) {
+        long value = 0;
+        for (int i = 24 - 8 * limb, end = i + 8; i < end; ++i) {
+            value = value << 8 | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static void setLimb(byte[] data, int limb, long value) {
+        for (int i = 31 - 8 * limb, end = i - 8; i > end; --i) {
+            data[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * @return unsigned 32-bit limb of the word, limb 0 is the least significant one
+     */
+    private static long getInt(byte[] data, int limb) {
+        int i = 28 - 4 * limb;
+        return ((data[i] & 0xFFL) << 24) | ((data[i + 1] & 0xFF) << 16) | ((data[i + 2] & 0xFF) << 8) | (data[i + 3] & 0xFF);
+    }
+
+    private static void setInt(byte[] data, int limb, long value) {
+        int i = 28 - 4 * limb;
+        data[i] = (byte) (value >>> 24);
+        data[i + 1] = (byte) (value >>> 16);
+        data[i + 2] = (byte) (value >>> 8);
+        data[i + 3] = (byte) value;
+    }
+
+    /**
+     * @return high 64 bits of the unsigned 128-bit product
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+        long t = x1 * y0 + (x0 * y0 >>> 32);
+        long w = (t & 0xFFFFFFFFL) + x0 * y1;
+        return x1 * y1 + (t >>> 32) + (w >>> 32);
+    }
+
+    /**
+     * @return unsigned quotient of the dividend by a divisor below 2^32
+     */
+    private static long divideUnsigned(long dividend, long divisor) {
+        if (dividend >= 0) return dividend / divisor;
+        long quotient = ((dividend >>> 1) / divisor) << 1;
+        long rem = dividend - quotient * divisor;
+        return quotient + (lessThan(rem, divisor) ? 0 : 1);
+    }
+
+    private static boolean lessThan(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
     }
 
     public String toString() {
@@ -345,7 +700,7 @@ public class DataWord implements Comparable<DataWord> {
     public void signExtend(byte k) {
         if (0 > k || k > 31)
             throw new IndexOutOfBoundsException();
-        byte mask = this.sValue().testBit((k * 8) + 7) ? (byte) 0xff : 0;
+        byte mask = this.testBit((k * 8) + 7) ? (byte) 0xff : 0;
         for (int i = 31; i > k; i--) {
             this.data[31 - i] = mask;
         }
@@ -0,0 +1,204 @@
+package org.ethereum.vm;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Translates the contract codes into JVM classes, see {@link CompiledCode}.
+ *
+ * The runs are counted per analyzed code, a code is compiled on the run which reaches the threshold.
+ * A code which fails to compile (e.g. it exceeds the JVM method size limit) is left to the interpreter.
+ * The compiled classes are referenced weakly through the code analysis, so they are unloaded
+ * along with the analysis once it's evicted from the {@link ProgramCode} cache and not run anymore
+ */
+class JitCompiler {
+
+    private static final Logger logger = LoggerFactory.getLogger("VM");
+
+    private static final String CLASS_PREFIX = "org.ethereum.vm.CompiledCode$";
+
+    private static final Map<ProgramCode, Entry> entries = new WeakHashMap<>();
+
+    private static final ClassPool pool = new ClassPool(true);
+    private static int classCount;
+
+    static {
+        pool.appendClassPath(new LoaderClassPath(JitCompiler.class.getClassLoader()));
+        pool.importPackage("org.ethereum.vm");
+    }
+
+    /**
+     * @param run - true if a new run of the code starts
+     * @return the compiled code, null if the code is not hot enough yet or can't be compiled
+     */
+    static CompiledCode get(ProgramCode code, boolean run, int threshold) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(code);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(code, entry);
+            }
+        }
+
+        synchronized (entry) {
+            if (entry.compiled != null || entry.failed) return entry.compiled;
+
+            if (run) ++entry.runs;
+            if (entry.runs < threshold) return null;
+
+            entry.compiled = compile(code);
+            entry.failed = entry.compiled == null;
+            return entry.compiled;
+        }
+    }
+
+    static CompiledCode compile(ProgramCode code) {
+        String source = generate(code);
+        synchronized (pool) {
+            CtClass ctClass = pool.makeClass(CLASS_PREFIX + (classCount++));
+            try {
+                ctClass.setSuperclass(pool.get(CompiledCode.class.getName()));
+                ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+                ctClass.addMethod(CtNewMethod.make(source, ctClass));
+
+                byte[] bytecode = ctClass.toBytecode();
+                Class<?> clazz = new Loader(JitCompiler.class.getClassLoader()).define(ctClass.getName(), bytecode);
+                return (CompiledCode) clazz.newInstance();
+            } catch (Exception | LinkageError e) {
+                logger.warn("Code of {} bytes is left to the interpreter: [{}]", code.size(), e.toString());
+                return null;
+            } finally {
+                ctClass.detach();
+            }
+        }
+    }
+
+    /**
+     * @return the source of {@link CompiledCode#run(Program)}
+     */
+    static String generate(ProgramCode code) {
+        StringBuilder src = new StringBuilder();
+        src.append("public void run(Program program) {\n")
+                .append("  ProgramCode code = program.getProgramCode();\n")
+                .append("  Stack stack = program.getStack();\n")
+                .append("  int block = code.getBlockIndex(program.getPC());\n")
+                .append("  while (block >= 0 && !program.isStopped()) {\n")
+                .append("    switch (block) {\n");
+
+        for (int block = 0; block < code.getBlockCount(); ++block) {
+            src.append("    case ").append(block).append(":\n");
+            generateBlock(code, block, src);
+        }
+
+        src.append("    default:\n")
+                .append("      block = -1;\n")
+                .append("    }\n")
+                .append("  }\n")
+                .append("}\n");
+
+        return src.toString();
+    }
+
+    private static void generateBlock(ProgramCode code, int block, StringBuilder src) {
+        long gas = code.getBlockGas(block);
+        if (gas > 0) {
+            src.append("      if (!charge(program, ").append(gas).append("L)) return;\n");
+        }
+
+        int end = code.getBlockEnd(block);
+        int pc = code.getBlockStart(block);
+        while (true) {
+            OpCode op = code.getOp(pc);
+            if (op == null) {
+                src.append("      throw invalidOp(program, ").append(pc).append(");\n");
+                return;
+            }
+
+            if (op.require() > 0) {
+                src.append("      program.stackRequire(").append(op.require()).append(");\n");
+            }
+            if (op.ret() > op.require()) {
+                src.append("      program.stackMax(").append(op.require()).append(", ").append(op.ret()).append(");\n");
+            }
+
+            gas -= ProgramCode.staticGas(op);
+            int next = pc + 1;
+            switch (op) {
+                case ADD: src.append("      add(stack);\n"); break;
+                case MUL: src.append("      mul(stack);\n"); break;
+                case SUB: src.append("      sub(stack);\n"); break;
+                case DIV: src.append("      div(stack);\n"); break;
+                case MOD: src.append("      mod(stack);\n"); break;
+                case AND: src.append("      and(stack);\n"); break;
+                case OR: src.append("      or(stack);\n"); break;
+                case XOR: src.append("      xor(stack);\n"); break;
+                case NOT: src.append("      not(stack);\n"); break;
+                case POP: src.append("      pop(stack);\n"); break;
+                case PC: src.append("      pushPC(stack, ").append(pc).append(");\n"); break;
+                case JUMPDEST: break;
+                case JUMP:
+                    src.append("      block = jump(program, stack, code);\n")
+                            .append("      break;\n");
+                    return;
+                case JUMPI:
+                    src.append("      block = jumpi(program, stack, code, ").append(pc).append(");\n")
+                            .append("      break;\n");
+                    return;
+                default:
+                    if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
+                        src.append("      pushWord(stack, code, ").append(pc).append(");\n");
+                        next += op.asInt() - OpCode.PUSH1.asInt() + 1;
+                    } else if (op.asInt() >= OpCode.DUP1.asInt() && op.asInt() <= OpCode.DUP16.asInt()) {
+                        src.append("      dup(stack, ").append(op.asInt() - OpCode.DUP1.asInt() + 1).append(");\n");
+                    } else if (op.asInt() >= OpCode.SWAP1.asInt() && op.asInt() <= OpCode.SWAP16.asInt()) {
+                        src.append("      swap(stack, ").append(op.asInt() - OpCode.SWAP1.asInt() + 2).append(");\n");
+                    } else {
+                        src.append("      if (!interpret(program, stack, ").append(pc).append(", ").append(op.asInt())
+                                .append(", ").append(gas).append("L)) return;\n");
+                    }
+            }
+
+            if (op == OpCode.STOP || op == OpCode.RETURN || op == OpCode.SUICIDE) {
+                src.append("      block = -1;\n")
+                        .append("      break;\n");
+                return;
+            }
+            if (pc == end) {
+                int nextBlock = code.getBlockIndex(next);
+                src.append("      block = next(program, ").append(next).append(", ").append(nextBlock < 0 ? -1 : nextBlock).append(");\n")
+                        .append("      break;\n");
+                return;
+            }
+            pc = next;
+        }
+    }
+
+    private static class Entry {
+        int runs;
+        CompiledCode compiled;
+        boolean failed;
+    }
+
+    /**
+     * A loader per compiled class, so the class may be unloaded on its own
+     */
+    private static class Loader extends ClassLoader {
+
+        Loader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.ethereum.vm;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+
+/**
+ * Tier over {@link BlockVM} which runs the hot codes compiled to JVM bytecode, see {@link JitCompiler}.
+ *
+ * The runs of a code are counted from its first position, the code is compiled once it has
+ * been run vm.jit.threshold times. Until then, and for the codes which fail to compile, the blocks
+ * are interpreted by {@link BlockVM}, as are all the steps while tracing.
+ * Selected by vm.engine = jit, see {@link VM#create()}
+ */
+public class JitVM extends BlockVM {
+
+    private final int threshold;
+
+    public JitVM() {
+        this(CONFIG.vmJitThreshold());
+    }
+
+    JitVM(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Runs the compiled code from the current position until the program stops
+     * or leaves the basic blocks, interprets the block otherwise
+     */
+    @Override
+    public void step(Program program) {
+
+        ProgramCode code = program.getProgramCode();
+        int block = code.getBlockIndex(program.getPC());
+        if (block < 0 || isTraced(program) || !isCovered(program, code, block)) {
+            super.step(program);
+            return;
+        }
+
+        CompiledCode compiled = JitCompiler.get(code, program.getPC() == 0, threshold);
+        if (compiled == null) {
+            super.step(program);
+            return;
+        }
+
+        try {
+            compiled.run(program);
+        } catch (RuntimeException e) {
+            halt(program, e);
+            throw e;
+        }
+    }
+}
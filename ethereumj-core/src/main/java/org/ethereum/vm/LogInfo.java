@@ -6,6 +6,7 @@ import org.ethereum.util.RLP;
 import org.ethereum.util.RLPElement;
 import org.ethereum.util.RLPItem;
 import org.ethereum.util.RLPList;
+import org.ethereum.util.RLPWriter;
 
 import org.spongycastle.util.encoders.Hex;
 
@@ -65,22 +66,27 @@ public class LogInfo {
 
     /*  [address, [topic, topic ...] data] */
     public byte[] getEncoded() {
+        RLPWriter writer = new RLPWriter();
+        encode(writer);
+        return writer.toByteArray();
+    }
 
-        byte[] addressEncoded = RLP.encodeElement(this.address);
+    /**
+     * Writes the same encoding as {@link #getEncoded()}
+     */
+    public void encode(RLPWriter writer) {
 
-        byte[][] topicsEncoded = null;
+        writer.startList()
+                .writeElement(this.address)
+                .startList();
         if (topics != null) {
-            topicsEncoded = new byte[topics.size()][];
-            int i = 0;
             for (DataWord topic : topics) {
-                byte[] topicData = topic.getData();
-                topicsEncoded[i] = RLP.encodeElement(topicData);
-                ++i;
+                writer.writeElement(topic.getData());
             }
         }
-
-        byte[] dataEncoded = RLP.encodeElement(data);
-        return RLP.encodeList(addressEncoded, RLP.encodeList(topicsEncoded), dataEncoded);
+        writer.endList()
+                .writeElement(data)
+                .endList();
     }
 
     public Bloom getBloom() {
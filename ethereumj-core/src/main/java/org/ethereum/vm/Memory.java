@@ -1,23 +1,31 @@
 package org.ethereum.vm;
 
+import org.ethereum.crypto.HashUtil;
 import org.ethereum.vmtrace.ProgramTraceListener;
 
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static java.lang.Math.ceil;
-import static java.lang.Math.min;
+import static java.lang.Math.max;
 import static java.lang.String.format;
 import static org.ethereum.util.ByteUtil.oneByteToHexString;
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 
+/**
+ * The memory is a single array, addressed directly,
+ * its capacity is doubled when the memory outgrows it.
+ * The memory is still allocated in chunks, see {@link #internalSize()}, the capacity may be larger
+ */
 public class Memory implements ProgramTraceListenerAware {
 
     private static final int CHUNK_SIZE = 1024;
     private static final int WORD_SIZE = 32;
 
-    private List<byte[]> chunks = new LinkedList<>();
+    private byte[] buffer = EMPTY_BYTE_ARRAY;
+    private int allocatedSize;
     private int softSize;
     private ProgramTraceListener traceListener;
 
@@ -30,27 +38,17 @@ public class Memory implements ProgramTraceListenerAware {
         if (size <= 0) return EMPTY_BYTE_ARRAY;
 
         extend(address, size);
-        byte[] data = new byte[size];
-
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
-
-        int toGrab = data.length;
-        int start = 0;
-
-        while (toGrab > 0) {
-            int copied = grabMax(chunkIndex, chunkOffset, toGrab, data, start);
-
-            // read next chunk from the start
-            ++chunkIndex;
-            chunkOffset = 0;
+        return Arrays.copyOfRange(buffer, address, address + size);
+    }
 
-            // mark remind
-            toGrab -= copied;
-            start += copied;
-        }
+    /**
+     * Same as hashing {@link #read(int, int)}, but hashes the memory in place
+     */
+    public byte[] sha3(int address, int size) {
+        if (size <= 0) return HashUtil.sha3(EMPTY_BYTE_ARRAY);
 
-        return data;
+        extend(address, size);
+        return HashUtil.sha3(buffer, address, size);
     }
 
     public void write(int address, byte[] data, int dataSize, boolean limited) {
@@ -61,27 +59,14 @@ public class Memory implements ProgramTraceListenerAware {
         if (!limited)
             extend(address, dataSize);
 
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
-
         int toCapture = 0;
         if (limited)
             toCapture = (address + dataSize > softSize) ? softSize - address : dataSize;
         else
             toCapture = dataSize;
 
-        int start = 0;
-        while (toCapture > 0) {
-            int captured = captureMax(chunkIndex, chunkOffset, toCapture, data, start);
-
-            // capture next chunk
-            ++chunkIndex;
-            chunkOffset = 0;
-
-            // mark remind
-            toCapture -= captured;
-            start += captured;
-        }
+        if (toCapture > 0)
+            System.arraycopy(data, 0, buffer, address, toCapture);
 
         if (traceListener != null) traceListener.onMemoryWrite(address, data, dataSize);
     }
@@ -99,7 +84,10 @@ public class Memory implements ProgramTraceListenerAware {
 
         int toAllocate = newSize - internalSize();
         if (toAllocate > 0) {
-            addChunks((int) ceil((double) toAllocate / CHUNK_SIZE));
+            allocatedSize += (int) ceil((double) toAllocate / CHUNK_SIZE) * CHUNK_SIZE;
+            if (allocatedSize > buffer.length) {
+                buffer = Arrays.copyOf(buffer, max(allocatedSize, buffer.length * 2));
+            }
         }
 
         toAllocate = newSize - softSize;
@@ -112,18 +100,26 @@ public class Memory implements ProgramTraceListenerAware {
     }
 
     public DataWord readWord(int address) {
-        return new DataWord(read(address, 32));
+        DataWord word = new DataWord();
+        readWord(address, word);
+        return word;
     }
 
-    // just access expecting all data valid
-    public byte readByte(int address) {
-
-        int chunkIndex = address / CHUNK_SIZE;
-        int chunkOffset = address % CHUNK_SIZE;
+    /**
+     * Copies the memory word straight into the data of the given word
+     */
+    public void readWord(int address, DataWord word) {
+        extend(address, WORD_SIZE);
+        System.arraycopy(buffer, address, word.getData(), 0, WORD_SIZE);
+    }
 
-        byte[] chunk = chunks.get(chunkIndex);
+    public void writeWord(int address, DataWord word) {
+        write(address, word.getData(), WORD_SIZE, false);
+    }
 
-        return chunk[chunkOffset];
+    // just access expecting all data valid
+    public byte readByte(int address) {
+        return buffer[address];
     }
 
     @Override
@@ -161,35 +157,17 @@ public class Memory implements ProgramTraceListenerAware {
     }
 
     public int internalSize() {
-        return chunks.size() * CHUNK_SIZE;
+        return allocatedSize;
     }
 
+    /**
+     * @return copies of the allocated memory, chunk by chunk
+     */
     public List<byte[]> getChunks() {
-        return new LinkedList<>(chunks);
-    }
-
-    private int captureMax(int chunkIndex, int chunkOffset, int size, byte[] src, int srcPos) {
-
-        byte[] chunk = chunks.get(chunkIndex);
-        int toCapture = min(size, chunk.length - chunkOffset);
-
-        System.arraycopy(src, srcPos, chunk, chunkOffset, toCapture);
-        return toCapture;
-    }
-
-    private int grabMax(int chunkIndex, int chunkOffset, int size, byte[] dest, int destPos) {
-
-        byte[] chunk = chunks.get(chunkIndex);
-        int toGrab = min(size, chunk.length - chunkOffset);
-
-        System.arraycopy(chunk, chunkOffset, dest, destPos, toGrab);
-
-        return toGrab;
-    }
-
-    private void addChunks(int num) {
-        for (int i = 0; i < num; ++i) {
-            chunks.add(new byte[CHUNK_SIZE]);
+        List<byte[]> chunks = new ArrayList<>(allocatedSize / CHUNK_SIZE);
+        for (int offset = 0; offset < allocatedSize; offset += CHUNK_SIZE) {
+            chunks.add(Arrays.copyOfRange(buffer, offset, offset + CHUNK_SIZE));
         }
+        return chunks;
     }
 }
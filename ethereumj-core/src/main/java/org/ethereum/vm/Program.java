@@ -38,7 +38,7 @@ public class Program {
     private static final int MAX_DEPTH = 1024;
 
     //Max size for stack checks
-    private static final int MAX_STACKSIZE = 1024;
+    private static final int MAX_STACKSIZE = Stack.MAX_SIZE;
 
     ProgramInvokeFactory programInvokeFactory = new ProgramInvokeFactoryImpl();
 
@@ -59,7 +59,7 @@ public class Program {
     byte previouslyExecutedOp = 0;
     boolean stopped = false;
 
-    private Set<Integer> jumpdest = new HashSet<>();
+    private final ProgramCode code;
 
     ProgramInvoke invokeData;
 
@@ -68,6 +68,7 @@ public class Program {
         setupTraceListener(this.stack);
 
         this.ops = (ops == null) ? EMPTY_BYTE_ARRAY : ops;
+        this.code = ProgramCode.of(this.ops);
 
         if (invokeData != null) {
             this.programAddress = invokeData.getOwnerAddress();
@@ -77,8 +78,6 @@ public class Program {
             Repository repository = invokeData.getRepository();
             this.result.setRepository(setupTraceListener(new Storage(this.programAddress, repository)));
             this.programTrace.initStorage(repository.getContractDetails(this.programAddress.getLast20Bytes()));
-
-            precompile();
         }
     }
 
@@ -99,6 +98,17 @@ public class Program {
         return ops[pc];
     }
 
+    /**
+     * @return the decoded current operation, null if it's not a valid one
+     */
+    public OpCode getCurrentOpCode() {
+        return code.getOp(pc);
+    }
+
+    public ProgramCode getProgramCode() {
+        return code;
+    }
+
     /**
      * Last Op can only be set publicly (no getLastOp method), is used for logging.
      */
@@ -188,6 +198,21 @@ public class Program {
         return data;
     }
 
+    /**
+     * Moves past the PUSH operation at the current position and its immediate,
+     * same as {@link #step()} followed by {@link #sweep(int)}
+     *
+     * @return the immediate as a word
+     */
+    public DataWord sweepPush(int n) {
+        DataWord word = new DataWord(code.getPushWord(pc).clone());
+
+        pc += n + 1;
+        if (pc >= ops.length) stop();
+
+        return word;
+    }
+
     public DataWord stackPop() {
         return stack.pop();
     }
@@ -216,7 +241,7 @@ public class Program {
     }
 
     public void memorySave(DataWord addrB, DataWord value) {
-        memory.write(addrB.intValue(), value.getData(), value.getData().length, false);
+        memory.writeWord(addrB.intValue(), value);
     }
 
     public void memorySaveLimited(int addr, byte[] data, int dataSize) {
@@ -261,6 +286,10 @@ public class Program {
         return memory.read(offset, size);
     }
 
+    public byte[] memorySha3(int offset, int size) {
+        return memory.sha3(offset, size);
+    }
+
     /**
      * Allocates extra memory in the program for
      * a specified size, calculated from a given offset
@@ -357,7 +386,7 @@ public class Program {
 
         ProgramResult result = new ProgramResult();
         if (programCode.length != 0) {
-            VM vm = new VM();
+            VM vm = VM.create();
             Program program = new Program(programCode, programInvoke);
             vm.play(program);
             result = program.getResult();
@@ -478,7 +507,7 @@ public class Program {
         ProgramResult result = null;
 
         if (programCode != null && programCode.length != 0) {
-            VM vm = new VM();
+            VM vm = VM.create();
             Program program = new Program(programCode, programInvoke);
             vm.play(program);
             result = program.getResult();
@@ -586,8 +615,8 @@ public class Program {
     public DataWord getBlockHash(int index) {
 
         return index < this.getNumber().longValue() && index >= Math.max(256, this.getNumber().intValue()) - 256 ?
-                new DataWord(this.invokeData.getBlockStore().getBlockHashByNumber(index)) :
-                DataWord.ZERO;
+                new DataWord(this.invokeData.getBlockStore().getBlockHashByNumber(index)).clone() :
+                DataWord.ZERO.clone();
 
     }
 
@@ -626,6 +655,14 @@ public class Program {
         return new DataWord(afterSpend);
     }
 
+    /**
+     * @return same as {@link #getGas()}, without allocating a word
+     */
+    public long getGasLong() {
+        if (invokeData == null) return 0;
+        return invokeData.getGas().longValue() - result.getGasUsed();
+    }
+
     public DataWord getCallValue() {
         if (invokeData == null) return DataWord.ZERO_EMPTY_ARRAY;
         return invokeData.getCallValue().clone();
@@ -686,9 +723,16 @@ public class Program {
         return memory.toString();
     }
 
+    /**
+     * @return true if the state of the program is dumped after each step, see {@link #fullTrace()}
+     */
+    public boolean isFullTraced() {
+        return logger.isTraceEnabled() || listener != null;
+    }
+
     public void fullTrace() {
 
-        if (logger.isTraceEnabled() || listener != null) {
+        if (isFullTraced()) {
 
             StringBuilder stackData = new StringBuilder();
             for (int i = 0; i < stack.size(); ++i) {
@@ -796,20 +840,6 @@ public class Program {
         return programTrace;
     }
 
-    public void precompile() {
-        for (int i = 0; i < ops.length; ++i) {
-
-            OpCode op = OpCode.code(ops[i]);
-            if (op == null) continue;
-
-            if (op.equals(OpCode.JUMPDEST)) jumpdest.add(i);
-
-            if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
-                i += op.asInt() - OpCode.PUSH1.asInt() + 1;
-            }
-        }
-    }
-
     public static String stringify(byte[] code, int index, String result) {
         if (code == null || code.length == 0)
             return result;
@@ -880,7 +910,7 @@ public class Program {
     }
 
     public void validateJumpDest(int nextPC) {
-        if (!jumpdest.contains(nextPC)) {
+        if (!code.isJumpDest(nextPC)) {
             throw Program.Exception.badJumpDestination(nextPC);
         }
     }
@@ -1016,7 +1046,7 @@ public class Program {
     }
 
     @SuppressWarnings("serial")
-    public class StackTooLargeException extends RuntimeException {
+    public static class StackTooLargeException extends RuntimeException {
         public StackTooLargeException(String message) {
             super(message);
         }
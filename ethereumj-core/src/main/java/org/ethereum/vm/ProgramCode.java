@@ -0,0 +1,284 @@
+package org.ethereum.vm;
+
+import org.ethereum.db.ByteArrayWrapper;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
+
+/**
+ * Result of the static analysis of a contract code:
+ * the decoded operations, the valid jump destinations, the PUSH immediates
+ * expanded to words and the static gas of the basic blocks.
+ *
+ * The analysis depends on the code only, so it's immutable and shared by all the programs
+ * running the same code. The analyses of the recently run codes are kept in a byte-budgeted
+ * LRU cache, see {@link #of(byte[])} and the vm.code.cache.size option
+ */
+public final class ProgramCode {
+
+    private static final Cache cache = new Cache(CONFIG.vmCodeCacheSize());
+
+    private static final int WORD_SIZE = 32;
+
+    private final byte[] code;
+    private final OpCode[] ops;
+    private final BitSet jumpDests;
+    private final byte[][] pushWords;
+    private final int[] blockStarts;
+    private final int[] blockEnds;
+    private final long[] blockGas;
+
+    /**
+     * @return the analysis of the code, taken from the cache if the same code was analyzed recently
+     */
+    public static ProgramCode of(byte[] code) {
+        if (code == null) code = EMPTY_BYTE_ARRAY;
+
+        ProgramCode programCode = cache.get(new ByteArrayWrapper(code));
+        if (programCode == null) {
+            // the cached analysis must not follow the changes of the caller's array
+            programCode = new ProgramCode(code.clone());
+            cache.put(new ByteArrayWrapper(programCode.code), programCode);
+        }
+        return programCode;
+    }
+
+    ProgramCode(byte[] code) {
+        this.code = code;
+        this.ops = new OpCode[code.length];
+        this.jumpDests = new BitSet(code.length);
+        this.pushWords = new byte[code.length][];
+
+        int[] starts = new int[code.length + 1];
+        int[] ends = new int[code.length + 1];
+        long[] gas = new long[code.length + 1];
+        int blocks = 0;
+        boolean blockEnded = true;
+
+        for (int pc = 0; pc < code.length; ++pc) {
+            OpCode op = OpCode.code(code[pc]);
+            ops[pc] = op;
+
+            if (op == OpCode.JUMPDEST) {
+                jumpDests.set(pc);
+                blockEnded = true;
+            }
+            if (blockEnded) {
+                starts[blocks++] = pc;
+                blockEnded = false;
+            }
+            ends[blocks - 1] = pc;
+
+            if (op == null) {
+                blockEnded = true;
+                continue;
+            }
+
+            gas[blocks - 1] += staticGas(op);
+
+            if (op.asInt() >= OpCode.PUSH1.asInt() && op.asInt() <= OpCode.PUSH32.asInt()) {
+                int n = op.asInt() - OpCode.PUSH1.asInt() + 1;
+                pushWords[pc] = pushWord(code, pc + 1, n);
+                pc += n;
+            }
+
+            switch (op) {
+                case STOP:
+                case JUMP:
+                case JUMPI:
+                case RETURN:
+                case SUICIDE:
+                case GAS:
+                case CALL:
+                case CALLCODE:
+                case CREATE:
+                    blockEnded = true;
+                    break;
+                default:
+            }
+        }
+
+        this.blockStarts = Arrays.copyOf(starts, blocks);
+        this.blockEnds = Arrays.copyOf(ends, blocks);
+        this.blockGas = Arrays.copyOf(gas, blocks);
+    }
+
+    public byte[] getCode() {
+        return code;
+    }
+
+    public int size() {
+        return code.length;
+    }
+
+    /**
+     * @return the operation at the position, {@link OpCode#STOP} past the end of the code
+     * and null if the byte at the position is not a valid operation
+     */
+    public OpCode getOp(int pc) {
+        return pc < ops.length ? ops[pc] : OpCode.STOP;
+    }
+
+    public boolean isJumpDest(int pc) {
+        return pc >= 0 && pc < code.length && jumpDests.get(pc);
+    }
+
+    /**
+     * The immediate of the PUSH operation at the position, right padded with zeroes if the code
+     * ends before the immediate does and left padded to 32 bytes.
+     * The array is shared, it mustn't be modified
+     *
+     * @return null if there is no PUSH operation at the position
+     */
+    public byte[] getPushWord(int pc) {
+        return pc >= 0 && pc < pushWords.length ? pushWords[pc] : null;
+    }
+
+    /**
+     * A basic block starts at the beginning of the code, at each JUMPDEST and right after
+     * an operation which breaks the flow (JUMP, JUMPI, STOP, RETURN, SUICIDE or an invalid one)
+     * or which depends on the gas left (GAS, CALL, CALLCODE, CREATE), so the gas of a block
+     * may be charged at once before its first operation
+     */
+    public int getBlockCount() {
+        return blockStarts.length;
+    }
+
+    /**
+     * @return the index of the basic block which starts at the position, a negative number if none does
+     */
+    public int getBlockIndex(int pc) {
+        return Arrays.binarySearch(blockStarts, pc);
+    }
+
+    public int getBlockStart(int block) {
+        return blockStarts[block];
+    }
+
+    /**
+     * @return the position of the last operation of the block
+     */
+    public int getBlockEnd(int block) {
+        return blockEnds[block];
+    }
+
+    /**
+     * @return the sum of the gas charged by the operations of the block
+     * regardless of their operands and of the memory expansion
+     */
+    public long getBlockGas(int block) {
+        return blockGas[block];
+    }
+
+    /**
+     * @return the part of the operation gas which doesn't depend on the operands,
+     * mirrors the fees calculation in {@link VM#step(Program)}
+     */
+    public static long staticGas(OpCode op) {
+        switch (op) {
+            case STOP:
+            case SUICIDE:
+            case RETURN:
+                return GasCost.STOP;
+            case SSTORE:
+                return 0;
+            case SLOAD:
+                return GasCost.SLOAD;
+            case BALANCE:
+                return GasCost.BALANCE;
+            case SHA3:
+                return GasCost.SHA3;
+            case CALL:
+            case CALLCODE:
+                return GasCost.CALL;
+            case CREATE:
+                return GasCost.CREATE;
+            case LOG0:
+            case LOG1:
+            case LOG2:
+            case LOG3:
+            case LOG4:
+                return GasCost.LOG_GAS + GasCost.LOG_TOPIC_GAS * (op.val() - OpCode.LOG0.val());
+            case EXP:
+                return GasCost.EXP_GAS;
+            default:
+                return op.getTier().asInt();
+        }
+    }
+
+    static void clearCache() {
+        cache.clear();
+    }
+
+    private static byte[] pushWord(byte[] code, int from, int n) {
+        byte[] word = new byte[WORD_SIZE];
+        int available = Math.max(0, Math.min(n, code.length - from));
+        System.arraycopy(code, from, word, WORD_SIZE - n, available);
+        return word;
+    }
+
+    /**
+     * Rough estimation of the memory taken by the analysis: the code itself,
+     * a reference per byte for the decoded operations and another one for the
+     * immediates, plus an array per PUSH
+     */
+    private int weight() {
+        int pushes = 0;
+        for (byte[] word : pushWords) if (word != null) ++pushes;
+        return code.length * 9 + pushes * (WORD_SIZE + 16) + blockStarts.length * 16;
+    }
+
+    private static class Cache {
+
+        private final LinkedHashMap<ByteArrayWrapper, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+        private final long capacity;
+        private long size;
+
+        Cache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized ProgramCode get(ByteArrayWrapper key) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : entry.code;
+        }
+
+        synchronized void put(ByteArrayWrapper key, ProgramCode code) {
+            Entry entry = new Entry(code, code.weight());
+            if (entry.size > capacity) return;
+
+            Entry prev = entries.put(key, entry);
+            if (prev != null) size -= prev.size;
+            size += entry.size;
+
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                size -= eldest.size;
+            }
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    private static class Entry {
+
+        private final ProgramCode code;
+        private final int size;
+
+        Entry(ProgramCode code, int size) {
+            this.code = code;
+            this.size = size;
+        }
+    }
+}
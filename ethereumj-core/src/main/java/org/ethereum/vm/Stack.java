@@ -2,8 +2,20 @@ package org.ethereum.vm;
 
 import org.ethereum.vmtrace.ProgramTraceListener;
 
-public class Stack extends java.util.Stack<DataWord> implements ProgramTraceListenerAware {
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/**
+ * Operand stack of the program, the words are kept in a preallocated array of the stack limit size.
+ * There is no locking, a program is executed by a single thread
+ */
+public class Stack implements ProgramTraceListenerAware, Iterable<DataWord> {
+
+    public static final int MAX_SIZE = 1024;
+
+    private final DataWord[] items = new DataWord[MAX_SIZE];
+    private int size;
     private ProgramTraceListener traceListener;
 
     @Override
@@ -11,27 +23,103 @@ public class Stack extends java.util.Stack<DataWord> implements ProgramTraceList
         this.traceListener = listener;
     }
 
-    @Override
-    public synchronized DataWord pop() {
+    public DataWord pop() {
+        if (size == 0) throw Program.Exception.tooSmallStack(1, 0);
         if (traceListener != null) traceListener.onStackPop();
-        return super.pop();
+
+        DataWord item = items[--size];
+        items[size] = null;
+        return item;
     }
 
-    @Override
     public DataWord push(DataWord item) {
+        if (size == MAX_SIZE) throw new Program.StackTooLargeException("Expected: overflow 1024 elements stack limit");
         if (traceListener != null) traceListener.onStackPush(item);
-        return super.push(item);
+
+        items[size++] = item;
+        return item;
+    }
+
+    public DataWord peek() {
+        if (size == 0) throw Program.Exception.tooSmallStack(1, 0);
+        return items[size - 1];
+    }
+
+    /**
+     * @param index - position from the bottom of the stack
+     */
+    public DataWord get(int index) {
+        if (!isAccessible(index)) throw new ArrayIndexOutOfBoundsException(index);
+        return items[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
     }
 
+    /**
+     * Pushes a copy of the n-th word from the top, see DUPn
+     */
+    public void dup(int n) {
+        push(get(size - n).clone());
+    }
+
+    /**
+     * Only the references are swapped, the words stay as they are
+     */
     public void swap(int from, int to) {
         if (isAccessible(from) && isAccessible(to) && (from != to)) {
             if (traceListener != null) traceListener.onStackSwap(from, to);
-            DataWord tmp = get(from);
-            set(from, set(to, tmp));
+            DataWord tmp = items[from];
+            items[from] = items[to];
+            items[to] = tmp;
         }
     }
 
+    /**
+     * @return the words from the bottom to the top of the stack
+     */
+    public DataWord[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     * Iterates from the bottom to the top of the stack
+     */
+    @Override
+    public Iterator<DataWord> iterator() {
+        return new Iterator<DataWord>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public DataWord next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return items[index++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
     private boolean isAccessible(int from) {
-        return from >= 0 && from < size();
+        return from >= 0 && from < size;
     }
 }
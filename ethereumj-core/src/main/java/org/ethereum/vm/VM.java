@@ -12,7 +12,6 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.ethereum.config.SystemProperties.CONFIG;
-import static org.ethereum.crypto.HashUtil.sha3;
 import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.ethereum.vm.OpCode.*;
 
@@ -66,6 +65,20 @@ public class VM {
     /* Keeps track of the number of steps performed in this VM */
     private int vmCounter = 0;
 
+    /**
+     * @return the interpreter selected by the vm.engine option
+     */
+    public static VM create() {
+        switch (CONFIG.vmEngine()) {
+            case "block":
+                return new BlockVM();
+            case "jit":
+                return new JitVM();
+            default:
+                return new VM();
+        }
+    }
+
     public void step(Program program) {
 
         if (CONFIG.vmTrace()) {
@@ -73,7 +86,7 @@ public class VM {
         }
 
         try {
-            OpCode op = OpCode.code(program.getCurrentOp());
+            OpCode op = program.getCurrentOpCode();
             if (op == null) {
                 throw Program.Exception.invalidOpCode(program.getCurrentOp());
             }
@@ -388,14 +401,13 @@ public class VM {
                 }
                 break;
                 case LT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.value() + " < " + word2.value();
 
-                    if (word1.value().compareTo(word2.value()) == -1) {
+                    if (word1.compareTo(word2) == -1) {
                         word1.and(DataWord.ZERO);
                         word1.getData()[31] = 1;
                     } else {
@@ -406,14 +418,13 @@ public class VM {
                 }
                 break;
                 case SLT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.sValue() + " < " + word2.sValue();
 
-                    if (word1.sValue().compareTo(word2.sValue()) == -1) {
+                    if (word1.sCompareTo(word2) == -1) {
                         word1.and(DataWord.ZERO);
                         word1.getData()[31] = 1;
                     } else {
@@ -424,14 +435,13 @@ public class VM {
                 }
                 break;
                 case SGT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.sValue() + " > " + word2.sValue();
 
-                    if (word1.sValue().compareTo(word2.sValue()) == 1) {
+                    if (word1.sCompareTo(word2) == 1) {
                         word1.and(DataWord.ZERO);
                         word1.getData()[31] = 1;
                     } else {
@@ -442,14 +452,13 @@ public class VM {
                 }
                 break;
                 case GT: {
-                    // TODO: can be improved by not using BigInteger
                     DataWord word1 = program.stackPop();
                     DataWord word2 = program.stackPop();
 
                     if (logger.isInfoEnabled())
                         hint = word1.value() + " > " + word2.value();
 
-                    if (word1.value().compareTo(word2.value()) == 1) {
+                    if (word1.compareTo(word2) == 1) {
                         word1.and(DataWord.ZERO);
                         word1.getData()[31] = 1;
                     } else {
@@ -576,9 +585,7 @@ public class VM {
                 case SHA3: {
                     DataWord memOffsetData = program.stackPop();
                     DataWord lengthData = program.stackPop();
-                    byte[] buffer = program.memoryChunk(memOffsetData.intValue(), lengthData.intValue());
-
-                    byte[] encoded = sha3(buffer);
+                    byte[] encoded = program.memorySha3(memOffsetData.intValue(), lengthData.intValue());
                     DataWord word = new DataWord(encoded);
 
                     if (logger.isInfoEnabled())
@@ -819,8 +826,7 @@ public class VM {
                 case DUP13: case DUP14: case DUP15: case DUP16:{
 
                     int n = op.val() - OpCode.DUP1.val() + 1;
-                    DataWord word_1 = stack.get(stack.size() - n);
-                    program.stackPush(word_1.clone());
+                    stack.dup(n);
                     program.step();
 
                 }   break;
@@ -1016,13 +1022,12 @@ public class VM {
                 case PUSH30:
                 case PUSH31:
                 case PUSH32: {
-                    program.step();
                     int nPush = op.val() - PUSH1.val() + 1;
 
-                    byte[] data = program.sweep(nPush);
+                    DataWord data = program.sweepPush(nPush);
 
                     if (logger.isInfoEnabled())
-                        hint = "" + Hex.toHexString(data);
+                        hint = "" + Hex.toHexString(data.getData(), 32 - nPush, nPush);
 
                     program.stackPush(data);
                 }
@@ -0,0 +1,51 @@
+package org.ethereum.core;
+
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class LogFilterTest {
+
+    private static final byte[] CONTRACT = Hex.decode("095e7baea6a6c7c4c2dfeb977efac326af552d87");
+    private static final byte[] A = new DataWord(1).getData();
+    private static final byte[] B = new DataWord(2).getData();
+    private static final byte[] C = new DataWord(3).getData();
+
+    @Test // topics: [null, B], a null position matches any topic
+    public void testWildcardPosition() {
+
+        LogFilter filter = new LogFilter().withTopic().withTopic(B);
+
+        assertTrue(filter.matchesExactly(log(A, B)));
+        assertTrue(filter.matchesExactly(log(C, B, A)));
+        assertFalse(filter.matchesExactly(log(B, A)));
+        assertFalse(filter.matchesExactly(log(A)));
+
+        assertTrue(filter.matchBloom(log(C, B).getBloom()));
+        assertFalse(filter.matchBloom(log(C, A).getBloom()));
+    }
+
+    @Test // topics: [[A, C], null, B]
+    public void testAlternativesAndWildcard() {
+
+        LogFilter filter = new LogFilter().withTopic(A, C).withTopic().withTopic(B);
+
+        assertTrue(filter.matchesExactly(log(A, A, B)));
+        assertTrue(filter.matchesExactly(log(C, C, B)));
+        assertFalse(filter.matchesExactly(log(B, A, B)));
+        assertFalse(filter.matchesExactly(log(A, B, A)));
+    }
+
+    private static LogInfo log(byte[]... topics) {
+        DataWord[] words = new DataWord[topics.length];
+        for (int i = 0; i < topics.length; ++i) {
+            words[i] = new DataWord(topics[i]);
+        }
+        return new LogInfo(CONTRACT, Arrays.asList(words), new byte[0]);
+    }
+}
@@ -0,0 +1,38 @@
+package org.ethereum.core;
+
+import org.ethereum.crypto.ECKey;
+import org.ethereum.crypto.HashUtil;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class SenderRecoveryTest {
+
+    @Test
+    public void testRecover() throws Exception {
+        byte[] receiver = Hex.decode("cd2a3d9f938e13cd947ec05abc7fe734df8dd826");
+
+        List<Transaction> transactions = new ArrayList<>();
+        List<byte[]> senders = new ArrayList<>();
+        for (int i = 0; i < 50; ++i) {
+            byte[] privKey = HashUtil.sha3(("key" + i).getBytes());
+            Transaction tx = new Transaction(new byte[]{(byte) i}, new byte[]{1}, new byte[]{0x52, 0x08},
+                    receiver, new byte[]{1}, new byte[0]);
+            tx.sign(privKey);
+
+            // parsed anew, so the sender is not known yet
+            transactions.add(new Transaction(tx.getEncoded()));
+            senders.add(ECKey.fromPrivate(privKey).getAddress());
+        }
+
+        SenderRecovery.recover(transactions);
+
+        for (int i = 0; i < transactions.size(); ++i) {
+            assertArrayEquals(senders.get(i), transactions.get(i).getSender());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.ethereum.crypto;
+
+import org.ethereum.crypto.cryptohash.Keccak256;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.crypto.digests.RIPEMD160Digest;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HashUtilTest {
+
+    @Test
+    public void testRangeMatchesReference() {
+        Random random = new Random(0);
+        for (int length : new int[]{0, 1, 32, 135, 136, 137, 512, 4096}) {
+            byte[] data = new byte[length + 10];
+            random.nextBytes(data);
+
+            byte[] expected = SHA3Helper.sha3(data, 3, length);
+            assertArrayEquals(expected, HashUtil.sha3(data, 3, length));
+            assertArrayEquals(expected, HashUtil.sha3(Arrays.copyOfRange(data, 3, 3 + length)));
+
+            byte[] out = new byte[HashUtil.HASH_LENGTH + 5];
+            HashUtil.sha3(data, 3, length, out, 5);
+            assertArrayEquals(expected, Arrays.copyOfRange(out, 5, out.length));
+        }
+    }
+
+    @Test
+    public void testByteBuffer() {
+        byte[] data = new byte[1000];
+        new Random(1).nextBytes(data);
+        byte[] expected = HashUtil.sha3(data, 100, 800);
+
+        byte[] out = new byte[HashUtil.HASH_LENGTH];
+        ByteBuffer heap = ByteBuffer.wrap(data, 100, 800);
+        HashUtil.sha3(heap.slice(), out, 0);
+        assertArrayEquals(expected, out);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(1000);
+        direct.put(data).position(100).limit(900);
+        HashUtil.sha3(direct, out, 0);
+        assertArrayEquals(expected, out);
+        assertEquals(0, direct.remaining());
+    }
+
+    @Test
+    public void testReuseAfterFailure() {
+        byte[] data = "horse".getBytes();
+        try {
+            HashUtil.sha3(data, 0, data.length, new byte[10], 0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        assertArrayEquals(SHA3Helper.sha3(data), HashUtil.sha3(data));
+    }
+
+    @Test
+    public void testConcurrentHashing() throws Exception {
+        Random random = new Random(2);
+        final byte[][] inputs = new byte[64][];
+        final byte[][][] expected = new byte[inputs.length][][];
+        for (int i = 0; i < inputs.length; ++i) {
+            inputs[i] = new byte[random.nextInt(2000)];
+            random.nextBytes(inputs[i]);
+
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            RIPEMD160Digest ripemd160 = new RIPEMD160Digest();
+            byte[] ripemd160Hash = new byte[ripemd160.getDigestSize()];
+            ripemd160.update(inputs[i], 0, inputs[i].length);
+            ripemd160.doFinal(ripemd160Hash, 0);
+
+            expected[i] = new byte[][]{
+                    new Keccak256().digest(inputs[i]),
+                    sha256.digest(inputs[i]),
+                    ripemd160Hash,
+                    sha256.digest(sha256.digest(inputs[i]))
+            };
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < 8; ++t) {
+                final int seed = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        Random random = new Random(seed);
+                        int mismatches = 0;
+                        for (int n = 0; n < 20_000; ++n) {
+                            int i = random.nextInt(inputs.length);
+                            if (!Arrays.equals(expected[i][0], HashUtil.sha3(inputs[i]))) ++mismatches;
+                            if (!Arrays.equals(expected[i][1], HashUtil.sha256(inputs[i]))) ++mismatches;
+                            if (!Arrays.equals(expected[i][2], HashUtil.ripemd160(inputs[i]))) ++mismatches;
+                            if (!Arrays.equals(expected[i][3], HashUtil.doubleDigest(inputs[i]))) ++mismatches;
+                        }
+                        return mismatches;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, (int) result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        int ITERATIONS = 200_000;
+        byte[] out = new byte[HashUtil.HASH_LENGTH];
+
+        for (int size : new int[]{32, 64, 512, 4096}) {
+            byte[] data = new byte[size + 1];
+            new Random(size).nextBytes(data);
+
+            for (int round = 0; round < 3; ++round) {
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    Keccak256 digest = new Keccak256();
+                    digest.update(Arrays.copyOfRange(data, 1, data.length));
+                    digest.digest();
+                }
+                long allocating = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    SHA3Helper.sha3(data, 1, size);
+                }
+                long spongy = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    HashUtil.sha3(data, 1, size, out, 0);
+                }
+                long pooled = System.nanoTime() - start;
+
+                System.out.printf("%5d B: new Keccak256 + copy %4d ns, SHA3Helper range %4d ns, pooled in place %4d ns%n",
+                        size, allocating / ITERATIONS, spongy / ITERATIONS, pooled / ITERATIONS);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.ethereum.crypto;
+
+import org.ethereum.crypto.ECKey.ECDSASignature;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.crypto.params.ECPublicKeyParameters;
+import org.spongycastle.crypto.signers.ECDSASigner;
+import org.spongycastle.math.ec.ECAlgorithms;
+import org.spongycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.ethereum.crypto.ECKey.CURVE;
+import static org.junit.Assert.*;
+
+public class Secp256k1Test {
+
+    @Test
+    public void testFieldArithmetic() {
+        Random random = new Random(0);
+        BigInteger p = Secp256k1.P;
+        long[] r = new long[8];
+
+        for (int i = 0; i < 5_000; ++i) {
+            BigInteger a = i < 4 ? p.subtract(BigInteger.valueOf(i + 1)) : new BigInteger(256, random).mod(p);
+            BigInteger b = i % 7 == 0 ? p.subtract(BigInteger.ONE) : new BigInteger(256, random).mod(p);
+
+            Secp256k1.mul(r, Secp256k1.element(a), Secp256k1.element(b));
+            assertEquals(a.multiply(b).mod(p), Secp256k1.toBigInteger(r));
+            Secp256k1.add(r, Secp256k1.element(a), Secp256k1.element(b));
+            assertEquals(a.add(b).mod(p), Secp256k1.toBigInteger(r));
+            Secp256k1.sub(r, Secp256k1.element(a), Secp256k1.element(b));
+            assertEquals(a.subtract(b).mod(p), Secp256k1.toBigInteger(r));
+
+            if (i % 10 == 0) {
+                Secp256k1.inv(r, Secp256k1.element(a));
+                assertEquals(a.modInverse(p), Secp256k1.toBigInteger(r));
+
+                BigInteger root = a.modPow(p.add(BigInteger.ONE).shiftRight(2), p);
+                assertEquals(root.pow(2).mod(p).equals(a), Secp256k1.sqrt(r, Secp256k1.element(a)));
+                assertEquals(root, Secp256k1.toBigInteger(r));
+            }
+        }
+    }
+
+    @Test
+    public void testWnaf() {
+        Random random = new Random(1);
+        for (int i = 0; i < 1_000; ++i) {
+            BigInteger k = i == 0 ? BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE) : new BigInteger(256, random);
+            for (int w : new int[]{5, 10}) {
+                int[] naf = Secp256k1.wnaf(Secp256k1.element(k), w);
+
+                BigInteger sum = BigInteger.ZERO;
+                for (int j = naf.length - 1; j >= 0; --j) {
+                    sum = sum.shiftLeft(1).add(BigInteger.valueOf(naf[j]));
+                    if (naf[j] != 0) {
+                        assertEquals(1, naf[j] & 1);
+                        assertTrue(Math.abs(naf[j]) < 1 << (w - 1));
+                    }
+                }
+                assertEquals(k, sum);
+            }
+        }
+    }
+
+    @Test
+    public void testRecoverMatchesSpongycastle() {
+        Random random = new Random(2);
+        for (int i = 0; i < 200; ++i) {
+            ECKey key = ECKey.fromPrivate(new BigInteger(256, random).mod(CURVE.getN()));
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            ECDSASignature sig = key.doSign(hash);
+
+            for (int recId = 0; recId < 2; ++recId) {
+                ECPoint expected = recoverWithSpongycastle(recId, sig, hash);
+                ECKey recovered = ECKey.recoverFromSignature(recId, sig, hash, false);
+                assertEquals(expected, recovered.getPubKeyPoint());
+                assertArrayEquals(expected.getEncoded(false), recovered.getPubKey());
+            }
+
+            ECKey recovered = ECKey.recoverFromSignature(key.sign(hash).v - 31, sig, hash, true);
+            assertArrayEquals(key.getPubKey(), recovered.getPubKey());
+            assertTrue(recovered.isCompressed());
+        }
+    }
+
+    @Test
+    public void testVerifyMatchesSpongycastle() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; ++i) {
+            ECKey key = ECKey.fromPrivate(new BigInteger(256, random).mod(CURVE.getN()));
+            byte[] hash = new byte[32];
+            random.nextBytes(hash);
+            ECDSASignature sig = key.doSign(hash);
+
+            ECDSASignature[] candidates = {
+                    sig,
+                    new ECDSASignature(sig.r, sig.s.add(BigInteger.ONE)),
+                    new ECDSASignature(sig.r.add(CURVE.getN()), sig.s),
+                    new ECDSASignature(sig.r, CURVE.getN().subtract(sig.s)),
+                    new ECDSASignature(BigInteger.ZERO, sig.s)
+            };
+            for (ECDSASignature candidate : candidates) {
+                for (boolean compressed : new boolean[]{false, true}) {
+                    byte[] pub = key.getPubKeyPoint().getEncoded(compressed);
+                    assertEquals(verifyWithSpongycastle(hash, candidate, pub), ECKey.verify(hash, candidate, pub));
+                }
+            }
+
+            hash[0] ^= 1;
+            assertFalse(ECKey.verify(hash, sig, key.getPubKey()));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPublicKey() {
+        byte[] pub = ECKey.fromPrivate(BigInteger.TEN).getPubKeyPoint().getEncoded(false);
+        pub[64] ^= 1;
+        Secp256k1.decode(pub);
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        int ITERATIONS = 2_000;
+        Random random = new Random(4);
+
+        ECKey key = ECKey.fromPrivate(new BigInteger(256, random).mod(CURVE.getN()));
+        byte[] hash = new byte[32];
+        random.nextBytes(hash);
+        ECDSASignature sig = key.sign(hash);
+        int recId = sig.v - 31;
+        byte[] pub = key.getPubKeyPoint().getEncoded(false);
+
+        for (int round = 0; round < 5; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                recoverWithSpongycastle(recId, sig, hash);
+            }
+            long spongyRecover = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ECKey.recoverFromSignature(recId, sig, hash, false);
+            }
+            long recover = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                verifyWithSpongycastle(hash, sig, pub);
+            }
+            long spongyVerify = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ECKey.verify(hash, sig, pub);
+            }
+            long verify = System.nanoTime() - start;
+
+            System.out.printf("recover: spongycastle %5d us, secp256k1 %5d us; verify: spongycastle %5d us, secp256k1 %5d us%n",
+                    spongyRecover / ITERATIONS / 1000, recover / ITERATIONS / 1000,
+                    spongyVerify / ITERATIONS / 1000, verify / ITERATIONS / 1000);
+        }
+    }
+
+    /**
+     * The generic point math ECKey used before
+     */
+    private static ECPoint recoverWithSpongycastle(int recId, ECDSASignature sig, byte[] hash) {
+        BigInteger n = CURVE.getN();
+        BigInteger x = sig.r.add(BigInteger.valueOf(recId / 2).multiply(n));
+
+        byte[] compressed = new byte[33];
+        byte[] xBytes = x.toByteArray();
+        int length = Math.min(32, xBytes.length);
+        System.arraycopy(xBytes, xBytes.length - length, compressed, 33 - length, length);
+        compressed[0] = (byte) ((recId & 1) == 1 ? 0x03 : 0x02);
+        ECPoint r = CURVE.getCurve().decodePoint(compressed);
+
+        BigInteger e = new BigInteger(1, hash);
+        BigInteger rInv = sig.r.modInverse(n);
+        BigInteger u1 = rInv.multiply(BigInteger.ZERO.subtract(e).mod(n)).mod(n);
+        BigInteger u2 = rInv.multiply(sig.s).mod(n);
+        return ECAlgorithms.sumOfTwoMultiplies(CURVE.getG(), u1, r, u2).normalize();
+    }
+
+    private static boolean verifyWithSpongycastle(byte[] hash, ECDSASignature sig, byte[] pub) {
+        ECDSASigner signer = new ECDSASigner();
+        signer.init(false, new ECPublicKeyParameters(CURVE.getCurve().decodePoint(pub), CURVE));
+        return signer.verifySignature(hash, sig.r, sig.s);
+    }
+}
@@ -0,0 +1,79 @@
+package org.ethereum.datasource;
+
+import org.ethereum.db.ByteArrayWrapper;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.ethereum.util.ByteUtil.wrap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.spongycastle.util.encoders.Hex.decode;
+
+public class HashMapDBTest {
+
+    @Test
+    public void testCursor() {
+        HashMapDB db = new HashMapDB();
+        for (String key : new String[]{"00", "0100", "01ff", "02", "ff", "ffff"}) {
+            db.put(decode(key), decode(key + "aa"));
+        }
+
+        assertEquals(keys("00", "0100", "01ff", "02", "ff", "ffff"), scan(db, KeyRange.all()));
+        assertEquals(keys("0100", "01ff"), scan(db, KeyRange.prefix(decode("01"))));
+        assertEquals(keys("ff", "ffff"), scan(db, KeyRange.prefix(decode("ff"))));
+        assertEquals(keys("01ff", "02"), scan(db, KeyRange.of(decode("01ff"), decode("ff"))));
+        assertEquals(keys("00", "0100", "01ff"), scan(db, KeyRange.of(null, decode("02"))));
+        assertEquals(keys(), scan(db, KeyRange.prefix(decode("03"))));
+    }
+
+    @Test
+    public void testGetAll() {
+        HashMapDB db = new HashMapDB();
+        db.put(decode("01"), decode("aa"));
+        db.put(decode("02"), decode("bb"));
+
+        List<byte[]> values = db.getAll(Arrays.asList(decode("02"), decode("03"), decode("01")));
+        assertEquals(3, values.size());
+        assertArrayEquals(decode("bb"), values.get(0));
+        assertNull(values.get(1));
+        assertArrayEquals(decode("aa"), values.get(2));
+    }
+
+    @Test
+    public void testKeyRange() {
+        KeyRange prefix = KeyRange.prefix(decode("01ff"));
+        assertArrayEquals(decode("02"), prefix.getTo());
+        assertTrue(prefix.contains(decode("01ff")));
+        assertTrue(prefix.contains(decode("01ffff")));
+        assertFalse(prefix.contains(decode("01fe")));
+        assertTrue(prefix.isBefore(decode("02")));
+
+        assertEquals(null, KeyRange.prefix(decode("ffff")).getTo());
+    }
+
+    private static Set<ByteArrayWrapper> scan(KeyValueDataSource db, KeyRange range) {
+        Set<ByteArrayWrapper> keys = new HashSet<>();
+        try (KeyValueCursor cursor = db.cursor(range)) {
+            while (cursor.next()) {
+                assertArrayEquals(db.get(cursor.getKey()), cursor.getValue());
+                keys.add(wrap(cursor.getKey()));
+            }
+        }
+        return keys;
+    }
+
+    private static Set<ByteArrayWrapper> keys(String... keys) {
+        Set<ByteArrayWrapper> result = new HashSet<>();
+        for (String key : keys) {
+            result.add(wrap(decode(key)));
+        }
+        return result;
+    }
+}
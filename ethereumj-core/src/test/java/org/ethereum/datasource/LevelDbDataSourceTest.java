@@ -1,18 +1,49 @@
 package org.ethereum.datasource;
 
+import org.ethereum.trie.SecureTrie;
+import org.ethereum.util.FastByteComparisons;
+import org.ethereum.util.FileUtil;
+import org.ethereum.util.RLP;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import static org.ethereum.TestUtils.randomBytes;
+import static org.ethereum.config.SystemProperties.CONFIG;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
-@Ignore
 public class LevelDbDataSourceTest {
 
+    private String dbDir;
+    private String testDb;
+
+    @Before
+    public void setUp() {
+        // every run starts with empty databases
+        testDb = "test_db_" + new BigInteger(32, new Random());
+        dbDir = CONFIG.databaseDir();
+        CONFIG.setDataBaseDir(testDb);
+    }
+
+    @After
+    public void tearDown() {
+        CONFIG.setDataBaseDir(dbDir);
+        FileUtil.recursiveDelete(testDb);
+    }
+
+    @Ignore
     @Test
     public void testBatchUpdating() {
         LevelDbDataSource dataSource = new LevelDbDataSource("test");
@@ -28,6 +59,7 @@ public class LevelDbDataSourceTest {
         dataSource.close();
     }
 
+    @Ignore
     @Test
     public void testPutting() {
         LevelDbDataSource dataSource = new LevelDbDataSource("test");
@@ -42,6 +74,102 @@ public class LevelDbDataSourceTest {
         dataSource.close();
     }
 
+    @Test
+    public void testCursor() {
+        LevelDbDataSource dataSource = new LevelDbDataSource("test-cursor");
+        dataSource.init();
+        dataSource.updateBatch(createBatch(5000));
+
+        byte[] prefix = {(byte) 0x80};
+        List<byte[]> keys = new ArrayList<>();
+        try (KeyValueCursor cursor = dataSource.cursor(KeyRange.prefix(prefix))) {
+            while (cursor.next()) {
+                assertEquals((byte) 0x80, cursor.getKey()[0]);
+                assertArrayEquals(dataSource.get(cursor.getKey()), cursor.getValue());
+                keys.add(cursor.getKey());
+            }
+        }
+
+        // keys come in order
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(FastByteComparisons.compareTo(keys.get(i - 1), 0, 32, keys.get(i), 0, 32) < 0);
+        }
+
+        int count = 0;
+        for (byte[] key : dataSource.keys()) {
+            if (key[0] == (byte) 0x80) ++count;
+        }
+        assertEquals(count, keys.size());
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testGetAll() {
+        LevelDbDataSource dataSource = new LevelDbDataSource("test-get-all");
+        dataSource.init();
+        Map<byte[], byte[]> batch = createBatch(1000);
+        dataSource.updateBatch(batch);
+
+        List<byte[]> keys = new ArrayList<>(batch.keySet());
+        keys.add(randomBytes(32));
+        List<byte[]> values = dataSource.getAll(keys);
+
+        assertEquals(keys.size(), values.size());
+        for (int i = 0; i < batch.size(); i++) {
+            assertArrayEquals(batch.get(keys.get(i)), values.get(i));
+        }
+        assertNull(values.get(batch.size()));
+
+        dataSource.close();
+    }
+
+    @Test
+    public void testProfiles() {
+        assertEquals("state", LevelDbDataSource.getProfile("state"));
+        assertEquals("details", LevelDbDataSource.getProfile("details"));
+        assertEquals("storage", LevelDbDataSource.getProfile("details-storage/0a"));
+        assertEquals("blocks", LevelDbDataSource.getProfile("blocks"));
+        assertEquals("default", LevelDbDataSource.getProfile("hashstore"));
+    }
+
+    @Ignore
+    @Test
+    public void benchmarkProfiles() {
+        // database name defines its profile
+        for (String name : new String[]{"state", "details", "details-storage/0a", "blocks", "default"}) {
+            LevelDbDataSource dataSource = new LevelDbDataSource(name);
+            dataSource.init();
+
+            SecureTrie trie = new SecureTrie(dataSource);
+            for (int i = 0; i < 100_000; i++) {
+                trie.update(randomBytes(20), RLP.encodeElement(randomBytes(70)));
+            }
+            trie.sync();
+            List<byte[]> nodes = new ArrayList<>(dataSource.keys());
+
+            // lookups start with the cold block cache
+            dataSource.close();
+            dataSource.init();
+
+            Random random = new Random(0);
+            for (int round = 0; round < 3; round++) {
+                int lookups = 500_000;
+                long start = System.nanoTime();
+                for (int i = 0; i < lookups; i++) {
+                    assertNotNull(dataSource.get(nodes.get(random.nextInt(nodes.size()))));
+                }
+                long time = System.nanoTime() - start;
+
+                System.out.printf("Profile '%s': %d nodes, %d random lookups in %d ms, %d lookups/s%n",
+                        LevelDbDataSource.getProfile(name), nodes.size(), lookups,
+                        time / 1_000_000, lookups * 1_000_000_000L / time);
+            }
+
+            dataSource.close();
+        }
+    }
+
     private static Map<byte[], byte[]> createBatch(int batchSize) {
         HashMap<byte[], byte[]> result = new HashMap<>();
         for (int i = 0; i < batchSize; i++) {
@@ -0,0 +1,130 @@
+package org.ethereum.db;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class AsyncFlusherTest {
+
+    @Test
+    public void testOrder() {
+        AsyncFlusher flusher = new AsyncFlusher("test-flush", 2);
+        final List<Integer> written = Collections.synchronizedList(new ArrayList<Integer>());
+
+        for (int i = 0; i < 10; ++i) {
+            final int idx = i;
+            flusher.submit(new Runnable() {
+                @Override
+                public void run() {
+                    written.add(idx);
+                }
+            });
+        }
+        flusher.waitForCompletion();
+
+        assertEquals(10, written.size());
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(i, (int) written.get(i));
+        }
+        assertEquals(10, flusher.getFlushCount());
+        assertEquals(0, flusher.getQueueDepth());
+    }
+
+    @Test
+    public void testBackPressure() throws InterruptedException {
+        final AsyncFlusher flusher = new AsyncFlusher("test-flush", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        flusher.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        assertEquals(1, flusher.getQueueDepth());
+
+        final AtomicBoolean submitted = new AtomicBoolean();
+        Thread submitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flusher.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+                submitted.set(true);
+            }
+        });
+        submitter.start();
+
+        // the second write waits for the first one
+        submitter.join(200);
+        assertFalse(submitted.get());
+
+        release.countDown();
+        submitter.join();
+        assertTrue(submitted.get());
+
+        flusher.waitForCompletion();
+        assertEquals(2, flusher.getFlushCount());
+        assertTrue(flusher.getBackPressureTime() > 0);
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        AsyncFlusher flusher = new AsyncFlusher("test-flush", 2);
+        final List<Thread> writers = Collections.synchronizedList(new ArrayList<Thread>());
+        Runnable write = new Runnable() {
+            @Override
+            public void run() {
+                writers.add(Thread.currentThread());
+            }
+        };
+
+        flusher.submit(write);
+        flusher.submit(write);
+        flusher.shutdown();
+
+        // the queued writes are done before the writer exits
+        assertEquals(2, flusher.getFlushCount());
+        assertFalse(writers.get(0).isAlive());
+
+        // a later write starts a new writer
+        flusher.submit(write);
+        flusher.waitForCompletion();
+        assertEquals(3, flusher.getFlushCount());
+        assertNotSame(writers.get(0), writers.get(2));
+
+        flusher.shutdown();
+        assertFalse(writers.get(2).isAlive());
+        flusher.shutdown();
+    }
+
+    @Test
+    public void testFailure() {
+        AsyncFlusher flusher = new AsyncFlusher("test-flush", 2);
+        flusher.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("disk is full");
+            }
+        });
+
+        try {
+            flusher.waitForCompletion();
+            fail("Flush failure is not reported");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
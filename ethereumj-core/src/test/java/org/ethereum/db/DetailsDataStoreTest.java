@@ -137,6 +137,38 @@ public class DetailsDataStoreTest {
         assertNull(contractDetails);
     }
     
+    @Test
+    public void testFlushUpdatedOnly() {
+        final int[] written = {0};
+        DatabaseImpl db = new DatabaseImpl(new HashMapDB() {
+            @Override
+            public void updateBatch(Map<byte[], byte[]> rows) {
+                written[0] += rows.size();
+                super.updateBatch(rows);
+            }
+        });
+        DetailsDataStore dds = new DetailsDataStore();
+        dds.setDB(db);
+
+        byte[] c_key1 = randomAddress();
+        byte[] c_key2 = randomAddress();
+        dds.update(c_key1, randomContractDetails(32, 10, null));
+        dds.update(c_key2, randomContractDetails(32, 10, null));
+        dds.flush();
+        assertEquals(2, written[0]);
+
+        // details which are just read are not written back
+        assertNotNull(dds.get(c_key1));
+        ContractDetails contractDetails = dds.get(c_key2);
+        contractDetails.put(randomDataWord(), randomDataWord());
+        dds.update(c_key2, contractDetails);
+        dds.flush();
+        assertEquals(3, written[0]);
+
+        assertEquals(11, dds.get(c_key2).getStorage().size());
+        assertEquals(10, dds.get(c_key1).getStorage().size());
+    }
+
     @Test
     public void testExternalStorage() {
         DatabaseImpl db = new DatabaseImpl(new HashMapDB());
@@ -188,6 +220,38 @@ public class DetailsDataStoreTest {
         detailsWithInternalStorage.put(randomDataWord(), randomDataWord());
     }
     
+    @Test
+    public void testStoragePruning() {
+        DatabaseImpl db = new DatabaseImpl(new HashMapDB());
+        DetailsDataStore dds = new DetailsDataStore();
+        dds.setDB(db);
+        dds.enableStoragePruning(2);
+
+        byte[] address = randomAddress();
+        HashMapDB storage = new HashMapDB();
+        ContractDetails details = randomContractDetails(16, SystemProperties.CONFIG.detailsInMemoryStorageLimit() + 1, storage);
+        DataWord key = randomDataWord();
+
+        byte[][] roots = new byte[3][];
+        for (int block = 1; block <= 3; ++block) {
+            details.put(key, new DataWord(block));
+            dds.setBlockNumber(block);
+            dds.update(address, details);
+
+            Runnable write = dds.prepareFlush();
+            roots[block - 1] = details.getStorageHash();
+            // nothing is deleted before the details are written
+            assertNotNull(storage.get(roots[0]));
+            write.run();
+        }
+
+        // the root of the first block has left the window of two blocks
+        assertNull(storage.get(roots[0]));
+        assertNotNull(storage.get(roots[1]));
+        assertNotNull(storage.get(roots[2]));
+        assertEquals(new DataWord(3), details.get(key));
+    }
+
     private static ContractDetails randomContractDetails(int codeSize, int storageSize, @Nullable KeyValueDataSource storageDataSource) {
         ContractDetailsImpl result = new ContractDetailsImpl();
         result.setCode(randomBytes(codeSize));
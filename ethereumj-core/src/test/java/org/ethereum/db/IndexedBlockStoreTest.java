@@ -2,7 +2,10 @@ package org.ethereum.db;
 
 import org.ethereum.config.SystemProperties;
 import org.ethereum.core.Block;
+import org.ethereum.core.BlockHeader;
 import org.ethereum.core.Genesis;
+import org.ethereum.core.Transaction;
+import org.ethereum.core.TransactionReceipt;
 import org.ethereum.datasource.HashMapDB;
 import org.ethereum.datasource.KeyValueDataSource;
 import org.ethereum.datasource.LevelDbDataSource;
@@ -27,6 +30,7 @@ import static java.math.BigInteger.ZERO;
 import static org.ethereum.TestUtils.createIndexMap;
 import static org.ethereum.TestUtils.createMapDB;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 public class IndexedBlockStoreTest {
@@ -71,7 +75,7 @@ public class IndexedBlockStoreTest {
     public void test1(){
 
         IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
-        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), null);
+        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
 
         BigInteger cummDiff = BigInteger.ZERO;
         for (Block block : blocks){
@@ -177,10 +181,10 @@ public class IndexedBlockStoreTest {
     public void test2(){
 
         IndexedBlockStore cache = new IndexedBlockStore();
-        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), null);
+        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
 
         IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
-        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), cache);
+        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), cache);
 
         BigInteger cummDiff = BigInteger.ZERO;
         for (Block block : blocks){
@@ -286,10 +290,10 @@ public class IndexedBlockStoreTest {
     public void test3(){
 
         IndexedBlockStore cache = new IndexedBlockStore();
-        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), null);
+        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
 
         IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
-        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), cache);
+        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), cache);
 
         BigInteger cummDiff = BigInteger.ZERO;
         for (Block block : blocks){
@@ -408,8 +412,11 @@ public class IndexedBlockStoreTest {
         KeyValueDataSource blocksDB = new LevelDbDataSource("blocks");
         blocksDB.init();
 
+        KeyValueDataSource headersDB = new LevelDbDataSource("headers");
+        headersDB.init();
+
         IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
-        indexedBlockStore.init(indexDB, blocksDB, null);
+        indexedBlockStore.init(indexDB, blocksDB, headersDB, new HashMapDB(), null);
 
 
         BigInteger cummDiff = BigInteger.ZERO;
@@ -511,6 +518,7 @@ public class IndexedBlockStoreTest {
         }
 
         blocksDB.close();
+        headersDB.close();
         db.close();
 
 
@@ -522,8 +530,11 @@ public class IndexedBlockStoreTest {
         blocksDB = new LevelDbDataSource("blocks");
         blocksDB.init();
 
+        headersDB = new LevelDbDataSource("headers");
+        headersDB.init();
+
         indexedBlockStore = new IndexedBlockStore();
-        indexedBlockStore.init(indexDB, blocksDB, null);
+        indexedBlockStore.init(indexDB, blocksDB, headersDB, new HashMapDB(), null);
 
         //  testing: getListHashesStartWith(long, long)
 
@@ -537,6 +548,7 @@ public class IndexedBlockStoreTest {
         }
 
         blocksDB.close();
+        headersDB.close();
         db.close();
         FileUtil.recursiveDelete(testDir);
     }
@@ -554,13 +566,16 @@ public class IndexedBlockStoreTest {
         KeyValueDataSource blocksDB = new LevelDbDataSource("blocks");
         blocksDB.init();
 
+        KeyValueDataSource headersDB = new LevelDbDataSource("headers");
+        headersDB.init();
+
         try {
 
             IndexedBlockStore cache = new IndexedBlockStore();
-            cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), null);
+            cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
 
             IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
-            indexedBlockStore.init(indexDB, blocksDB, cache);
+            indexedBlockStore.init(indexDB, blocksDB, headersDB, new HashMapDB(), cache);
 
 
             BigInteger cummDiff = BigInteger.ZERO;
@@ -671,9 +686,22 @@ public class IndexedBlockStoreTest {
                 assertEquals(hash_, hash);
             }
 
+            //  testing: getChainBlocksStartWith(long, long), half of the range is flushed
+
+            block  = blocks.get(preloadSize - 50);
+            List<Block> blockList =  indexedBlockStore.getChainBlocksStartWith(block.getNumber(), 100);
+            assertEquals(100, blockList.size());
+            for (int i = 0; i < 100; ++i){
+                block  = blocks.get(preloadSize - 50 + i);
+                String hash  = Hex.toHexString(blockList.get(i).getHash());
+                String hash_ = Hex.toHexString( block.getHash() );
+                assertEquals(hash_, hash);
+            }
+
 
             indexedBlockStore.flush();
             blocksDB.close();
+            headersDB.close();
             db.close();
             // testing after: REOPEN
 
@@ -683,8 +711,11 @@ public class IndexedBlockStoreTest {
             blocksDB = new LevelDbDataSource("blocks");
             blocksDB.init();
 
+            headersDB = new LevelDbDataSource("headers");
+            headersDB.init();
+
             indexedBlockStore = new IndexedBlockStore();
-            indexedBlockStore.init(indexDB, blocksDB, null);
+            indexedBlockStore.init(indexDB, blocksDB, headersDB, new HashMapDB(), null);
 
 
             //  testing: getListHashesStartWith(long, long)
@@ -699,14 +730,126 @@ public class IndexedBlockStoreTest {
             }
         } finally {
             blocksDB.close();
+            headersDB.close();
             db.close();
             FileUtil.recursiveDelete(testDir);
         }
 
     }
 
+    @Test // hashes and headers from the index, part flushed part in cache
+    public void test6(){
+
+        IndexedBlockStore cache = new IndexedBlockStore();
+        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
+
+        IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
+        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), cache);
+
+        BigInteger cummDiff = BigInteger.ZERO;
+        int preloadSize = blocks.size() / 2;
+        for (int i = 0; i < blocks.size(); ++i){
+            Block block = blocks.get(i);
+            cummDiff = cummDiff.add( block.getCumulativeDifficulty() );
+            indexedBlockStore.saveBlock(block, cummDiff, true);
+            if (i == preloadSize - 1) indexedBlockStore.flush();
+        }
+
+        //  testing: getBlockHashByNumber(long)
+
+        for (int i : new int[]{0, preloadSize - 1, preloadSize, 8003}){
+            Block block = blocks.get(i);
+            assertEquals(Hex.toHexString(block.getHash()),
+                    Hex.toHexString(indexedBlockStore.getBlockHashByNumber(block.getNumber())));
+        }
+        assertEquals(null, indexedBlockStore.getBlockHashByNumber(10000));
+
+        //  testing: getBlockHeaderByHash(byte[])
+
+        for (int i : new int[]{0, preloadSize - 1, preloadSize, 8003}){
+            Block block = blocks.get(i);
+            BlockHeader header = indexedBlockStore.getBlockHeaderByHash(block.getHash());
+            assertEquals(block.getNumber(), header.getNumber());
+            assertEquals(Hex.toHexString(block.getParentHash()), Hex.toHexString(header.getParentHash()));
+        }
+        assertEquals(null, indexedBlockStore.getBlockHeaderByHash(Hex.decode("00112233")));
+
+        //  testing: getListHashesEndWith(byte[], long), from the cache down to the flushed blocks
+
+        Block block  = blocks.get(preloadSize + 49);
+        List<byte[]> hashList =  indexedBlockStore.getListHashesEndWith(block.getHash(), 100);
+        assertEquals(100, hashList.size());
+        for (int i = 0; i < 100; ++i){
+            block  = blocks.get(preloadSize + 49 - i);
+            String hash  = Hex.toHexString(hashList.get(i));
+            String hash_ = Hex.toHexString( block.getHash() );
+            assertEquals(hash_, hash);
+        }
+
+        //  testing: getListHashesEndWith(byte[], long), stops at genesis
+
+        block  = blocks.get(10);
+        hashList =  indexedBlockStore.getListHashesEndWith(block.getHash(), 100);
+        assertEquals(11, hashList.size());
+    }
+
+    @Test // transactions by hash, part flushed part in cache
+    public void test7(){
+
+        IndexedBlockStore cache = new IndexedBlockStore();
+        cache.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), new HashMapDB(), null);
+
+        KeyValueDataSource transactionsDB = new HashMapDB();
+        IndexedBlockStore indexedBlockStore = new IndexedBlockStore();
+        indexedBlockStore.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), transactionsDB, cache);
+
+        List<Transaction> transactions = new ArrayList<>();
+        BigInteger cummDiff = BigInteger.ZERO;
+        int preloadSize = blocks.size() / 2;
+        for (int i = 0; i < blocks.size(); ++i){
+            Block block = blocks.get(i);
+            cummDiff = cummDiff.add( block.getCumulativeDifficulty() );
+
+            List<TransactionReceipt> receipts = new ArrayList<>();
+            for (Transaction tx : block.getTransactionsList()){
+                TransactionReceipt receipt = new TransactionReceipt();
+                receipt.setCumulativeGas(receipts.size() + 1);
+                receipt.setPostTxState(block.getStateRoot());
+                receipt.setTransaction(tx);
+                receipts.add(receipt);
+                transactions.add(tx);
+            }
+
+            indexedBlockStore.saveBlock(block, cummDiff, true, receipts);
+            if (i == preloadSize - 1) indexedBlockStore.flush();
+        }
+        assertTrue(transactions.size() > 0);
+
+        //  testing: getTransactionInfo(byte[]), from the flushed store read without the recent ones
+
+        IndexedBlockStore reopened = new IndexedBlockStore();
+        reopened.init(new HashMap<Long, List<IndexedBlockStore.BlockInfo>>(), new HashMapDB(), new HashMapDB(), transactionsDB, null);
+
+        for (Transaction tx : transactions){
+            TransactionInfo info = indexedBlockStore.getTransactionInfo(tx.getHash());
+            Block block = indexedBlockStore.getBlockByHash(info.getBlockHash());
+            assertEquals(Hex.toHexString(tx.getHash()),
+                    Hex.toHexString(block.getTransactionsList().get(info.getIndex()).getHash()));
+            assertEquals(Hex.toHexString(tx.getHash()), Hex.toHexString(info.getReceipt().getTransaction().getHash()));
+            assertEquals(info.getIndex() + 1, info.getReceipt().getCumulativeGasLong());
+
+            TransactionInfo flushed = reopened.getTransactionInfo(tx.getHash());
+            if (flushed != null) {
+                assertEquals(Hex.toHexString(info.getEncoded()), Hex.toHexString(flushed.getEncoded()));
+                assertEquals(Hex.toHexString(tx.getEncoded()),
+                        Hex.toHexString(flushed.getReceipt().getTransaction().getEncoded()));
+            }
+        }
+
+        assertEquals(null, indexedBlockStore.getTransactionInfo(Hex.decode("00112233")));
+    }
+
 // todo: test this
 //    public Block getBestBlock()
-//    public byte[] getBlockHashByNumber(long blockNumber)
 
 }
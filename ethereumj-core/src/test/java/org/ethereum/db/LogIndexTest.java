@@ -0,0 +1,121 @@
+package org.ethereum.db;
+
+import org.ethereum.core.Bloom;
+import org.ethereum.core.LogFilter;
+import org.ethereum.datasource.HashMapDB;
+import org.ethereum.vm.DataWord;
+import org.ethereum.vm.LogInfo;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LogIndexTest {
+
+    private static final byte[] CONTRACT = Hex.decode("095e7baea6a6c7c4c2dfeb977efac326af552d87");
+    private static final byte[] OTHER_CONTRACT = Hex.decode("cd2a3d9f938e13cd947ec05abc7fe734df8dd826");
+    private static final byte[] TOPIC = new DataWord(1).getData();
+    private static final byte[] OTHER_TOPIC = new DataWord(2).getData();
+
+    @Test // sparse and dense blooms
+    public void testEncoding() {
+
+        byte[] sparse = log(CONTRACT, TOPIC).getBloom().getData();
+        byte[] encoded = LogIndex.encode(sparse);
+        assertTrue(encoded.length < sparse.length);
+        assertArrayEquals(sparse, LogIndex.decode(encoded));
+
+        byte[] dense = new byte[256];
+        Arrays.fill(dense, (byte) 0x55);
+        assertArrayEquals(dense, LogIndex.decode(LogIndex.encode(dense)));
+
+        assertArrayEquals(new byte[256], LogIndex.decode(LogIndex.encode(new byte[256])));
+    }
+
+    @Test // candidates across groups and sections
+    public void testFindCandidates() {
+
+        LogIndex index = new LogIndex(new HashMapDB());
+
+        long last = 3 * LogIndex.SECTION_SIZE + 10;
+        for (long number = 100; number <= last; ++number) {
+            Bloom bloom = new Bloom();
+            if (number == 100 || number == 5000 || number == last)
+                bloom.or(log(CONTRACT, TOPIC).getBloom());
+            else if (number % 700 == 0)
+                bloom.or(log(OTHER_CONTRACT, OTHER_TOPIC).getBloom());
+            index.add(number, bloom.getData());
+        }
+        assertEquals(100, index.getFirstIndexed());
+
+        LogFilter filter = new LogFilter().withContractAddress(CONTRACT).withTopic(TOPIC);
+        assertEquals(Arrays.asList(100L, 5000L, last), index.findCandidates(filter, 0, last));
+        assertEquals(Collections.singletonList(5000L), index.findCandidates(filter, 101, last - 1));
+        assertTrue(index.findCandidates(filter, last + 1, last + 100).isEmpty());
+
+        List<Long> others = index.findCandidates(new LogFilter().withContractAddress(OTHER_CONTRACT), 0, last);
+        assertEquals(last / 700, others.size());
+        for (Long number : others) {
+            assertEquals(0, number % 700);
+        }
+
+        LogFilter anyAddress = new LogFilter().withTopic().withTopic(new DataWord(3).getData());
+        assertTrue(index.findCandidates(anyAddress, 0, last).isEmpty());
+    }
+
+    @Test
+    public void testReopen() {
+
+        HashMapDB db = new HashMapDB();
+        LogIndex index = new LogIndex(db);
+        index.add(7, log(CONTRACT, TOPIC).getBloom().getData());
+
+        LogIndex reopened = new LogIndex(db);
+        assertEquals(7, reopened.getFirstIndexed());
+        assertEquals(Collections.singletonList(7L),
+                reopened.findCandidates(new LogFilter().withContractAddress(CONTRACT), 0, 10));
+    }
+
+    @Test
+    public void testReset() {
+
+        LogIndex index = new LogIndex(new HashMapDB());
+        index.add(7, log(CONTRACT, TOPIC).getBloom().getData());
+        index.add(8, log(CONTRACT, TOPIC).getBloom().getData());
+
+        index.reset();
+        assertEquals(-1, index.getFirstIndexed());
+        assertTrue(index.findCandidates(new LogFilter().withContractAddress(CONTRACT), 0, 10).isEmpty());
+
+        index.add(9, log(OTHER_CONTRACT).getBloom().getData());
+        assertEquals(9, index.getFirstIndexed());
+        assertTrue(index.findCandidates(new LogFilter().withContractAddress(CONTRACT), 0, 10).isEmpty());
+        assertEquals(Collections.singletonList(9L),
+                index.findCandidates(new LogFilter().withContractAddress(OTHER_CONTRACT), 0, 10));
+    }
+
+    @Test
+    public void testMatchesExactly() {
+
+        LogInfo log = log(CONTRACT, TOPIC, OTHER_TOPIC);
+
+        assertTrue(new LogFilter().matchesExactly(log));
+        assertTrue(new LogFilter().withContractAddress(OTHER_CONTRACT, CONTRACT).matchesExactly(log));
+        assertFalse(new LogFilter().withContractAddress(OTHER_CONTRACT).matchesExactly(log));
+        assertTrue(new LogFilter().withTopic().withTopic(OTHER_TOPIC).matchesExactly(log));
+        assertFalse(new LogFilter().withTopic(OTHER_TOPIC).matchesExactly(log));
+        assertFalse(new LogFilter().withTopic().withTopic().withTopic(TOPIC).matchesExactly(log));
+    }
+
+    private static LogInfo log(byte[] address, byte[]... topics) {
+        DataWord[] words = new DataWord[topics.length];
+        for (int i = 0; i < topics.length; ++i) {
+            words[i] = new DataWord(topics[i]);
+        }
+        return new LogInfo(address, Arrays.asList(words), new byte[0]);
+    }
+}
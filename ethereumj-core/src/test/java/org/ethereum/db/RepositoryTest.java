@@ -17,6 +17,7 @@ import org.junit.runners.MethodSorters;
 import org.spongycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -845,4 +846,48 @@ public class RepositoryTest {
     }
 
 
+
+    @Test // background flush
+    public void test20() {
+
+        HashMapDB detailsDB = new SlowHashMapDB();
+        HashMapDB stateDB = new SlowHashMapDB();
+        RepositoryImpl repository = new RepositoryImpl(detailsDB, stateDB);
+
+        byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+        DataWord cowKey = new DataWord("c1");
+
+        for (int i = 1; i <= 5; ++i) {
+            repository.addBalance(cow, BigInteger.TEN);
+            repository.addStorageRow(cow, cowKey, new DataWord(i));
+            repository.flush();
+
+            // the changes are served while being written
+            assertEquals(BigInteger.TEN.multiply(BigInteger.valueOf(i)), repository.getBalance(cow));
+            assertEquals(new DataWord(i), repository.getStorageValue(cow, cowKey));
+        }
+
+        byte[] root = repository.getRoot();
+        repository.getFlusher().waitForCompletion();
+        assertEquals(0, repository.getFlusher().getQueueDepth());
+        assertTrue(repository.getFlusher().getFlushCount() > 0);
+
+        RepositoryImpl reloaded = new RepositoryImpl(detailsDB, stateDB);
+        reloaded.syncToRoot(root);
+        assertEquals(BigInteger.valueOf(50), reloaded.getBalance(cow));
+        assertEquals(new DataWord(5), reloaded.getStorageValue(cow, cowKey));
+    }
+
+    private static class SlowHashMapDB extends HashMapDB {
+
+        @Override
+        public void updateBatch(Map<byte[], byte[]> rows) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.updateBatch(rows);
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package org.ethereum.db;
+
+import org.ethereum.datasource.HashMapDB;
+import org.ethereum.facade.Repository;
+import org.ethereum.vm.DataWord;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.Collections;
+
+import static org.ethereum.util.ByteUtil.wrap;
+import static org.junit.Assert.*;
+
+public class SpeculativeTrackTest {
+
+    private static final byte[] cow = Hex.decode("CD2A3D9F938E13CD947EC05ABC7FE734DF8DD826");
+    private static final byte[] horse = Hex.decode("13978AEE95F38490E9769C39B2773ED763D9CD5F");
+    private static final byte[] coinbase = Hex.decode("2ADC25665018AA1FE0E6BC666DAC8FC2697FF9BA");
+
+    @Test
+    public void testReadAndWriteSets() {
+        Repository repository = new RepositoryImpl(new HashMapDB(), new HashMapDB());
+        repository.addBalance(cow, BigInteger.TEN);
+        repository.addStorageRow(cow, new DataWord(1), new DataWord(100));
+        repository.addStorageRow(cow, new DataWord(2), new DataWord(200));
+
+        Repository target = repository.startTracking();
+        SpeculativeTrack track = new SpeculativeTrack(repository, target, coinbase, new Object());
+
+        Repository cacheTrack = track.startTracking();
+        assertEquals(BigInteger.TEN, cacheTrack.getBalance(cow));
+        assertEquals(new DataWord(200), cacheTrack.getStorageValue(cow, new DataWord(2)));
+        cacheTrack.addStorageRow(cow, new DataWord(1), new DataWord(101));
+        cacheTrack.addStorageRow(cow, new DataWord(2), new DataWord(200));
+        cacheTrack.addBalance(horse, BigInteger.ONE);
+        cacheTrack.commit();
+
+        assertEquals(Collections.singleton(wrap(horse)), track.getWrittenAccounts());
+        assertEquals(Collections.singleton(new DataWord(1)), track.getWrittenStorage().get(wrap(cow)));
+        assertTrue(track.getReadAccounts().contains(wrap(cow)));
+        assertTrue(track.getReadAccounts().contains(wrap(horse)));
+        assertEquals(Collections.singleton(new DataWord(2)), track.getReadStorage().get(wrap(cow)));
+
+        track.commit();
+        target.commit();
+
+        assertEquals(new DataWord(101), repository.getStorageValue(cow, new DataWord(1)));
+        assertEquals(BigInteger.ONE, repository.getBalance(horse));
+
+        repository.close();
+    }
+
+    @Test
+    public void testDeferredCoinbaseFee() {
+        Repository repository = new RepositoryImpl(new HashMapDB(), new HashMapDB());
+        repository.addBalance(coinbase, BigInteger.TEN);
+
+        Repository target = repository.startTracking();
+        target.addBalance(coinbase, BigInteger.ONE);
+
+        SpeculativeTrack track = new SpeculativeTrack(repository, target, coinbase, new Object());
+        track.addBalance(coinbase, BigInteger.valueOf(5));
+        track.addBalance(coinbase, BigInteger.valueOf(2));
+
+        assertEquals(BigInteger.valueOf(7), track.getCoinbaseFee());
+        assertFalse(track.getReadAccounts().contains(wrap(coinbase)));
+        assertTrue(track.getWrittenAccounts().contains(wrap(coinbase)));
+
+        track.commit();
+        target.commit();
+
+        assertEquals(BigInteger.valueOf(18), repository.getBalance(coinbase));
+
+        repository.close();
+    }
+
+    @Test
+    public void testCoinbaseReadAfterFee() {
+        Repository repository = new RepositoryImpl(new HashMapDB(), new HashMapDB());
+        repository.addBalance(coinbase, BigInteger.TEN);
+
+        SpeculativeTrack track = new SpeculativeTrack(repository, repository.startTracking(), coinbase, new Object());
+        track.addBalance(coinbase, BigInteger.valueOf(5));
+
+        assertEquals(BigInteger.valueOf(15), track.getBalance(coinbase));
+        assertNull(track.getCoinbaseFee());
+        assertTrue(track.getReadAccounts().contains(wrap(coinbase)));
+        assertTrue(track.getWrittenAccounts().contains(wrap(coinbase)));
+
+        repository.close();
+    }
+}
@@ -0,0 +1,57 @@
+package org.ethereum.db;
+
+import org.ethereum.core.Transaction;
+import org.ethereum.core.TransactionReceipt;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TransactionCacheTest {
+
+    @Test // the least recently used entry goes first
+    public void testEviction() {
+
+        TransactionCache cache = new TransactionCache(2);
+        TransactionInfo first = info(1);
+        TransactionInfo second = info(2);
+        TransactionInfo third = info(3);
+
+        cache.put(first);
+        cache.put(second);
+        assertSame(first, cache.get(first.getTransactionHash()));
+
+        cache.put(third);
+        assertEquals(2, cache.size());
+        assertSame(first, cache.get(first.getTransactionHash()));
+        assertNull(cache.get(second.getTransactionHash()));
+        assertSame(third, cache.get(third.getTransactionHash()));
+    }
+
+    @Test // the receipt rows used to hold the bare receipt
+    public void testBareReceiptRow() {
+
+        TransactionInfo stored = info(1);
+        byte[] receiptRlp = stored.getReceipt().getEncoded();
+
+        TransactionInfo info = new TransactionInfo(receiptRlp);
+        assertArrayEquals(receiptRlp, info.getReceipt().getEncoded());
+        assertNull(info.getTransactionHash());
+        assertNull(info.getBlockHash());
+
+        TransactionCache cache = new TransactionCache(2);
+        cache.put(info);
+        assertEquals(0, cache.size());
+
+        TransactionInfo decoded = new TransactionInfo(stored.getEncoded());
+        assertArrayEquals(stored.getTransactionHash(), decoded.getTransactionHash());
+        assertArrayEquals(stored.getBlockHash(), decoded.getBlockHash());
+    }
+
+    private static TransactionInfo info(int nonce) {
+        Transaction tx = new Transaction(new byte[]{(byte) nonce}, new byte[]{1}, new byte[]{1},
+                new byte[20], new byte[]{1}, new byte[0]);
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransaction(tx);
+        return new TransactionInfo(receipt, new byte[32], 0);
+    }
+}
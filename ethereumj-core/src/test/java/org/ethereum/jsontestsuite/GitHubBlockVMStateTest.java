@@ -0,0 +1,26 @@
+package org.ethereum.jsontestsuite;
+
+import org.junit.After;
+import org.junit.Before;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+
+/**
+ * Runs the state suites of {@link GitHubStateTest} on {@link org.ethereum.vm.BlockVM},
+ * the expectations are the same the reference VM is checked against
+ */
+public class GitHubBlockVMStateTest extends GitHubStateTest {
+
+    private String engine;
+
+    @Before
+    public void setEngine() {
+        engine = CONFIG.vmEngine();
+        CONFIG.setVmEngine("block");
+    }
+
+    @After
+    public void resetEngine() {
+        CONFIG.setVmEngine(engine);
+    }
+}
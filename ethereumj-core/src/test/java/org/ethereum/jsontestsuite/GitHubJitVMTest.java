@@ -0,0 +1,30 @@
+package org.ethereum.jsontestsuite;
+
+import org.junit.After;
+import org.junit.Before;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+
+/**
+ * Runs the VM suites of {@link GitHubVMTest} on {@link org.ethereum.vm.JitVM} compiling
+ * every code on its first run, the expectations are the same the reference VM is checked against
+ */
+public class GitHubJitVMTest extends GitHubVMTest {
+
+    private String engine;
+    private int threshold;
+
+    @Before
+    public void setEngine() {
+        engine = CONFIG.vmEngine();
+        threshold = CONFIG.vmJitThreshold();
+        CONFIG.setVmEngine("jit");
+        CONFIG.setVmJitThreshold(0);
+    }
+
+    @After
+    public void resetEngine() {
+        CONFIG.setVmEngine(engine);
+        CONFIG.setVmJitThreshold(threshold);
+    }
+}
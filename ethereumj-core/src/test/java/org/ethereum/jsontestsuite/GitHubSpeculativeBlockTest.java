@@ -0,0 +1,27 @@
+package org.ethereum.jsontestsuite;
+
+import org.junit.After;
+import org.junit.Before;
+
+import static org.ethereum.config.SystemProperties.CONFIG;
+
+/**
+ * Runs the block suites of {@link GitHubBlockTest} with the transactions executed speculatively,
+ * see {@link org.ethereum.core.SpeculativeExecution}, the expected state roots and receipts
+ * are the ones of the serial execution
+ */
+public class GitHubSpeculativeBlockTest extends GitHubBlockTest {
+
+    private boolean speculative;
+
+    @Before
+    public void setSpeculative() {
+        speculative = CONFIG.blockExecutionSpeculative();
+        CONFIG.setBlockExecutionSpeculative(true);
+    }
+
+    @After
+    public void resetSpeculative() {
+        CONFIG.setBlockExecutionSpeculative(speculative);
+    }
+}
@@ -0,0 +1,242 @@
+package org.ethereum.trie;
+
+import org.ethereum.datasource.HashMapDB;
+import org.ethereum.util.RLP;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class PatriciaTrieTest {
+
+    @Test
+    public void testKnownRoot() {
+        PatriciaTrie trie = new PatriciaTrie(null);
+        trie.update("doe".getBytes(), "reindeer".getBytes());
+        trie.update("dog".getBytes(), "puppy".getBytes());
+        trie.update("dogglesworth".getBytes(), "cat".getBytes());
+
+        assertEquals("8aad789dff2f538bca5d8ea56e8abe10f4c7ba3a5dea95fea4cd6e7c3a1168d3",
+                Hex.toHexString(trie.getRootHash()));
+        assertArrayEquals("puppy".getBytes(), trie.get("dog".getBytes()));
+        assertArrayEquals(EMPTY_BYTE_ARRAY, trie.get("do".getBytes()));
+    }
+
+    @Test
+    public void testEmpty() {
+        PatriciaTrie trie = new PatriciaTrie(null);
+        assertArrayEquals(EMPTY_TRIE_HASH, trie.getRootHash());
+
+        trie.update("dog".getBytes(), "puppy".getBytes());
+        trie.delete("dog".getBytes());
+        assertArrayEquals(EMPTY_TRIE_HASH, trie.getRootHash());
+    }
+
+    @Test
+    public void testEqualsByRoot() {
+        PatriciaTrie trie = new PatriciaTrie(null);
+        PatriciaTrie other = new PatriciaTrie(null);
+        trie.update("dog".getBytes(), "puppy".getBytes());
+        other.update("dog".getBytes(), "puppy".getBytes());
+
+        assertEquals(trie, other);
+        assertEquals(trie.hashCode(), other.hashCode());
+
+        other.update("doe".getBytes(), "reindeer".getBytes());
+        assertNotEquals(trie, other);
+    }
+
+    @Test
+    public void testSameRootAsTrieImpl() {
+        Random random = new Random(42);
+        PatriciaTrie trie = new PatriciaTrie(null);
+        TrieImpl expected = new TrieImpl(null);
+
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            byte[] key;
+            if (!keys.isEmpty() && random.nextInt(4) == 0) {
+                // delete an existing key
+                key = keys.remove(random.nextInt(keys.size()));
+                trie.delete(key);
+                expected.delete(key);
+            } else {
+                // short keys of variable length make plenty of common prefixes
+                key = randomBytes(random, 1 + random.nextInt(4));
+                byte[] value = randomBytes(random, 1 + random.nextInt(random.nextBoolean() ? 2 : 64));
+                trie.update(key, value);
+                expected.update(key, value);
+                keys.add(key);
+            }
+
+            if (i % 10 == 0) {
+                assertArrayEquals("Step " + i, expected.getRootHash(), trie.getRootHash());
+            }
+        }
+
+        assertArrayEquals(expected.getRootHash(), trie.getRootHash());
+        for (byte[] key : keys) {
+            assertArrayEquals(expected.get(key), trie.get(key));
+        }
+    }
+
+    @Test
+    public void testSecureSameRootAsSecureTrie() {
+        Map<byte[], byte[]> rows = randomRows(new Random(7), 1000);
+
+        SecurePatriciaTrie trie = new SecurePatriciaTrie(null);
+        trie.updateAll(rows);
+        SecureTrie expected = new SecureTrie(null);
+        expected.updateAll(rows);
+
+        assertArrayEquals(expected.getRootHash(), trie.getRootHash());
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(rows.get(key), trie.get(key));
+        }
+    }
+
+    @Test
+    public void testSyncAndReload() {
+        HashMapDB db = new HashMapDB();
+        Map<byte[], byte[]> rows = randomRows(new Random(1), 500);
+
+        SecurePatriciaTrie trie = new SecurePatriciaTrie(db);
+        trie.updateAll(rows);
+        trie.sync();
+        byte[] root = trie.getRootHash();
+
+        SecurePatriciaTrie reloaded = new SecurePatriciaTrie(db, root);
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(rows.get(key), reloaded.get(key));
+        }
+
+        // modify the reloaded trie and roll it back
+        for (byte[] key : rows.keySet()) {
+            reloaded.delete(key);
+        }
+        assertArrayEquals(EMPTY_TRIE_HASH, reloaded.getRootHash());
+        reloaded.undo();
+        assertArrayEquals(root, reloaded.getRootHash());
+    }
+
+    @Test
+    public void testUpdateAllOnReloadedTrie() {
+        HashMapDB db = new HashMapDB();
+        SecurePatriciaTrie trie = new SecurePatriciaTrie(db);
+        trie.updateAll(randomRows(new Random(4), 500));
+        trie.sync();
+        SecureTrie trieImpl = new SecureTrie(db, trie.getRootHash());
+
+        // the nodes on the paths of the rows are prefetched from the db
+        Map<byte[], byte[]> rows = randomRows(new Random(5), 100);
+        SecurePatriciaTrie reloaded = new SecurePatriciaTrie(db, trie.getRootHash());
+        reloaded.updateAll(rows);
+        trieImpl.updateAll(rows);
+        trie.updateAll(rows);
+
+        assertArrayEquals(trie.getRootHash(), reloaded.getRootHash());
+        assertArrayEquals(trie.getRootHash(), trieImpl.getRootHash());
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(rows.get(key), reloaded.get(key));
+        }
+    }
+
+    @Test
+    public void testReadTrieImplStorage() {
+        HashMapDB db = new HashMapDB();
+        Map<byte[], byte[]> rows = randomRows(new Random(2), 500);
+
+        SecureTrie trieImpl = new SecureTrie(db);
+        trieImpl.updateAll(rows);
+        trieImpl.sync();
+
+        SecurePatriciaTrie trie = new SecurePatriciaTrie(db, trieImpl.getRootHash());
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(rows.get(key), trie.get(key));
+        }
+    }
+
+    @Test
+    public void testSerialize() {
+        Map<byte[], byte[]> rows = randomRows(new Random(3), 100);
+
+        SecurePatriciaTrie trie = new SecurePatriciaTrie(null);
+        trie.updateAll(rows);
+        byte[] serialized = trie.serialize();
+
+        SecurePatriciaTrie restored = new SecurePatriciaTrie(null);
+        restored.deserialize(serialized);
+        SecureTrie trieImpl = new SecureTrie(null);
+        trieImpl.deserialize(serialized);
+
+        assertArrayEquals(trie.getRootHash(), restored.getRootHash());
+        assertArrayEquals(trie.getRootHash(), trieImpl.getRootHash());
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(rows.get(key), restored.get(key));
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        Map<byte[], byte[]> rows = randomRows(new Random(0), 100_000);
+
+        for (int round = 0; round < 5; ++round) {
+            long start = System.nanoTime();
+            SecureTrie trieImpl = new SecureTrie(new HashMapDB());
+            for (Map.Entry<byte[], byte[]> row : rows.entrySet()) {
+                trieImpl.update(row.getKey(), row.getValue());
+            }
+            trieImpl.sync();
+            for (byte[] key : rows.keySet()) {
+                trieImpl.get(key);
+            }
+            long trieImplTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            SecurePatriciaTrie patriciaTrie = new SecurePatriciaTrie(new HashMapDB());
+            for (Map.Entry<byte[], byte[]> row : rows.entrySet()) {
+                patriciaTrie.update(row.getKey(), row.getValue());
+            }
+            patriciaTrie.sync();
+            for (byte[] key : rows.keySet()) {
+                patriciaTrie.get(key);
+            }
+            long patriciaTrieTime = System.nanoTime() - start;
+
+            assertArrayEquals(trieImpl.getRootHash(), patriciaTrie.getRootHash());
+            System.out.printf("%d rows update + sync + get: TrieImpl %d ms, PatriciaTrie %d ms%n",
+                    rows.size(), trieImplTime / 1_000_000, patriciaTrieTime / 1_000_000);
+        }
+    }
+
+    private static Map<byte[], byte[]> randomRows(Random random, int count) {
+        Map<byte[], byte[]> rows = new LinkedHashMap<>();
+        Map<String, Boolean> seen = new HashMap<>();
+        while (rows.size() < count) {
+            byte[] key = randomBytes(random, 1 + random.nextInt(32));
+            if (seen.put(Hex.toHexString(key), true) == null) {
+                rows.put(key, RLP.encodeElement(randomBytes(random, 1 + random.nextInt(100))));
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
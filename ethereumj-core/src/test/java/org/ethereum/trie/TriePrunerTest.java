@@ -0,0 +1,177 @@
+package org.ethereum.trie;
+
+import org.ethereum.datasource.HashMapDB;
+import org.ethereum.db.ByteArrayWrapper;
+import org.ethereum.util.RLP;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.ethereum.util.ByteUtil.wrap;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TriePrunerTest {
+
+    private static final int WINDOW = 3;
+    private static final int BLOCKS = 20;
+    private static final int FLUSH_BLOCKS = 5;
+
+    @Test
+    public void testTrieImpl() {
+        HashMapDB db = new HashMapDB();
+        checkPruning(db, new SecureTrie(db), new TrieFactory() {
+            @Override
+            public CachedTrie create(HashMapDB db, byte[] root) {
+                return new SecureTrie(db, root);
+            }
+        });
+    }
+
+    @Test
+    public void testPatriciaTrie() {
+        HashMapDB db = new HashMapDB();
+        checkPruning(db, new SecurePatriciaTrie(db), new TrieFactory() {
+            @Override
+            public CachedTrie create(HashMapDB db, byte[] root) {
+                return new SecurePatriciaTrie(db, root);
+            }
+        });
+    }
+
+    @Test
+    public void testRetainReachable() {
+        Random random = new Random(5);
+        SecureTrie trie = new SecureTrie(null);
+        Map<ByteArrayWrapper, byte[]> state = new LinkedHashMap<>();
+        for (int i = 0; i < 10; ++i) {
+            updateRandomly(trie, state, random);
+        }
+        byte[] root = trie.getRootHash();
+        int nodes = trie.getCache().getNodes().size();
+
+        TriePruner.retainReachable(trie);
+
+        assertTrue(trie.getCache().getNodes().size() < nodes);
+        assertArrayEquals(root, trie.getRootHash());
+
+        // the trie is restored from the compacted nodes
+        SecureTrie restored = new SecureTrie(null);
+        restored.deserialize(trie.serialize());
+        assertState(state, restored);
+    }
+
+    private void checkPruning(HashMapDB db, CachedTrie trie, TrieFactory factory) {
+        Random random = new Random(1);
+        trie.getCache().enableJournal();
+        TriePruner pruner = new TriePruner(WINDOW);
+
+        List<byte[]> roots = new ArrayList<>();
+        List<Map<ByteArrayWrapper, byte[]>> states = new ArrayList<>();
+        Map<ByteArrayWrapper, byte[]> state = new LinkedHashMap<>();
+
+        for (int block = 0; block <= BLOCKS; ++block) {
+            updateRandomly(trie, state, random);
+            byte[] root = trie.getRootHash();
+            pruner.journal(block, root, trie.getCache());
+
+            roots.add(root);
+            states.add(new LinkedHashMap<>(state));
+
+            if (block % FLUSH_BLOCKS == 0) {
+                trie.sync();
+                trie.getCache().prune(pruner.takeUnreachable());
+            }
+        }
+        assertEquals(WINDOW - 1, pruner.getJournalSize());
+        assertTrue(pruner.getPrunedCount() > 0);
+
+        // the roots of the window are intact
+        Set<ByteArrayWrapper> reachable = new HashSet<>();
+        for (int block = BLOCKS - WINDOW + 1; block <= BLOCKS; ++block) {
+            assertState(states.get(block), factory.create(db, roots.get(block)));
+            collectReachable(db, roots.get(block), reachable);
+        }
+
+        // older ones are gone
+        for (int block = 0; block <= BLOCKS - WINDOW; ++block) {
+            if (!reachable.contains(wrap(roots.get(block)))) {
+                assertNull("Root of block " + block, db.get(roots.get(block)));
+            }
+        }
+
+        // blocks which change nothing, the intermediate nodes of the last updates leave the window
+        for (int block = BLOCKS + 1; block <= BLOCKS + WINDOW; ++block) {
+            pruner.journal(block, trie.getRootHash(), trie.getCache());
+        }
+        trie.sync();
+        trie.getCache().prune(pruner.takeUnreachable());
+
+        // only the nodes of the last root are left
+        reachable.clear();
+        collectReachable(db, roots.get(BLOCKS), reachable);
+        assertEquals(reachable.size(), db.getAddedItems());
+        assertState(states.get(BLOCKS), factory.create(db, roots.get(BLOCKS)));
+    }
+
+    private static void updateRandomly(Trie trie, Map<ByteArrayWrapper, byte[]> state, Random random) {
+        for (int i = 0; i < 20; ++i) {
+            if (!state.isEmpty() && random.nextInt(4) == 0) {
+                ByteArrayWrapper key = new ArrayList<>(state.keySet()).get(random.nextInt(state.size()));
+                trie.delete(key.getData());
+                state.remove(key);
+            } else {
+                // reuse keys of the existing rows from time to time
+                ByteArrayWrapper key = !state.isEmpty() && random.nextBoolean()
+                        ? new ArrayList<>(state.keySet()).get(random.nextInt(state.size()))
+                        : wrap(randomBytes(random, 20));
+                byte[] value = RLP.encodeElement(randomBytes(random, 1 + random.nextInt(40)));
+                trie.update(key.getData(), value);
+                state.put(key, value);
+            }
+        }
+    }
+
+    private static void assertState(Map<ByteArrayWrapper, byte[]> state, Trie trie) {
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : state.entrySet()) {
+            byte[] value = trie.get(entry.getKey().getData());
+            assertNotNull(value);
+            assertArrayEquals(entry.getValue(), value);
+        }
+    }
+
+    private static void collectReachable(HashMapDB db, byte[] hash, Set<ByteArrayWrapper> reachable) {
+        byte[] encoded = db.get(hash);
+        if (encoded == null || !reachable.add(wrap(hash))) return;
+
+        TrieNode node = TrieNode.decode(encoded);
+        List<TrieNode> children = new ArrayList<>();
+        if (node instanceof BranchNode) {
+            for (TrieNode child : ((BranchNode) node).children) children.add(child);
+        } else if (node instanceof ExtensionNode) {
+            children.add(((ExtensionNode) node).child);
+        }
+        for (TrieNode child : children) {
+            if (child instanceof HashNode) collectReachable(db, child.getHash(), reachable);
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private interface TrieFactory {
+        CachedTrie create(HashMapDB db, byte[] root);
+    }
+}
@@ -32,6 +32,7 @@ import java.util.*;
 
 import static org.ethereum.crypto.HashUtil.EMPTY_TRIE_HASH;
 import static org.ethereum.crypto.SHA3Helper.sha3;
+import static org.ethereum.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.ethereum.util.ByteUtil.wrap;
 import static org.junit.Assert.*;
 
@@ -446,6 +447,68 @@ public class TrieTest {
         assertEquals("Expected no nodes after undo", 0, trie.getCache().getNodes().size());
     }
 
+    @Test
+    public void testCleanNodesSurviveSync() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.update(dog, LONG_STRING);
+        trie.update(cat, LONG_STRING);
+        assertNotEquals(0, trie.getCache().getAllocatedMemorySize());
+
+        trie.sync();
+        assertEquals(0, trie.getCache().getAllocatedMemorySize());
+        assertNotEquals(0, trie.getCache().getCacheSize());
+
+        long misses = trie.getCache().getCacheMisses();
+        assertEquals(LONG_STRING, new String(trie.get(dog)));
+        assertEquals(LONG_STRING, new String(trie.get(cat)));
+
+        assertEquals(misses, trie.getCache().getCacheMisses());
+        assertTrue(trie.getCache().getCacheHits() > 0);
+    }
+
+    @Test
+    public void testNodeCacheEviction() {
+        NodeCache cache = new NodeCache(100);
+        for (int i = 0; i < 10; ++i) {
+            cache.put(wrap(new byte[]{(byte) i}), new Node(new Value(LONG_STRING)), 20);
+            // keep the first node hot
+            assertNotNull(cache.get(wrap(new byte[]{0})));
+        }
+
+        assertEquals(5, cache.count());
+        assertEquals(100, cache.getSize());
+        assertEquals(5, cache.getEvictions());
+
+        assertNotNull(cache.get(wrap(new byte[]{0})));
+        assertNull(cache.get(wrap(new byte[]{1})));
+        assertNotNull(cache.get(wrap(new byte[]{9})));
+    }
+
+    @Test
+    public void testMissingNodeDroppedOnPut() {
+        Cache cache = new Cache(mockDb);
+        byte[] encoded = RLP.encodeList(RLP.encodeElement(LONG_STRING.getBytes()));
+        byte[] hash = sha3(encoded);
+
+        assertNull(cache.get(hash));
+        assertEquals(1, cache.getNodes().size());
+
+        cache.putEncoded(hash, encoded);
+        cache.undo();
+        assertEquals(0, cache.getNodes().size());
+    }
+
+    @Test
+    public void testCacheCapacity() {
+        TrieImpl trie = new TrieImpl(mockDb);
+        trie.getCache().setCapacity(0);
+        trie.update(dog, LONG_STRING);
+        trie.sync();
+
+        assertEquals(0, trie.getCache().getCacheSize());
+        assertEquals(LONG_STRING, new String(trie.get(dog)));
+    }
+
     @Test
     public void testTrieCopy() {
         TrieImpl trie = new TrieImpl(mockDb);
@@ -1408,5 +1471,84 @@ public class TrieTest {
         assertEquals("9946c12c75fb0e6c657bb94be25661a3f284a823d4e3193ae8961f7335f4d7d1", root3);
     }
 
+    @Test
+    public void testUpdateAll() {
+        Random random = new Random(42);
+
+        TrieImpl serial = new TrieImpl(new HashMapDB());
+        TrieImpl batched = new TrieImpl(new HashMapDB());
+
+        // initial state is synced, so the batch has to walk persisted nodes as well
+        Map<byte[], byte[]> rows = randomRows(random, 1000, null);
+        for (Map.Entry<byte[], byte[]> row : rows.entrySet()) {
+            serial.update(row.getKey(), row.getValue());
+        }
+        batched.updateAll(rows);
+        assertEquals(Hex.toHexString(serial.getRootHash()), Hex.toHexString(batched.getRootHash()));
+
+        serial.sync();
+        batched.sync();
+
+        // updates, inserts and deletes
+        Map<byte[], byte[]> changes = randomRows(random, 500, new ArrayList<>(rows.keySet()));
+        for (Map.Entry<byte[], byte[]> row : changes.entrySet()) {
+            serial.update(row.getKey(), row.getValue());
+        }
+        batched.updateAll(changes);
+        assertEquals(Hex.toHexString(serial.getRootHash()), Hex.toHexString(batched.getRootHash()));
+
+        for (byte[] key : rows.keySet()) {
+            assertArrayEquals(serial.get(key), batched.get(key));
+        }
+    }
 
+    @Test
+    public void testSecureUpdateAll() {
+        Random random = new Random(7);
+
+        SecureTrie serial = new SecureTrie(new HashMapDB());
+        SecureTrie batched = new SecureTrie(new HashMapDB());
+
+        Map<byte[], byte[]> rows = randomRows(random, 2000, null);
+        for (Map.Entry<byte[], byte[]> row : rows.entrySet()) {
+            serial.update(row.getKey(), row.getValue());
+        }
+        batched.updateAll(rows);
+        assertEquals(Hex.toHexString(serial.getRootHash()), Hex.toHexString(batched.getRootHash()));
+
+        Map<byte[], byte[]> deletes = new HashMap<>();
+        for (byte[] key : rows.keySet()) {
+            deletes.put(key, EMPTY_BYTE_ARRAY);
+        }
+        for (byte[] key : rows.keySet()) {
+            serial.delete(key);
+        }
+        batched.updateAll(deletes);
+        assertEquals(Hex.toHexString(serial.getRootHash()), Hex.toHexString(batched.getRootHash()));
+        assertEquals(ROOT_HASH_EMPTY, Hex.toHexString(batched.getRootHash()));
+    }
+
+    /**
+     * Random 20 byte keys with values of various length,
+     * every 4th row deletes or updates one of existing keys if those are passed
+     */
+    private static Map<byte[], byte[]> randomRows(Random random, int count, List<byte[]> existingKeys) {
+        Map<byte[], byte[]> rows = new HashMap<>();
+        Set<ByteArrayWrapper> keys = new HashSet<>();
+        for (int i = 0; i < count; ++i) {
+            byte[] key;
+            if (existingKeys != null && i % 4 == 0) {
+                key = existingKeys.get(random.nextInt(existingKeys.size()));
+            } else {
+                key = new byte[20];
+                random.nextBytes(key);
+            }
+            if (!keys.add(wrap(key))) continue;
+
+            byte[] value = new byte[random.nextInt(40)];
+            random.nextBytes(value);
+            rows.put(key, value);
+        }
+        return rows;
+    }
 }
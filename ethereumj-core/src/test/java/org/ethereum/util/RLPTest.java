@@ -1053,6 +1053,21 @@ public class RLPTest {
         assertEquals(expected, result);
     }
 
+    @Test // a 55 bytes item is the longest short one, its prefix is 0xb7
+    public void testDecodeItem_55(){
+        byte[] item = new byte[55];
+        Arrays.fill(item, (byte) 0x55);
+        byte[] rlp = RLP.encodeList(RLP.encodeElement(item), RLP.encodeElement(new byte[]{1, 2}));
+
+        Object[] decoded = (Object[]) RLP.decode(rlp, 0).getDecoded();
+        assertEquals(2, decoded.length);
+        assertArrayEquals(item, (byte[]) decoded[0]);
+        assertArrayEquals(new byte[]{1, 2}, (byte[]) decoded[1]);
+
+        int next = RLP.getNextElementIndex(rlp, RLP.getFirstListElement(rlp, 0));
+        assertEquals(2 + 1 + 55, next);
+    }
+
 
     @Test // capabilities: (eth:60, bzz:0, shh:2)
     public void testEncodeHelloMessageCap0(){
@@ -0,0 +1,188 @@
+package org.ethereum.util;
+
+import org.ethereum.core.Block;
+import org.ethereum.core.Transaction;
+import org.ethereum.crypto.HashUtil;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RLPViewTest {
+
+    private List<byte[]> blocks = new ArrayList<>();
+
+    @Before
+    public void setup() throws URISyntaxException, IOException {
+
+        URL scenario1 = ClassLoader
+                .getSystemResource("blockload/scenario1.dmp");
+
+        File file = new File(scenario1.toURI());
+        for (String blockRLP : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            blocks.add(Hex.decode(blockRLP));
+        }
+    }
+
+    @Test
+    public void testSameAsDecode2() {
+        for (byte[] rlp : blocks) {
+            assertSameElement(RLP.decode2(rlp).get(0), RLPView.decode(rlp));
+        }
+
+        byte[] rlp = RLP.encodeList(RLP.encodeElement(null), RLP.encodeByte((byte) 0x7f),
+                RLP.encodeElement(new byte[100]), RLP.encodeList(), RLP.encodeList(RLP.encodeList()));
+        assertSameElement(RLP.decode2(rlp).get(0), RLPView.decode(rlp));
+    }
+
+    @Test
+    public void testGetLong() {
+        assertEquals(0, RLPView.decode(RLP.encodeElement(null)).getLong());
+        assertEquals(0x7f, RLPView.decode(RLP.encodeByte((byte) 0x7f)).getLong());
+        assertEquals(Long.MAX_VALUE, RLPView.decode(RLP.encodeBigInteger(BigInteger.valueOf(Long.MAX_VALUE))).getLong());
+        assertEquals(0x010203, RLPView.decode(RLP.encodeElement(new byte[]{1, 2, 3})).getLong());
+    }
+
+    @Test
+    public void testBlockDecodedFromView() {
+        for (byte[] rlp : blocks) {
+            Block block = new Block(rlp);
+
+            // the header is hashed in place, same as the hash of its encoding
+            byte[] hash = block.getHash();
+            assertArrayEquals(HashUtil.sha3(block.getHeader().getEncoded(true)), hash);
+            assertArrayEquals(rlp, block.getEncoded());
+
+            RLPList decoded = (RLPList) RLP.decode2(rlp).get(0);
+            RLPList txs = (RLPList) decoded.get(1);
+            assertEquals(txs.size(), block.getTransactionsList().size());
+            for (int i = 0; i < txs.size(); ++i) {
+                Transaction tx = block.getTransactionsList().get(i);
+                assertArrayEquals(HashUtil.sha3(txs.get(i).getRLPData()), tx.getHash());
+                RLPList txFields = (RLPList) txs.get(i);
+                assertArrayEquals(txFields.get(3).getRLPData(), tx.getReceiveAddress());
+                assertArrayEquals(txFields.get(5).getRLPData(), tx.getData());
+            }
+            assertEquals(((RLPList) decoded.get(2)).size(), block.getUncleList().size());
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncated() {
+        byte[] rlp = RLP.encodeList(RLP.encodeElement(new byte[100]));
+        RLPView.decode(Arrays.copyOf(rlp, rlp.length - 1));
+    }
+
+    @Test
+    public void testHugeLength() {
+        // a length close to Integer.MAX_VALUE must not overflow the bounds check
+        assertWrongEncoding(Hex.decode("bb7fffffff0102"));
+
+        RLPView list = RLPView.decode(Hex.decode("c6fb7fffffff01"));
+        try {
+            list.size();
+            fail("Nested element exceeding the list is decoded");
+        } catch (RuntimeException e) {
+            assertEquals("RLP wrong encoding", e.getMessage());
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        int ROUNDS = 2_000;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int decoded = ROUNDS * blocks.size();
+
+        for (int round = 0; round < 5; ++round) {
+
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (byte[] rlp : blocks) {
+                    RLP.decode2(rlp);
+                }
+            }
+            long decode2Time = System.nanoTime() - start;
+            long decode2Bytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (byte[] rlp : blocks) {
+                    visit(RLPView.decode(rlp));
+                }
+            }
+            long viewTime = System.nanoTime() - start;
+            long viewBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (byte[] rlp : blocks) {
+                    Block block = new Block(rlp);
+                    block.getNumber();
+                    block.getHash();
+                }
+            }
+            long headerTime = System.nanoTime() - start;
+            long headerBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            System.out.printf("per block: decode2 %6d ns %6d bytes, RLPView all items %6d ns %6d bytes, " +
+                            "Block number and hash %6d ns %6d bytes%n",
+                    decode2Time / decoded, decode2Bytes / decoded,
+                    viewTime / decoded, viewBytes / decoded,
+                    headerTime / decoded, headerBytes / decoded);
+        }
+    }
+
+    private static void visit(RLPView element) {
+        if (element.isList()) {
+            for (int i = 0; i < element.size(); ++i) {
+                visit(element.get(i));
+            }
+        } else {
+            element.getData();
+        }
+    }
+
+    private static void assertWrongEncoding(byte[] rlp) {
+        try {
+            RLPView.decode(rlp).getData();
+            fail("Wrong encoding is decoded");
+        } catch (RuntimeException e) {
+            assertEquals("RLP wrong encoding", e.getMessage());
+        }
+    }
+
+    private static void assertSameElement(RLPElement expected, RLPView actual) {
+        if (expected instanceof RLPList) {
+            RLPList list = (RLPList) expected;
+            assertTrue(actual.isList());
+            assertArrayEquals(list.getRLPData(), actual.getEncoded());
+            assertEquals(list.size(), actual.size());
+            for (int i = 0; i < list.size(); ++i) {
+                assertSameElement(list.get(i), actual.get(i));
+            }
+        } else {
+            assertFalse(actual.isList());
+            assertArrayEquals(expected.getRLPData(), actual.getData());
+        }
+    }
+}
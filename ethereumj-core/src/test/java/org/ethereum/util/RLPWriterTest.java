@@ -0,0 +1,236 @@
+package org.ethereum.util;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.ethereum.core.Block;
+import org.ethereum.core.BlockHeader;
+import org.ethereum.core.Transaction;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RLPWriterTest {
+
+    private List<byte[]> blocks = new ArrayList<>();
+
+    @Before
+    public void setup() throws URISyntaxException, IOException {
+
+        URL scenario1 = ClassLoader
+                .getSystemResource("blockload/scenario1.dmp");
+
+        File file = new File(scenario1.toURI());
+        for (String blockRLP : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            blocks.add(Hex.decode(blockRLP));
+        }
+    }
+
+    @Test
+    public void testSameAsRLP() {
+        byte[] longItem = new byte[1024];
+        Arrays.fill(longItem, (byte) 0xAB);
+
+        byte[] expected = RLP.encodeList(
+                RLP.encodeElement(null),
+                RLP.encodeElement(new byte[]{0}),
+                RLP.encodeElement(new byte[]{0x7f}),
+                RLP.encodeElement(new byte[]{(byte) 0x80}),
+                RLP.encodeElement(longItem),
+                RLP.encodeByte((byte) 0),
+                RLP.encodeByte((byte) 0xff),
+                RLP.encodeInt(1024),
+                RLP.encodeBigInteger(BigInteger.ZERO),
+                RLP.encodeBigInteger(BigInteger.valueOf(Long.MAX_VALUE)),
+                RLP.encodeBigInteger(BigInteger.ONE.shiftLeft(200)),
+                RLP.encodeList(),
+                RLP.encodeList(RLP.encodeList(longItem), RLP.encodeElement(longItem)));
+
+        RLPWriter writer = new RLPWriter(2);
+        writer.startList()
+                .writeElement(null)
+                .writeElement(new byte[]{0})
+                .writeElement(new byte[]{0x7f})
+                .writeElement(new byte[]{(byte) 0x80})
+                .writeElement(longItem)
+                .writeByte((byte) 0)
+                .writeByte((byte) 0xff)
+                .writeLong(1024)
+                .writeBigInteger(BigInteger.ZERO)
+                .writeBigInteger(BigInteger.valueOf(Long.MAX_VALUE))
+                .writeBigInteger(BigInteger.ONE.shiftLeft(200))
+                .startList().endList()
+                .startList()
+                    .startList().writeEncoded(longItem).endList()
+                    .writeElement(longItem)
+                .endList()
+                .endList();
+
+        assertEquals(expected.length, writer.size());
+        assertArrayEquals(expected, writer.toByteArray());
+
+        writer.reset();
+        assertArrayEquals(RLP.encodeList(), writer.startList().endList().toByteArray());
+    }
+
+    @Test
+    public void testWriteTo() {
+        byte[] expected = RLP.encodeList(RLP.encodeElement(new byte[100]), RLP.encodeInt(1000));
+        RLPWriter writer = new RLPWriter()
+                .startList().writeElement(new byte[100]).writeLong(1000).endList();
+
+        byte[] out = new byte[expected.length + 10];
+        assertEquals(5 + expected.length, writer.writeTo(out, 5));
+        assertArrayEquals(expected, Arrays.copyOfRange(out, 5, 5 + expected.length));
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(200), ByteBuffer.allocateDirect(200)}) {
+            buffer.put((byte) 1);
+            writer.writeTo(buffer);
+            assertEquals(1 + expected.length, buffer.position());
+            buffer.flip().position(1);
+            byte[] written = new byte[expected.length];
+            buffer.get(written);
+            assertArrayEquals(expected, written);
+        }
+
+        for (ByteBuf buffer : new ByteBuf[]{Unpooled.buffer(4), Unpooled.directBuffer(4)}) {
+            buffer.writeByte(1);
+            writer.writeTo(buffer);
+            assertEquals(1 + expected.length, buffer.readableBytes());
+            buffer.skipBytes(1);
+            byte[] written = new byte[expected.length];
+            buffer.readBytes(written);
+            assertArrayEquals(expected, written);
+            buffer.release();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testListNotEnded() {
+        new RLPWriter().startList().writeLong(1).toByteArray();
+    }
+
+    @Test
+    public void testCoreTypes() {
+        for (byte[] rlp : blocks) {
+            Block block = new Block(rlp);
+            RLPList decoded = (RLPList) RLP.decode2(rlp).get(0);
+
+            // a header changed after decoding is encoded field by field
+            BlockHeader header = block.getHeader();
+            byte[] headerRLP = decoded.get(0).getRLPData();
+            header.setTimestamp(header.getTimestamp());
+            assertArrayEquals(headerRLP, header.getEncoded());
+
+            RLPList txs = (RLPList) decoded.get(1);
+            for (int i = 0; i < txs.size(); ++i) {
+                Transaction decodedTx = block.getTransactionsList().get(i);
+                Transaction tx = new Transaction(decodedTx.getNonce(), decodedTx.getGasPrice(),
+                        decodedTx.getGasLimit(), decodedTx.getReceiveAddress(), decodedTx.getValue(),
+                        decodedTx.getData(), decodedTx.getSignature().r.toByteArray(),
+                        decodedTx.getSignature().s.toByteArray(), decodedTx.getSignature().v);
+                assertArrayEquals(txs.get(i).getRLPData(), tx.getEncoded());
+                assertArrayEquals(decodedTx.getHash(), tx.getHash());
+            }
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        int ROUNDS = 20_000;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        List<BlockHeader> headers = new ArrayList<>();
+        for (byte[] rlp : blocks) {
+            BlockHeader header = new Block(rlp).getHeader();
+            // drop the encoding kept from decoding
+            header.setTimestamp(header.getTimestamp());
+            headers.add(header);
+        }
+        int encoded = ROUNDS * headers.size();
+
+        RLPWriter writer = new RLPWriter();
+        byte[] out = new byte[1024];
+
+        for (int round = 0; round < 5; ++round) {
+
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (BlockHeader header : headers) {
+                    encodeWithRLP(header);
+                }
+            }
+            long rlpTime = System.nanoTime() - start;
+            long rlpBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (BlockHeader header : headers) {
+                    header.getEncoded(true);
+                }
+            }
+            long encodedTime = System.nanoTime() - start;
+            long encodedBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            allocated = threads.getThreadAllocatedBytes(threadId);
+            start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                for (BlockHeader header : headers) {
+                    writer.reset();
+                    header.encode(writer, true);
+                    writer.writeTo(out, 0);
+                }
+            }
+            long writerTime = System.nanoTime() - start;
+            long writerBytes = threads.getThreadAllocatedBytes(threadId) - allocated;
+
+            System.out.printf("per header: RLP.encodeList %5d ns %5d bytes, getEncoded %5d ns %5d bytes, " +
+                            "reused writer %5d ns %5d bytes%n",
+                    rlpTime / encoded, rlpBytes / encoded,
+                    encodedTime / encoded, encodedBytes / encoded,
+                    writerTime / encoded, writerBytes / encoded);
+        }
+    }
+
+    /**
+     * The way the header was encoded before
+     */
+    private static byte[] encodeWithRLP(BlockHeader header) {
+        return RLP.encodeList(
+                RLP.encodeElement(header.getParentHash()),
+                RLP.encodeElement(header.getUnclesHash()),
+                RLP.encodeElement(header.getCoinbase()),
+                RLP.encodeElement(header.getStateRoot()),
+                RLP.encodeElement(header.getTxTrieRoot()),
+                RLP.encodeElement(header.getReceiptsRoot()),
+                RLP.encodeElement(header.getLogsBloom()),
+                RLP.encodeElement(header.getDifficulty()),
+                RLP.encodeBigInteger(BigInteger.valueOf(header.getNumber())),
+                RLP.encodeBigInteger(BigInteger.valueOf(header.getGasLimit())),
+                RLP.encodeBigInteger(BigInteger.valueOf(header.getGasUsed())),
+                RLP.encodeBigInteger(BigInteger.valueOf(header.getTimestamp())),
+                RLP.encodeElement(header.getExtraData()),
+                RLP.encodeElement(header.getMixHash()),
+                RLP.encodeElement(header.getNonce()));
+    }
+}
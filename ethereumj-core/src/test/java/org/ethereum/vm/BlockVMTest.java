@@ -0,0 +1,130 @@
+package org.ethereum.vm;
+
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the same codes on {@link VM} and {@link BlockVM} and compares the outcome
+ */
+public class BlockVMTest {
+
+    @Test
+    public void testArithmeticAndMemory() {
+        // PUSH1 1 PUSH1 2 ADD PUSH1 0 MSTORE PUSH1 0x20 PUSH1 0 RETURN
+        assertSameOutcome("600160020160005260206000f3", 1000);
+    }
+
+    @Test
+    public void testLoop() {
+        // PUSH1 10 JUMPDEST PUSH1 1 SWAP1 SUB DUP1 PUSH1 2 JUMPI STOP
+        assertSameOutcome("600a5b6001900380600257" + "00", 1000);
+    }
+
+    @Test
+    public void testDynamicGas() {
+        // SHA3 of 32 bytes, EXP, SSTORE, LOG0
+        assertSameOutcome("602060002050", 1000);
+        assertSameOutcome("61ffff600a0a", 1000);
+        assertSameOutcome("6001600055", 100000);
+        assertSameOutcome("60206000a0", 1000);
+    }
+
+    @Test
+    public void testGasInTheMiddleOfBlock() {
+        // PUSH1 1 PUSH1 2 GAS ADD
+        assertSameOutcome("600160025a01", 1000);
+    }
+
+    @Test
+    public void testOutOfGasInTheMiddleOfBlock() {
+        assertSameOutcome("600160020160005260206000f3", 10);
+        assertSameOutcome("600a5b6001900380600257" + "00", 60);
+    }
+
+    @Test
+    public void testHalts() {
+        // stack underflow, bad jump, invalid op, memory overflow
+        assertSameOutcome("600101", 1000);
+        assertSameOutcome("600556", 1000);
+        assertSameOutcome("60010c", 1000);
+        assertSameOutcome("7fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff51", 1000);
+    }
+
+    @Test // random codes, each one runs out of gas at different points
+    public void testRandomCodes() {
+        Random random = new Random(1);
+        for (int i = 0; i < 300; ++i) {
+            String code = randomCode(random, 40);
+            long gasUsed = run(new VM(), code, 100000).getResult().getGasUsed();
+            for (long gas = 0; gas <= gasUsed + 1; gas += Math.max(1, gasUsed / 60)) {
+                assertSameOutcome(code, gas);
+            }
+        }
+    }
+
+    protected VM createEngine() {
+        return new BlockVM();
+    }
+
+    private void assertSameOutcome(String code, long gas) {
+        Program reference = run(new VM(), code, gas);
+        Program block = run(createEngine(), code, gas);
+
+        String run = code + " with gas " + gas;
+        assertEquals(run, reference.getResult().getException() == null, block.getResult().getException() == null);
+        assertEquals(run, reference.getResult().getGasUsed(), block.getResult().getGasUsed());
+        assertEquals(run, reference.getResult().getFutureRefund(), block.getResult().getFutureRefund());
+        assertTrue(run, Arrays.equals(reference.getStack().toArray(), block.getStack().toArray()));
+        assertArrayEquals(run, reference.getMemory(), block.getMemory());
+        assertArrayEquals(run, reference.getResult().getHReturn(), block.getResult().getHReturn());
+        assertEquals(run, String.valueOf(reference.getResult().getLogInfoList()),
+                String.valueOf(block.getResult().getLogInfoList()));
+    }
+
+    /* arithmetic, memory, storage, logs, copies, jumps and halts, no calls */
+    private static final String[] RANDOM_OPS = {
+            "01", "02", "03", "04", "06", "0a", "10", "11", "14", "15", "16", "19", "1a",
+            "20", "37", "39", "50", "51", "52", "53", "54", "55", "56", "57", "58", "59", "5a", "5b",
+            "80", "81", "90", "91", "a0", "a1", "f3", "0c"
+    };
+
+    private static String randomCode(Random random, int length) {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < length; ++i) {
+            int choice = random.nextInt(10);
+            if (choice < 4) {
+                code.append(String.format("60%02x", random.nextInt(64)));
+            } else if (choice == 4) {
+                // a bigger memory expansion
+                code.append(String.format("61%04x", random.nextInt(0x400)));
+            } else {
+                code.append(RANDOM_OPS[random.nextInt(RANDOM_OPS.length)]);
+            }
+        }
+        return code.toString();
+    }
+
+    private static Program run(VM vm, String code, long gas) {
+        ProgramInvokeMockImpl invoke = new ProgramInvokeMockImpl();
+        invoke.setGas(gas);
+
+        Program program = new Program(Hex.decode(code), invoke);
+        try {
+            while (!program.isStopped()) {
+                vm.step(program);
+            }
+        } catch (RuntimeException e) {
+            program.setRuntimeFailure(e);
+        } finally {
+            invoke.getRepository().close();
+        }
+        return program;
+    }
+}
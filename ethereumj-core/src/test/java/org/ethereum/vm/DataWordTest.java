@@ -1,11 +1,15 @@
 package org.ethereum.vm;
 
+import org.ethereum.util.ByteUtil;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import org.spongycastle.util.encoders.Hex;
 
 import java.math.BigInteger;
+import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -298,6 +302,135 @@ public class DataWordTest {
         x.signExtend(k); // should throw an exception
     }
 
+    @Test
+    public void testExpPowerOfTwo() {
+        DataWord x = new DataWord(2);
+        x.exp(new DataWord(255));
+        assertEquals("8000000000000000000000000000000000000000000000000000000000000000", x.toString());
+
+        DataWord y = new DataWord(256);
+        y.exp(new DataWord(32));
+        assertTrue(y.isZero());
+
+        DataWord z = new DataWord(16);
+        z.exp(new DataWord(0));
+        assertEquals(new DataWord(1), z);
+    }
+
+    @Test
+    public void testArithmeticAgainstBigInteger() {
+        Random random = new Random(0);
+        BigInteger _2_255 = BigInteger.ONE.shiftLeft(255);
+
+        for (int i = 0; i < 10_000; ++i) {
+            byte[] a = randomWord(random);
+            byte[] b = randomWord(random);
+            byte[] c = randomWord(random);
+            BigInteger x = new BigInteger(1, a), y = new BigInteger(1, b), z = new BigInteger(1, c);
+            BigInteger sx = x.testBit(255) ? x.subtract(DataWord._2_256) : x;
+            BigInteger sy = y.testBit(255) ? y.subtract(DataWord._2_256) : y;
+            boolean yZero = y.signum() == 0;
+
+            DataWord word = word(a);
+            word.add(word(b));
+            assertValue(x.add(y), word);
+            word = word(a);
+            word.sub(word(b));
+            assertValue(x.subtract(y), word);
+            word = word(a);
+            word.mul(word(b));
+            assertValue(x.multiply(y), word);
+            word = word(a);
+            word.div(word(b));
+            assertValue(yZero ? BigInteger.ZERO : x.divide(y), word);
+            word = word(a);
+            word.mod(word(b));
+            assertValue(yZero ? BigInteger.ZERO : x.mod(y), word);
+            word = word(a);
+            word.sDiv(word(b));
+            assertValue(yZero ? BigInteger.ZERO : sx.divide(sy), word);
+            word = word(a);
+            word.sMod(word(b));
+            assertValue(yZero ? BigInteger.ZERO : (sx.signum() < 0 ? sx.abs().mod(sy.abs()).negate() : sx.mod(sy.abs())), word);
+            word = word(a);
+            word.exp(new DataWord(z.mod(BigInteger.valueOf(1000)).longValue()));
+            assertValue(x.modPow(z.mod(BigInteger.valueOf(1000)), DataWord._2_256), word);
+            word = word(a);
+            word.addmod(word(b), word(c));
+            assertValue(z.signum() == 0 ? BigInteger.ZERO : x.add(y).mod(DataWord._2_256).mod(z), word);
+            word = word(a);
+            word.mulmod(word(b), word(c));
+            assertValue(z.signum() == 0 ? BigInteger.ZERO : x.multiply(y).mod(z), word);
+
+            assertEquals(x.compareTo(y), word(a).compareTo(word(b)));
+            assertEquals(sx.compareTo(sy), word(a).sCompareTo(word(b)));
+            assertEquals(x.compareTo(_2_255) >= 0, word(a).isNegative());
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        Random random = new Random(0);
+        byte[][] words = new byte[1024][];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = randomWord(random);
+        }
+        int ITERATIONS = 1_000_000;
+
+        for (int round = 0; round < 5; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                DataWord x = new DataWord(words[i & 1023].clone());
+                DataWord y = new DataWord(words[(i + 1) & 1023]);
+                x.add(y);
+                x.mul(y);
+                x.div(y);
+                x.sub(y);
+            }
+            long dataWordTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            // the way the arithmetic went through BigInteger before
+            for (int i = 0; i < ITERATIONS; i++) {
+                byte[] x = words[i & 1023].clone();
+                byte[] y = words[(i + 1) & 1023];
+                BigInteger yValue = new BigInteger(1, y);
+                x = ByteUtil.copyToArray(new BigInteger(1, x).add(yValue).and(DataWord.MAX_VALUE));
+                x = ByteUtil.copyToArray(new BigInteger(1, x).multiply(yValue).and(DataWord.MAX_VALUE));
+                x = ByteUtil.copyToArray(yValue.signum() == 0 ? BigInteger.ZERO : new BigInteger(1, x).divide(yValue));
+                x = ByteUtil.copyToArray(new BigInteger(1, x).subtract(yValue).and(DataWord.MAX_VALUE));
+            }
+            long bigIntegerTime = System.nanoTime() - start;
+
+            System.out.printf("%d x add, mul, div, sub: DataWord %d ms, BigInteger %d ms%n",
+                    ITERATIONS, dataWordTime / 1_000_000, bigIntegerTime / 1_000_000);
+        }
+    }
+
+    private static DataWord word(byte[] data) {
+        return new DataWord(data.clone());
+    }
+
+    private static void assertValue(BigInteger expected, DataWord actual) {
+        assertEquals(32, actual.getData().length);
+        assertArrayEquals(new DataWord(ByteUtil.copyToArray(expected.mod(DataWord._2_256))).getData(), actual.getData());
+    }
+
+    /**
+     * @return either a random word or a word with a few significant bytes, mostly zeroes or ones
+     */
+    private static byte[] randomWord(Random random) {
+        byte[] word = new byte[32];
+        random.nextBytes(word);
+        int leading = random.nextInt(33);
+        byte fill = random.nextInt(4) == 0 ? (byte) 0xff : 0;
+        for (int i = 0; i < leading; ++i) {
+            word[i] = fill;
+        }
+        return word;
+    }
+
     public static BigInteger pow(BigInteger x, BigInteger y) {
         if (y.compareTo(BigInteger.ZERO) < 0)
             throw new IllegalArgumentException();
@@ -0,0 +1,27 @@
+package org.ethereum.vm;
+
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Runs the cases of {@link BlockVMTest} on the codes compiled by {@link JitVM}
+ */
+public class JitVMTest extends BlockVMTest {
+
+    @Override
+    protected VM createEngine() {
+        return new JitVM(0);
+    }
+
+    @Test
+    public void testThreshold() {
+        ProgramCode code = new ProgramCode(Hex.decode("6001600201"));
+
+        assertNull(JitCompiler.get(code, true, 2));
+        assertNull(JitCompiler.get(code, false, 2));
+        assertNotNull(JitCompiler.get(code, true, 2));
+    }
+}
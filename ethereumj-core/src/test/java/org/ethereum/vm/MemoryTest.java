@@ -1,5 +1,6 @@
 package org.ethereum.vm;
 
+import org.ethereum.crypto.HashUtil;
 import org.junit.Assert;
 import org.junit.Test;
 import org.spongycastle.util.encoders.Hex;
@@ -511,6 +512,52 @@ public class MemoryTest {
         assertTrue(zero == 10);
     }
 
+    @Test
+    public void memoryWordReadWrite() {
+
+        Memory memoryBuffer = new Memory();
+        DataWord value = new DataWord(Hex.decode("0102030405060708091011121314151617181920212223242526272829303132"));
+
+        memoryBuffer.writeWord(1020, value);
+        assertTrue(memoryBuffer.getChunks().size() == 2);
+        assertTrue(memoryBuffer.size() == 1056);
 
+        DataWord word = new DataWord();
+        memoryBuffer.readWord(1020, word);
+        assertArrayEquals(value.getData(), word.getData());
+        assertArrayEquals(value.getData(), memoryBuffer.readWord(1020).getData());
+        assertTrue(memoryBuffer.readByte(1051) == 0x32);
+    }
 
-}
\ No newline at end of file
+    @Test
+    public void memoryGrowth() {
+
+        Memory memoryBuffer = new Memory();
+        byte[] data = {1, 2, 3};
+
+        memoryBuffer.write(5, data, data.length, false);
+        for (int address = 64; address < 100_000; address *= 3) {
+            memoryBuffer.write(address, data, data.length, false);
+        }
+
+        assertEquals(calcSize(46656 + 3, CHUNK_SIZE), memoryBuffer.internalSize());
+        assertEquals(calcSize(46656 + 3, WORD_SIZE), memoryBuffer.size());
+        assertArrayEquals(data, memoryBuffer.read(5, 3));
+        assertArrayEquals(data, memoryBuffer.read(46656, 3));
+        assertArrayEquals(new byte[3], memoryBuffer.read(100, 3));
+    }
+
+    @Test
+    public void memorySha3() {
+
+        Memory memoryBuffer = new Memory();
+        byte[] data = {1, 2, 3};
+        memoryBuffer.write(40, data, data.length, false);
+
+        assertArrayEquals(HashUtil.sha3(memoryBuffer.read(30, 20)), memoryBuffer.sha3(30, 20));
+        assertArrayEquals(HashUtil.sha3(new byte[10]), memoryBuffer.sha3(2000, 10));
+        assertEquals(calcSize(2010, WORD_SIZE), memoryBuffer.size());
+        assertArrayEquals(HashUtil.EMPTY_DATA_HASH, memoryBuffer.sha3(5000, 0));
+        assertEquals(calcSize(2010, WORD_SIZE), memoryBuffer.size());
+    }
+}
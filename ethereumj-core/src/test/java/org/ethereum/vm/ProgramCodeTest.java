@@ -0,0 +1,86 @@
+package org.ethereum.vm;
+
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ProgramCodeTest {
+
+    @Test
+    public void testJumpDests() {
+        // PUSH2 0x5b5b JUMPDEST PUSH1 0x03 JUMP
+        ProgramCode code = new ProgramCode(Hex.decode("615b5b5b600356"));
+
+        assertFalse(code.isJumpDest(1));
+        assertFalse(code.isJumpDest(2));
+        assertTrue(code.isJumpDest(3));
+        assertFalse(code.isJumpDest(-1));
+        assertFalse(code.isJumpDest(7));
+    }
+
+    @Test
+    public void testOps() {
+        // PUSH1 0x01 <invalid> ADD
+        ProgramCode code = new ProgramCode(Hex.decode("60010c01"));
+
+        assertEquals(OpCode.PUSH1, code.getOp(0));
+        assertNull(code.getOp(2));
+        assertEquals(OpCode.ADD, code.getOp(3));
+        assertEquals(OpCode.STOP, code.getOp(4));
+    }
+
+    @Test
+    public void testPushWords() {
+        // PUSH2 0x1234 PUSH3 0x56 (truncated)
+        ProgramCode code = new ProgramCode(Hex.decode("6112346256"));
+
+        assertArrayEquals(new DataWord(Hex.decode("1234")).getData(), code.getPushWord(0));
+        assertArrayEquals(new DataWord(Hex.decode("560000")).getData(), code.getPushWord(3));
+        assertNull(code.getPushWord(1));
+    }
+
+    @Test
+    public void testBlocks() {
+        // PUSH1 0x05 JUMP | JUMPDEST ADD STOP
+        ProgramCode code = new ProgramCode(Hex.decode("6005565b0100"));
+
+        assertEquals(2, code.getBlockCount());
+        assertEquals(0, code.getBlockIndex(0));
+        assertEquals(1, code.getBlockIndex(3));
+        assertTrue(code.getBlockIndex(4) < 0);
+        assertEquals(3, code.getBlockStart(1));
+        assertEquals(2, code.getBlockEnd(0));
+        assertEquals(5, code.getBlockEnd(1));
+
+        assertEquals(OpCode.Tier.VeryLowTier.asInt() + OpCode.Tier.MidTier.asInt(), code.getBlockGas(0));
+        assertEquals(GasCost.JUMPDEST + OpCode.Tier.VeryLowTier.asInt() + GasCost.STOP, code.getBlockGas(1));
+    }
+
+    @Test
+    public void testBlocksSplitAtGas() {
+        // PUSH1 0x01 GAS | ADD
+        ProgramCode code = new ProgramCode(Hex.decode("60015a01"));
+
+        assertEquals(2, code.getBlockCount());
+        assertEquals(2, code.getBlockEnd(0));
+        assertEquals(3, code.getBlockStart(1));
+        assertEquals(3, code.getBlockEnd(1));
+    }
+
+    @Test
+    public void testCache() {
+        byte[] bytes = Hex.decode("6001600201");
+        ProgramCode code = ProgramCode.of(bytes);
+
+        assertSame(code, ProgramCode.of(bytes.clone()));
+
+        bytes[0] = 0x5b;
+        assertEquals(OpCode.PUSH1, code.getOp(0));
+    }
+}
@@ -0,0 +1,65 @@
+package org.ethereum.vm;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StackTest {
+
+    @Test
+    public void testPushPop() {
+        Stack stack = new Stack();
+        DataWord one = new DataWord(1);
+        DataWord two = new DataWord(2);
+
+        stack.push(one);
+        stack.push(two);
+        assertEquals(2, stack.size());
+        assertSame(two, stack.peek());
+        assertSame(one, stack.get(0));
+
+        assertSame(two, stack.pop());
+        assertSame(one, stack.pop());
+        assertTrue(stack.isEmpty());
+    }
+
+    @Test
+    public void testDupSwap() {
+        Stack stack = new Stack();
+        for (int i = 0; i < 3; ++i) {
+            stack.push(new DataWord(i));
+        }
+
+        stack.dup(3);
+        assertEquals(4, stack.size());
+        assertEquals(new DataWord(0), stack.peek());
+        assertNotSame(stack.get(0), stack.peek());
+
+        stack.swap(stack.size() - 1, stack.size() - 2);
+        assertEquals(new DataWord(2), stack.peek());
+        assertEquals(new DataWord(0), stack.get(2));
+
+        DataWord[] items = stack.toArray();
+        assertEquals(4, items.length);
+        int i = 0;
+        for (DataWord item : stack) {
+            assertSame(items[i++], item);
+        }
+    }
+
+    @Test(expected = Program.StackTooSmallException.class)
+    public void testPopEmpty() {
+        new Stack().pop();
+    }
+
+    @Test(expected = Program.StackTooLargeException.class)
+    public void testPushFull() {
+        Stack stack = new Stack();
+        for (int i = 0; i <= Stack.MAX_SIZE; ++i) {
+            stack.push(new DataWord(i));
+        }
+    }
+}